@@ -26,16 +26,20 @@ import eu.internetofus.common.vertx.AbstractAPIVerticle;
 import eu.internetofus.common.vertx.AbstractServicesVerticle;
 import eu.internetofus.wenet_profile_manager.api.communities.Communities;
 import eu.internetofus.wenet_profile_manager.api.communities.CommunitiesResource;
+import eu.internetofus.wenet_profile_manager.api.deletion_jobs.DeletionJobs;
+import eu.internetofus.wenet_profile_manager.api.deletion_jobs.DeletionJobsResource;
 import eu.internetofus.wenet_profile_manager.api.help.Help;
 import eu.internetofus.wenet_profile_manager.api.help.HelpResource;
 import eu.internetofus.wenet_profile_manager.api.operations.Operations;
 import eu.internetofus.wenet_profile_manager.api.operations.OperationsResource;
 import eu.internetofus.wenet_profile_manager.api.profiles.Profiles;
+import eu.internetofus.wenet_profile_manager.api.profiles.ProfilesExportResource;
 import eu.internetofus.wenet_profile_manager.api.profiles.ProfilesResource;
 import eu.internetofus.wenet_profile_manager.api.relationships.Relationships;
 import eu.internetofus.wenet_profile_manager.api.relationships.RelationshipsResource;
 import eu.internetofus.wenet_profile_manager.api.tasks.Tasks;
 import eu.internetofus.wenet_profile_manager.api.tasks.TasksResource;
+import eu.internetofus.wenet_profile_manager.api.trusts.TrustEventsNdjsonHandler;
 import eu.internetofus.wenet_profile_manager.api.trusts.Trusts;
 import eu.internetofus.wenet_profile_manager.api.trusts.TrustsResource;
 import eu.internetofus.wenet_profile_manager.api.user_identifiers.UserIdentifiers;
@@ -87,8 +91,14 @@ public class APIVerticle extends AbstractAPIVerticle {
     new ServiceBinder(this.vertx).setAddress(Profiles.ADDRESS).register(Profiles.class,
         new ProfilesResource(this.vertx, autoStoreProfileChangesInHistory));
 
+    // The export is checked before the other routes, because '/profiles/{userId}' also match its path.
+    routerFactory.rootHandler(new ProfilesExportResource(this.vertx));
+
     routerFactory.mountServiceInterface(Trusts.class, Trusts.ADDRESS);
-    new ServiceBinder(this.vertx).setAddress(Trusts.ADDRESS).register(Trusts.class, new TrustsResource(this.vertx));
+    final var trusts = new TrustsResource(this.vertx);
+    new ServiceBinder(this.vertx).setAddress(Trusts.ADDRESS).register(Trusts.class, trusts);
+    // The service proxies only accept JSON bodies, so the newline-delimited JSON batches are handled before.
+    routerFactory.rootHandler(new TrustEventsNdjsonHandler(trusts));
 
     routerFactory.mountServiceInterface(Communities.class, Communities.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(Communities.ADDRESS).register(Communities.class,
@@ -100,7 +110,7 @@ public class APIVerticle extends AbstractAPIVerticle {
 
     routerFactory.mountServiceInterface(Operations.class, Operations.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(Operations.ADDRESS).register(Operations.class,
-        new OperationsResource(this.vertx));
+        new OperationsResource(this.vertx, this.config().getJsonObject(PROFILE_MANAGER_CONG_KEY, new JsonObject())));
 
     routerFactory.mountServiceInterface(Relationships.class, Relationships.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(Relationships.ADDRESS).register(Relationships.class,
@@ -109,6 +119,10 @@ public class APIVerticle extends AbstractAPIVerticle {
     routerFactory.mountServiceInterface(Tasks.class, Tasks.ADDRESS);
     new ServiceBinder(this.vertx).setAddress(Tasks.ADDRESS).register(Tasks.class, new TasksResource(this.vertx));
 
+    routerFactory.mountServiceInterface(DeletionJobs.class, DeletionJobs.ADDRESS);
+    new ServiceBinder(this.vertx).setAddress(DeletionJobs.ADDRESS).register(DeletionJobs.class,
+        new DeletionJobsResource(this.vertx));
+
   }
 
   /**
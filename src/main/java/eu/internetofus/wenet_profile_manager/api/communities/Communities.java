@@ -136,6 +136,8 @@ public interface Communities {
    * @param order         in with the communities has to be sort.
    * @param offset        index of the first community to return.
    * @param limit         number maximum of communities to return.
+   * @param fields        names of the community fields to return.
+   * @param total         how the number of communities has to be calculated.
    * @param request       of the operation.
    * @param resultHandler to inform of the response.
    */
@@ -153,6 +155,9 @@ public interface Communities {
       @QueryParam(value = "order") @Parameter(description = "The order in witch the communities has to be returned. For each field it has be separated by a ',' and each field can start with '+' (or without it) to order on ascending order, or with the prefix '-' to do on descendant order.", example = "name,-description,+members", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first community to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of communities to return", example = "100", required = false) int limit,
+      @QueryParam(value = "fields") @Parameter(description = "The fields of the communities to return. For each field it has be separated by a ',' and the nested fields are separated by a '.'. If it is not defined all the fields are returned.", example = "name,description,members", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String fields,
+      @QueryParam(value = "total") @Parameter(description = "How the total number of communities that match the query has to be calculated. It can be 'exact' to count all of them, 'estimate' to obtain an approximation that can be cached for some seconds, or 'none' to not return the total.", required = false, schema = @Schema(allowableValues = {
+          "exact", "estimate", "none" }, defaultValue = "exact", example = "estimate")) String total,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
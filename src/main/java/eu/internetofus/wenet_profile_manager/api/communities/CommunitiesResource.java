@@ -27,6 +27,7 @@ import eu.internetofus.common.components.models.CommunityProfile;
 import eu.internetofus.common.components.models.ProtocolNorm;
 import eu.internetofus.common.components.models.SocialPractice;
 import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.ModelFieldContext;
 import eu.internetofus.common.vertx.ModelResources;
 import eu.internetofus.common.vertx.ServiceContext;
@@ -39,6 +40,8 @@ import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
+import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
 
 /**
  * Resource that provide the methods for the {@link Communities}.
@@ -424,12 +427,70 @@ public class CommunitiesResource implements Communities {
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.createElementContext("members", CommunityMember.class, String.class);
-    element.model.id = id;
-    ModelResources.createModelFieldElement(body, element,
-        (communityId, handler) -> this.repository.searchCommunity(communityId).onComplete(handler),
-        community -> community.members, (community, communityMembers) -> community.members = communityMembers,
-        this.repository::updateCommunity, context);
+    final var element = WeNetModelContext.creteWeNetContext("member", CommunityMember.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context, () -> {
+
+      element.value._creationTs = TimeManager.now();
+      element.value._lastUpdateTs = element.value._creationTs;
+      this.repository.addCommunityMember(id, element.value)
+          .onComplete(add -> this.handleCommunityMemberModification(id, element.name, add, "bad_" + element.name,
+              Status.BAD_REQUEST, context,
+              member -> ServiceResponseHandlers.responseOk(context.resultHandler, member)));
+
+    }));
+
+  }
+
+  /**
+   * Manage the result of an atomic modification of a member of a community. If
+   * the member has been modified it calls the success handler, otherwise it
+   * responds with the reason why it has not been modified.
+   *
+   * @param id             identifier of the community.
+   * @param name           of the member.
+   * @param modification   result of the modification.
+   * @param notFoundCode   code to report when the community exist but the member
+   *                       can not be modified.
+   * @param notFoundStatus status to report when the community exist but the
+   *                       member can not be modified.
+   * @param context        of the request.
+   * @param success        handler to call with the modified member.
+   */
+  protected void handleCommunityMemberModification(final String id, final String name,
+      final AsyncResult<CommunityMember> modification, final String notFoundCode, final Status notFoundStatus,
+      final ServiceContext context, final Handler<CommunityMember> success) {
+
+    if (modification.failed()) {
+
+      final var cause = modification.cause();
+      Logger.trace(cause, "Cannot modify the {} of the community {}.\n{}", name, id, context);
+      ServiceResponseHandlers.responseFailedWith(context.resultHandler, Status.BAD_REQUEST, cause);
+
+    } else {
+
+      final var member = modification.result();
+      if (member == null) {
+
+        this.repository.isCommunityDefined(id).onComplete(defined -> {
+
+          if (defined.failed() || !defined.result()) {
+
+            ServiceResponseHandlers.responseWithErrorMessage(context.resultHandler, Status.NOT_FOUND,
+                "not_found_community", "Does not exist a 'community' associated to '" + id + "'.");
+
+          } else {
+
+            ServiceResponseHandlers.responseWithErrorMessage(context.resultHandler, notFoundStatus, notFoundCode,
+                "Cannot modify the '" + name + "' of the community '" + id + "'.");
+          }
+
+        });
+
+      } else {
+
+        success.handle(member);
+      }
+    }
 
   }
 
@@ -476,14 +537,9 @@ public class CommunitiesResource implements Communities {
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.createElementContext("members", CommunityMember.class, String.class);
-    element.model.id = id;
-    element.id = userId;
-    ModelResources.deleteModelFieldElement(element,
-        (communityId, handler) -> this.repository.searchCommunity(communityId).onComplete(handler),
-        community -> community.members,
-        ModelResources.searchElementById((communityMember, searchId) -> communityMember.userId.equals(searchId)),
-        this.repository::updateCommunity, context);
+    this.repository.deleteCommunityMember(id, userId)
+        .onComplete(delete -> this.handleCommunityMemberModification(id, "member", delete, "not_found_member",
+            Status.NOT_FOUND, context, member -> ServiceResponseHandlers.responseOk(context.resultHandler)));
 
   }
 
@@ -495,14 +551,17 @@ public class CommunitiesResource implements Communities {
       final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.createElementContext("members", CommunityMember.class, String.class);
-    element.model.id = id;
-    element.id = userId;
-    ModelResources.updateModelFieldElement(body, element,
-        (communityId, handler) -> this.repository.searchCommunity(communityId).onComplete(handler),
-        community -> community.members,
-        ModelResources.searchElementById((communityMember, searchId) -> communityMember.userId.equals(searchId)),
-        this.repository::updateCommunity, context);
+    final var element = WeNetModelContext.creteWeNetContext("member", CommunityMember.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> {
+
+      element.value.userId = userId;
+      ModelResources.validate(element, context,
+          () -> this.repository.updateCommunityMember(id, userId, element.value).onComplete(
+              update -> this.handleCommunityMemberModification(id, element.name, update,
+                  "not_found_" + element.name, Status.NOT_FOUND, context,
+                  member -> ServiceResponseHandlers.responseOk(context.resultHandler, member))));
+
+    });
 
   }
 
@@ -531,17 +590,20 @@ public class CommunitiesResource implements Communities {
   @Override
   public void retrieveCommunityProfilesPage(final String appId, final String name, final String description,
       final String keywordsValue, final String membersValue, final String orderValue, final int offset, final int limit,
-      final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+      final String fieldsValue, final String total, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
     final var keywords = ServiceRequests.extractQueryArray(keywordsValue);
     final var members = ServiceRequests.extractQueryArray(membersValue);
     final var order = ServiceRequests.extractQueryArray(orderValue);
+    final var fields = ServiceRequests.extractQueryArray(fieldsValue);
     final var context = new ServiceContext(request, resultHandler);
     ModelResources.retrieveModelsPage(offset, limit, (page, promise) -> {
 
       page.query = CommunitiesRepository.createCommunityProfilesPageQuery(appId, name, description, keywords, members);
       page.sort = CommunitiesRepository.createCommunityProfilesPageSort(order);
-      this.repository.retrieveCommunityProfilesPageObject(page, search -> promise.handle(search));
+      this.repository.retrieveProjectedCommunityProfilesPageObject(page.query, page.sort, page.offset, page.limit,
+          fields, total, search -> promise.handle(search));
 
     }, context);
 
@@ -549,16 +611,32 @@ public class CommunitiesResource implements Communities {
 
   /**
    * {@inheritDoc}
+   *
+   * The existence is checked without obtaining the community.
    */
   @Override
   public void isCommunityDefined(final String communityId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var model = this.createCommunityContext();
-    model.id = communityId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.checkModelExist(model,
-        (modelId, handler) -> this.repository.searchCommunity(modelId).onComplete(handler), context);
+    this.repository.isCommunityDefined(communityId).onComplete(defined -> {
+
+      if (defined.failed()) {
+
+        final var cause = defined.cause();
+        Logger.trace(cause, "Cannot check if the community {} is defined.", communityId);
+        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.INTERNAL_SERVER_ERROR, cause);
+
+      } else if (!defined.result()) {
+
+        ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_community",
+            "Does not exist a 'community' associated to '" + communityId + "'.");
+
+      } else {
+
+        ServiceResponseHandlers.responseOk(resultHandler);
+      }
+
+    });
 
   }
 
@@ -0,0 +1,90 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.deletion_jobs;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A job that deletes all the data that refers to some users or tasks.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "DeletionJob", description = "A job that deletes all the data that refers to some users or tasks")
+public class DeletionJob extends ReflectionModel implements Model {
+
+  /**
+   * The identifier of the job.
+   */
+  @Schema(description = "The identifier of the job.", accessMode = Schema.AccessMode.READ_ONLY, example = "62d9ae1c3e1c7a3d6f8a2b41")
+  public String id;
+
+  /**
+   * The type of the data to delete.
+   */
+  @Schema(description = "The type of the data to delete.", allowableValues = { "users", "tasks" }, example = "users")
+  public String type;
+
+  /**
+   * The identifiers of the users or tasks to delete its data.
+   */
+  @ArraySchema(schema = @Schema(implementation = String.class), arraySchema = @Schema(description = "The identifiers of the users or tasks to delete its data."))
+  public List<String> ids;
+
+  /**
+   * The status of the job.
+   */
+  @Schema(description = "The status of the job.", accessMode = Schema.AccessMode.READ_ONLY, allowableValues = {
+      "pending", "running", "done", "failed" }, example = "running")
+  public String status;
+
+  /**
+   * The progress of each step of the job.
+   */
+  @ArraySchema(schema = @Schema(implementation = DeletionJobStep.class), arraySchema = @Schema(description = "The progress of each step of the job.", accessMode = Schema.AccessMode.READ_ONLY))
+  public List<DeletionJobStep> steps = new ArrayList<>();
+
+  /**
+   * The difference, measured in seconds, between the time when the job was
+   * created and midnight, January 1, 1970 UTC.
+   */
+  @Schema(description = "The difference, measured in seconds, between the time when the job was created and midnight, January 1, 1970 UTC.", accessMode = Schema.AccessMode.READ_ONLY, example = "1457166440")
+  public long creationTime;
+
+  /**
+   * The difference, measured in seconds, between the last time that the job was
+   * updated and midnight, January 1, 1970 UTC.
+   */
+  @Schema(description = "The difference, measured in seconds, between the last time that the job was updated and midnight, January 1, 1970 UTC.", accessMode = Schema.AccessMode.READ_ONLY, example = "1457166440")
+  public long updateTime;
+
+  /**
+   * The error that has stopped the job.
+   */
+  @Schema(description = "The error that has stopped the job, if it has failed.", accessMode = Schema.AccessMode.READ_ONLY, nullable = true)
+  public String error;
+
+}
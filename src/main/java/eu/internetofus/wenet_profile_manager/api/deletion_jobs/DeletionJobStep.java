@@ -0,0 +1,55 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.deletion_jobs;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * The progress of a step of a deletion job.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "DeletionJobStep", description = "The progress of a step of a deletion job")
+public class DeletionJobStep extends ReflectionModel implements Model {
+
+  /**
+   * The name of the step.
+   */
+  @Schema(description = "The name of the step.", allowableValues = { "relationships", "trusts", "historicProfiles",
+      "communityMembers" }, example = "relationships")
+  public String name;
+
+  /**
+   * The number of deleted or modified documents.
+   */
+  @Schema(description = "The number of deleted or modified documents.", example = "1500")
+  public long deleted;
+
+  /**
+   * This is {@code true} if the step is finished.
+   */
+  @Schema(description = "This is true if the step is finished.", example = "false")
+  public boolean done;
+
+}
@@ -0,0 +1,108 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.deletion_jobs;
+
+import eu.internetofus.common.model.ErrorMessage;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.parameters.RequestBody;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.api.service.ServiceRequest;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import io.vertx.ext.web.api.service.WebApiServiceGen;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+/**
+ * The definition of the web services to manage the jobs that delete the data of
+ * some users or tasks.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Path(DeletionJobs.PATH)
+@Tag(name = "Deletion jobs")
+@WebApiServiceGen
+public interface DeletionJobs {
+
+  /**
+   * The path to the deletion jobs resource.
+   */
+  String PATH = "/deletionJobs";
+
+  /**
+   * The address of this service.
+   */
+  String ADDRESS = "wenet_profile_manager.api.deletion_jobs";
+
+  /**
+   * The maximum number of users or tasks that a job can delete.
+   */
+  int MAX_IDS = 1000;
+
+  /**
+   * Called when want to delete the data of some users or tasks.
+   *
+   * @param body          job to create.
+   * @param request       of the operation.
+   * @param resultHandler to inform of the response.
+   */
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Delete the data of some users or tasks", description = "Create a job that delete, on the background, all the data that refers to some users or tasks. The job is stored, so it continues if the component is restarted, and its progress can be obtained with its identifier.")
+  @RequestBody(description = "The type and the identifiers of the users or tasks to delete", required = true, content = @Content(schema = @Schema(implementation = DeletionJob.class)))
+  @ApiResponse(responseCode = "201", description = "The created job", content = @Content(schema = @Schema(implementation = DeletionJob.class)))
+  @ApiResponse(responseCode = "400", description = "Bad job", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void createDeletionJob(@Parameter(hidden = true, required = false) JsonObject body,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to get the progress of a deletion job.
+   *
+   * @param jobId         identifier of the job to get.
+   * @param request       of the operation.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path("/{jobId}")
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Return a deletion job", description = "Allow to get the status and the progress of a deletion job")
+  @ApiResponse(responseCode = "200", description = "The deletion job", content = @Content(schema = @Schema(implementation = DeletionJob.class)))
+  @ApiResponse(responseCode = "404", description = "Not found job", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void retrieveDeletionJob(
+      @PathParam("jobId") @Parameter(description = "The identifier of the deletion job to get", example = "15837028-645a-4a55-9aaf-ceb846439eba") String jobId,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+}
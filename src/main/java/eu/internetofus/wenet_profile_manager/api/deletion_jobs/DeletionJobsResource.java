@@ -0,0 +1,158 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.deletion_jobs;
+
+import eu.internetofus.common.vertx.ServiceContext;
+import eu.internetofus.common.vertx.ServiceResponseHandlers;
+import eu.internetofus.wenet_profile_manager.persistence.DeletionJobsRepository;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.api.service.ServiceRequest;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
+
+/**
+ * Resource that implements the web services defined at {@link DeletionJobs}.
+ *
+ * @see DeletionJobs
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DeletionJobsResource implements DeletionJobs {
+
+  /**
+   * The event bus that is using.
+   */
+  protected Vertx vertx;
+
+  /**
+   * Create a new instance to provide the services of the {@link DeletionJobs}.
+   *
+   * @param vertx with the event bus to use.
+   */
+  public DeletionJobsResource(final Vertx vertx) {
+
+    this.vertx = vertx;
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void createDeletionJob(final JsonObject body, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var type = body.getValue("type");
+    final var ids = body.getValue("ids");
+    if (!(type instanceof String) || DeletionJobsRepository.getDeletionJobSteps((String) type) == null) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_type",
+          "The 'type' has to be '" + DeletionJobsRepository.USERS_TYPE + "' or '" + DeletionJobsRepository.TASKS_TYPE
+              + "'.");
+
+    } else if (!(ids instanceof JsonArray) || ((JsonArray) ids).isEmpty() || ((JsonArray) ids).size() > MAX_IDS) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_ids",
+          "The 'ids' has to be an array with between 1 and " + MAX_IDS + " identifiers.");
+
+    } else if (this.indexOfBadId((JsonArray) ids) > -1) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST,
+          "bad_ids[" + this.indexOfBadId((JsonArray) ids) + "]", "The identifier has to be a non empty string.");
+
+    } else {
+
+      final var context = new ServiceContext(request, resultHandler);
+      final var repository = DeletionJobsRepository.createProxy(this.vertx);
+      repository.addDeletionJob((String) type, (JsonArray) ids).onComplete(added -> {
+
+        if (added.failed()) {
+
+          final var cause = added.cause();
+          Logger.trace(cause, "Cannot add the deletion job.\n{}", context);
+          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+
+        } else {
+
+          ServiceResponseHandlers.responseWith(resultHandler, Status.CREATED, added.result());
+        }
+
+      });
+    }
+
+  }
+
+  /**
+   * Return the index of the first identifier that is not valid.
+   *
+   * @param ids to check.
+   *
+   * @return the index of the first identifier that is not a non empty string, or
+   *         {@code -1} if all the identifiers are valid.
+   */
+  protected int indexOfBadId(final JsonArray ids) {
+
+    for (var i = 0; i < ids.size(); i++) {
+
+      final var id = ids.getValue(i);
+      if (!(id instanceof String) || ((String) id).isBlank()) {
+
+        return i;
+      }
+    }
+
+    return -1;
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveDeletionJob(final String jobId, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var context = new ServiceContext(request, resultHandler);
+    DeletionJobsRepository.createProxy(this.vertx).searchDeletionJob(jobId).onComplete(search -> {
+
+      final var job = search.result();
+      if (job == null) {
+
+        Logger.trace(search.cause(), "Not found deletion job.\n{}", context);
+        ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_deletion_job",
+            "Does not exist a deletion job associated to '" + jobId + "'.");
+
+      } else {
+
+        ServiceResponseHandlers.responseOk(resultHandler, job);
+      }
+
+    });
+
+  }
+
+}
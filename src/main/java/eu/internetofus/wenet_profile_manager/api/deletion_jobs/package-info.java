@@ -0,0 +1,13 @@
+/*
+  Copyright 2023 UDT-IA, IIIA-CSIC
+
+  Use of this source code is governed by an MIT-style
+  license that can be found in the LICENSE file or at
+  https://opensource.org/licenses/MIT.
+*/
+/**
+ * The services to manage the jobs that delete the data of the users or tasks.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+package eu.internetofus.wenet_profile_manager.api.deletion_jobs;
\ No newline at end of file
@@ -0,0 +1,251 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+package eu.internetofus.wenet_profile_manager.api.operations;
+
+import eu.internetofus.common.components.profile_diversity_manager.AgentData;
+import eu.internetofus.common.components.profile_diversity_manager.AgentsData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Calculate, without calling the profile diversity manager, the diversity of
+ * some agents. The diversity of an attribute is the probability that two
+ * different agents have different qualitative values, or the expected absolute
+ * difference between the quantitative values of two different agents. The
+ * diversity of the agents is the mean of the diversity of their attributes.
+ *
+ * This is not the metric of the profile diversity manager, so the values are
+ * not equal to the ones that it calculates. For this reason the diversity
+ * responses inform of the engine that has calculated the value, and the other
+ * engine is not used as fallback by default.
+ *
+ * @see OperationsResource#DIVERSITY_ENGINE_HEADER
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DiversityCalculator {
+
+  /**
+   * The default number of agents from which the diversity is calculated in
+   * parallel.
+   */
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 1000;
+
+  /**
+   * The number of agents from which the diversity is calculated in parallel.
+   */
+  protected int parallelThreshold;
+
+  /**
+   * Create a new calculator.
+   *
+   * @param parallelThreshold number of agents from which the diversity is
+   *                          calculated in parallel.
+   */
+  public DiversityCalculator(final int parallelThreshold) {
+
+    this.parallelThreshold = parallelThreshold;
+
+  }
+
+  /**
+   * Check if the diversity of some agents is calculated in parallel.
+   *
+   * @param data to check.
+   *
+   * @return {@code true} if the diversity of the agents is calculated in
+   *         parallel.
+   */
+  public boolean isParallel(final AgentsData data) {
+
+    return data.agents != null && data.agents.size() >= this.parallelThreshold;
+
+  }
+
+  /**
+   * Calculate the diversity of some agents.
+   *
+   * @param data with the agents and the attributes to calculate the diversity.
+   *
+   * @return the diversity of the agents, that is a value in the range [0,1].
+   */
+  public double calculate(final AgentsData data) {
+
+    final var agents = data.agents;
+    if (agents == null || agents.size() < 2) {
+
+      return 0d;
+    }
+
+    final var qualitativeAttributes = new ArrayList<String>();
+    if (data.qualitativeAttributes != null) {
+
+      qualitativeAttributes.addAll(data.qualitativeAttributes.keySet());
+    }
+    final var quantitativeAttributes = new ArrayList<String>();
+    if (data.quantitativeAttributes != null) {
+
+      quantitativeAttributes.addAll(data.quantitativeAttributes);
+    }
+    final var qualitatives = qualitativeAttributes.size();
+    final var total = qualitatives + quantitativeAttributes.size();
+    if (total == 0) {
+
+      return 0d;
+    }
+
+    final var parallel = this.isParallel(data);
+    var attributes = IntStream.range(0, total);
+    if (parallel) {
+
+      attributes = attributes.parallel();
+    }
+    final var sum = attributes.mapToDouble(index -> {
+
+      if (index < qualitatives) {
+
+        return this.calculateQualitativeDiversity(agents, qualitativeAttributes.get(index), parallel);
+
+      } else {
+
+        return this.calculateQuantitativeDiversity(agents, quantitativeAttributes.get(index - qualitatives),
+            parallel);
+      }
+
+    }).sum();
+    return sum / total;
+
+  }
+
+  /**
+   * Calculate the probability that two different agents have a different value
+   * for a qualitative attribute.
+   *
+   * @param agents    to calculate the diversity.
+   * @param attribute name of the qualitative attribute.
+   * @param parallel  is {@code true} if the values has to be sorted in parallel.
+   *
+   * @return the diversity of the qualitative attribute.
+   */
+  protected double calculateQualitativeDiversity(final List<AgentData> agents, final String attribute,
+      final boolean parallel) {
+
+    final var values = new String[agents.size()];
+    var size = 0;
+    for (final var agent : agents) {
+
+      if (agent.qualitativeAttributes != null) {
+
+        final var value = agent.qualitativeAttributes.get(attribute);
+        if (value != null) {
+
+          values[size++] = value;
+        }
+      }
+    }
+    if (size < 2) {
+
+      return 0d;
+    }
+
+    if (parallel) {
+
+      Arrays.parallelSort(values, 0, size);
+
+    } else {
+
+      Arrays.sort(values, 0, size);
+    }
+
+    // The pairs with the same value are the sum of the squares of each value count
+    var samePairs = 0L;
+    var count = 1L;
+    for (var i = 1; i < size; i++) {
+
+      if (values[i].equals(values[i - 1])) {
+
+        count++;
+
+      } else {
+
+        samePairs += count * count;
+        count = 1L;
+      }
+    }
+    samePairs += count * count;
+    final var n = (double) size;
+    return (n * n - samePairs) / (n * (n - 1d));
+
+  }
+
+  /**
+   * Calculate the expected absolute difference between the values of two
+   * different agents for a quantitative attribute.
+   *
+   * @param agents    to calculate the diversity.
+   * @param attribute name of the quantitative attribute.
+   * @param parallel  is {@code true} if the values has to be sorted in parallel.
+   *
+   * @return the diversity of the quantitative attribute.
+   */
+  protected double calculateQuantitativeDiversity(final List<AgentData> agents, final String attribute,
+      final boolean parallel) {
+
+    final var values = new double[agents.size()];
+    var size = 0;
+    for (final var agent : agents) {
+
+      if (agent.quantitativeAttributes != null) {
+
+        final var value = agent.quantitativeAttributes.get(attribute);
+        if (value != null) {
+
+          values[size++] = value;
+        }
+      }
+    }
+    if (size < 2) {
+
+      return 0d;
+    }
+
+    if (parallel) {
+
+      Arrays.parallelSort(values, 0, size);
+
+    } else {
+
+      Arrays.sort(values, 0, size);
+    }
+
+    // Once sorted, each value is greater than the i previous ones and lower than the size-i-1 next ones
+    var sum = 0d;
+    for (var i = 0; i < size; i++) {
+
+      sum += (2d * i - size + 1d) * values[i];
+    }
+    final var n = (double) size;
+    return 2d * sum / (n * (n - 1d));
+
+  }
+
+}
@@ -28,6 +28,7 @@ import eu.internetofus.common.components.profile_manager.SimilarityResult;
 import eu.internetofus.common.model.ErrorMessage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -79,8 +80,9 @@ public interface Operations {
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Calculate the diversity between some user profiles", description = "Measure how a set of users are diverse")
   @RequestBody(description = "The information to calculate the diversity", required = true, content = @Content(schema = @Schema(implementation = DiversityData.class)))
-  @ApiResponse(responseCode = "200", description = "The diversity between the users", content = @Content(schema = @Schema(implementation = DiversityValue.class)))
+  @ApiResponse(responseCode = "200", description = "The diversity between the users", content = @Content(schema = @Schema(implementation = DiversityValue.class)), headers = @Header(name = "X-Diversity-Engine", description = "The engine that has calculated the diversity, that can be 'local' or 'remote'. The engines do not use the same metric, so the values calculated by different engines can not be compared.", schema = @Schema(type = "string")))
   @ApiResponse(responseCode = "400", description = "Bad diversity data", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  @ApiResponse(responseCode = "503", description = "The diversity engine can not calculate the diversity", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void diversity(@Parameter(hidden = true, required = false) JsonObject body,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
@@ -45,10 +45,11 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.function.Function;
 import javax.ws.rs.core.Response.Status;
 import org.tinylog.Logger;
 
@@ -59,11 +60,64 @@ import org.tinylog.Logger;
  */
 public class OperationsResource implements Operations {
 
+  /**
+   * The configuration property that contains the engine to use to calculate the
+   * diversity.
+   */
+  public static final String DIVERSITY_ENGINE_KEY = "diversityEngine";
+
+  /**
+   * The configuration property that is {@code true} if the other engine has to
+   * be used when the diversity engine fails.
+   */
+  public static final String DIVERSITY_FALLBACK_KEY = "diversityFallback";
+
+  /**
+   * The configuration property that contains the number of agents from which the
+   * local diversity is calculated in parallel.
+   */
+  public static final String DIVERSITY_PARALLEL_THRESHOLD_KEY = "diversityParallelThreshold";
+
+  /**
+   * The name of the engine that calculates the diversity without calling the
+   * profile diversity manager.
+   */
+  public static final String LOCAL_DIVERSITY_ENGINE = "local";
+
+  /**
+   * The name of the engine that calculates the diversity calling the profile
+   * diversity manager.
+   */
+  public static final String REMOTE_DIVERSITY_ENGINE = "remote";
+
+  /**
+   * The header of the diversity responses with the name of the engine that has
+   * calculated the diversity. The engines do not use the same metric, so the
+   * values of the different engines can not be compared.
+   */
+  public static final String DIVERSITY_ENGINE_HEADER = "X-Diversity-Engine";
+
   /**
    * The event bus that is using.
    */
   protected Vertx vertx;
 
+  /**
+   * This is {@code true} if the diversity is calculated locally.
+   */
+  protected boolean localDiversity;
+
+  /**
+   * This is {@code true} if the other engine has to be used when the diversity
+   * engine fails.
+   */
+  protected boolean diversityFallback;
+
+  /**
+   * The component to calculate locally the diversity.
+   */
+  protected DiversityCalculator diversityCalculator;
+
   /**
    * Create a new instance to provide the services of the {@link Profiles}.
    *
@@ -71,7 +125,24 @@ public class OperationsResource implements Operations {
    */
   public OperationsResource(final Vertx vertx) {
 
+    this(vertx, new JsonObject());
+
+  }
+
+  /**
+   * Create a new instance to provide the services of the {@link Profiles}.
+   *
+   * @param vertx with the event bus to use.
+   * @param conf  configuration of the profile manager.
+   */
+  public OperationsResource(final Vertx vertx, final JsonObject conf) {
+
     this.vertx = vertx;
+    this.localDiversity = LOCAL_DIVERSITY_ENGINE
+        .equalsIgnoreCase(String.valueOf(conf.getValue(DIVERSITY_ENGINE_KEY, REMOTE_DIVERSITY_ENGINE)));
+    this.diversityFallback = Boolean.parseBoolean(String.valueOf(conf.getValue(DIVERSITY_FALLBACK_KEY, false)));
+    this.diversityCalculator = new DiversityCalculator(Integer.parseInt(String.valueOf(
+        conf.getValue(DIVERSITY_PARALLEL_THRESHOLD_KEY, DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD))));
 
   }
 
@@ -98,60 +169,177 @@ public class OperationsResource implements Operations {
 
       } else {
 
-        Future<AgentsData> future = Future.succeededFuture(this.createEmptyAgentsData());
-        for (final var profileId : model.source.userIds) {
+        this.validateAttributeNames(model.source.attributes)
+            .compose(valid -> ProfilesRepository.createProxy(this.vertx).searchProfiles(
+                new ArrayList<>(model.source.userIds), this.getProfileFieldsFor(model.source.attributes)))
+            .compose(profiles -> this.merge(model.source.userIds, profiles, model.source.attributes,
+                model.source.match))
+            .onComplete(search -> this.calculateDiversity(search, context));
+      }
 
-          future = future.compose(this.merge(profileId, model.source.attributes, model.source.match));
+    });
 
-        }
+  }
 
-        future.onComplete(search -> {
+  /**
+   * Calculate the diversity of the agents data obtained from the profiles.
+   *
+   * @param search  result of obtaining the agents data.
+   * @param context of the request.
+   */
+  protected void calculateDiversity(final AsyncResult<AgentsData> search, final ServiceContext context) {
 
-          if (search.failed()) {
+    if (search.failed()) {
 
-            final var cause = search.cause();
-            Logger.trace(cause, "Not found profile to calculate diversity");
-            ServiceResponseHandlers.responseFailedWith(context.resultHandler, Status.BAD_REQUEST, cause);
+      final var cause = search.cause();
+      Logger.trace(cause, "Not found profile to calculate diversity");
+      ServiceResponseHandlers.responseFailedWith(context.resultHandler, Status.BAD_REQUEST, cause);
 
-          } else {
-
-            final var data = search.result();
-            if (data.qualitativeAttributes.isEmpty() && data.quantitativeAttributes.isEmpty()) {
+    } else {
 
-              final var cause = new ValidationErrorException("undefined_profile_attributes",
-                  "The profiles does not have at least one common attribute value.");
-              Logger.trace(cause, "Not found at least a common profile attribute to calculate diversity");
-              ServiceResponseHandlers.responseFailedWith(context.resultHandler, Status.BAD_REQUEST, cause);
+      final var data = search.result();
+      if (data.qualitativeAttributes.isEmpty() && data.quantitativeAttributes.isEmpty()) {
 
-            } else {
+        final var cause = new ValidationErrorException("undefined_profile_attributes",
+            "The profiles does not have at least one common attribute value.");
+        Logger.trace(cause, "Not found at least a common profile attribute to calculate diversity");
+        ServiceResponseHandlers.responseFailedWith(context.resultHandler, Status.BAD_REQUEST, cause);
 
-              WeNetProfileDiversityManager.createProxy(this.vertx).calculateDiversityOf(data).onComplete(calculus -> {
+      } else {
 
-                final var result = new DiversityValue();
-                if (calculus.failed()) {
+        this.calculateDiversity(data).onComplete(calculus -> {
 
-                  Logger.trace(calculus.cause(), "Cannot calculate diversity");
-                  result.diversity = 0d;
+          if (calculus.failed()) {
 
-                } else {
+            final var engine = this.localDiversity ? LOCAL_DIVERSITY_ENGINE : REMOTE_DIVERSITY_ENGINE;
+            var message = "Cannot calculate the diversity with the '" + engine + "' engine";
+            if (this.diversityFallback) {
 
-                  final var diversity = calculus.result();
-                  result.diversity = diversity.value;
-                }
+              final var fallback = this.localDiversity ? REMOTE_DIVERSITY_ENGINE : LOCAL_DIVERSITY_ENGINE;
+              message += " nor with the '" + fallback + "' engine";
+            }
+            message += ".";
+            Logger.error(calculus.cause(), "{}", message);
+            ServiceResponseHandlers.responseWithErrorMessage(context.resultHandler, Status.SERVICE_UNAVAILABLE,
+                "unavailable_diversity_engine", message);
 
-                ServiceResponseHandlers.responseOk(resultHandler, result);
+          } else {
 
-              });
-            }
+            context.resultHandler.handle(Future.succeededFuture(calculus.result()));
           }
 
         });
       }
+    }
+
+  }
+
+  /**
+   * Calculate the diversity with the configured engine, and if it fails and the
+   * fallback is enabled, with the other engine.
+   *
+   * @param data to calculate the diversity.
+   *
+   * @return the future response with the diversity of the agents.
+   *
+   * @see #DIVERSITY_ENGINE_HEADER
+   */
+  protected Future<ServiceResponse> calculateDiversity(final AgentsData data) {
+
+    final var engine = this.localDiversity ? LOCAL_DIVERSITY_ENGINE : REMOTE_DIVERSITY_ENGINE;
+    final var calculus = this.calculateDiversity(engine, data);
+    if (this.diversityFallback) {
+
+      final var fallback = this.localDiversity ? REMOTE_DIVERSITY_ENGINE : LOCAL_DIVERSITY_ENGINE;
+      return calculus.recover(cause -> {
+
+        Logger.warn(cause, "Cannot calculate the diversity with the {} engine, so the {} engine is used.", engine,
+            fallback);
+        return this.calculateDiversity(fallback, data);
+
+      });
+
+    } else {
+
+      return calculus;
+    }
+
+  }
+
+  /**
+   * Calculate the diversity with an engine.
+   *
+   * @param engine name of the engine to use.
+   * @param data   to calculate the diversity.
+   *
+   * @return the future response with the diversity of the agents and the name
+   *         of the engine on the {@link #DIVERSITY_ENGINE_HEADER}.
+   */
+  protected Future<ServiceResponse> calculateDiversity(final String engine, final AgentsData data) {
+
+    final Future<Double> calculus;
+    if (LOCAL_DIVERSITY_ENGINE.equals(engine)) {
+
+      calculus = this.calculateLocalDiversity(data);
+
+    } else {
+
+      calculus = this.calculateRemoteDiversity(data);
+    }
+    return calculus.map(diversity -> {
+
+      final var result = new DiversityValue();
+      result.diversity = diversity;
+      return ServiceResponse.completedWithJson(result.toJsonObject()).putHeader(DIVERSITY_ENGINE_HEADER, engine);
 
     });
 
   }
 
+  /**
+   * Calculate the diversity without calling the profile diversity manager. When
+   * there are a lot of agents it is calculated in parallel out of the event
+   * loop.
+   *
+   * @param data to calculate the diversity.
+   *
+   * @return the future diversity of the agents.
+   */
+  protected Future<Double> calculateLocalDiversity(final AgentsData data) {
+
+    if (this.diversityCalculator.isParallel(data)) {
+
+      return this.vertx.executeBlocking(
+          (Handler<Promise<Double>>) promise -> promise.complete(this.diversityCalculator.calculate(data)), false);
+
+    } else {
+
+      try {
+
+        return Future.succeededFuture(this.diversityCalculator.calculate(data));
+
+      } catch (final Throwable cause) {
+
+        return Future.failedFuture(cause);
+      }
+    }
+
+  }
+
+  /**
+   * Calculate the diversity calling the profile diversity manager.
+   *
+   * @param data to calculate the diversity.
+   *
+   * @return the future diversity of the agents.
+   */
+  protected Future<Double> calculateRemoteDiversity(final AgentsData data) {
+
+    return WeNetProfileDiversityManager.createProxy(this.vertx).calculateDiversityOf(data)
+        .map(diversity -> diversity.value);
+
+  }
+
   /**
    * Create an empty agents data.
    *
@@ -168,103 +356,182 @@ public class OperationsResource implements Operations {
   }
 
   /**
-   * Merge a profile into an agents data.
+   * Check that the names of the attributes can be used to obtain the profile
+   * fields. A name is not valid if it is empty, or any of its parts separated by
+   * a '.' is empty or starts with '$'.
    *
-   * @param profileId  identifier of the profile to merge.
-   * @param attributes to get of the profile.
+   * @param attributes to calculate the diversity.
+   *
+   * @return the future that fails with a {@link ValidationErrorException} if
+   *         any attribute name is not valid.
+   */
+  protected Future<Void> validateAttributeNames(final Set<String> attributes) {
+
+    for (final var attributeName : attributes) {
+
+      if (attributeName == null || attributeName.isBlank()) {
+
+        return Future.failedFuture(
+            new ValidationErrorException("bad_profile_attribute_value", "The attribute names can not be empty."));
+      }
+      for (final var part : attributeName.split("\\.", -1)) {
+
+        if (part.isBlank() || part.startsWith("$")) {
+
+          return Future.failedFuture(new ValidationErrorException("bad_profile_attribute_value",
+              "The attribute name '" + attributeName + "' is not valid."));
+        }
+      }
+    }
+    return Future.succeededFuture();
+
+  }
+
+  /**
+   * Return the profile fields that contain the attributes to calculate the
+   * diversity.
+   *
+   * @param attributes to calculate the diversity.
+   *
+   * @return the names of the profile fields to obtain.
+   */
+  protected List<String> getProfileFieldsFor(final Set<String> attributes) {
+
+    final var fields = new ArrayList<String>();
+    for (final var attributeName : attributes) {
+
+      final var index = attributeName.indexOf('.');
+      final var field = index > 0 ? attributeName.substring(0, index) : attributeName;
+      if (!fields.contains(field)) {
+
+        fields.add(field);
+      }
+    }
+    return fields;
+
+  }
+
+  /**
+   * Merge the profiles of some users into an agents data.
+   *
+   * @param userIds    identifiers of the users to merge.
+   * @param profiles   that have been found for the users.
+   * @param attributes to get of the profiles.
    * @param match      that has to do over the fields.
    *
    * @return the future agents data.
    */
-  protected Function<AgentsData, Future<AgentsData>> merge(final String profileId, final Set<String> attributes,
-      final MatchType match) {
+  protected Future<AgentsData> merge(final Collection<String> userIds, final JsonArray profiles,
+      final Set<String> attributes, final MatchType match) {
 
-    return data -> {
+    final var profilesById = new HashMap<String, JsonObject>();
+    for (final var element : profiles) {
 
-      final Promise<AgentsData> promise = Promise.promise();
-      ProfilesRepository.createProxy(this.vertx).searchProfile(profileId, search -> {
+      if (element instanceof JsonObject) {
 
-        if (search.failed()) {
+        final var profile = (JsonObject) element;
+        profilesById.put(profile.getString("id"), profile);
+      }
+    }
 
-          promise.fail(new ValidationErrorException("not_found_profile",
-              "Cannot found a profile with the identifier '" + profileId + "'.", search.cause()));
+    final var data = this.createEmptyAgentsData();
+    try {
 
-        } else {
+      for (final var profileId : userIds) {
 
-          final var profile = search.result();
-          final var agent = new AgentData();
-          agent.id = profileId;
-          agent.qualitativeAttributes = new HashMap<>();
-          agent.quantitativeAttributes = new HashMap<>();
-          data.agents.add(agent);
-          for (final var attributeName : attributes) {
-
-            final var value = this.getProfileAttributeValue(attributeName, profile);
-            if (value instanceof String || value instanceof Integer) {
-
-              if (match == MatchType.ALL || data.agents.size() == 1
-                  || data.qualitativeAttributes.containsKey(attributeName)) {
-
-                final var option = String.valueOf(value);
-                agent.qualitativeAttributes.put(attributeName, option);
-                var options = data.qualitativeAttributes.get(attributeName);
-                if (options == null) {
-
-                  options = new HashSet<>();
-                  data.qualitativeAttributes.put(attributeName, options);
-                }
-                options.add(option);
-              }
+        final var profile = profilesById.get(profileId);
+        if (profile == null) {
 
-            } else if (value instanceof Number) {
+          throw new ValidationErrorException("not_found_profile",
+              "Cannot found a profile with the identifier '" + profileId + "'.");
+        }
+        this.merge(data, profileId, profile, attributes, match);
+      }
+      return Future.succeededFuture(data);
 
-              final var quantitativeValue = ((Number) value).doubleValue();
-              if (quantitativeValue < 0d || quantitativeValue > 1d) {
+    } catch (final ValidationErrorException cause) {
 
-                promise.fail(
-                    new ValidationErrorException("bad_quantitative_profile_attribute_value", "The quantitative value '"
-                        + attributeName + "' of the profile '" + profileId + "'is not on the range [0,1]."));
-                return;
+      return Future.failedFuture(cause);
+    }
 
-              } else if (match == MatchType.ALL || data.agents.size() == 1
-                  || data.quantitativeAttributes.contains(attributeName)) {
+  }
 
-                agent.quantitativeAttributes.put(attributeName, quantitativeValue);
-                data.quantitativeAttributes.add(attributeName);
+  /**
+   * Merge a profile into an agents data.
+   *
+   * @param data       where the profile has to be merged.
+   * @param profileId  identifier of the profile to merge.
+   * @param profile    to merge.
+   * @param attributes to get of the profile.
+   * @param match      that has to do over the fields.
+   *
+   * @throws ValidationErrorException if the profile has a bad attribute value.
+   */
+  protected void merge(final AgentsData data, final String profileId, final JsonObject profile,
+      final Set<String> attributes, final MatchType match) throws ValidationErrorException {
 
-              }
+    final var agent = new AgentData();
+    agent.id = profileId;
+    agent.qualitativeAttributes = new HashMap<>();
+    agent.quantitativeAttributes = new HashMap<>();
+    data.agents.add(agent);
+    for (final var attributeName : attributes) {
 
-            } else if (value == null) {
+      final var value = this.getProfileAttributeValue(attributeName, profile);
+      if (value instanceof String || value instanceof Integer) {
 
-              if (match == MatchType.ALL) {
+        if (match == MatchType.ALL || data.agents.size() == 1
+            || data.qualitativeAttributes.containsKey(attributeName)) {
 
-                promise.fail(new ValidationErrorException("bad_profile_attribute_value",
-                    "The attribute '" + attributeName + "' is not defined on the profile '" + profileId + "'."));
-                return;
+          final var option = String.valueOf(value);
+          agent.qualitativeAttributes.put(attributeName, option);
+          var options = data.qualitativeAttributes.get(attributeName);
+          if (options == null) {
 
-              } else {
-                // remove it because is not defined
-                data.quantitativeAttributes.remove(attributeName);
-                data.qualitativeAttributes.remove(attributeName);
-              }
+            options = new HashSet<>();
+            data.qualitativeAttributes.put(attributeName, options);
+          }
+          options.add(option);
+        }
 
-            } else {
+      } else if (value instanceof Number) {
 
-              promise.fail(new ValidationErrorException("bad_profile_attribute_value",
-                  "Cannot calculate diversity for the attribute '" + attributeName + "' of the profile '" + profileId
-                      + "'."));
-              return;
-            }
+        final var quantitativeValue = ((Number) value).doubleValue();
+        if (quantitativeValue < 0d || quantitativeValue > 1d) {
+
+          throw new ValidationErrorException("bad_quantitative_profile_attribute_value", "The quantitative value '"
+              + attributeName + "' of the profile '" + profileId + "'is not on the range [0,1].");
 
-          } // End for attributeName
+        } else if (match == MatchType.ALL || data.agents.size() == 1
+            || data.quantitativeAttributes.contains(attributeName)) {
+
+          agent.quantitativeAttributes.put(attributeName, quantitativeValue);
+          data.quantitativeAttributes.add(attributeName);
 
-          promise.complete(data);
         }
 
-      });
+      } else if (value == null) {
+
+        if (match == MatchType.ALL) {
+
+          throw new ValidationErrorException("bad_profile_attribute_value",
+              "The attribute '" + attributeName + "' is not defined on the profile '" + profileId + "'.");
+
+        } else {
+          // remove it because is not defined
+          data.quantitativeAttributes.remove(attributeName);
+          data.qualitativeAttributes.remove(attributeName);
+        }
+
+      } else {
+
+        throw new ValidationErrorException("bad_profile_attribute_value",
+            "Cannot calculate diversity for the attribute '" + attributeName + "' of the profile '" + profileId
+                + "'.");
+      }
+
+    } // End for attributeName
 
-      return promise.future();
-    };
   }
 
   /**
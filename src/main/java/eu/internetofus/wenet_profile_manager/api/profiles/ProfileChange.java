@@ -0,0 +1,75 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.profiles;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+/**
+ * A change over a path of a profile.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "ProfileChange", description = "A change over a path of a profile")
+public class ProfileChange extends ReflectionModel implements Model {
+
+  /**
+   * The type of change.
+   */
+  @Schema(description = "The type of change. It can be 'set' to define a value, 'remove' to remove a field or 'splice' to replace some elements of an array.", allowableValues = {
+      "set", "remove", "splice" }, example = "set")
+  public String op;
+
+  /**
+   * The path to the changed value.
+   */
+  @ArraySchema(schema = @Schema(type = "object", description = "A field name or an array index"), arraySchema = @Schema(description = "The field names and array indexes to the changed value.", example = "[\"name\",\"first\"]"))
+  public List<Object> path;
+
+  /**
+   * The new value of a set change.
+   */
+  @Schema(description = "The new value of a set change.", example = "\"Jane\"", nullable = true)
+  public Object value;
+
+  /**
+   * The index of the first element of the array to replace on a splice change.
+   */
+  @Schema(description = "The index of the first element of the array to replace on a splice change.", example = "2", nullable = true)
+  public Integer index;
+
+  /**
+   * The number of elements of the array to remove on a splice change.
+   */
+  @Schema(description = "The number of elements of the array to remove on a splice change.", example = "1", nullable = true)
+  public Integer remove;
+
+  /**
+   * The elements to insert into the array on a splice change.
+   */
+  @ArraySchema(schema = @Schema(type = "object"), arraySchema = @Schema(description = "The elements to insert into the array on a splice change.", nullable = true))
+  public List<Object> values;
+
+}
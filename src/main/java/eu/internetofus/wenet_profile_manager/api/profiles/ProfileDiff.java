@@ -0,0 +1,62 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.profiles;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+/**
+ * The changes between two versions of the profile of an user.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "ProfileDiff", description = "The changes between two versions of the profile of an user")
+public class ProfileDiff extends ReflectionModel implements Model {
+
+  /**
+   * The identifier of the user.
+   */
+  @Schema(description = "The identifier of the user.", example = "15837028-645a-4a55-9aaf-ceb846439eba")
+  public String userId;
+
+  /**
+   * The time stamp when the source version was active.
+   */
+  @Schema(description = "The difference, measured in seconds, between the time stamp when the source version was active and midnight, January 1, 1970 UTC. If it is not defined the source is the current profile.", example = "1457166440", nullable = true)
+  public Long source;
+
+  /**
+   * The time stamp when the target version was active.
+   */
+  @Schema(description = "The difference, measured in seconds, between the time stamp when the target version was active and midnight, January 1, 1970 UTC. If it is not defined the target is the current profile.", example = "1571664406", nullable = true)
+  public Long target;
+
+  /**
+   * The changes to apply to the source version to obtain the target version.
+   */
+  @ArraySchema(schema = @Schema(implementation = ProfileChange.class), arraySchema = @Schema(description = "The changes to apply to the source version to obtain the target version"))
+  public List<ProfileChange> changes;
+
+}
@@ -25,6 +25,8 @@ import eu.internetofus.common.components.profile_manager.HistoricWeNetUserProfil
 import eu.internetofus.common.model.ErrorMessage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.Explode;
+import io.swagger.v3.oas.annotations.enums.ParameterStyle;
 import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
@@ -92,6 +94,11 @@ public interface Profiles {
    */
   String HISTORIC_PATH = "/historic";
 
+  /**
+   * The path to the changes between two versions of a profile.
+   */
+  String DIFF_PATH = "/diff";
+
   /**
    * The path to edit the norms of a profile.
    */
@@ -137,6 +144,9 @@ public interface Profiles {
    *
    * @param offset        index of the first user identifier to return.
    * @param limit         number maximum of user identifiers to return.
+   * @param cursor        continuation token to obtain the next page.
+   * @param fields        names of the profile fields to return.
+   * @param total         how the number of profiles has to be calculated.
    * @param request       of the operation.
    * @param resultHandler to inform of the response.
    */
@@ -148,6 +158,10 @@ public interface Profiles {
   void retrieveProfilesPage(
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first user profile to return.", example = "4", required = false) int offset,
       @DefaultValue("10000") @QueryParam(value = "limit") @Parameter(description = "The number maximum of user profiles to return", example = "100", required = false) int limit,
+      @QueryParam(value = "cursor") @Parameter(description = "The continuation token to obtain the page that is after the last one. When it is defined the offset is ignored and the page contains the field 'nextCursor' with the token to obtain the next page, if there are more profiles. Use the value 'first' to start from the first page.", example = "first", required = false) String cursor,
+      @QueryParam(value = "fields") @Parameter(description = "The fields of the profiles to return. For each field it has be separated by a ',' and the nested fields are separated by a '.'. If it is not defined all the fields are returned.", example = "name,locale,competences", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String fields,
+      @QueryParam(value = "total") @Parameter(description = "How the total number of profiles that match the query has to be calculated. It can be 'exact' to count all of them, 'estimate' to obtain an approximation that can be cached for some seconds, or 'none' to not return the total.", required = false, schema = @Schema(allowableValues = {
+          "exact", "estimate", "none" }, defaultValue = "exact", example = "estimate")) String total,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
@@ -175,18 +189,23 @@ public interface Profiles {
    * Called when want to get a profile.
    *
    * @param userId        identifier of the user to get.
+   * @param fields        names of the profile fields to return.
+   * @param at            time stamp when the profile has to be active, or
+   *                      {@code null} to return the current profile.
    * @param request       of the operation.
    * @param resultHandler to inform of the response.
    */
   @GET
   @Path(USER_ID_PATH)
   @Produces(MediaType.APPLICATION_JSON)
-  @Operation(summary = "Return a profile", description = "Allow to get the profile with the specified identifier")
+  @Operation(summary = "Return a profile", description = "Allow to get the profile with the specified identifier, or the version of the profile that was active at a time stamp")
   @ApiResponse(responseCode = "200", description = "The profile associated to the identifier", content = @Content(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/WeNetUserProfile"), examples = {
       @ExampleObject(name = "FoundProfile", value = PROFILE_EXAMPLE) }))
   @ApiResponse(responseCode = "404", description = "Not found profile", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void retrieveProfile(
       @PathParam("userId") @Parameter(description = "The identifier of the user to get", example = "15837028-645a-4a55-9aaf-ceb846439eba") String userId,
+      @QueryParam(value = "fields") @Parameter(description = "The fields of the profile to return. For each field it has be separated by a ',' and the nested fields are separated by a '.'. If it is not defined all the fields are returned.", example = "name,locale,competences", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String fields,
+      @QueryParam(value = "at") @Parameter(description = "The difference, measured in seconds, between the time stamp when the returned profile has to be active and midnight, January 1, 1970 UTC. If it is not defined the current profile is returned.", example = "1571664406", required = false) Long at,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
@@ -275,6 +294,8 @@ public interface Profiles {
    * @param order         of the profiles to return.
    * @param offset        index of the first task to return.
    * @param limit         number maximum of tasks to return.
+   * @param total         how the number of historic profiles has to be
+   *                      calculated.
    * @param request       of the operation.
    * @param resultHandler to inform of the response.
    */
@@ -293,6 +314,33 @@ public interface Profiles {
           "-", "+" }, defaultValue = "+", example = "-")) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first task type to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of task types to return", example = "100", required = false) int limit,
+      @QueryParam(value = "total") @Parameter(description = "How the total number of historic profiles that match the query has to be calculated. It can be 'exact' to count all of them, 'estimate' to obtain an approximation that can be cached for some seconds, or 'none' to not return the total.", required = false, schema = @Schema(allowableValues = {
+          "exact", "estimate", "none" }, defaultValue = "exact", example = "estimate")) String total,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to get the changes between two versions of a profile.
+   *
+   * @param userId        identifier of the user to get the changes.
+   * @param source        time stamp when the source version was active, or
+   *                      {@code null} to use the current profile.
+   * @param target        time stamp when the target version was active, or
+   *                      {@code null} to use the current profile.
+   * @param request       of the operation.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(USER_ID_PATH + DIFF_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Get the changes between two versions of a profile", description = "Allow to obtain the changes to apply to a version of a profile to obtain another version. Each version can be the current profile or the profile that was active at a time stamp.")
+  @ApiResponse(responseCode = "200", description = "The changes between the versions", content = @Content(schema = @Schema(implementation = ProfileDiff.class)))
+  @ApiResponse(responseCode = "404", description = "Not found any of the versions of the profile", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  @Tag(name = "Historic")
+  void retrieveProfileDiff(
+      @PathParam("userId") @Parameter(description = "The identifier of the user to get the changes of its profile") String userId,
+      @QueryParam(value = "source") @Parameter(description = "The difference, measured in seconds, between the time stamp when the source version was active and midnight, January 1, 1970 UTC. If it is not defined the current profile is used.", example = "1457166440", required = false) Long source,
+      @QueryParam(value = "target") @Parameter(description = "The difference, measured in seconds, between the time stamp when the target version was active and midnight, January 1, 1970 UTC. If it is not defined the current profile is used.", example = "1571664406", required = false) Long target,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
@@ -0,0 +1,76 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.profiles;
+
+import eu.internetofus.common.components.models.WeNetUserProfile;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.vertx.ext.web.RoutingContext;
+import javax.ws.rs.DefaultValue;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+
+/**
+ * The definition of the web service to export all the {@link WeNetUserProfile}.
+ * This service is not provided over the event bus, because the profiles are
+ * streamed directly from the database to the HTTP response.
+ *
+ * @see ProfilesExportResource
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Path(Profiles.PATH)
+@Tag(name = "Profiles")
+public interface ProfilesExport {
+
+  /**
+   * The sub path to export the profiles.
+   */
+  String EXPORT_PATH = "/export";
+
+  /**
+   * The media type of the exported profiles.
+   */
+  String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+  /**
+   * Called when want to export all the profiles.
+   *
+   * @param gzip    is {@code true} if the exported profiles has to be
+   *                compressed.
+   * @param context of the request.
+   */
+  @GET
+  @Path(EXPORT_PATH)
+  @Produces(NDJSON_MEDIA_TYPE)
+  @Operation(summary = "Export all the profiles", description = "Return all the profiles as newline-delimited JSON (one profile per line), ordered by its creation time. The profiles are streamed from the database, so the response does not have a content length.")
+  @ApiResponse(responseCode = "200", description = "The profiles, one per line", content = @Content(mediaType = NDJSON_MEDIA_TYPE, schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/WeNetUserProfile")))
+  void exportProfiles(
+      @DefaultValue("false") @QueryParam(value = "gzip") @Parameter(description = "Set it to true if the response has to be compressed with gzip.", example = "true", required = false) boolean gzip,
+      @Parameter(hidden = true, required = false) RoutingContext context);
+
+}
@@ -0,0 +1,274 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.profiles;
+
+import eu.internetofus.wenet_profile_manager.persistence.KeysetPages;
+import eu.internetofus.wenet_profile_manager.persistence.ProfilesRepository;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
+
+/**
+ * The implementation of the {@link ProfilesExport}. The profiles are obtained
+ * in batches from the {@link ProfilesRepository}, as pages after a cursor, and
+ * written to the response. The next batch is only requested when the response
+ * can accept more data, and when the client closes the connection no more
+ * batches are requested.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ProfilesExportResource implements ProfilesExport, Handler<RoutingContext> {
+
+  /**
+   * The number of profiles to obtain from the repository in any batch.
+   */
+  public static final int BATCH_SIZE = 100;
+
+  /**
+   * The number of compressed bytes to accumulate before write them into the
+   * response.
+   */
+  public static final int GZIP_CHUNK_SIZE = 32 * 1024;
+
+  /**
+   * The path of the export service.
+   */
+  public static final String EXPORT_FULL_PATH = Profiles.PATH + EXPORT_PATH;
+
+  /**
+   * The event bus that is using.
+   */
+  protected Vertx vertx;
+
+  /**
+   * Create the resource.
+   *
+   * @param vertx with the event bus to use.
+   */
+  public ProfilesExportResource(final Vertx vertx) {
+
+    this.vertx = vertx;
+
+  }
+
+  /**
+   * Export the profiles if the request is for this service, otherwise it is
+   * passed to the next handler.
+   *
+   * @param context of the request.
+   */
+  @Override
+  public void handle(final RoutingContext context) {
+
+    if (HttpMethod.GET.equals(context.request().method()) && EXPORT_FULL_PATH.equals(context.normalizedPath())) {
+
+      final var gzip = "true".equalsIgnoreCase(context.request().getParam("gzip"));
+      this.exportProfiles(gzip, context);
+
+    } else {
+
+      context.next();
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void exportProfiles(final boolean gzip, final RoutingContext context) {
+
+    final var response = context.response();
+    response.setChunked(true);
+    response.putHeader("Content-Type", NDJSON_MEDIA_TYPE);
+    final var output = new ByteArrayOutputStream();
+    GZIPOutputStream compressor = null;
+    if (gzip) {
+
+      response.putHeader("Content-Encoding", "gzip");
+      try {
+
+        compressor = new GZIPOutputStream(output);
+
+      } catch (final IOException cause) {
+
+        Logger.trace(cause, "Cannot create the gzip compressor");
+        response.setStatusCode(Status.INTERNAL_SERVER_ERROR.getStatusCode()).end();
+        return;
+      }
+    }
+    final var gzipOutput = compressor;
+    response.closeHandler(closed -> this.closeExport(gzipOutput));
+    this.exportBatch(ProfilesRepository.createProxy(this.vertx), KeysetPages.FIRST_PAGE_CURSOR, response, output,
+        gzipOutput);
+
+  }
+
+  /**
+   * Obtain a batch of profiles from the repository and write them into the
+   * response. When the batch is written, the next one is requested if the
+   * response can accept more data, or when the response is drained.
+   *
+   * @param repository to obtain the profiles.
+   * @param cursor     to the previous batch.
+   * @param response   where the profiles are written.
+   * @param output     where the compressed profiles are written.
+   * @param gzipOutput the compressor of the profiles or {@code null} if the
+   *                   profiles are not compressed.
+   */
+  protected void exportBatch(final ProfilesRepository repository, final String cursor,
+      final HttpServerResponse response, final ByteArrayOutputStream output, final GZIPOutputStream gzipOutput) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    repository.retrieveProfilesPageObjectAfter(cursor, BATCH_SIZE, promise);
+    promise.future().onComplete(retrieve -> {
+
+      if (response.closed()) {
+
+        return;
+      }
+
+      if (retrieve.failed()) {
+
+        Logger.trace(retrieve.cause(), "Cannot export the profiles");
+        if (response.headWritten()) {
+
+          response.reset();
+
+        } else {
+
+          response.setChunked(false);
+          response.headers().remove("Content-Encoding");
+          response.setStatusCode(Status.INTERNAL_SERVER_ERROR.getStatusCode()).end();
+        }
+        return;
+      }
+
+      final var page = retrieve.result();
+      final var profiles = page.getJsonArray("profiles", new JsonArray());
+      for (var i = 0; i < profiles.size(); i++) {
+
+        final var profile = profiles.getJsonObject(i);
+        final var line = (profile.encode() + "\n").getBytes(StandardCharsets.UTF_8);
+        if (gzipOutput == null) {
+
+          response.write(Buffer.buffer(line));
+
+        } else {
+
+          try {
+
+            gzipOutput.write(line);
+
+          } catch (final IOException cause) {
+
+            Logger.trace(cause, "Cannot compress the profile {}", profile);
+          }
+          if (output.size() >= GZIP_CHUNK_SIZE) {
+
+            response.write(Buffer.buffer(output.toByteArray()));
+            output.reset();
+          }
+        }
+      }
+
+      final var next = page.getString(KeysetPages.NEXT_CURSOR_FIELD);
+      if (next == null) {
+
+        this.endExport(response, output, gzipOutput);
+
+      } else if (response.writeQueueFull()) {
+
+        response.drainHandler(drained -> this.exportBatch(repository, next, response, output, gzipOutput));
+
+      } else {
+
+        this.exportBatch(repository, next, response, output, gzipOutput);
+      }
+
+    });
+
+  }
+
+  /**
+   * Called when all the profiles have been written into the response.
+   *
+   * @param response   where the profiles are written.
+   * @param output     where the compressed profiles are written.
+   * @param gzipOutput the compressor of the profiles or {@code null} if the
+   *                   profiles are not compressed.
+   */
+  protected void endExport(final HttpServerResponse response, final ByteArrayOutputStream output,
+      final GZIPOutputStream gzipOutput) {
+
+    if (gzipOutput != null) {
+
+      try {
+
+        gzipOutput.finish();
+        response.write(Buffer.buffer(output.toByteArray()));
+
+      } catch (final IOException cause) {
+
+        Logger.trace(cause, "Cannot finish the compressed profiles");
+      }
+    }
+    response.end();
+
+  }
+
+  /**
+   * Called when the client has closed the connection before the export ends. It
+   * releases the compressor, and the next batches are not requested because
+   * the response is closed.
+   *
+   * @param gzipOutput the compressor of the profiles or {@code null} if the
+   *                   profiles are not compressed.
+   */
+  protected void closeExport(final GZIPOutputStream gzipOutput) {
+
+    if (gzipOutput != null) {
+
+      try {
+
+        gzipOutput.close();
+
+      } catch (final IOException cause) {
+
+        Logger.trace(cause, "Cannot close the compressor of the profiles");
+      }
+    }
+
+  }
+
+}
@@ -44,20 +44,24 @@ import eu.internetofus.common.vertx.ModelContext;
 import eu.internetofus.common.vertx.ModelFieldContext;
 import eu.internetofus.common.vertx.ModelResources;
 import eu.internetofus.common.vertx.ServiceContext;
+import eu.internetofus.common.vertx.ServiceRequests;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
-import eu.internetofus.wenet_profile_manager.persistence.CommunitiesRepository;
+import eu.internetofus.wenet_profile_manager.persistence.DeletionJobsRepository;
+import eu.internetofus.wenet_profile_manager.persistence.FieldsProjections;
+import eu.internetofus.wenet_profile_manager.persistence.PageTotals;
 import eu.internetofus.wenet_profile_manager.persistence.ProfilesRepository;
-import eu.internetofus.wenet_profile_manager.persistence.RelationshipsRepository;
-import eu.internetofus.wenet_profile_manager.persistence.TrustsRepository;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
 import java.util.function.BiFunction;
 import javax.ws.rs.core.Response.Status;
 import org.tinylog.Logger;
@@ -115,14 +119,63 @@ public class ProfilesResource implements Profiles {
    * {@inheritDoc}
    */
   @Override
-  public void retrieveProfile(final String userId, final ServiceRequest request,
+  public void retrieveProfile(final String userId, final String fieldsValue, final Long at,
+      final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var fields = ServiceRequests.extractQueryArray(fieldsValue);
+    if (at != null) {
+
+      this.profilesRepository.searchProfileAt(userId, at)
+          .map(profile -> FieldsProjections.project(profile, fields)).onComplete(search -> this
+              .responseSearchedProfile(search, "Does not exist a 'profile' associated to '" + userId
+                  + "' that was active at '" + at + "'.", resultHandler));
+
+    } else if (fields == null || fields.isEmpty()) {
+
+      final var model = this.createProfileContext();
+      model.id = userId;
+      final var context = new ServiceContext(request, resultHandler);
+      ModelResources.retrieveModel(model,
+          (id, handler) -> this.profilesRepository.searchProfile(id).onComplete(handler), context);
+
+    } else {
+
+      this.profilesRepository.searchProfileFields(userId, fields).onComplete(search -> this
+          .responseSearchedProfile(search, "Does not exist a 'profile' associated to '" + userId + "'.",
+              resultHandler));
+    }
+  }
+
+  /**
+   * Response with the profile that has been searched.
+   *
+   * @param search          result of the search.
+   * @param notFoundMessage the message to return if the profile is not found.
+   * @param resultHandler   to inform of the response.
+   */
+  protected void responseSearchedProfile(final AsyncResult<JsonObject> search, final String notFoundMessage,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var model = this.createProfileContext();
-    model.id = userId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModel(model, (id, handler) -> this.profilesRepository.searchProfile(id).onComplete(handler),
-        context);
+    if (search.failed()) {
+
+      final var cause = search.cause();
+      Logger.trace(cause, "Cannot retrieve the profile.");
+      ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+
+    } else {
+
+      final var profile = search.result();
+      if (profile == null) {
+
+        ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_profile",
+            notFoundMessage);
+
+      } else {
+
+        ServiceResponseHandlers.responseOk(resultHandler, profile);
+      }
+    }
+
   }
 
   /**
@@ -316,41 +369,213 @@ public class ProfilesResource implements Profiles {
       notification.updatedFieldNames.remove("_creationTs");
       notification.updatedFieldNames.remove("_lastUpdateTs");
 
-      if (!notification.updatedFieldNames.isEmpty()) {
+      final var to = model.value != null ? model.value._lastUpdateTs : TimeManager.now();
+      this.notifyProfileUpdated(storeHistoricProfile, profileId, model.target, to, notification);
+
+    };
+  }
 
-        if (storeHistoricProfile) {
+  /**
+   * Store the previous profile into the historic and notify the social context
+   * builder about the updated fields of the profile.
+   *
+   * @param storeHistoricProfile is {@code true} if has to store the previous
+   *                             profile on the history.
+   * @param profileId            identifier of the updated profile.
+   * @param previous             profile before the update.
+   * @param to                   time when the previous profile stops to be the
+   *                             current one.
+   * @param notification         with the updated fields.
+   */
+  protected void notifyProfileUpdated(final boolean storeHistoricProfile, final String profileId,
+      final WeNetUserProfile previous, final long to, final ProfileUpdateNotification notification) {
 
-          final var historic = new HistoricWeNetUserProfile();
-          historic.from = model.target._lastUpdateTs;
-          historic.to = model.value._lastUpdateTs;
-          historic.profile = model.target;
-          this.profilesRepository.storeHistoricProfile(historic).onComplete(store -> {
+    if (!notification.updatedFieldNames.isEmpty()) {
 
-            if (store.failed()) {
+      if (storeHistoricProfile && previous != null) {
 
-              Logger.debug(store.cause(), "Cannot store the profile {} as historic.", historic);
-            }
+        final var historic = new HistoricWeNetUserProfile();
+        historic.from = previous._lastUpdateTs;
+        historic.to = to;
+        historic.profile = previous;
+        this.profilesRepository.storeHistoricProfile(historic).onComplete(store -> {
 
+          if (store.failed()) {
+
+            Logger.debug(store.cause(), "Cannot store the profile {} as historic.", historic);
+          }
+
+        });
+      }
+
+      WeNetSocialContextBuilder.createProxy(this.vertx).socialNotificationProfileUpdate(profileId, notification)
+          .onComplete(retrieve -> {
+
+            if (retrieve.failed()) {
+
+              Logger.trace(retrieve.cause(),
+                  "Cannot to the social context builder that the profile of the user {} has updated.", profileId);
+
+            } else {
+
+              Logger.trace("Notified to the social context builder that the profile of the user {} has updated.",
+                  profileId);
+            }
           });
-        }
 
-        WeNetSocialContextBuilder.createProxy(this.vertx).socialNotificationProfileUpdate(profileId, notification)
-            .onComplete(retrieve -> {
+    }
+
+  }
+
+  /**
+   * Manage the result of an atomic modification of a list field of a profile.
+   * If the profile has been modified it responds with the success and notify
+   * the change, otherwise it responds with the reason why the profile has not
+   * been modified.
+   *
+   * @param storeHistoricProfile is {@code true} if has to store the previous
+   *                             profile on the history.
+   * @param userId               identifier of the modified profile.
+   * @param field                name of the modified list field.
+   * @param name                 of the modified element.
+   * @param modification         result of the modification.
+   * @param notFoundCode         code to report when the profile exist but the
+   *                             modification can not be done.
+   * @param notFoundStatus       status to report when the profile exist but the
+   *                             modification can not be done.
+   * @param context              of the request.
+   * @param success              function to call when the profile has been
+   *                             modified.
+   */
+  protected void handleProfileFieldModification(final boolean storeHistoricProfile, final String userId,
+      final String field, final String name, final AsyncResult<JsonObject> modification, final String notFoundCode,
+      final Status notFoundStatus, final ServiceContext context, final Runnable success) {
+
+    if (modification.failed()) {
+
+      final var cause = modification.cause();
+      Logger.trace(cause, "Cannot modify the {} of the profile {}.\n{}", field, userId, context);
+      ServiceResponseHandlers.responseFailedWith(context.resultHandler, Status.BAD_REQUEST, cause);
+
+    } else {
+
+      final var previous = modification.result();
+      if (previous == null) {
 
-              if (retrieve.failed()) {
+        this.profilesRepository.isProfileDefined(userId).onComplete(defined -> {
 
-                Logger.trace(retrieve.cause(),
-                    "Cannot to the social context builder that the profile of the user {} has updated.", profileId);
+          if (defined.failed() || !defined.result()) {
 
-              } else {
+            ServiceResponseHandlers.responseWithErrorMessage(context.resultHandler, Status.NOT_FOUND,
+                "not_found_profile", "Does not exist a 'profile' associated to '" + userId + "'.");
 
-                Logger.trace("Notified to the social context builder that the profile of the user {} has updated.",
-                    profileId);
-              }
-            });
+          } else {
 
+            ServiceResponseHandlers.responseWithErrorMessage(context.resultHandler, notFoundStatus, notFoundCode,
+                "Cannot modify the '" + name + "' of the profile '" + userId + "'.");
+          }
+
+        });
+
+      } else {
+
+        success.run();
+        final var notification = new ProfileUpdateNotification();
+        notification.updatedFieldNames = new HashSet<>();
+        notification.updatedFieldNames.add(field);
+        final var previousProfile = storeHistoricProfile ? Model.fromJsonObject(previous, WeNetUserProfile.class)
+            : null;
+        this.notifyProfileUpdated(storeHistoricProfile, userId, previousProfile, TimeManager.now(), notification);
       }
-    };
+    }
+
+  }
+
+  /**
+   * Add atomically an element into a list field of a profile.
+   *
+   * @param storeHistoricProfile is {@code true} if has to store the previous
+   *                             profile on the history.
+   * @param userId               identifier of the profile to modify.
+   * @param field                name of the list field.
+   * @param name                 of the element to add.
+   * @param element              to add.
+   * @param context              of the request.
+   */
+  protected void addProfileFieldElement(final boolean storeHistoricProfile, final String userId, final String field,
+      final String name, final Model element, final ServiceContext context) {
+
+    final var value = element.toJsonObjectWithEmptyValues();
+    this.profilesRepository.addProfileFieldElement(userId, field, value, storeHistoricProfile)
+        .onComplete(modification -> this.handleProfileFieldModification(storeHistoricProfile, userId, field, name,
+            modification, "bad_" + name, Status.BAD_REQUEST, context,
+            () -> ServiceResponseHandlers.responseOk(context.resultHandler, element)));
+
+  }
+
+  /**
+   * Replace atomically an element of a list field of a profile.
+   *
+   * @param storeHistoricProfile is {@code true} if has to store the previous
+   *                             profile on the history.
+   * @param userId               identifier of the profile to modify.
+   * @param field                name of the list field.
+   * @param name                 of the element to replace.
+   * @param elementId            identifier or index of the element to replace.
+   * @param element              new value of the element.
+   * @param context              of the request.
+   */
+  protected void updateProfileFieldElement(final boolean storeHistoricProfile, final String userId,
+      final String field, final String name, final Object elementId, final Model element,
+      final ServiceContext context) {
+
+    final var value = element.toJsonObjectWithEmptyValues();
+    final Future<JsonObject> update;
+    if (elementId instanceof Integer) {
+
+      update = this.profilesRepository.updateProfileFieldElementByIndex(userId, field, (Integer) elementId, value,
+          storeHistoricProfile);
+
+    } else {
+
+      update = this.profilesRepository.updateProfileFieldElementById(userId, field, String.valueOf(elementId), value,
+          storeHistoricProfile);
+    }
+    update.onComplete(modification -> this.handleProfileFieldModification(storeHistoricProfile, userId, field, name,
+        modification, "not_found_" + name, Status.NOT_FOUND, context,
+        () -> ServiceResponseHandlers.responseOk(context.resultHandler, element)));
+
+  }
+
+  /**
+   * Remove atomically an element of a list field of a profile.
+   *
+   * @param storeHistoricProfile is {@code true} if has to store the previous
+   *                             profile on the history.
+   * @param userId               identifier of the profile to modify.
+   * @param field                name of the list field.
+   * @param name                 of the element to remove.
+   * @param elementId            identifier or index of the element to remove.
+   * @param context              of the request.
+   */
+  protected void deleteProfileFieldElement(final boolean storeHistoricProfile, final String userId,
+      final String field, final String name, final Object elementId, final ServiceContext context) {
+
+    final Future<JsonObject> delete;
+    if (elementId instanceof Integer) {
+
+      delete = this.profilesRepository.deleteProfileFieldElementByIndex(userId, field, (Integer) elementId,
+          storeHistoricProfile);
+
+    } else {
+
+      delete = this.profilesRepository.deleteProfileFieldElementById(userId, field, String.valueOf(elementId),
+          storeHistoricProfile);
+    }
+    delete.onComplete(modification -> this.handleProfileFieldModification(storeHistoricProfile, userId, field, name,
+        modification, "not_found_" + name, Status.NOT_FOUND, context,
+        () -> ServiceResponseHandlers.responseOk(context.resultHandler)));
+
   }
 
   /**
@@ -379,45 +604,22 @@ public class ProfilesResource implements Profiles {
   }
 
   /**
-   * Remove all the data that has any reference to an user.
+   * Add a job to remove, on the background, all the data that has any reference
+   * to an user.
    *
    * @param userId identifier of the user that has been removed.
    */
   private void deleteAllReferenceToUser(final String userId) {
 
-    this.profilesRepository.deleteHistoricProfile(userId).onComplete(deleted -> {
-
-      if (deleted.failed()) {
-
-        Logger.trace(deleted.cause(), "Cannot deleted the historic of {}.", userId);
-      }
-
-    });
-    RelationshipsRepository.createProxy(this.vertx).deleteAllSocialNetworkRelationshipWith(userId)
-        .onComplete(deleted -> {
+    DeletionJobsRepository.createProxy(this.vertx)
+        .addDeletionJob(DeletionJobsRepository.USERS_TYPE, new JsonArray().add(userId)).onComplete(added -> {
 
-          if (deleted.failed()) {
+          if (added.failed()) {
 
-            Logger.trace(deleted.cause(), "Cannot deleted the social network relationships of {}.", userId);
+            Logger.error(added.cause(), "Cannot add the job to delete the references to the user {}.", userId);
           }
 
         });
-    CommunitiesRepository.createProxy(this.vertx).deleteAllMembersForUser(userId).onComplete(deleted -> {
-
-      if (deleted.failed()) {
-
-        Logger.trace(deleted.cause(), "Cannot deleted the members from the community of {}.", userId);
-      }
-
-    });
-    TrustsRepository.createProxy(this.vertx).deleteAllEventsForUser(userId).onComplete(deleted -> {
-
-      if (deleted.failed()) {
-
-        Logger.trace(deleted.cause(), "Cannot deleted the events for user {}.", userId);
-      }
-
-    });
 
   }
 
@@ -452,37 +654,78 @@ public class ProfilesResource implements Profiles {
    * {@inheritDoc}
    */
   @Override
-  public void retrieveProfileHistoricPage(final String userId, final Long from, final Long to, final String order,
-      final int offset, final int limit, final ServiceRequest request,
-      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+  public void retrieveProfileDiff(final String userId, final Long source, final Long target,
+      final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var query = ProfilesRepository.createProfileHistoricPageQuery(userId, from, to);
-    final var sort = ProfilesRepository.createProfileHistoricPageSort(order);
-    this.profilesRepository.searchHistoricProfilePage(query, sort, offset, limit).onComplete(search -> {
+    this.profilesRepository.retrieveProfileDiff(userId, source, target).onComplete(search -> {
 
       if (search.failed()) {
 
         final var cause = search.cause();
-        Logger.debug(cause, "Cannot found historic profile for the user {}.", userId);
-        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.NOT_FOUND, cause);
+        Logger.debug(cause, "Cannot calculate the changes of the profile of the user {}.", userId);
+        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
 
       } else {
 
-        final var page = search.result();
-        if (page.total == 0l) {
+        final var diff = search.result();
+        if (diff == null) {
 
-          ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "no_found",
-              "Not found any historic profile that match to the specific parameters.");
+          ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_profile",
+              "Does not exist the versions of the 'profile' associated to '" + userId + "'.");
 
         } else {
 
-          ServiceResponseHandlers.responseOk(resultHandler, page);
+          ServiceResponseHandlers.responseOk(resultHandler, diff);
         }
       }
+
     });
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveProfileHistoricPage(final String userId, final Long from, final Long to, final String order,
+      final int offset, final int limit, final String total, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    if (!PageTotals.isValid(total)) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_total",
+          "The total '" + total + "' is not valid.");
+
+    } else {
+
+      final var query = ProfilesRepository.createProfileHistoricPageQuery(userId, from, to);
+      final var sort = ProfilesRepository.createProfileHistoricPageSort(order);
+      this.profilesRepository.searchHistoricProfilePage(query, sort, offset, limit, total).onComplete(search -> {
+
+        if (search.failed()) {
+
+          final var cause = search.cause();
+          Logger.debug(cause, "Cannot found historic profile for the user {}.", userId);
+          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.NOT_FOUND, cause);
+
+        } else {
+
+          final var page = search.result();
+          if (page.total == 0l && (page.profiles == null || page.profiles.isEmpty())) {
+
+            ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "no_found",
+                "Not found any historic profile that match to the specific parameters.");
+
+          } else {
+
+            ServiceResponseHandlers.responseOk(resultHandler, page);
+          }
+        }
+      });
+    }
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -492,16 +735,9 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, ProtocolNorm, String, WeNetValidateContext>(), "norm",
-        ProtocolNorm.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.norms, (profile, norms) -> profile.norms = norms,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("norm", ProtocolNorm.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.addProfileFieldElement(storeChanges, userId, "norms", element.name, element.value, context)));
 
   }
 
@@ -549,17 +785,10 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, ProtocolNorm, Integer, WeNetValidateContext>(), "norms",
-        ProtocolNorm.class);
-    element.model.id = userId;
-    element.id = index;
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.norms, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("norms", ProtocolNorm.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.updateProfileFieldElement(storeChanges, userId, "norms", element.name, index, element.value,
+            context)));
 
   }
 
@@ -595,17 +824,7 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, ProtocolNorm, Integer, WeNetValidateContext>(), "norms",
-        ProtocolNorm.class);
-    element.model.id = userId;
-    element.id = index;
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.norms, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "norms", "norms", index, context);
 
   }
 
@@ -641,17 +860,18 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, PlannedActivity, String, WeNetValidateContext>(),
-        "plannedActivities", PlannedActivity.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.plannedActivities,
-        (profile, plannedActivities) -> profile.plannedActivities = plannedActivities,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("plannedActivities", PlannedActivity.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> {
+
+      if (element.source.id == null) {
+
+        element.source.id = UUID.randomUUID().toString();
+      }
+      ModelResources.validate(element, context,
+          () -> this.addProfileFieldElement(storeChanges, userId, "plannedActivities", element.name, element.value,
+              context));
+
+    });
 
   }
 
@@ -711,18 +931,15 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, PlannedActivity, String, WeNetValidateContext>(),
-        "plannedActivities", PlannedActivity.class);
-    element.model.id = userId;
-    element.id = plannedActivityId;
+    final var element = WeNetModelContext.creteWeNetContext("plannedActivities", PlannedActivity.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> {
 
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.plannedActivities, this.searchProfilePlannedActivity(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+      element.source.id = plannedActivityId;
+      ModelResources.validate(element, context,
+          () -> this.updateProfileFieldElement(storeChanges, userId, "plannedActivities", element.name,
+              plannedActivityId, element.value, context));
+
+    });
 
   }
 
@@ -761,17 +978,8 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, PlannedActivity, String, WeNetValidateContext>(),
-        "plannedActivities", PlannedActivity.class);
-    element.model.id = userId;
-    element.id = plannedActivityId;
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.plannedActivities, this.searchProfilePlannedActivity(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "plannedActivities", "plannedActivities", plannedActivityId,
+        context);
 
   }
 
@@ -784,17 +992,18 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, RelevantLocation, String, WeNetValidateContext>(),
-        "relevant_location", RelevantLocation.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.relevantLocations,
-        (profile, relevantLocations) -> profile.relevantLocations = relevantLocations,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("relevant_location", RelevantLocation.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> {
+
+      if (element.source.id == null) {
+
+        element.source.id = UUID.randomUUID().toString();
+      }
+      ModelResources.validate(element, context,
+          () -> this.addProfileFieldElement(storeChanges, userId, "relevantLocations", element.name, element.value,
+              context));
+
+    });
 
   }
 
@@ -854,18 +1063,15 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, RelevantLocation, String, WeNetValidateContext>(),
-        "relevantLocations", RelevantLocation.class);
-    element.model.id = userId;
-    element.id = relevantLocationId;
+    final var element = WeNetModelContext.creteWeNetContext("relevantLocations", RelevantLocation.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> {
 
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.relevantLocations, this.searchProfileRelevantLocation(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+      element.source.id = relevantLocationId;
+      ModelResources.validate(element, context,
+          () -> this.updateProfileFieldElement(storeChanges, userId, "relevantLocations", element.name,
+              relevantLocationId, element.value, context));
+
+    });
 
   }
 
@@ -904,18 +1110,8 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, RelevantLocation, String, WeNetValidateContext>(),
-        "relevantLocations", RelevantLocation.class);
-    element.model.id = userId;
-    element.id = relevantLocationId;
-
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.relevantLocations, this.searchProfileRelevantLocation(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "relevantLocations", "relevantLocations", relevantLocationId,
+        context);
 
   }
 
@@ -928,17 +1124,10 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Routine, Integer, WeNetValidateContext>(), "personalBehaviors",
-        Routine.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.personalBehaviors,
-        (profile, personalBehaviours) -> profile.personalBehaviors = personalBehaviours,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("personalBehaviors", Routine.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.addProfileFieldElement(storeChanges, userId, "personalBehaviors", element.name,
+            element.value, context)));
 
   }
 
@@ -987,17 +1176,10 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Routine, Integer, WeNetValidateContext>(), "personalBehaviors",
-        Routine.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.personalBehaviors, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("personalBehaviors", Routine.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.updateProfileFieldElement(storeChanges, userId, "personalBehaviors", element.name, index,
+            element.value, context)));
 
   }
 
@@ -1034,18 +1216,7 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Routine, Integer, WeNetValidateContext>(), "personalBehaviors",
-        Routine.class);
-    element.id = index;
-    element.model.id = userId;
-
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.personalBehaviors, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "personalBehaviors", "personalBehaviors", index, context);
 
   }
 
@@ -1058,16 +1229,9 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Material, Integer, WeNetValidateContext>(), "materials",
-        Material.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.materials, (profile, materials) -> profile.materials = materials,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("materials", Material.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.addProfileFieldElement(storeChanges, userId, "materials", element.name, element.value, context)));
 
   }
 
@@ -1115,17 +1279,10 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Material, Integer, WeNetValidateContext>(), "materials",
-        Material.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.materials, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("materials", Material.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.updateProfileFieldElement(storeChanges, userId, "materials", element.name, index, element.value,
+            context)));
 
   }
 
@@ -1161,17 +1318,7 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Material, Integer, WeNetValidateContext>(), "materials",
-        Material.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.materials, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "materials", "materials", index, context);
 
   }
 
@@ -1184,16 +1331,9 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Competence, Integer, WeNetValidateContext>(), "competences",
-        Competence.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.competences, (profile, competences) -> profile.competences = competences,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("competences", Competence.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.addProfileFieldElement(storeChanges, userId, "competences", element.name, element.value, context)));
 
   }
 
@@ -1241,17 +1381,10 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Competence, Integer, WeNetValidateContext>(), "competences",
-        Competence.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.competences, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("competences", Competence.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.updateProfileFieldElement(storeChanges, userId, "competences", element.name, index, element.value,
+            context)));
 
   }
 
@@ -1287,17 +1420,7 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Competence, Integer, WeNetValidateContext>(), "competences",
-        Competence.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.competences, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "competences", "competences", index, context);
 
   }
 
@@ -1310,16 +1433,9 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Meaning, Integer, WeNetValidateContext>(), "meanings",
-        Meaning.class);
-    element.model.id = userId;
-    ModelResources.createModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.meanings, (profile, meanings) -> profile.meanings = meanings,
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("meanings", Meaning.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.addProfileFieldElement(storeChanges, userId, "meanings", element.name, element.value, context)));
 
   }
 
@@ -1367,17 +1483,10 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Meaning, Integer, WeNetValidateContext>(), "meanings",
-        Meaning.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.updateModelFieldElementChain(body, element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.meanings, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler, element.value)));
+    final var element = WeNetModelContext.creteWeNetContext("meanings", Meaning.class, this.vertx);
+    ModelResources.toModel(body, element, context, () -> ModelResources.validate(element, context,
+        () -> this.updateProfileFieldElement(storeChanges, userId, "meanings", element.name, index, element.value,
+            context)));
 
   }
 
@@ -1413,44 +1522,74 @@ public class ProfilesResource implements Profiles {
 
     final var storeChanges = this.calculateStoreChanges(storeProfileChangesInHistory);
     final var context = new ServiceContext(request, resultHandler);
-    final var element = this.fillElementContext(
-        new ModelFieldContext<WeNetUserProfile, String, Meaning, Integer, WeNetValidateContext>(), "meanings",
-        Meaning.class);
-    element.id = index;
-    element.model.id = userId;
-    ModelResources.deleteModelFieldElementChain(element,
-        (profileId, handler) -> this.profilesRepository.searchProfile(profileId).onComplete(handler),
-        profile -> profile.meanings, ModelResources.searchElementByIndex(),
-        (profile, handler) -> this.profilesRepository.updateProfile(profile).onComplete(handler), context,
-        this.addProfileToHistoricChain(storeChanges, element.model,
-            () -> ServiceResponseHandlers.responseOk(resultHandler)));
+    this.deleteProfileFieldElement(storeChanges, userId, "meanings", "meanings", index, context);
+
   }
 
   /**
    * {@inheritDoc}
    */
   @Override
-  public void retrieveProfilesPage(final int offset, final int limit, final ServiceRequest request,
-      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+  public void retrieveProfilesPage(final int offset, final int limit, final String cursor, final String fieldsValue,
+      final String total, final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModelsPage(offset, limit, (page, promise) -> this.profilesRepository
-        .retrieveProfilesPageObject(page.offset, page.limit, search -> promise.handle(search)), context);
+    final var fields = ServiceRequests.extractQueryArray(fieldsValue);
+    if (cursor == null) {
+
+      final var context = new ServiceContext(request, resultHandler);
+      ModelResources.retrieveModelsPage(offset, limit,
+          (page, promise) -> this.profilesRepository.retrieveProjectedProfilesPageObject(page.offset, page.limit,
+              fields, total, search -> promise.handle(search)),
+          context);
+
+    } else {
+
+      this.profilesRepository.retrieveProjectedProfilesPageObjectAfter(cursor, Math.max(1, limit), fields, search -> {
+
+        if (search.failed()) {
+
+          final var cause = search.cause();
+          Logger.trace(cause, "Cannot retrieve the profiles after {}.", cursor);
+          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+
+        } else {
+
+          ServiceResponseHandlers.responseOk(resultHandler, search.result());
+        }
+
+      });
+    }
 
   }
 
   /**
    * {@inheritDoc}
+   *
+   * The existence is checked without obtaining the profile.
    */
   @Override
   public void isProfileDefined(final String userId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var model = this.createProfileContext();
-    model.id = userId;
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.checkModelExist(model,
-        (modelId, handler) -> this.profilesRepository.searchProfile(modelId).onComplete(handler), context);
+    this.profilesRepository.isProfileDefined(userId).onComplete(defined -> {
+
+      if (defined.failed()) {
+
+        final var cause = defined.cause();
+        Logger.trace(cause, "Cannot check if the profile {} is defined.", userId);
+        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.INTERNAL_SERVER_ERROR, cause);
+
+      } else if (!defined.result()) {
+
+        ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.NOT_FOUND, "not_found_profile",
+            "Does not exist a 'profile' associated to '" + userId + "'.");
+
+      } else {
+
+        ServiceResponseHandlers.responseOk(resultHandler);
+      }
+
+    });
 
   }
 
@@ -53,4 +53,10 @@ public class WeNetUserProfilesPage extends ReflectionModel implements Model {
   @ArraySchema(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/WeNetUserProfile"), arraySchema = @Schema(description = "The set of profiles found"))
   public List<WeNetUserProfile> profiles;
 
+  /**
+   * The continuation token to obtain the next page.
+   */
+  @Schema(description = "The continuation token to obtain the next page. It is only defined when the page is obtained using a cursor and there are more profiles after it.", example = "eyJfY3JlYXRpb25UcyI6MTIzNCwiX2lkIjoiMSJ9", nullable = true)
+  public String nextCursor;
+
 }
@@ -44,6 +44,7 @@ import javax.ws.rs.DefaultValue;
 import javax.ws.rs.GET;
 import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
@@ -70,6 +71,32 @@ public interface Relationships {
    */
   String ADDRESS = "wenet_profile_manager.api.relationships";
 
+  /**
+   * The path to the social graph of an user.
+   */
+  String GRAPH_PATH = "/graph/{appId}/{userId}";
+
+  /**
+   * The path to the ego network of an user.
+   */
+  String EGO_NETWORK_PATH = GRAPH_PATH + "/ego";
+
+  /**
+   * The path to the neighbourhood of an user.
+   */
+  String NEIGHBOURHOOD_PATH = GRAPH_PATH + "/neighbourhood";
+
+  /**
+   * The path to the neighbours of an user with the highest weight.
+   */
+  String TOP_NEIGHBOURS_PATH = GRAPH_PATH + "/top";
+
+  /**
+   * The maximum number of relationships that can be followed to obtain a
+   * neighbourhood.
+   */
+  int MAX_HOPS = 4;
+
   /**
    * Called when want to get some relationships between users.
    *
@@ -89,6 +116,8 @@ public interface Relationships {
    *                      return.
    * @param limit         number maximum of social network relationships to
    *                      return.
+   * @param cursor        continuation token to obtain the next page.
+   * @param total         how the number of relationships has to be calculated.
    * @param request       of the operation.
    * @param resultHandler to inform of the response.
    */
@@ -106,6 +135,9 @@ public interface Relationships {
       @QueryParam(value = "order") @Parameter(description = "The order in witch the relationships has to be returned. For each field it has be separated by a ',' and each field can start with '+' (or without it) to order on ascending order, or with the prefix '-' to do on descendant order.", example = "sourceId,-weight,+type", required = false, style = ParameterStyle.FORM, explode = Explode.FALSE) String order,
       @DefaultValue("0") @QueryParam(value = "offset") @Parameter(description = "The index of the first social network relationship to return.", example = "4", required = false) int offset,
       @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of social network relationships to return", example = "100", required = false) int limit,
+      @QueryParam(value = "cursor") @Parameter(description = "The continuation token to obtain the page that is after the last one. When it is defined the offset is ignored and the page contains the field 'nextCursor' with the token to obtain the next page, if there are more relationships. Use the value 'first' to start from the first page.", example = "first", required = false) String cursor,
+      @QueryParam(value = "total") @Parameter(description = "How the total number of relationships that match the query has to be calculated. It can be 'exact' to count all of them, 'estimate' to obtain an approximation that can be cached for some seconds, or 'none' to not return the total.", required = false, schema = @Schema(allowableValues = {
+          "exact", "estimate", "none" }, defaultValue = "exact", example = "estimate")) String total,
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
@@ -178,4 +210,85 @@ public interface Relationships {
       @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
+  /**
+   * Called when want to get the ego network of an user.
+   *
+   * @param appId         application identifier of the relationships.
+   * @param userId        identifier of the user.
+   * @param type          of the relationships to use.
+   * @param weightFrom    minimal weight, inclusive, of the relationships to use.
+   * @param request       of the operation.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(EGO_NETWORK_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Return the ego network of an user", description = "Allow to get the user, the users that are the target of its relationships and the relationships between all of them. It is calculated from the relationships that are maintained in memory.")
+  @ApiResponse(responseCode = "200", description = "The ego network of the user", content = @Content(schema = @Schema(implementation = SocialNetworkEgoNetwork.class)))
+  @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void retrieveSocialNetworkEgoNetwork(
+      @PathParam("appId") @Parameter(description = "The identifier of the application of the relationships", example = "1") String appId,
+      @PathParam("userId") @Parameter(description = "The identifier of the user", example = "1e346fd440") String userId,
+      @QueryParam(value = "type") @Parameter(description = "The type of the relationships to use.", example = "friend", required = false) String type,
+      @QueryParam(value = "weightFrom") @Parameter(description = "The minimal weight, inclusive, of the relationships to use.", example = "0.3", required = false) Double weightFrom,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to get the users that can be reached from an user.
+   *
+   * @param appId         application identifier of the relationships.
+   * @param userId        identifier of the user.
+   * @param hops          maximum number of relationships to follow.
+   * @param type          of the relationships to follow.
+   * @param weightFrom    minimal weight, inclusive, of the relationships to
+   *                      follow.
+   * @param limit         maximum number of users to return.
+   * @param request       of the operation.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(NEIGHBOURHOOD_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Return the users that can be reached from an user", description = "Allow to get the users that can be reached following the relationships that start on an user, and the minimum number of relationships to follow to reach them. It is calculated from the relationships that are maintained in memory.")
+  @ApiResponse(responseCode = "200", description = "The neighbourhood of the user", content = @Content(schema = @Schema(implementation = SocialNetworkNeighbourhood.class)))
+  @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void retrieveSocialNetworkNeighbourhood(
+      @PathParam("appId") @Parameter(description = "The identifier of the application of the relationships", example = "1") String appId,
+      @PathParam("userId") @Parameter(description = "The identifier of the user", example = "1e346fd440") String userId,
+      @DefaultValue("2") @QueryParam(value = "hops") @Parameter(description = "The maximum number of relationships to follow. It has to be between 1 and 4.", example = "2", required = false) int hops,
+      @QueryParam(value = "type") @Parameter(description = "The type of the relationships to follow.", example = "friend", required = false) String type,
+      @QueryParam(value = "weightFrom") @Parameter(description = "The minimal weight, inclusive, of the relationships to follow.", example = "0.3", required = false) Double weightFrom,
+      @DefaultValue("100") @QueryParam(value = "limit") @Parameter(description = "The number maximum of users to return", example = "10", required = false) int limit,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to get the relationships of an user with the highest
+   * weight.
+   *
+   * @param appId         application identifier of the relationships.
+   * @param userId        identifier of the user.
+   * @param type          of the relationships to return.
+   * @param weightFrom    minimal weight, inclusive, of the relationships to
+   *                      return.
+   * @param limit         maximum number of relationships to return.
+   * @param request       of the operation.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(TOP_NEIGHBOURS_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Return the relationships of an user with the highest weight", description = "Allow to get the relationships that start on an user sorted by descending weight. It is calculated from the relationships that are maintained in memory.")
+  @ApiResponse(responseCode = "200", description = "The top neighbours of the user", content = @Content(schema = @Schema(implementation = SocialNetworkTopNeighbours.class)))
+  @ApiResponse(responseCode = "400", description = "Bad request", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void retrieveSocialNetworkTopNeighbours(
+      @PathParam("appId") @Parameter(description = "The identifier of the application of the relationships", example = "1") String appId,
+      @PathParam("userId") @Parameter(description = "The identifier of the user", example = "1e346fd440") String userId,
+      @QueryParam(value = "type") @Parameter(description = "The type of the relationships to return.", example = "friend", required = false) String type,
+      @QueryParam(value = "weightFrom") @Parameter(description = "The minimal weight, inclusive, of the relationships to return.", example = "0.3", required = false) Double weightFrom,
+      @DefaultValue("10") @QueryParam(value = "limit") @Parameter(description = "The number maximum of relationships to return", example = "10", required = false) int limit,
+      @Parameter(hidden = true, required = false) ServiceRequest request,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
 }
@@ -23,23 +23,19 @@ import eu.internetofus.common.components.WeNetModelContext;
 import eu.internetofus.common.components.WeNetValidateContext;
 import eu.internetofus.common.components.models.SocialNetworkRelationship;
 import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.ModelResources;
 import eu.internetofus.common.vertx.ServiceContext;
 import eu.internetofus.common.vertx.ServiceRequests;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
 import eu.internetofus.wenet_profile_manager.persistence.RelationshipsRepository;
 import io.vertx.core.AsyncResult;
-import io.vertx.core.CompositeFuture;
-import io.vertx.core.Future;
 import io.vertx.core.Handler;
-import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
-import java.util.ArrayList;
-import java.util.List;
 import javax.ws.rs.core.Response.Status;
 import org.tinylog.Logger;
 
@@ -78,18 +74,52 @@ public class RelationshipsResource implements Relationships {
   @Override
   public void retrieveSocialNetworkRelationshipsPage(final String appId, final String sourceId, final String targetId,
       final String type, final Double weightFrom, final Double weightTo, final String orderValue, final int offset,
-      final int limit, final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+      final int limit, final String cursor, final String total, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
     final var order = ServiceRequests.extractQueryArray(orderValue);
     final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModelsPage(offset, limit, (page, promise) -> {
+    if (cursor == null) {
+
+      ModelResources.retrieveModelsPage(offset, limit, (page, promise) -> {
+
+        page.query = RelationshipsRepository.createSocialNetworkRelationshipsPageQuery(appId, sourceId, targetId, type,
+            weightFrom, weightTo);
+        page.sort = RelationshipsRepository.createSocialNetworkRelationshipsPageSort(order);
+        this.repository.retrieveSocialNetworkRelationshipsPageObjectWithTotal(page.query, page.sort, page.offset,
+            page.limit, total, search -> promise.handle(search));
+
+      }, context);
+
+    } else {
 
-      page.query = RelationshipsRepository.createSocialNetworkRelationshipsPageQuery(appId, sourceId, targetId, type,
-          weightFrom, weightTo);
-      page.sort = RelationshipsRepository.createSocialNetworkRelationshipsPageSort(order);
-      this.repository.retrieveSocialNetworkRelationshipsPageObject(page, search -> promise.handle(search));
+      try {
 
-    }, context);
+        final var query = RelationshipsRepository.createSocialNetworkRelationshipsPageQuery(appId, sourceId, targetId,
+            type, weightFrom, weightTo);
+        final var sort = RelationshipsRepository.createSocialNetworkRelationshipsPageSort(order);
+        this.repository.retrieveSocialNetworkRelationshipsPageObjectAfter(query, sort, cursor, Math.max(1, limit),
+            search -> {
+
+              if (search.failed()) {
+
+                final var cause = search.cause();
+                Logger.trace(cause, "Cannot retrieve the relationships after {}.\n{}", cursor, context);
+                ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+
+              } else {
+
+                ServiceResponseHandlers.responseOk(resultHandler, search.result());
+              }
+
+            });
+
+      } catch (final ValidationErrorException cause) {
+
+        Logger.trace(cause, "Bad relationships page.\n{}", context);
+        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+      }
+    }
 
   }
 
@@ -178,17 +208,7 @@ public class RelationshipsResource implements Relationships {
 
             } else {
 
-              @SuppressWarnings("rawtypes")
-              final List<Future> futures = new ArrayList<>();
-              for (final var relationship : relationships) {
-
-                final Promise<String> promise = Promise.promise();
-                this.repository.storeOrUpdateSocialNetworkRelationship(relationship, promise);
-                futures.add(promise.future());
-
-              }
-
-              CompositeFuture.all(futures).onComplete(stored -> {
+              this.repository.storeOrUpdateSocialNetworkRelationships(relationships).onComplete(stored -> {
 
                 if (stored.failed()) {
 
@@ -198,6 +218,11 @@ public class RelationshipsResource implements Relationships {
 
                 } else {
 
+                  final var result = stored.result();
+                  Logger.trace("Stored the relationships with {} inserted, {} updated and {} unchanged.\n{}",
+                      () -> result.getInteger(RelationshipsRepository.RELATIONSHIP_INSERTED),
+                      () -> result.getInteger(RelationshipsRepository.RELATIONSHIP_UPDATED),
+                      () -> result.getInteger(RelationshipsRepository.RELATIONSHIP_UNCHANGED), () -> context);
                   ServiceResponseHandlers.responseOk(context.resultHandler, Model.toJsonArray(relationships));
                 }
 
@@ -210,4 +235,90 @@ public class RelationshipsResource implements Relationships {
 
   }
 
+  /**
+   * Send the result of a query over the social graph.
+   *
+   * @param result        of the query.
+   * @param context       of the request.
+   * @param resultHandler to inform of the response.
+   */
+  protected void responseSocialGraph(final AsyncResult<JsonObject> result, final ServiceContext context,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    if (result.failed()) {
+
+      final var cause = result.cause();
+      Logger.trace(cause, "Cannot obtain the social graph.\n{}", context);
+      ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+
+    } else {
+
+      ServiceResponseHandlers.responseOk(resultHandler, result.result());
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkEgoNetwork(final String appId, final String userId, final String type,
+      final Double weightFrom, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    final var context = new ServiceContext(request, resultHandler);
+    this.repository.retrieveSocialNetworkEgoNetwork(appId, userId, type, weightFrom,
+        result -> this.responseSocialGraph(result, context, resultHandler));
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkNeighbourhood(final String appId, final String userId, final int hops,
+      final String type, final Double weightFrom, final int limit, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    if (hops < 1 || hops > MAX_HOPS) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_hops",
+          "The 'hops' has to be between 1 and " + MAX_HOPS + ".");
+
+    } else if (limit < 1) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_limit",
+          "The 'limit' has to be greater than 0.");
+
+    } else {
+
+      final var context = new ServiceContext(request, resultHandler);
+      this.repository.retrieveSocialNetworkNeighbourhood(appId, userId, hops, type, weightFrom, limit,
+          result -> this.responseSocialGraph(result, context, resultHandler));
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkTopNeighbours(final String appId, final String userId, final String type,
+      final Double weightFrom, final int limit, final ServiceRequest request,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    if (limit < 1) {
+
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "bad_limit",
+          "The 'limit' has to be greater than 0.");
+
+    } else {
+
+      final var context = new ServiceContext(request, resultHandler);
+      this.repository.retrieveSocialNetworkTopNeighbours(appId, userId, type, weightFrom, limit,
+          result -> this.responseSocialGraph(result, context, resultHandler));
+    }
+
+  }
+
 }
@@ -0,0 +1,48 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.relationships;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * An user that can be reached from another.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "SocialNetworkNeighbour", description = "An user that can be reached from another")
+public class SocialNetworkNeighbour extends ReflectionModel implements Model {
+
+  /**
+   * The identifier of the reached user.
+   */
+  @Schema(description = "The identifier of the reached user.", example = "1e346fd440")
+  public String userId;
+
+  /**
+   * The minimum number of relationships to follow to reach the user.
+   */
+  @Schema(description = "The minimum number of relationships to follow to reach the user.", example = "1")
+  public int distance;
+
+}
@@ -0,0 +1,63 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.relationships;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The users that can be reached from an user.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "SocialNetworkNeighbourhood", description = "The users that can be reached following the relationships that start on an user")
+public class SocialNetworkNeighbourhood extends ReflectionModel implements Model {
+
+  /**
+   * The identifier of the application of the relationships.
+   */
+  @Schema(description = "The identifier of the application of the relationships.", example = "1")
+  public String appId;
+
+  /**
+   * The identifier of the user.
+   */
+  @Schema(description = "The identifier of the user.", example = "1e346fd440")
+  public String userId;
+
+  /**
+   * The maximum number of relationships that have been followed.
+   */
+  @Schema(description = "The maximum number of relationships that have been followed.", example = "2")
+  public int hops;
+
+  /**
+   * The reached users.
+   */
+  @ArraySchema(schema = @Schema(implementation = SocialNetworkNeighbour.class), arraySchema = @Schema(description = "The reached users, sorted by the distance to the user."))
+  public List<SocialNetworkNeighbour> users = new ArrayList<>();
+
+}
@@ -0,0 +1,58 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.relationships;
+
+import eu.internetofus.common.components.models.SocialNetworkRelationship;
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The relationships of an user with the highest weight.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "SocialNetworkTopNeighbours", description = "The relationships of an user with the highest weight")
+public class SocialNetworkTopNeighbours extends ReflectionModel implements Model {
+
+  /**
+   * The identifier of the application of the relationships.
+   */
+  @Schema(description = "The identifier of the application of the relationships.", example = "1")
+  public String appId;
+
+  /**
+   * The identifier of the user.
+   */
+  @Schema(description = "The identifier of the user.", example = "1e346fd440")
+  public String userId;
+
+  /**
+   * The relationships of the user.
+   */
+  @ArraySchema(schema = @Schema(ref = "https://raw.githubusercontent.com/InternetOfUs/components-documentation/MODELS_2.4.0/sources/wenet-models-openapi.yaml#/components/schemas/SocialNetworkRelationship"), arraySchema = @Schema(description = "The relationships of the user sorted by descending weight."))
+  public List<SocialNetworkRelationship> relationships = new ArrayList<>();
+
+}
@@ -20,8 +20,11 @@
 
 package eu.internetofus.wenet_profile_manager.api.tasks;
 
+import eu.internetofus.common.model.ErrorMessage;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.vertx.core.AsyncResult;
@@ -66,7 +69,8 @@ public interface Tasks {
   @Path("/{taskId}")
   @Produces(MediaType.APPLICATION_JSON)
   @Operation(summary = "Delete task information", description = "Allow to delete the information associated to a task")
-  @ApiResponse(responseCode = "204", description = "The information of the task was deleted successfully")
+  @ApiResponse(responseCode = "204", description = "The job to delete the information of the task was added successfully")
+  @ApiResponse(responseCode = "500", description = "Cannot add the job to delete the information of the task", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void taskDeleted(
       @PathParam("taskId") @Parameter(description = "The identifier of the task to delete its information") String taskId,
       @Parameter(hidden = true, required = false) ServiceRequest request,
@@ -21,12 +21,15 @@
 package eu.internetofus.wenet_profile_manager.api.tasks;
 
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
-import eu.internetofus.wenet_profile_manager.persistence.TrustsRepository;
+import eu.internetofus.wenet_profile_manager.persistence.DeletionJobsRepository;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
+import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
 
 /**
  * Resource that implements the web services defined at {@link Tasks}.
@@ -60,11 +63,21 @@ public class TasksResource implements Tasks {
   public void taskDeleted(final String taskId, final ServiceRequest request,
       final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    TrustsRepository.createProxy(this.vertx).deleteAllEventsForTask(taskId).onComplete(result -> {
+    DeletionJobsRepository.createProxy(this.vertx)
+        .addDeletionJob(DeletionJobsRepository.TASKS_TYPE, new JsonArray().add(taskId)).onComplete(added -> {
 
-      ServiceResponseHandlers.responseOk(resultHandler);
+          if (added.failed()) {
 
-    });
+            final var cause = added.cause();
+            Logger.error(cause, "Cannot add the job to delete the references to the task {}.", taskId);
+            ServiceResponseHandlers.responseFailedWith(resultHandler, Status.INTERNAL_SERVER_ERROR, cause);
+
+          } else {
+
+            ServiceResponseHandlers.responseOk(resultHandler);
+          }
+
+        });
 
   }
 
@@ -0,0 +1,56 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.trusts;
+
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Contains the result of store a batch of trust events.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "TrustEventsBatch", description = "Contains the result of store a batch of trust events")
+public class TrustEventsBatch extends ReflectionModel implements Model {
+
+  /**
+   * The number of events that has been stored.
+   */
+  @Schema(description = "The number of events that has been stored.", example = "10")
+  public int stored;
+
+  /**
+   * The number of events that has not been stored.
+   */
+  @Schema(description = "The number of events that has not been stored.", example = "0")
+  public int failed;
+
+  /**
+   * The result of store each event.
+   */
+  @ArraySchema(schema = @Schema(implementation = TrustEventsBatchItem.class), arraySchema = @Schema(description = "The result of store each event, in the same order that the events have been provided."))
+  public List<TrustEventsBatchItem> items = new ArrayList<>();
+
+}
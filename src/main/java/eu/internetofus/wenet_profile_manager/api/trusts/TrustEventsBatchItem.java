@@ -0,0 +1,63 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.trusts;
+
+import eu.internetofus.common.components.profile_manager.UserPerformanceRatingEvent;
+import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.common.model.Model;
+import eu.internetofus.common.model.ReflectionModel;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+/**
+ * Contains the result of store an event of a batch of trust events.
+ *
+ * @see TrustEventsBatch
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@Schema(title = "TrustEventsBatchItem", description = "Contains the result of store an event of a batch")
+public class TrustEventsBatchItem extends ReflectionModel implements Model {
+
+  /**
+   * The position of the event on the batch.
+   */
+  @Schema(description = "The position of the event on the batch, starting at zero.", example = "0")
+  public int index;
+
+  /**
+   * The HTTP status code that would be obtained if the event is stored alone.
+   */
+  @Schema(description = "The HTTP status code that would be obtained if the event is stored alone. It is 201 if the event has been stored.", example = "201")
+  public int status;
+
+  /**
+   * The stored event.
+   */
+  @Schema(description = "The stored event. It is only defined if the event has been stored.", implementation = UserPerformanceRatingEvent.class, nullable = true)
+  public UserPerformanceRatingEvent event;
+
+  /**
+   * The error why the event has not been stored.
+   */
+  @Schema(description = "The error why the event has not been stored. It is only defined if the event has not been stored.", implementation = ErrorMessage.class, nullable = true)
+  public ErrorMessage error;
+
+}
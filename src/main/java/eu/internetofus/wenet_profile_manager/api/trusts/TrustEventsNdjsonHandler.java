@@ -0,0 +1,172 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.trusts;
+
+import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.wenet_profile_manager.api.profiles.ProfilesExport;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
+
+/**
+ * The handler that receive a batch of trust events as newline-delimited JSON.
+ * The service proxies only accept JSON bodies, so this handler converts the
+ * lines to an array of events and stores them as
+ * {@link Trusts#addTrustEvents(JsonArray, io.vertx.ext.web.api.service.ServiceRequest, Handler)}.
+ *
+ * @see TrustsResource#storeTrustEvents(JsonArray)
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TrustEventsNdjsonHandler implements Handler<RoutingContext> {
+
+  /**
+   * The path of the batch service.
+   */
+  public static final String RATING_BATCH_FULL_PATH = Trusts.PATH + Trusts.RATING_BATCH_PATH;
+
+  /**
+   * The resource used to store the events.
+   */
+  protected TrustsResource resource;
+
+  /**
+   * Create the handler.
+   *
+   * @param resource used to store the events.
+   */
+  public TrustEventsNdjsonHandler(final TrustsResource resource) {
+
+    this.resource = resource;
+
+  }
+
+  /**
+   * Store the events if the request is a newline-delimited JSON batch, otherwise
+   * it is passed to the next handler.
+   *
+   * @param context of the request.
+   */
+  @Override
+  public void handle(final RoutingContext context) {
+
+    final var request = context.request();
+    final var contentType = request.getHeader("Content-Type");
+    if (HttpMethod.POST.equals(request.method()) && RATING_BATCH_FULL_PATH.equals(context.normalizedPath())
+        && contentType != null && contentType.startsWith(ProfilesExport.NDJSON_MEDIA_TYPE)) {
+
+      final var body = context.getBody();
+      if (body != null) {
+
+        this.storeTrustEvents(body, context);
+
+      } else {
+
+        request.body().onSuccess(buffer -> this.storeTrustEvents(buffer, context))
+            .onFailure(cause -> this.responseWithError(context, Status.BAD_REQUEST, "bad_body", cause.getMessage()));
+      }
+
+    } else {
+
+      context.next();
+    }
+
+  }
+
+  /**
+   * Store the events of a newline-delimited JSON body.
+   *
+   * @param body    with the events.
+   * @param context of the request.
+   */
+  protected void storeTrustEvents(final Buffer body, final RoutingContext context) {
+
+    final var events = new JsonArray();
+    final var lines = body.toString().split("\\r?\\n");
+    for (final var line : lines) {
+
+      final var trimmed = line.trim();
+      if (!trimmed.isEmpty()) {
+
+        try {
+
+          events.add(new JsonObject(trimmed));
+
+        } catch (final Throwable cause) {
+
+          Logger.trace(cause, "The line {} is not a JSON object.", trimmed);
+          events.addNull();
+        }
+      }
+    }
+
+    if (events.size() > TrustsResource.MAX_BATCH_EVENTS) {
+
+      this.responseWithError(context, Status.BAD_REQUEST, "too_many_events",
+          "You can not store more than " + TrustsResource.MAX_BATCH_EVENTS + " events at once.");
+
+    } else {
+
+      this.resource.storeTrustEvents(events).onComplete(store -> {
+
+        if (store.failed()) {
+
+          final var cause = store.cause();
+          Logger.debug(cause, "Cannot store the batch of events.");
+          this.responseWithError(context, Status.INTERNAL_SERVER_ERROR, "cannot_store_events", cause.getMessage());
+
+        } else {
+
+          context.response().setStatusCode(Status.OK.getStatusCode())
+              .putHeader("Content-Type", MediaType.APPLICATION_JSON).end(store.result().toJsonObject().toBuffer());
+        }
+
+      });
+    }
+
+  }
+
+  /**
+   * Response with an error message.
+   *
+   * @param context of the request.
+   * @param status  of the response.
+   * @param code    of the error.
+   * @param message of the error.
+   */
+  protected void responseWithError(final RoutingContext context, final Status status, final String code,
+      final String message) {
+
+    final var error = new ErrorMessage();
+    error.code = code;
+    error.message = message;
+    context.response().setStatusCode(status.getStatusCode()).putHeader("Content-Type", MediaType.APPLICATION_JSON)
+        .end(error.toJsonObject().toBuffer());
+
+  }
+
+}
@@ -33,8 +33,10 @@ import eu.internetofus.common.components.profile_manager.Trust;
 import eu.internetofus.common.components.profile_manager.TrustAggregator;
 import eu.internetofus.common.components.profile_manager.UserPerformanceRatingEvent;
 import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.wenet_profile_manager.api.profiles.ProfilesExport;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.parameters.RequestBody;
@@ -42,6 +44,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
@@ -67,6 +70,16 @@ public interface Trusts {
    */
   String RATING_PATH = "/rating";
 
+  /**
+   * The path to add a batch of rating events.
+   */
+  String RATING_BATCH_PATH = RATING_PATH + "/batch";
+
+  /**
+   * The path to obtain the status of the buffer of rating events.
+   */
+  String RATING_WRITE_BEHIND_PATH = RATING_PATH + "/writeBehind";
+
   /**
    * The path that is used to manipulate the trust between the source and target users.
    */
@@ -94,6 +107,42 @@ public interface Trusts {
   void addTrustEvent(@Parameter(hidden = true, required = false) JsonObject body, @Parameter(hidden = true, required = false) ServiceRequest context,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
+  /**
+   * Called when want to add some trust events at once. The events can be
+   * provided as a JSON array or as newline-delimited JSON, one event per line.
+   *
+   * @param body          the trust events to add.
+   * @param context       of the request.
+   * @param resultHandler to inform of the response.
+   */
+  @POST
+  @Path(RATING_BATCH_PATH)
+  @Consumes({ MediaType.APPLICATION_JSON, ProfilesExport.NDJSON_MEDIA_TYPE })
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Rate the performance of some users", description = "Store a batch of events that rating the performance of some users over the tasks that they have done in WeNet. The events are validated and stored independently, so the response contains the result of store each event.")
+  @RequestBody(description = "The events to store", required = true, content = {
+      @Content(mediaType = MediaType.APPLICATION_JSON, array = @ArraySchema(schema = @Schema(implementation = UserPerformanceRatingEvent.class))),
+      @Content(mediaType = ProfilesExport.NDJSON_MEDIA_TYPE, schema = @Schema(implementation = UserPerformanceRatingEvent.class)) })
+  @ApiResponse(responseCode = "200", description = "The result of store each event", content = @Content(schema = @Schema(implementation = TrustEventsBatch.class)))
+  @ApiResponse(responseCode = "400", description = "Bad events", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
+  void addTrustEvents(@Parameter(hidden = true, required = false) JsonArray body, @Parameter(hidden = true, required = false) ServiceRequest context,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
+  /**
+   * Called when want to obtain the status of the buffer used to store the rating
+   * events.
+   *
+   * @param context       of the request.
+   * @param resultHandler to inform of the response.
+   */
+  @GET
+  @Path(RATING_WRITE_BEHIND_PATH)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Operation(summary = "Return the status of the buffer of rating events", description = "Allow to obtain if the rating events are buffered before storing them, and in this case the number of pending events and the latencies of storing them.")
+  @ApiResponse(responseCode = "200", description = "The status of the buffer", content = @Content(schema = @Schema(type = "object", example = "{\"enabled\":true,\"delay\":100,\"maxEvents\":1000,\"queueDepth\":3,\"inFlight\":0,\"flushes\":10,\"flushedEvents\":95,\"lastFlushLatency\":4,\"maxFlushLatency\":12,\"averageFlushLatency\":5}")))
+  void retrieveTrustEventsWriteBehindStatus(@Parameter(hidden = true, required = false) ServiceRequest context,
+      @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
+
   /**
    * Called when want to calculate the trust of an user respect another.
    *
@@ -24,17 +24,24 @@ import eu.internetofus.common.components.WeNetValidateContext;
 import eu.internetofus.common.components.profile_manager.Trust;
 import eu.internetofus.common.components.profile_manager.TrustAggregator;
 import eu.internetofus.common.components.profile_manager.UserPerformanceRatingEvent;
+import eu.internetofus.common.model.ErrorMessage;
 import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.TimeManager;
+import eu.internetofus.common.model.ValidationErrorException;
 import eu.internetofus.common.vertx.QueryBuilder;
 import eu.internetofus.common.vertx.ServiceResponseHandlers;
 import eu.internetofus.wenet_profile_manager.persistence.TrustsRepository;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
+import java.util.ArrayList;
+import java.util.List;
 import javax.ws.rs.core.Response.Status;
 import org.tinylog.Logger;
 
@@ -47,6 +54,11 @@ import org.tinylog.Logger;
  */
 public class TrustsResource implements Trusts {
 
+  /**
+   * The maximum number of events that can be stored in a batch.
+   */
+  public static final int MAX_BATCH_EVENTS = 1000;
+
   /**
    * The event bus that is using.
    */
@@ -116,6 +128,151 @@ public class TrustsResource implements Trusts {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addTrustEvents(final JsonArray body, final ServiceRequest context,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    if (body.size() > MAX_BATCH_EVENTS) {
+
+      Logger.debug("The batch of {} events is too large.", body.size());
+      ServiceResponseHandlers.responseWithErrorMessage(resultHandler, Status.BAD_REQUEST, "too_many_events",
+          "You can not store more than " + MAX_BATCH_EVENTS + " events at once.");
+
+    } else {
+
+      this.storeTrustEvents(body).onComplete(store -> {
+
+        if (store.failed()) {
+
+          final var cause = store.cause();
+          Logger.debug(cause, "Cannot store the batch of events.");
+          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.INTERNAL_SERVER_ERROR, cause);
+
+        } else {
+
+          ServiceResponseHandlers.responseOk(resultHandler, store.result());
+        }
+
+      });
+    }
+
+  }
+
+  /**
+   * Validate and store a batch of trust events. All the events are validated in
+   * parallel, and the valid ones are stored at once.
+   *
+   * @param body with the events to store.
+   *
+   * @return the future with the result of store each event.
+   */
+  public Future<TrustEventsBatch> storeTrustEvents(final JsonArray body) {
+
+    final var batch = new TrustEventsBatch();
+    @SuppressWarnings("rawtypes")
+    final List<Future> validations = new ArrayList<>();
+    for (var index = 0; index < body.size(); index++) {
+
+      final var item = new TrustEventsBatchItem();
+      item.index = index;
+      batch.items.add(item);
+      final var value = body.getValue(index);
+      if (value instanceof JsonObject) {
+
+        item.event = Model.fromJsonObject((JsonObject) value, UserPerformanceRatingEvent.class);
+      }
+      if (item.event == null) {
+
+        item.status = Status.BAD_REQUEST.getStatusCode();
+        item.error = this.createBatchError("bad_trust_event", "The trust event is not right.");
+
+      } else {
+
+        validations.add(item.event.validate(new WeNetValidateContext("bad_event", this.vertx)).onFailure(cause -> {
+
+          Logger.trace(cause, "The {} is not valid.", item.event);
+          item.event = null;
+          item.status = Status.BAD_REQUEST.getStatusCode();
+          if (cause instanceof ValidationErrorException) {
+
+            item.error = this.createBatchError(((ValidationErrorException) cause).getCode(), cause.getMessage());
+
+          } else {
+
+            item.error = this.createBatchError("bad_event", cause.getMessage());
+          }
+
+        }));
+      }
+    }
+
+    return CompositeFuture.join(validations).otherwiseEmpty().compose(validated -> {
+
+      final var events = new JsonArray();
+      final var valid = new ArrayList<TrustEventsBatchItem>();
+      for (final var item : batch.items) {
+
+        if (item.event != null) {
+
+          events.add(item.event.toJsonObject());
+          valid.add(item);
+        }
+      }
+      return this.repository.storeTrustEvents(events).map(stored -> {
+
+        for (var i = 0; i < valid.size(); i++) {
+
+          final var item = valid.get(i);
+          final var storedEvent = stored.getJsonObject(i);
+          if (storedEvent == null) {
+
+            item.event = null;
+            item.status = Status.INTERNAL_SERVER_ERROR.getStatusCode();
+            item.error = this.createBatchError("cannot_store_event", "Cannot store the trust event.");
+
+          } else {
+
+            item.event = Model.fromJsonObject(storedEvent, UserPerformanceRatingEvent.class);
+            item.status = Status.CREATED.getStatusCode();
+          }
+        }
+        for (final var item : batch.items) {
+
+          if (item.event != null) {
+
+            batch.stored++;
+
+          } else {
+
+            batch.failed++;
+          }
+        }
+        return batch;
+      });
+    });
+
+  }
+
+  /**
+   * Create the error of an event of a batch that has not been stored.
+   *
+   * @param code    of the error.
+   * @param message of the error.
+   *
+   * @return the error message.
+   */
+  protected ErrorMessage createBatchError(final String code, final String message) {
+
+    final var error = new ErrorMessage();
+    error.code = code;
+    error.message = message;
+    return error;
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -149,4 +306,28 @@ public class TrustsResource implements Trusts {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveTrustEventsWriteBehindStatus(final ServiceRequest context,
+      final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+
+    this.repository.retrieveTrustEventsWriteBehindStatus().onComplete(retrieve -> {
+
+      if (retrieve.failed()) {
+
+        final var cause = retrieve.cause();
+        Logger.debug(cause, "Cannot obtain the status of the trust events buffer.");
+        ServiceResponseHandlers.responseFailedWith(resultHandler, Status.INTERNAL_SERVER_ERROR, cause);
+
+      } else {
+
+        ServiceResponseHandlers.responseOk(resultHandler, retrieve.result());
+      }
+
+    });
+
+  }
+
 }
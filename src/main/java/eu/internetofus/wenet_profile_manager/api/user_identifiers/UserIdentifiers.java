@@ -65,6 +65,7 @@ public interface UserIdentifiers {
    *
    * @param offset        index of the first user identifier to return.
    * @param limit         number maximum of user identifiers to return.
+   * @param cursor        continuation token to obtain the next page.
    * @param request       of the operation.
    * @param resultHandler to inform of the response.
    */
@@ -74,7 +75,8 @@ public interface UserIdentifiers {
   @ApiResponse(responseCode = "200", description = "The page with the user identifiers", content = @Content(schema = @Schema(implementation = UserIdentifiersPage.class)))
   @ApiResponse(responseCode = "400", description = "If any of the search pattern is not valid", content = @Content(schema = @Schema(implementation = ErrorMessage.class)))
   void getUserIdentifiersPage(@DefaultValue("0") @QueryParam("offset") @Parameter(description = "The index of the first task type to return") int offset,
-      @DefaultValue("10000") @QueryParam("limit") @Parameter(description = "The number maximum of task types to return") int limit, @Parameter(hidden = true, required = false) ServiceRequest request,
+      @DefaultValue("10000") @QueryParam("limit") @Parameter(description = "The number maximum of task types to return") int limit,
+      @QueryParam(value = "cursor") @Parameter(description = "The continuation token to obtain the page that is after the last one. When it is defined the offset is ignored and the page contains the field 'nextCursor' with the token to obtain the next page, if there are more user identifiers. Use the value 'first' to start from the first page.", example = "first", required = false) String cursor, @Parameter(hidden = true, required = false) ServiceRequest request,
       @Parameter(hidden = true, required = false) Handler<AsyncResult<ServiceResponse>> resultHandler);
 
 }
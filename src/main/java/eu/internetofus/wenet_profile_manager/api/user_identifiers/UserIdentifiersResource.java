@@ -22,6 +22,7 @@ package eu.internetofus.wenet_profile_manager.api.user_identifiers;
 
 import eu.internetofus.common.vertx.ModelResources;
 import eu.internetofus.common.vertx.ServiceContext;
+import eu.internetofus.common.vertx.ServiceResponseHandlers;
 import eu.internetofus.wenet_profile_manager.api.profiles.Profiles;
 import eu.internetofus.wenet_profile_manager.persistence.ProfilesRepository;
 import io.vertx.core.AsyncResult;
@@ -29,6 +30,8 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.api.service.ServiceRequest;
 import io.vertx.ext.web.api.service.ServiceResponse;
+import javax.ws.rs.core.Response.Status;
+import org.tinylog.Logger;
 
 /**
  * The implementation of the {@link UserIdentifiers}.
@@ -63,10 +66,30 @@ public class UserIdentifiersResource implements UserIdentifiers {
    * {@inheritDoc}
    */
   @Override
-  public void getUserIdentifiersPage(final int offset, final int limit, final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
+  public void getUserIdentifiersPage(final int offset, final int limit, final String cursor, final ServiceRequest request, final Handler<AsyncResult<ServiceResponse>> resultHandler) {
 
-    final var context = new ServiceContext(request, resultHandler);
-    ModelResources.retrieveModelsPage(offset, limit, (page, promise) -> this.repository.retrieveProfileUserIdsPageObject(page.offset, page.limit, search -> promise.handle(search)), context);
+    if (cursor == null) {
+
+      final var context = new ServiceContext(request, resultHandler);
+      ModelResources.retrieveModelsPage(offset, limit, (page, promise) -> this.repository.retrieveProfileUserIdsPageObject(page.offset, page.limit, search -> promise.handle(search)), context);
+
+    } else {
+
+      this.repository.retrieveProfileUserIdsPageObjectAfter(cursor, Math.max(1, limit), search -> {
+
+        if (search.failed()) {
+
+          final var cause = search.cause();
+          Logger.trace(cause, "Cannot retrieve the user identifiers after {}.", cursor);
+          ServiceResponseHandlers.responseFailedWith(resultHandler, Status.BAD_REQUEST, cause);
+
+        } else {
+
+          ServiceResponseHandlers.responseOk(resultHandler, search.result());
+        }
+
+      });
+    }
 
   }
 
@@ -0,0 +1,181 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.UpdateOptions;
+import java.util.List;
+
+/**
+ * The component used to delete the documents that match a query in bounded
+ * batches, so a big delete does not block the database for a long time.
+ *
+ * @see DeletionJobsRepository
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class BatchDeletes {
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private BatchDeletes() {
+
+  }
+
+  /**
+   * Create the query to match the documents where a field has one of the
+   * specified values.
+   *
+   * @param field  name of the field to match.
+   * @param values that the field can have.
+   *
+   * @return the query to match the documents.
+   */
+  public static JsonObject in(final String field, final JsonArray values) {
+
+    return new JsonObject().put(field, new JsonObject().put("$in", values));
+
+  }
+
+  /**
+   * Create the query to match the documents where any of two fields has one of
+   * the specified values.
+   *
+   * @param field  name of the first field to match.
+   * @param other  name of the second field to match.
+   * @param values that the fields can have.
+   *
+   * @return the query to match the documents.
+   */
+  public static JsonObject inAny(final String field, final String other, final JsonArray values) {
+
+    return new JsonObject().put("$or", new JsonArray().add(in(field, values)).add(in(other, values)));
+
+  }
+
+  /**
+   * Delete some of the documents that match a query.
+   *
+   * @param pool       to the database.
+   * @param collection where are the documents to delete.
+   * @param query      to match the documents to delete.
+   * @param fields     of the documents to return, or {@code null} to return
+   *                   only the identifiers.
+   * @param limit      maximum number of documents to delete.
+   *
+   * @return the future with the deleted documents. If it has less documents
+   *         than the limit, there are not more documents to delete.
+   */
+  public static Future<List<JsonObject>> deleteBatch(final MongoClient pool, final String collection,
+      final JsonObject query, final JsonObject fields, final int limit) {
+
+    final var options = new FindOptions().setLimit(limit);
+    if (fields == null) {
+
+      options.setFields(new JsonObject().put("_id", true));
+
+    } else {
+
+      options.setFields(fields.copy().put("_id", true));
+    }
+    return pool.findWithOptions(collection, query, options).compose(found -> {
+
+      if (found.isEmpty()) {
+
+        return Future.succeededFuture(found);
+
+      } else {
+
+        final var ids = new JsonArray();
+        for (final var document : found) {
+
+          ids.add(document.getValue("_id"));
+        }
+        return pool.removeDocuments(collection, in("_id", ids)).map(removed -> found);
+      }
+
+    });
+
+  }
+
+  /**
+   * Delete some of the documents that match a query.
+   *
+   * @param pool       to the database.
+   * @param collection where are the documents to delete.
+   * @param query      to match the documents to delete.
+   * @param limit      maximum number of documents to delete.
+   *
+   * @return the future with the number of deleted documents. If it is less than
+   *         the limit, there are not more documents to delete.
+   */
+  public static Future<Integer> deleteBatch(final MongoClient pool, final String collection, final JsonObject query,
+      final int limit) {
+
+    return deleteBatch(pool, collection, query, null, limit).map(List::size);
+
+  }
+
+  /**
+   * Apply an update over some of the documents that match a query.
+   *
+   * @param pool       to the database.
+   * @param collection where are the documents to update.
+   * @param query      to match the documents to update. The update has to
+   *                   modify the documents to not match it any more.
+   * @param update     to apply.
+   * @param limit      maximum number of documents to update.
+   *
+   * @return the future with the number of updated documents. If it is less than
+   *         the limit, there are not more documents to update.
+   */
+  public static Future<Integer> updateBatch(final MongoClient pool, final String collection, final JsonObject query,
+      final JsonObject update, final int limit) {
+
+    final var options = new FindOptions().setLimit(limit).setFields(new JsonObject().put("_id", true));
+    return pool.findWithOptions(collection, query, options).compose(found -> {
+
+      if (found.isEmpty()) {
+
+        return Future.succeededFuture(0);
+
+      } else {
+
+        final var ids = new JsonArray();
+        for (final var document : found) {
+
+          ids.add(document.getValue("_id"));
+        }
+        return pool.updateCollectionWithOptions(collection, in("_id", ids), update, new UpdateOptions().setMulti(true))
+            .map(updated -> found.size());
+      }
+
+    });
+
+  }
+
+}
@@ -20,6 +20,7 @@
 
 package eu.internetofus.wenet_profile_manager.persistence;
 
+import eu.internetofus.common.components.models.CommunityMember;
 import eu.internetofus.common.components.models.CommunityProfile;
 import eu.internetofus.common.components.profile_manager.CommunityProfilesPage;
 import eu.internetofus.common.model.Model;
@@ -34,6 +35,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.serviceproxy.ServiceBinder;
@@ -62,13 +64,22 @@ public interface CommunitiesRepository {
    */
   static CommunitiesRepository createProxy(final Vertx vertx) {
 
-    return new CommunitiesRepositoryVertxEBProxy(vertx, CommunitiesRepository.ADDRESS);
+    final var local = LocalServices.lookup(vertx, CommunitiesRepository.ADDRESS, CommunitiesRepository.class);
+    if (local != null) {
+
+      return local;
+
+    } else {
+
+      return new CommunitiesRepositoryVertxEBProxy(vertx, CommunitiesRepository.ADDRESS);
+    }
   }
 
   /**
    * Register this service.
    *
    * @param vertx      that contains the event bus to use.
+   * @param conf       configuration to use.
    * @param pool       to create the database connections.
    * @param version    of the schemas.
    * @param background is {@code true} if has to migrate the data base in
@@ -76,13 +87,27 @@ public interface CommunitiesRepository {
    *
    * @return the future that inform when the repository will be registered or not.
    */
-  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version,
-      final boolean background) {
+  static Future<Void> register(final Vertx vertx, final JsonObject conf, final MongoClient pool,
+      final String version, final boolean background) {
 
     final var repository = new CommunitiesRepositoryImpl(vertx, pool, version);
+    final var profileManager = conf.getJsonObject("profileManager", new JsonObject());
+    repository.pageTotals = PageTotals.create(pool, profileManager);
+    final var metricsPeriod = Long.parseLong(String
+        .valueOf(profileManager.getValue("cacheMetricsPeriod", ReadThroughCache.DEFAULT_METRICS_PERIOD)));
+    repository.communitiesCache = ReadThroughCache
+        .create(vertx, CommunitiesRepositoryImpl.COMMUNITIES_COLLECTION, profileManager).start(metricsPeriod);
     new ServiceBinder(vertx).setAddress(CommunitiesRepository.ADDRESS).register(CommunitiesRepository.class,
         repository);
-    if (background) {
+    LocalServices.register(vertx, CommunitiesRepository.ADDRESS, CommunitiesRepository.class, repository);
+    if (profileManager.getBoolean("lazySchemaUpgrade", false)) {
+
+      final var period = Long.parseLong(
+          String.valueOf(profileManager.getValue("schemaUpgradePeriod", SchemaTrickleUpgrader.DEFAULT_PERIOD)));
+      new SchemaTrickleUpgrader(vertx, "communities", repository::upgradeOutdatedCommunities, period).start();
+      return Future.succeededFuture();
+
+    } else if (background) {
 
       repository.migrateDocumentsToCurrentVersions()
           .onFailure(error -> Logger.error(error, "Cannot migrate the communities."));
@@ -331,6 +356,24 @@ public interface CommunitiesRepository {
   void retrieveCommunityProfilesPageObject(JsonObject query, JsonObject sort, int offset, int limit,
       Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * Retrieve a page with some fields of the communities.
+   *
+   * @param query         to obtain the required communities.
+   * @param sort          describe how has to be ordered the obtained
+   *                      communities.
+   * @param offset        the index of the first community to return.
+   * @param limit         the number maximum of communities to return.
+   * @param fields        names of the community fields to return, or
+   *                      {@code null} to return all of them.
+   * @param total         how the number of communities has to be calculated.
+   * @param searchHandler handler to manage the search.
+   *
+   * @see PageTotals
+   */
+  void retrieveProjectedCommunityProfilesPageObject(JsonObject query, JsonObject sort, int offset, int limit,
+      List<String> fields, String total, Handler<AsyncResult<JsonObject>> searchHandler);
+
   /**
    * Search for the community with the specified identifier.
    *
@@ -379,4 +422,149 @@ public interface CommunitiesRepository {
 
   }
 
+  /**
+   * Remove some users from the members of some of the communities.
+   *
+   * @param userIds       identifiers of the users.
+   * @param limit         maximum number of communities to modify.
+   * @param deleteHandler handler to manage the number of modified communities.
+   *                      If it is less than the limit, there are not more
+   *                      communities to modify.
+   */
+  void deleteMembersBatchForUsers(JsonArray userIds, int limit, Handler<AsyncResult<Integer>> deleteHandler);
+
+  /**
+   * Remove some users from the members of some of the communities.
+   *
+   * @param userIds identifiers of the users.
+   * @param limit   maximum number of communities to modify.
+   *
+   * @return the future with the number of modified communities. If it is less
+   *         than the limit, there are not more communities to modify.
+   */
+  @GenIgnore
+  default Future<Integer> deleteMembersBatchForUsers(final JsonArray userIds, final int limit) {
+
+    final Promise<Integer> promise = Promise.promise();
+    this.deleteMembersBatchForUsers(userIds, limit, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Add atomically a member into a community.
+   *
+   * @param communityId identifier of the community to add the member.
+   * @param member      to add.
+   *
+   * @return the future with the added member, or {@code null} if the community
+   *         is not defined or it already has a member for the same user.
+   */
+  @GenIgnore
+  default Future<CommunityMember> addCommunityMember(final String communityId, final CommunityMember member) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.addCommunityMember(communityId, member.toJsonObject(), promise);
+    return promise.future().map(CommunitiesRepository::toCommunityMember);
+
+  }
+
+  /**
+   * Add atomically a member into a community.
+   *
+   * @param communityId identifier of the community to add the member.
+   * @param member      to add.
+   * @param addHandler  handler to manage the added member, or {@code null} if
+   *                    the community is not defined or it already has a member
+   *                    for the same user.
+   */
+  void addCommunityMember(String communityId, JsonObject member, Handler<AsyncResult<JsonObject>> addHandler);
+
+  /**
+   * Replace atomically a member of a community. The creation time of the member
+   * is preserved and the fields that are not defined on the new value are
+   * removed.
+   *
+   * @param communityId identifier of the community where is the member.
+   * @param userId      identifier of the user of the member to replace.
+   * @param member      new value for the member.
+   *
+   * @return the future with the updated member, or {@code null} if the
+   *         community is not defined or it does not have a member for the user.
+   */
+  @GenIgnore
+  default Future<CommunityMember> updateCommunityMember(final String communityId, final String userId,
+      final CommunityMember member) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.updateCommunityMember(communityId, userId, member.toJsonObject(), promise);
+    return promise.future().map(CommunitiesRepository::toCommunityMember);
+
+  }
+
+  /**
+   * Replace atomically a member of a community. The creation time of the member
+   * is preserved and the fields that are not defined on the new value are
+   * removed.
+   *
+   * @param communityId   identifier of the community where is the member.
+   * @param userId        identifier of the user of the member to replace.
+   * @param member        new value for the member.
+   * @param updateHandler handler to manage the updated member, or {@code null}
+   *                      if the community is not defined or it does not have a
+   *                      member for the user.
+   */
+  void updateCommunityMember(String communityId, String userId, JsonObject member,
+      Handler<AsyncResult<JsonObject>> updateHandler);
+
+  /**
+   * Remove atomically a member of a community.
+   *
+   * @param communityId identifier of the community where is the member.
+   * @param userId      identifier of the user of the member to remove.
+   *
+   * @return the future with the removed member, or {@code null} if the
+   *         community is not defined or it does not have a member for the user.
+   */
+  @GenIgnore
+  default Future<CommunityMember> deleteCommunityMember(final String communityId, final String userId) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.deleteCommunityMember(communityId, userId, promise);
+    return promise.future().map(CommunitiesRepository::toCommunityMember);
+
+  }
+
+  /**
+   * Remove atomically a member of a community.
+   *
+   * @param communityId   identifier of the community where is the member.
+   * @param userId        identifier of the user of the member to remove.
+   * @param deleteHandler handler to manage the removed member, or {@code null}
+   *                      if the community is not defined or it does not have a
+   *                      member for the user.
+   */
+  void deleteCommunityMember(String communityId, String userId, Handler<AsyncResult<JsonObject>> deleteHandler);
+
+  /**
+   * Convert a JSON to a community member.
+   *
+   * @param value to convert.
+   *
+   * @return the community member defined on the JSON, or {@code null} if the
+   *         value is {@code null}.
+   */
+  static CommunityMember toCommunityMember(final JsonObject value) {
+
+    if (value == null) {
+
+      return null;
+
+    } else {
+
+      return Model.fromJsonObject(value, CommunityMember.class);
+    }
+
+  }
+
 }
@@ -22,6 +22,7 @@ package eu.internetofus.wenet_profile_manager.persistence;
 
 import eu.internetofus.common.components.models.CommunityProfile;
 import eu.internetofus.common.components.models.ProtocolNorm;
+import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.Repository;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
@@ -29,9 +30,13 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
 import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.ext.mongo.UpdateOptions;
+import java.util.ArrayList;
+import java.util.List;
+import org.tinylog.Logger;
 
 /**
  * Implementation of the {@link CommunitiesRepository}.
@@ -48,6 +53,28 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
    */
   public static final String COMMUNITIES_COLLECTION = "communities";
 
+  /**
+   * The indexes that has to be defined to the collections of the repository.
+   */
+  public static final List<RepositoryIndex> INDEXES = List.of(RepositoryIndex.of(COMMUNITIES_COLLECTION,
+      "membersUserId", new JsonObject().put("members.userId", 1)));
+
+  /**
+   * The upgrades to apply over the communities stored with an old schema
+   * version.
+   */
+  protected SchemaUpgrades communityUpgrades;
+
+  /**
+   * The cache of the communities.
+   */
+  protected ReadThroughCache communitiesCache;
+
+  /**
+   * The component to calculate the totals of the pages.
+   */
+  protected PageTotals pageTotals;
+
   /**
    * Create a new repository.
    *
@@ -58,6 +85,30 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
   public CommunitiesRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version) {
 
     super(vertx, pool, version);
+    this.pageTotals = new PageTotals(pool, PageTotals.DEFAULT_COUNTS_TIME_TO_LIVE);
+    this.communityUpgrades = new SchemaUpgrades(version).with("0.16.1", this::addDefaultNormsIfUndefined);
+    this.communitiesCache = new ReadThroughCache(vertx, COMMUNITIES_COLLECTION, 0, 0);
+
+  }
+
+  /**
+   * Add the default norms to a community with a schema version less than or
+   * equals to 0.16.0 that does not have norms.
+   *
+   * @param community to upgrade.
+   *
+   * @return the community with norms.
+   *
+   * @see #migrateComunitiesWithoutNorms_with_API_0_16_0_OR_LESS()
+   */
+  protected JsonObject addDefaultNormsIfUndefined(final JsonObject community) {
+
+    final var norms = community.getValue("norms");
+    if (!(norms instanceof JsonArray) || ((JsonArray) norms).isEmpty()) {
+
+      community.put("norms", this.defaultNormsForCommunitiesWitghoutNormsAndSchema_0_16_0_or_less());
+    }
+    return community;
 
   }
 
@@ -67,14 +118,117 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
   @Override
   public void searchCommunity(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    final var query = new JsonObject().put("_id", id);
-    this.findOneDocument(COMMUNITIES_COLLECTION, query, null, found -> {
-      final var _id = (String) found.remove("_id");
-      return found.put("id", _id);
+    this.communitiesCache.get(id, this::findStoredCommunity).compose(found -> {
+
+      if (found == null) {
+
+        return Future.failedFuture("Does not exist a community with the identifier '" + id + "'.");
+
+      } else {
+
+        return Future.succeededFuture(found);
+      }
+
     }).onComplete(searchHandler);
 
   }
 
+  /**
+   * Find a community on the database. If the community is stored with an old
+   * schema version, it is upgraded in memory and the upgraded community is
+   * stored in background.
+   *
+   * @param id identifier of the community.
+   *
+   * @return the future with the community, or {@code null} if it is not defined.
+   */
+  protected Future<JsonObject> findStoredCommunity(final String id) {
+
+    final var query = new JsonObject().put("_id", id);
+    return this.pool.findOne(COMMUNITIES_COLLECTION, query, null).map(found -> {
+
+      if (found == null) {
+
+        return null;
+
+      } else {
+
+        var community = found;
+        if (this.communityUpgrades.isOutdated(found)) {
+
+          community = this.communityUpgrades.upgrade(found);
+          this.pool.replaceDocuments(COMMUNITIES_COLLECTION, SchemaUpgrades.createUnmodifiedQuery(found),
+              community.copy()).onFailure(cause -> Logger.debug(cause, "Cannot store the upgraded community {}.", id));
+        }
+        community.remove(SCHEMA_VERSION);
+        community.put("id", community.remove("_id"));
+        return community;
+      }
+
+    });
+
+  }
+
+  /**
+   * Remove a community from the cache when it has been modified.
+   *
+   * @param id           identifier of the modified community, or {@code null} if
+   *                     can be modified any community.
+   * @param modification that change the community.
+   * @param <T>          type of the result of the modification.
+   *
+   * @return the future of the modification.
+   */
+  protected <T> Future<T> invalidateCommunity(final String id, final Future<T> modification) {
+
+    return modification.onComplete(any -> {
+
+      if (id != null) {
+
+        this.communitiesCache.invalidate(id);
+
+      } else {
+
+        this.communitiesCache.invalidateAll();
+      }
+
+    });
+
+  }
+
+  /**
+   * Upgrade a batch of the communities that are stored with an old schema
+   * version.
+   *
+   * @param limit maximum number of communities to upgrade.
+   *
+   * @return the future with the number of communities that have been upgraded.
+   */
+  protected Future<Integer> upgradeOutdatedCommunities(final int limit) {
+
+    final var query = this.createQueryToReturnDocumentsWithAVersionLessThan(this.schemaVersion);
+    final var options = new FindOptions().setLimit(limit);
+    return this.pool.findWithOptions(COMMUNITIES_COLLECTION, query, options).compose(communities -> {
+
+      if (communities.isEmpty()) {
+
+        return Future.succeededFuture(0);
+
+      } else {
+
+        final var replaces = new ArrayList<BulkOperation>();
+        for (final var community : communities) {
+
+          replaces.add(BulkOperation.createReplace(SchemaUpgrades.createUnmodifiedQuery(community),
+              this.communityUpgrades.upgrade(community)));
+        }
+        return this.pool.bulkWrite(COMMUNITIES_COLLECTION, replaces).map(any -> communities.size());
+      }
+
+    });
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -86,12 +240,17 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
 
       community.put("_id", id);
     }
-    this.storeOneDocument(COMMUNITIES_COLLECTION, community, stored -> {
+    final var stored = this.storeOneDocument(COMMUNITIES_COLLECTION, community, value -> {
 
-      final var _id = (String) stored.remove("_id");
-      return stored.put("id", _id);
+      final var _id = (String) value.remove("_id");
+      return value.put("id", _id);
 
-    }).onComplete(storeHandler);
+    });
+    if (id != null) {
+
+      this.invalidateCommunity(id, stored);
+    }
+    stored.onComplete(storeHandler);
 
   }
 
@@ -101,9 +260,10 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
   @Override
   public void updateCommunity(final JsonObject community, final Handler<AsyncResult<Void>> updateHandler) {
 
-    final var id = community.remove("id");
+    final var id = (String) community.remove("id");
     final var query = new JsonObject().put("_id", id);
-    this.updateOneDocument(COMMUNITIES_COLLECTION, query, community).onComplete(updateHandler);
+    this.invalidateCommunity(id, this.updateOneDocument(COMMUNITIES_COLLECTION, query, community))
+        .onComplete(updateHandler);
 
   }
 
@@ -114,7 +274,7 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
   public void deleteCommunity(final String id, final Handler<AsyncResult<Void>> deleteHandler) {
 
     final var query = new JsonObject().put("_id", id);
-    this.deleteOneDocument(COMMUNITIES_COLLECTION, query).onComplete(deleteHandler);
+    this.invalidateCommunity(id, this.deleteOneDocument(COMMUNITIES_COLLECTION, query)).onComplete(deleteHandler);
 
   }
 
@@ -134,6 +294,37 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveProjectedCommunityProfilesPageObject(final JsonObject query, final JsonObject sort,
+      final int offset, final int limit, final List<String> fields, final String total,
+      final Handler<AsyncResult<JsonObject>> handler) {
+
+    final JsonObject projection;
+    try {
+
+      projection = FieldsProjections.createProjection(fields);
+
+    } catch (final IllegalArgumentException error) {
+
+      handler.handle(Future.failedFuture(error));
+      return;
+    }
+    final var options = new FindOptions();
+    if (projection != null) {
+
+      options.setFields(projection);
+    }
+    options.setSort(sort);
+    options.setSkip(offset);
+    options.setLimit(limit);
+    this.pageTotals.searchPageObject(COMMUNITIES_COLLECTION, query, options, "communities",
+        community -> community.put("id", community.remove("_id")), total).onComplete(handler);
+
+  }
+
   /**
    * Migrate the collections to the current version.
    *
@@ -141,8 +332,11 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
    */
   public Future<Void> migrateDocumentsToCurrentVersions() {
 
-    return this.migrateComunitiesWithoutNorms_with_API_0_16_0_OR_LESS()
-        .compose(empty -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, COMMUNITIES_COLLECTION));
+    final var ledger = new MigrationLedger(this.pool, this.schemaVersion);
+    return ledger.apply("communities.normsWithApi0.16.0OrLess",
+        step -> this.migrateComunitiesWithoutNorms_with_API_0_16_0_OR_LESS())
+        .compose(empty -> ledger.apply("communities.schemaVersion." + this.schemaVersion,
+            step -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, COMMUNITIES_COLLECTION)));
   }
 
   /**
@@ -184,12 +378,28 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
 
   /**
    * {@inheritDoc}
+   *
+   * The cached communities are not searched, and the others are checked with a
+   * query that only returns the identifier of the community.
    */
   @Override
   public void isCommunityDefined(final String id, final Handler<AsyncResult<Boolean>> searchHandler) {
 
-    this.searchCommunity(id)
-        .onComplete(search -> searchHandler.handle(Future.succeededFuture(search.result() != null)));
+    if (id == null) {
+
+      searchHandler.handle(Future.succeededFuture(false));
+
+    } else if (this.communitiesCache.isCached(id)) {
+
+      searchHandler.handle(Future.succeededFuture(true));
+
+    } else {
+
+      final var query = new JsonObject().put("_id", id);
+      final var projection = new JsonObject().put("_id", true);
+      this.pool.findOne(COMMUNITIES_COLLECTION, query, projection).map(found -> found != null)
+          .onComplete(searchHandler);
+    }
 
   }
 
@@ -202,7 +412,156 @@ public class CommunitiesRepositoryImpl extends Repository implements Communities
     final var query = new JsonObject().put("members.userId", userId);
     final var update = new JsonObject().put("$pull",
         new JsonObject().put("members", new JsonObject().put("userId", userId)));
-    this.updateCollection(COMMUNITIES_COLLECTION, query, update).onComplete(deleteHandler);
+    this.invalidateCommunity(null, this.updateCollection(COMMUNITIES_COLLECTION, query, update))
+        .onComplete(deleteHandler);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteMembersBatchForUsers(final JsonArray userIds, final int limit,
+      final Handler<AsyncResult<Integer>> deleteHandler) {
+
+    final var update = new JsonObject().put("$pull", new JsonObject().put("members",
+        new JsonObject().put("userId", new JsonObject().put("$in", userIds))));
+    this.invalidateCommunity(null, BatchDeletes.updateBatch(this.pool, COMMUNITIES_COLLECTION,
+        BatchDeletes.in("members.userId", userIds), update, limit)).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * Update a community and return the member that match a user.
+   *
+   * @param query     to select the community to update.
+   * @param update    to apply.
+   * @param userId    identifier of the user of the member to return.
+   * @param returnNew is {@code true} if has to return the member after the
+   *                  update, otherwise the member before the update.
+   *
+   * @return the future with the member, or {@code null} if not any community
+   *         match the query.
+   */
+  protected Future<JsonObject> findCommunityMemberAndUpdate(final JsonObject query, final JsonObject update,
+      final String userId, final boolean returnNew) {
+
+    final var findOptions = new FindOptions();
+    findOptions.setFields(new JsonObject().put("_id", false).put("members",
+        new JsonObject().put("$elemMatch", new JsonObject().put("userId", userId))));
+    final var updateOptions = new UpdateOptions();
+    updateOptions.setReturningNewDocument(returnNew);
+    final var modification = this.pool.findOneAndUpdateWithOptions(COMMUNITIES_COLLECTION, query, update,
+        findOptions, updateOptions);
+    return this.invalidateCommunity(query.getString("_id"), modification).map(community -> {
+
+      if (community != null) {
+
+        final var members = community.getJsonArray("members");
+        if (members != null && !members.isEmpty()) {
+
+          return members.getJsonObject(0);
+        }
+      }
+      return null;
+
+    });
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addCommunityMember(final String communityId, final JsonObject member,
+      final Handler<AsyncResult<JsonObject>> addHandler) {
+
+    final var userId = member.getString("userId");
+    final var now = TimeManager.now();
+    final var query = new JsonObject().put("_id", communityId)
+        .put("members", new JsonObject().put("$type", "array"))
+        .put("members.userId", new JsonObject().put("$ne", userId));
+    final var push = new JsonObject().put("$push", new JsonObject().put("members", member)).put("$set",
+        new JsonObject().put("_lastUpdateTs", now));
+    this.findCommunityMemberAndUpdate(query, push, userId, true).compose(added -> {
+
+      if (added != null) {
+
+        return Future.succeededFuture(added);
+
+      } else {
+
+        // The members may be not defined or null
+        final var undefinedQuery = new JsonObject().put("_id", communityId).putNull("members");
+        final var set = new JsonObject().put("$set",
+            new JsonObject().put("members", new JsonArray().add(member)).put("_lastUpdateTs", now));
+        return this.findCommunityMemberAndUpdate(undefinedQuery, set, userId, true);
+      }
+
+    }).onComplete(addHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateCommunityMember(final String communityId, final String userId, final JsonObject member,
+      final Handler<AsyncResult<JsonObject>> updateHandler) {
+
+    final var memberQuery = new JsonObject().put("_id", communityId).put("members.userId", userId);
+    final var fields = new JsonObject().put("_id", false).put("members",
+        new JsonObject().put("$elemMatch", new JsonObject().put("userId", userId)));
+    this.pool.findOne(COMMUNITIES_COLLECTION, memberQuery, fields).compose(community -> {
+
+      final var members = community == null ? null : community.getJsonArray("members");
+      if (members == null || members.isEmpty()) {
+
+        return Future.succeededFuture(null);
+      }
+
+      // The whole member is replaced, so the fields that are not defined on the new value are removed
+      final var creationTs = members.getJsonObject(0).getValue("_creationTs");
+      final var now = TimeManager.now();
+      final var replacement = new JsonObject();
+      for (final var field : member.fieldNames()) {
+
+        final var value = member.getValue(field);
+        if (value != null) {
+
+          replacement.put(field, value);
+        }
+      }
+      replacement.put("userId", userId).put("_lastUpdateTs", now);
+      replacement.remove("_creationTs");
+      if (creationTs != null) {
+
+        replacement.put("_creationTs", creationTs);
+      }
+
+      // It is only replaced if the member has not been removed and added again after reading it
+      final var query = new JsonObject().put("_id", communityId).put("members", new JsonObject().put("$elemMatch",
+          new JsonObject().put("userId", userId).put("_creationTs", creationTs)));
+      final var update = new JsonObject().put("$set",
+          new JsonObject().put("members.$", replacement).put("_lastUpdateTs", now));
+      return this.findCommunityMemberAndUpdate(query, update, userId, true);
+
+    }).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteCommunityMember(final String communityId, final String userId,
+      final Handler<AsyncResult<JsonObject>> deleteHandler) {
+
+    final var query = new JsonObject().put("_id", communityId).put("members.userId", userId);
+    final var update = new JsonObject()
+        .put("$pull", new JsonObject().put("members", new JsonObject().put("userId", userId)))
+        .put("$set", new JsonObject().put("_lastUpdateTs", TimeManager.now()));
+    this.findCommunityMemberAndUpdate(query, update, userId, false).onComplete(deleteHandler);
+
   }
 
 }
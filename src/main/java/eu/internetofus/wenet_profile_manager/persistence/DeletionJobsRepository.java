@@ -0,0 +1,220 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.codegen.annotations.GenIgnore;
+import io.vertx.codegen.annotations.ProxyGen;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.serviceproxy.ServiceBinder;
+import java.util.List;
+
+/**
+ * The service to manage the jobs that delete all the data that refers to some
+ * users or tasks. The jobs are stored on the database and executed one after
+ * another, deleting the data in bounded batches, so they continue after a
+ * restart.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ProxyGen
+public interface DeletionJobsRepository {
+
+  /**
+   * The address of this service.
+   */
+  String ADDRESS = "wenet_profile_manager.persistence.deletionJobs";
+
+  /**
+   * The type of the jobs that delete the data of some users.
+   */
+  String USERS_TYPE = "users";
+
+  /**
+   * The type of the jobs that delete the data of some tasks.
+   */
+  String TASKS_TYPE = "tasks";
+
+  /**
+   * The status of a job that is waiting to be executed.
+   */
+  String PENDING_STATUS = "pending";
+
+  /**
+   * The status of a job that is executing.
+   */
+  String RUNNING_STATUS = "running";
+
+  /**
+   * The status of a job that has deleted all its data.
+   */
+  String DONE_STATUS = "done";
+
+  /**
+   * The status of a job that can not delete all its data.
+   */
+  String FAILED_STATUS = "failed";
+
+  /**
+   * The step of a job that deletes the relationships of the users.
+   */
+  String RELATIONSHIPS_STEP = "relationships";
+
+  /**
+   * The step of a job that deletes the trust events of the users or tasks.
+   */
+  String TRUSTS_STEP = "trusts";
+
+  /**
+   * The step of a job that deletes the historic profiles of the users.
+   */
+  String HISTORIC_PROFILES_STEP = "historicProfiles";
+
+  /**
+   * The step of a job that removes the users from the community members.
+   */
+  String COMMUNITY_MEMBERS_STEP = "communityMembers";
+
+  /**
+   * Create a proxy of the {@link DeletionJobsRepository}.
+   *
+   * @param vertx where the service has to be used.
+   *
+   * @return the deletion jobs repository.
+   */
+  static DeletionJobsRepository createProxy(final Vertx vertx) {
+
+    final var local = LocalServices.lookup(vertx, DeletionJobsRepository.ADDRESS, DeletionJobsRepository.class);
+    if (local != null) {
+
+      return local;
+
+    } else {
+
+      return new DeletionJobsRepositoryVertxEBProxy(vertx, DeletionJobsRepository.ADDRESS);
+    }
+  }
+
+  /**
+   * Register this service and start to execute the jobs that are not finished.
+   *
+   * @param vertx   that contains the event bus to use.
+   * @param conf    configuration to use.
+   * @param pool    to create the database connections.
+   * @param version of the schemas.
+   *
+   * @return the future that inform when the repository will be registered or not.
+   */
+  static Future<Void> register(final Vertx vertx, final JsonObject conf, final MongoClient pool,
+      final String version) {
+
+    final var repository = new DeletionJobsRepositoryImpl(conf, vertx, pool, version);
+    new ServiceBinder(vertx).setAddress(DeletionJobsRepository.ADDRESS).register(DeletionJobsRepository.class,
+        repository);
+    LocalServices.register(vertx, DeletionJobsRepository.ADDRESS, DeletionJobsRepository.class, repository);
+    repository.startExecutingJobs();
+    return Future.succeededFuture();
+
+  }
+
+  /**
+   * Return the steps to do for a type of job.
+   *
+   * @param type of the job.
+   *
+   * @return the names of the steps of the job, or {@code null} if the type is
+   *         not valid.
+   */
+  static List<String> getDeletionJobSteps(final String type) {
+
+    if (USERS_TYPE.equals(type)) {
+
+      return List.of(RELATIONSHIPS_STEP, TRUSTS_STEP, HISTORIC_PROFILES_STEP, COMMUNITY_MEMBERS_STEP);
+
+    } else if (TASKS_TYPE.equals(type)) {
+
+      return List.of(TRUSTS_STEP);
+
+    } else {
+
+      return null;
+    }
+
+  }
+
+  /**
+   * Add a job to delete all the data that refers to some users or tasks.
+   *
+   * @param type       of the job.
+   * @param ids        identifiers of the users or tasks to delete its data.
+   * @param addHandler handler to inform of the added job.
+   */
+  void addDeletionJob(String type, JsonArray ids, Handler<AsyncResult<JsonObject>> addHandler);
+
+  /**
+   * Add a job to delete all the data that refers to some users or tasks.
+   *
+   * @param type of the job.
+   * @param ids  identifiers of the users or tasks to delete its data.
+   *
+   * @return the future with the added job.
+   */
+  @GenIgnore
+  default Future<JsonObject> addDeletionJob(final String type, final JsonArray ids) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.addDeletionJob(type, ids, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Search for a deletion job.
+   *
+   * @param id            identifier of the job to search.
+   * @param searchHandler handler to inform of the found job.
+   */
+  void searchDeletionJob(String id, Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Search for a deletion job.
+   *
+   * @param id identifier of the job to search.
+   *
+   * @return the future with the found job.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchDeletionJob(final String id) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.searchDeletionJob(id, promise);
+    return promise.future();
+
+  }
+
+}
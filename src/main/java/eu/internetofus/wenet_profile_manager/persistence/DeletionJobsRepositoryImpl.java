@@ -0,0 +1,378 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import eu.internetofus.common.vertx.Repository;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.UpdateOptions;
+import java.util.List;
+import java.util.UUID;
+import org.tinylog.Logger;
+
+/**
+ * Implementation of the {@link DeletionJobsRepository}. Each instance claims
+ * atomically the job to execute, and it owns the job while it renews the lease
+ * of the job. If the lease expires, because the instance has stopped, another
+ * instance can claim the job and continue it.
+ *
+ * @see DeletionJobsRepository
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DeletionJobsRepositoryImpl extends Repository implements DeletionJobsRepository {
+
+  /**
+   * The name of the collection that contains the deletion jobs.
+   */
+  public static final String DELETION_JOBS_COLLECTION = "deletionJobs";
+
+  /**
+   * The indexes that has to be defined to the collections of the repository.
+   */
+  public static final List<RepositoryIndex> INDEXES = List.of(RepositoryIndex.of(DELETION_JOBS_COLLECTION,
+      "statusAndCreationTime", new JsonObject().put("status", 1).put("creationTime", 1)));
+
+  /**
+   * The default maximum number of documents to delete on each batch.
+   */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
+  /**
+   * The default time, in milliseconds, to wait between batches.
+   */
+  public static final long DEFAULT_BATCH_DELAY = 100L;
+
+  /**
+   * The number of consecutive failures of a job before mark it as failed.
+   */
+  public static final int MAX_FAILURES = 5;
+
+  /**
+   * The time, in seconds, that an instance owns a job after it has updated it.
+   */
+  public static final long LEASE_TIME = 300L;
+
+  /**
+   * The identifier of this instance, used to claim the jobs.
+   */
+  protected String owner = UUID.randomUUID().toString();
+
+  /**
+   * The maximum number of documents to delete on each batch.
+   */
+  protected int batchSize;
+
+  /**
+   * The time, in milliseconds, to wait between batches.
+   */
+  protected long batchDelay;
+
+  /**
+   * This is {@code true} if the jobs are executing.
+   */
+  protected boolean executing = false;
+
+  /**
+   * Create a new repository.
+   *
+   * @param conf    configuration to use.
+   * @param vertx   event bus to use.
+   * @param pool    to create the connections.
+   * @param version of the schemas.
+   */
+  public DeletionJobsRepositoryImpl(final JsonObject conf, final Vertx vertx, final MongoClient pool,
+      final String version) {
+
+    super(vertx, pool, version);
+    final var profileManager = conf.getJsonObject("profileManager", new JsonObject());
+    this.batchSize = Math.max(1, Integer.parseInt(
+        String.valueOf(profileManager.getValue("deletionJobsBatchSize", DEFAULT_BATCH_SIZE))));
+    this.batchDelay = Math.max(1L, Long.parseLong(
+        String.valueOf(profileManager.getValue("deletionJobsBatchDelay", DEFAULT_BATCH_DELAY))));
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addDeletionJob(final String type, final JsonArray ids,
+      final Handler<AsyncResult<JsonObject>> addHandler) {
+
+    final var names = DeletionJobsRepository.getDeletionJobSteps(type);
+    if (names == null) {
+
+      addHandler.handle(Future.failedFuture("The type '" + type + "' of the deletion job is not valid."));
+
+    } else if (ids == null || ids.isEmpty()) {
+
+      addHandler.handle(Future.failedFuture("The deletion job has to have some identifiers."));
+
+    } else {
+
+      final var steps = new JsonArray();
+      for (final var name : names) {
+
+        steps.add(new JsonObject().put("name", name).put("deleted", 0L).put("done", false));
+      }
+      final var now = TimeManager.now();
+      final var job = new JsonObject().put("type", type).put("ids", ids).put("status", PENDING_STATUS)
+          .put("steps", steps).put("creationTime", now).put("updateTime", now).put(SCHEMA_VERSION, this.schemaVersion);
+      this.pool.insert(DELETION_JOBS_COLLECTION, job).map(id -> {
+
+        this.executeJobs();
+        job.remove(SCHEMA_VERSION);
+        job.remove("_id");
+        return job.put("id", id);
+
+      }).onComplete(addHandler);
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchDeletionJob(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    final var query = new JsonObject().put("_id", id);
+    final var fields = new JsonObject().put(SCHEMA_VERSION, false).put("owner", false).put("leaseTime", false);
+    this.findOneDocument(DELETION_JOBS_COLLECTION, query, fields, found -> {
+      final var _id = (String) found.remove("_id");
+      return found.put("id", _id);
+    }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * Start to execute the jobs that are not finished, and check periodically, each
+   * {@link #LEASE_TIME}, if there are pending jobs or jobs with an expired lease
+   * to execute.
+   */
+  public void startExecutingJobs() {
+
+    this.executeJobs();
+    this.vertx.setPeriodic(LEASE_TIME * 1000L, id -> this.executeJobs());
+
+  }
+
+  /**
+   * Execute the jobs that are not finished, if they are not already executing.
+   */
+  public void executeJobs() {
+
+    if (!this.executing) {
+
+      this.executing = true;
+      this.executeNextJob();
+    }
+
+  }
+
+  /**
+   * Claim and execute the oldest job that is pending, or that is running with
+   * an expired lease.
+   */
+  protected void executeNextJob() {
+
+    final var now = TimeManager.now();
+    final var query = new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().put("status", PENDING_STATUS)).add(new JsonObject()
+            .put("status", RUNNING_STATUS).put("leaseTime", new JsonObject().put("$not",
+                new JsonObject().put("$gte", now)))));
+    final var update = new JsonObject().put("$set", new JsonObject().put("status", RUNNING_STATUS)
+        .put("owner", this.owner).put("leaseTime", now + LEASE_TIME).put("updateTime", now));
+    final var findOptions = new FindOptions().setSort(new JsonObject().put("creationTime", 1));
+    final var updateOptions = new UpdateOptions().setReturningNewDocument(true);
+    this.pool.findOneAndUpdateWithOptions(DELETION_JOBS_COLLECTION, query, update, findOptions, updateOptions)
+        .onComplete(claim -> {
+
+          if (claim.failed()) {
+
+            Logger.error(claim.cause(), "Cannot claim the deletion jobs to execute.");
+            this.executing = false;
+
+          } else if (claim.result() == null) {
+
+            this.executing = false;
+
+          } else {
+
+            final var job = claim.result();
+            final Promise<Void> promise = Promise.promise();
+            this.executeNextBatch(job, 0, promise);
+            promise.future().onComplete(executed -> this.executeNextJob());
+          }
+
+        });
+
+  }
+
+  /**
+   * Update a job that is owned by this instance, and renew its lease.
+   *
+   * @param job    to update.
+   * @param update to apply. It has to contains a {@code $set}.
+   *
+   * @return the future that will be completed with {@code true} if the job is
+   *         updated, or {@code false} if it is not owned by this instance.
+   */
+  protected Future<Boolean> updateJob(final JsonObject job, final JsonObject update) {
+
+    final var query = new JsonObject().put("_id", job.getValue("_id")).put("owner", this.owner);
+    update.getJsonObject("$set").put("leaseTime", TimeManager.now() + LEASE_TIME);
+    return this.pool.updateCollection(DELETION_JOBS_COLLECTION, query, update)
+        .map(updated -> updated != null && updated.getDocMatched() > 0);
+
+  }
+
+  /**
+   * Delete the next batch of a job.
+   *
+   * @param job      to execute.
+   * @param failures number of consecutive failures of the job.
+   * @param promise  to complete when the job is finished.
+   */
+  protected void executeNextBatch(final JsonObject job, final int failures, final Promise<Void> promise) {
+
+    final var steps = job.getJsonArray("steps");
+    var index = 0;
+    while (index < steps.size() && steps.getJsonObject(index).getBoolean("done", false)) {
+
+      index++;
+    }
+
+    if (index == steps.size()) {
+
+      final var update = new JsonObject().put("$set",
+          new JsonObject().put("status", DONE_STATUS).put("updateTime", TimeManager.now()));
+      this.updateJob(job, update).onComplete(updated -> {
+
+        Logger.debug("Finished the deletion job {}.", () -> job.getValue("_id"));
+        promise.complete();
+
+      });
+
+    } else {
+
+      final var stepIndex = index;
+      final var step = steps.getJsonObject(stepIndex);
+      this.deleteBatch(job.getString("type"), step.getString("name"), job.getJsonArray("ids")).compose(deleted -> {
+
+        final var done = deleted < this.batchSize;
+        final var field = "steps." + stepIndex + ".";
+        final var update = new JsonObject().put("$inc", new JsonObject().put(field + "deleted", deleted)).put("$set",
+            new JsonObject().put(field + "done", done).put("updateTime", TimeManager.now()));
+        return this.updateJob(job, update).onSuccess(owned -> {
+
+          if (owned) {
+
+            step.put("deleted", step.getLong("deleted", 0L) + deleted);
+            step.put("done", done);
+          }
+
+        });
+
+      }).onComplete(executed -> {
+
+        if (executed.failed()) {
+
+          if (failures + 1 >= MAX_FAILURES) {
+
+            Logger.error(executed.cause(), "Cannot execute the deletion job {}.", () -> job.getValue("_id"));
+            final var update = new JsonObject().put("$set", new JsonObject().put("status", FAILED_STATUS)
+                .put("error", String.valueOf(executed.cause().getMessage())).put("updateTime", TimeManager.now()));
+            this.updateJob(job, update).onComplete(updated -> promise.complete());
+
+          } else {
+
+            Logger.warn(executed.cause(), "Cannot execute a batch of the deletion job {}, so it will be retried.",
+                () -> job.getValue("_id"));
+            this.vertx.setTimer(this.batchDelay * (failures + 2),
+                timer -> this.executeNextBatch(job, failures + 1, promise));
+          }
+
+        } else if (!executed.result()) {
+
+          Logger.warn("The deletion job {} has been claimed by another instance.", () -> job.getValue("_id"));
+          promise.complete();
+
+        } else {
+
+          this.vertx.setTimer(this.batchDelay, timer -> this.executeNextBatch(job, 0, promise));
+        }
+
+      });
+    }
+
+  }
+
+  /**
+   * Delete a batch of the data of a step of a job.
+   *
+   * @param type of the job.
+   * @param step to do.
+   * @param ids  identifiers of the users or tasks to delete its data.
+   *
+   * @return the future with the number of deleted documents.
+   */
+  protected Future<Integer> deleteBatch(final String type, final String step, final JsonArray ids) {
+
+    if (RELATIONSHIPS_STEP.equals(step)) {
+
+      return RelationshipsRepository.createProxy(this.vertx).deleteSocialNetworkRelationshipsBatchWith(ids,
+          this.batchSize);
+
+    } else if (TRUSTS_STEP.equals(step) && TASKS_TYPE.equals(type)) {
+
+      return TrustsRepository.createProxy(this.vertx).deleteEventsBatchForTasks(ids, this.batchSize);
+
+    } else if (TRUSTS_STEP.equals(step)) {
+
+      return TrustsRepository.createProxy(this.vertx).deleteEventsBatchForUsers(ids, this.batchSize);
+
+    } else if (HISTORIC_PROFILES_STEP.equals(step)) {
+
+      return ProfilesRepository.createProxy(this.vertx).deleteHistoricProfilesBatch(ids, this.batchSize);
+
+    } else if (COMMUNITY_MEMBERS_STEP.equals(step)) {
+
+      return CommunitiesRepository.createProxy(this.vertx).deleteMembersBatchForUsers(ids, this.batchSize);
+
+    } else {
+
+      return Future.failedFuture("Undefined deletion step '" + step + "'.");
+    }
+
+  }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.List;
+
+/**
+ * The component used to convert the fields that a client wants to obtain of
+ * a model into the projection to use when search for the documents.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class FieldsProjections {
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private FieldsProjections() {
+
+  }
+
+  /**
+   * Create the projection to return only some fields of the documents. The
+   * document identifier is always returned.
+   *
+   * @param fields names of the model fields to return. The nested fields are
+   *               separated by a '.'.
+   *
+   * @return the projection to use, or {@code null} if all the fields has to be
+   *         returned.
+   *
+   * @throws IllegalArgumentException if any field is not valid.
+   */
+  public static JsonObject createProjection(final List<String> fields) throws IllegalArgumentException {
+
+    if (fields == null || fields.isEmpty()) {
+
+      return null;
+
+    } else {
+
+      final var projection = new JsonObject().put("_id", true);
+      for (final var field : fields) {
+
+        if (field == null || field.isBlank() || field.startsWith("$") || field.startsWith(".")
+            || field.endsWith(".") || field.contains("..")) {
+
+          throw new IllegalArgumentException("The field '" + field + "' is not valid.");
+
+        } else if (!"id".equals(field) && !"_id".equals(field)) {
+
+          projection.put(field.trim(), true);
+        }
+      }
+      return projection;
+    }
+
+  }
+
+  /**
+   * Return only some fields of a document that is already loaded. The
+   * identifier of the document is always returned.
+   *
+   * @param document to get the fields.
+   * @param fields   names of the fields to return. The nested fields are
+   *                 separated by a '.'.
+   *
+   * @return the document with only the specified fields, or the same document
+   *         if all the fields has to be returned.
+   *
+   * @throws IllegalArgumentException if any field is not valid.
+   *
+   * @see #createProjection(List)
+   */
+  public static JsonObject project(final JsonObject document, final List<String> fields)
+      throws IllegalArgumentException {
+
+    final var projection = createProjection(fields);
+    if (document == null || projection == null) {
+
+      return document;
+
+    } else {
+
+      final var projected = new JsonObject();
+      for (final var key : List.of("id", "_id")) {
+
+        if (document.containsKey(key)) {
+
+          projected.put(key, document.getValue(key));
+        }
+      }
+      for (final var field : projection.fieldNames()) {
+
+        if (!"_id".equals(field)) {
+
+          copyField(document, projected, field.split("\\."), 0);
+        }
+      }
+      return projected;
+    }
+
+  }
+
+  /**
+   * Copy a field from a document to another one. If a value of the path is an
+   * array, the rest of the path is copied from any of its objects.
+   *
+   * @param source to get the field.
+   * @param target to set the field.
+   * @param path   of the field to copy.
+   * @param index  of the element of the path to copy.
+   */
+  private static void copyField(final JsonObject source, final JsonObject target, final String[] path,
+      final int index) {
+
+    final var key = path[index];
+    if (source.containsKey(key)) {
+
+      final var value = source.getValue(key);
+      if (index + 1 == path.length) {
+
+        target.put(key, value);
+
+      } else if (value instanceof JsonObject) {
+
+        final var child = target.getValue(key) instanceof JsonObject ? target.getJsonObject(key) : new JsonObject();
+        copyField((JsonObject) value, child, path, index + 1);
+        target.put(key, child);
+
+      } else if (value instanceof JsonArray) {
+
+        final var values = (JsonArray) value;
+        final var children = target.getValue(key) instanceof JsonArray ? target.getJsonArray(key) : new JsonArray();
+        var position = 0;
+        for (final var element : values) {
+
+          if (element instanceof JsonObject) {
+
+            final var child = position < children.size() ? children.getJsonObject(position) : new JsonObject();
+            copyField((JsonObject) element, child, path, index + 1);
+            if (position == children.size()) {
+
+              children.add(child);
+            }
+            position++;
+          }
+        }
+        target.put(key, children);
+      }
+    }
+
+  }
+
+}
@@ -0,0 +1,424 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The component used to pack the historic profiles that are moved to the cold
+ * collection, and to select and sort them when they are read.
+ *
+ * The historic profiles of an user are packed into blocks by period. Each
+ * block stores all its historic profiles as a JSON array that is compressed
+ * with the deflate codec and encoded in base 64.
+ *
+ * @see ProfilesRepositoryImpl
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HistoricProfilesArchive {
+
+  /**
+   * The name of the codec used to compress the blocks.
+   */
+  public static final String CODEC = "deflate";
+
+  /**
+   * The seconds of a day.
+   */
+  public static final long DAY = 86400L;
+
+  /**
+   * The seconds of the period of historic profiles that are packed on the same
+   * block.
+   */
+  public static final long PERIOD = 30L * DAY;
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private HistoricProfilesArchive() {
+
+  }
+
+  /**
+   * Compress some historic profiles.
+   *
+   * @param historics to compress.
+   *
+   * @return the compressed historic profiles.
+   */
+  public static String pack(final JsonArray historics) {
+
+    final var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+
+      deflater.setInput(historics.encode().getBytes(StandardCharsets.UTF_8));
+      deflater.finish();
+      final var output = new ByteArrayOutputStream();
+      final var buffer = new byte[8192];
+      while (!deflater.finished()) {
+
+        final var size = deflater.deflate(buffer);
+        output.write(buffer, 0, size);
+      }
+      return Base64.getEncoder().encodeToString(output.toByteArray());
+
+    } finally {
+
+      deflater.end();
+    }
+
+  }
+
+  /**
+   * Decompress some historic profiles.
+   *
+   * @param data compressed historic profiles.
+   *
+   * @return the decompressed historic profiles.
+   *
+   * @throws IllegalArgumentException if the data is not valid.
+   */
+  public static JsonArray unpack(final String data) throws IllegalArgumentException {
+
+    final var inflater = new Inflater();
+    try {
+
+      inflater.setInput(Base64.getDecoder().decode(data));
+      final var output = new ByteArrayOutputStream();
+      final var buffer = new byte[8192];
+      while (!inflater.finished()) {
+
+        final var size = inflater.inflate(buffer);
+        if (size == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+
+          throw new IllegalArgumentException("The compressed historic profiles are truncated.");
+        }
+        output.write(buffer, 0, size);
+      }
+      return new JsonArray(new String(output.toByteArray(), StandardCharsets.UTF_8));
+
+    } catch (final DataFormatException cause) {
+
+      throw new IllegalArgumentException(cause);
+
+    } finally {
+
+      inflater.end();
+    }
+
+  }
+
+  /**
+   * Return the period of a time stamp.
+   *
+   * @param time stamp, in seconds, to get the period.
+   *
+   * @return the period of the time stamp.
+   */
+  public static long periodOf(final long time) {
+
+    return Math.floorDiv(time, PERIOD);
+
+  }
+
+  /**
+   * Return the day of a time stamp.
+   *
+   * @param time stamp, in seconds, to get the day.
+   *
+   * @return the day of the time stamp.
+   */
+  public static long dayOf(final long time) {
+
+    return Math.floorDiv(time, DAY);
+
+  }
+
+  /**
+   * Check if a document match a query. It only supports the comparison
+   * operators and the logical operators {@code $and}, {@code $or} and
+   * {@code $nor}, because they are the ones used to search for historic
+   * profiles.
+   *
+   * @param query    to match.
+   * @param document to check.
+   *
+   * @return {@code true} if the document match the query.
+   *
+   * @throws IllegalArgumentException if the query is not supported.
+   */
+  public static boolean matches(final JsonObject query, final JsonObject document) throws IllegalArgumentException {
+
+    if (query != null) {
+
+      for (final var key : query.fieldNames()) {
+
+        final var condition = query.getValue(key);
+        if ("$and".equals(key) || "$or".equals(key) || "$nor".equals(key)) {
+
+          if (!(condition instanceof JsonArray)) {
+
+            throw new IllegalArgumentException("The " + key + " has to be an array.");
+          }
+          var any = false;
+          var all = true;
+          for (final var element : (JsonArray) condition) {
+
+            final var match = element instanceof JsonObject && matches((JsonObject) element, document);
+            any |= match;
+            all &= match;
+          }
+          if ("$and".equals(key) && !all || "$or".equals(key) && !any || "$nor".equals(key) && any) {
+
+            return false;
+          }
+
+        } else if (key.startsWith("$")) {
+
+          throw new IllegalArgumentException("The operator " + key + " is not supported.");
+
+        } else if (!matchesCondition(valueOf(document, key), condition)) {
+
+          return false;
+        }
+      }
+    }
+
+    return true;
+
+  }
+
+  /**
+   * Obtain the value of a field of a document.
+   *
+   * @param document to get the value.
+   * @param path     to the field. The nested fields are separated by a '.'.
+   *
+   * @return the value of the field, or {@code null} if it is not defined.
+   */
+  public static Object valueOf(final JsonObject document, final String path) {
+
+    Object current = document;
+    for (final var key : path.split("\\.")) {
+
+      if (current instanceof JsonObject) {
+
+        current = ((JsonObject) current).getValue(key);
+
+      } else {
+
+        return null;
+      }
+    }
+    return current;
+
+  }
+
+  /**
+   * Check if a value match a condition of a query.
+   *
+   * @param value     to check.
+   * @param condition to match.
+   *
+   * @return {@code true} if the value match the condition.
+   *
+   * @throws IllegalArgumentException if the condition is not supported.
+   */
+  protected static boolean matchesCondition(final Object value, final Object condition)
+      throws IllegalArgumentException {
+
+    if (condition instanceof JsonObject && !((JsonObject) condition).isEmpty()
+        && ((JsonObject) condition).fieldNames().iterator().next().startsWith("$")) {
+
+      final var operators = (JsonObject) condition;
+      for (final var operator : operators.fieldNames()) {
+
+        final var argument = operators.getValue(operator);
+        final boolean match;
+        switch (operator) {
+        case "$eq":
+          match = JsonDiffs.equalValues(value, argument);
+          break;
+        case "$ne":
+          match = !JsonDiffs.equalValues(value, argument);
+          break;
+        case "$gt":
+          match = compare(value, argument) > 0;
+          break;
+        case "$gte":
+          match = compare(value, argument) >= 0;
+          break;
+        case "$lt":
+          match = value != null && compare(value, argument) < 0;
+          break;
+        case "$lte":
+          match = value != null && compare(value, argument) <= 0;
+          break;
+        case "$in":
+          match = contains(argument, value);
+          break;
+        case "$nin":
+          match = !contains(argument, value);
+          break;
+        case "$exists":
+          match = Boolean.TRUE.equals(argument) == (value != null);
+          break;
+        case "$regex":
+          match = matchesRegex(value, argument, operators.getValue("$options"));
+          break;
+        case "$options":
+          match = true;
+          break;
+        default:
+          throw new IllegalArgumentException("The operator " + operator + " is not supported.");
+        }
+        if (!match) {
+
+          return false;
+        }
+      }
+      return true;
+
+    } else {
+
+      return JsonDiffs.equalValues(value, condition);
+    }
+
+  }
+
+  /**
+   * Check if a value match a regular expression.
+   *
+   * @param value   to check.
+   * @param regex   regular expression to match.
+   * @param options of the regular expression.
+   *
+   * @return {@code true} if the value is a string that match the regular
+   *         expression.
+   */
+  protected static boolean matchesRegex(final Object value, final Object regex, final Object options) {
+
+    if (value instanceof String) {
+
+      final var flags = options instanceof String && ((String) options).contains("i") ? Pattern.CASE_INSENSITIVE : 0;
+      return Pattern.compile(String.valueOf(regex), flags).matcher((String) value).find();
+
+    } else {
+
+      return false;
+    }
+
+  }
+
+  /**
+   * Check if an array of values contains a value.
+   *
+   * @param values array to check.
+   * @param value  to search.
+   *
+   * @return {@code true} if the value is on the array.
+   */
+  protected static boolean contains(final Object values, final Object value) {
+
+    if (values instanceof JsonArray) {
+
+      for (final var element : (JsonArray) values) {
+
+        if (JsonDiffs.equalValues(element, value)) {
+
+          return true;
+        }
+      }
+    }
+    return false;
+
+  }
+
+  /**
+   * Compare two values. The {@code null} values are before any other, the
+   * numbers are compared by its value and any other value by its text.
+   *
+   * @param source value to compare.
+   * @param target value to compare.
+   *
+   * @return a negative number, zero or a positive number if the source is less,
+   *         equals or greater than the target.
+   */
+  public static int compare(final Object source, final Object target) {
+
+    if (source == null || target == null) {
+
+      return source == null ? target == null ? 0 : -1 : 1;
+
+    } else if (source instanceof Number && target instanceof Number) {
+
+      return Double.compare(((Number) source).doubleValue(), ((Number) target).doubleValue());
+
+    } else {
+
+      return String.valueOf(source).compareTo(String.valueOf(target));
+    }
+
+  }
+
+  /**
+   * Create the comparator to sort the historic profiles as the database does.
+   *
+   * @param sort the fields to sort the historic profiles.
+   *
+   * @return the comparator for the sort.
+   */
+  public static Comparator<JsonObject> comparatorFor(final JsonObject sort) {
+
+    return (source, target) -> {
+
+      if (sort != null) {
+
+        for (final var field : sort.fieldNames()) {
+
+          final var order = sort.getValue(field);
+          final var direction = order instanceof Number && ((Number) order).intValue() < 0 ? -1 : 1;
+          final var result = compare(valueOf(source, field), valueOf(target, field));
+          if (result != 0) {
+
+            return direction * result;
+          }
+        }
+      }
+      return 0;
+
+    };
+
+  }
+
+}
@@ -0,0 +1,171 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.tinylog.Logger;
+
+/**
+ * The component that periodically applies the retention policy over the
+ * historic profiles. The historic profiles that finish before the daily age
+ * are thinned to keep only the last one of each day, and the ones that finish
+ * before the cold age are moved to a compressed archive. In both cases they can
+ * be obtained with the same searches that the recent historic profiles.
+ *
+ * @see ProfilesRepositoryImpl#applyHistoricProfilesRetention(String, long,
+ *      long)
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HistoricProfilesRetention {
+
+  /**
+   * The default milliseconds between each application of the retention policy.
+   */
+  public static final long DEFAULT_PERIOD = 3600000L;
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The repository with the historic profiles.
+   */
+  protected ProfilesRepositoryImpl repository;
+
+  /**
+   * The seconds after a historic profile has finished to archive it, or
+   * {@code 0} if the historic profiles are not archived.
+   */
+  protected long coldAge;
+
+  /**
+   * The seconds after a historic profile has finished to keep only the last
+   * historic profile of its day, or {@code 0} if the historic profiles are not
+   * thinned.
+   */
+  protected long dailyAge;
+
+  /**
+   * The milliseconds between each application of the retention policy.
+   */
+  protected long period;
+
+  /**
+   * This is {@code true} if the retention policy is being applied.
+   */
+  protected boolean applying;
+
+  /**
+   * Create the retention policy.
+   *
+   * @param vertx      event bus to use.
+   * @param repository with the historic profiles.
+   * @param conf       configuration of the component.
+   */
+  public HistoricProfilesRetention(final Vertx vertx, final ProfilesRepositoryImpl repository,
+      final JsonObject conf) {
+
+    this.vertx = vertx;
+    this.repository = repository;
+    final var profileManager = conf.getJsonObject("profileManager", new JsonObject());
+    this.coldAge = Math.max(0L,
+        Long.parseLong(String.valueOf(profileManager.getValue("historicProfilesColdAge", 0))));
+    this.dailyAge = Math.max(0L,
+        Long.parseLong(String.valueOf(profileManager.getValue("historicProfilesDailyAge", 0))));
+    this.period = Math.max(1L,
+        Long.parseLong(String.valueOf(profileManager.getValue("historicProfilesRetentionPeriod", DEFAULT_PERIOD))));
+
+  }
+
+  /**
+   * Check if the retention policy has to be applied.
+   *
+   * @return {@code true} if the historic profiles are thinned or archived.
+   */
+  public boolean isEnabled() {
+
+    return this.coldAge > 0 || this.dailyAge > 0;
+
+  }
+
+  /**
+   * Apply periodically the retention policy, if it is enabled.
+   */
+  public void start() {
+
+    if (this.isEnabled()) {
+
+      this.vertx.setPeriodic(this.period, id -> this.apply().onFailure(
+          cause -> Logger.error(cause, "Cannot apply the retention policy over the historic profiles.")));
+    }
+
+  }
+
+  /**
+   * Apply the retention policy over the historic profiles of all the users.
+   *
+   * @return the future with the number of historic profiles that have been
+   *         removed from the historic profiles collection.
+   */
+  public Future<Integer> apply() {
+
+    if (this.applying || !this.isEnabled()) {
+
+      return Future.succeededFuture(0);
+    }
+
+    this.applying = true;
+    final var now = TimeManager.now();
+    final var coldLimit = this.coldAge > 0 ? now - this.coldAge : Long.MIN_VALUE;
+    final var dailyLimit = this.dailyAge > 0 ? now - this.dailyAge : Long.MIN_VALUE;
+    return this.repository.retrieveHistoricProfileUserIdsBefore(dailyLimit, coldLimit).compose(userIds -> {
+
+      Future<Integer> future = Future.succeededFuture(0);
+      for (final var userId : userIds) {
+
+        if (userId instanceof String) {
+
+          future = future.compose(removed -> this.repository
+              .applyHistoricProfilesRetention((String) userId, dailyLimit, coldLimit).map(more -> removed + more));
+        }
+      }
+      return future;
+
+    }).onComplete(result -> {
+
+      this.applying = false;
+      if (result.succeeded()) {
+
+        Logger.trace("Applied the retention policy over the historic profiles and removed {} of them.",
+            result.result());
+      }
+
+    });
+
+  }
+
+}
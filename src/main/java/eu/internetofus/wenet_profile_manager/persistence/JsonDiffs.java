@@ -0,0 +1,433 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The component used to calculate the structural differences between two JSON
+ * values and to apply them to obtain again the modified value.
+ *
+ * The differences are an array of operations, where each operation has the
+ * path to the modified value, as an array of field names and array indexes,
+ * and one of the next actions:
+ * <ul>
+ * <li>{@code set} to change the value of the path to the {@code value} of the
+ * operation.</li>
+ * <li>{@code remove} to remove the field of the path.</li>
+ * <li>{@code splice} to remove {@code remove} elements of the array of the path
+ * from the {@code index} and to insert on it the {@code values} of the
+ * operation.</li>
+ * </ul>
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class JsonDiffs {
+
+  /**
+   * The name of the operation to change a value.
+   */
+  public static final String SET_OP = "set";
+
+  /**
+   * The name of the operation to remove a field.
+   */
+  public static final String REMOVE_OP = "remove";
+
+  /**
+   * The name of the operation to replace some elements of an array.
+   */
+  public static final String SPLICE_OP = "splice";
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private JsonDiffs() {
+
+  }
+
+  /**
+   * Calculate the operations to convert a value into another.
+   *
+   * @param source value to modify.
+   * @param target value to obtain.
+   *
+   * @return the operations that convert the source into the target. It is empty
+   *         if both values are equals.
+   */
+  public static JsonArray diff(final Object source, final Object target) {
+
+    final var ops = new JsonArray();
+    diff(source, target, new JsonArray(), ops);
+    return ops;
+
+  }
+
+  /**
+   * Add the operations to convert a value into another.
+   *
+   * @param source value to modify.
+   * @param target value to obtain.
+   * @param path   to the values.
+   * @param ops    where add the operations.
+   */
+  protected static void diff(final Object source, final Object target, final JsonArray path, final JsonArray ops) {
+
+    if (source instanceof JsonObject && target instanceof JsonObject) {
+
+      final var sourceObject = (JsonObject) source;
+      final var targetObject = (JsonObject) target;
+      for (final var key : sourceObject.fieldNames()) {
+
+        if (!targetObject.containsKey(key)) {
+
+          ops.add(new JsonObject().put("op", REMOVE_OP).put("path", path.copy().add(key)));
+        }
+      }
+      for (final var key : targetObject.fieldNames()) {
+
+        final var targetValue = targetObject.getValue(key);
+        if (!sourceObject.containsKey(key)) {
+
+          ops.add(new JsonObject().put("op", SET_OP).put("path", path.copy().add(key)).put("value", targetValue));
+
+        } else {
+
+          diff(sourceObject.getValue(key), targetValue, path.copy().add(key), ops);
+        }
+      }
+
+    } else if (source instanceof JsonArray && target instanceof JsonArray) {
+
+      diffArrays((JsonArray) source, (JsonArray) target, path, ops);
+
+    } else if (!equalValues(source, target)) {
+
+      ops.add(new JsonObject().put("op", SET_OP).put("path", path).put("value", target));
+    }
+
+  }
+
+  /**
+   * Add the operations to convert an array into another. The common head and
+   * tail of the arrays are ignored, and the elements between them are compared
+   * one by one if both have the same size, or replaced otherwise.
+   *
+   * @param source array to modify.
+   * @param target array to obtain.
+   * @param path   to the arrays.
+   * @param ops    where add the operations.
+   */
+  protected static void diffArrays(final JsonArray source, final JsonArray target, final JsonArray path,
+      final JsonArray ops) {
+
+    final var sourceSize = source.size();
+    final var targetSize = target.size();
+    var head = 0;
+    while (head < sourceSize && head < targetSize && equalValues(source.getValue(head), target.getValue(head))) {
+
+      head++;
+    }
+    var tail = 0;
+    while (tail < sourceSize - head && tail < targetSize - head
+        && equalValues(source.getValue(sourceSize - tail - 1), target.getValue(targetSize - tail - 1))) {
+
+      tail++;
+    }
+
+    final var sourceEnd = sourceSize - tail;
+    final var targetEnd = targetSize - tail;
+    if (sourceEnd - head == targetEnd - head) {
+
+      for (var i = head; i < sourceEnd; i++) {
+
+        diff(source.getValue(i), target.getValue(i), path.copy().add(i), ops);
+      }
+
+    } else {
+
+      final var values = new JsonArray();
+      for (var i = head; i < targetEnd; i++) {
+
+        values.add(target.getValue(i));
+      }
+      ops.add(new JsonObject().put("op", SPLICE_OP).put("path", path).put("index", head)
+          .put("remove", sourceEnd - head).put("values", values));
+    }
+
+  }
+
+  /**
+   * Check if two values are equals. The numbers are compared by its value.
+   *
+   * @param source value to compare.
+   * @param target value to compare.
+   *
+   * @return {@code true} if the values are equals.
+   */
+  public static boolean equalValues(final Object source, final Object target) {
+
+    if (source instanceof Number && target instanceof Number) {
+
+      final var sourceNumber = (Number) source;
+      final var targetNumber = (Number) target;
+      if (source instanceof Double || source instanceof Float || target instanceof Double
+          || target instanceof Float) {
+
+        return sourceNumber.doubleValue() == targetNumber.doubleValue();
+
+      } else {
+
+        return sourceNumber.longValue() == targetNumber.longValue();
+      }
+
+    } else if (source == null) {
+
+      return target == null;
+
+    } else {
+
+      return source.equals(target);
+    }
+
+  }
+
+  /**
+   * Apply some operations over a value.
+   *
+   * @param source value to modify. It is not changed.
+   * @param ops    operations to apply.
+   *
+   * @return the modified value.
+   *
+   * @throws IllegalArgumentException if any operation is not valid for the
+   *                                  value.
+   */
+  public static Object patch(final Object source, final JsonArray ops) throws IllegalArgumentException {
+
+    var result = copy(source);
+    for (var i = 0; i < ops.size(); i++) {
+
+      final var op = ops.getJsonObject(i);
+      final var path = op.getJsonArray("path", new JsonArray());
+      final var name = op.getString("op");
+      if (path.isEmpty() && SET_OP.equals(name)) {
+
+        result = copy(op.getValue("value"));
+
+      } else {
+
+        final var parent = path.isEmpty() ? result : navigate(result, path, path.size() - 1);
+        final var last = path.isEmpty() ? null : path.getValue(path.size() - 1);
+        if (SET_OP.equals(name)) {
+
+          set(parent, last, copy(op.getValue("value")));
+
+        } else if (REMOVE_OP.equals(name) && parent instanceof JsonObject) {
+
+          ((JsonObject) parent).remove(String.valueOf(last));
+
+        } else if (SPLICE_OP.equals(name)) {
+
+          final var array = path.isEmpty() ? parent : get(parent, last);
+          if (!(array instanceof JsonArray)) {
+
+            throw new IllegalArgumentException("The path " + path + " is not an array.");
+          }
+          splice((JsonArray) array, op.getInteger("index", 0), op.getInteger("remove", 0),
+              op.getJsonArray("values", new JsonArray()));
+
+        } else {
+
+          throw new IllegalArgumentException("The operation " + op + " is not valid.");
+        }
+      }
+    }
+    return result;
+
+  }
+
+  /**
+   * Apply some operations over a JSON object.
+   *
+   * @param source object to modify. It is not changed.
+   * @param ops    operations to apply.
+   *
+   * @return the modified object.
+   *
+   * @throws IllegalArgumentException if any operation is not valid for the
+   *                                  object or the result is not an object.
+   */
+  public static JsonObject patch(final JsonObject source, final JsonArray ops) throws IllegalArgumentException {
+
+    final var result = patch((Object) source, ops);
+    if (result instanceof JsonObject) {
+
+      return (JsonObject) result;
+
+    } else {
+
+      throw new IllegalArgumentException("The patched value is not an object.");
+    }
+
+  }
+
+  /**
+   * Return a deep copy of a value.
+   *
+   * @param value to copy.
+   *
+   * @return the copied value.
+   */
+  protected static Object copy(final Object value) {
+
+    if (value instanceof JsonObject) {
+
+      return ((JsonObject) value).copy();
+
+    } else if (value instanceof JsonArray) {
+
+      return ((JsonArray) value).copy();
+
+    } else {
+
+      return value;
+    }
+
+  }
+
+  /**
+   * Obtain the value that is on a path.
+   *
+   * @param value  to navigate.
+   * @param path   to follow.
+   * @param length number of elements of the path to follow.
+   *
+   * @return the value that is on the path.
+   *
+   * @throws IllegalArgumentException if the path is not defined.
+   */
+  protected static Object navigate(final Object value, final JsonArray path, final int length)
+      throws IllegalArgumentException {
+
+    var current = value;
+    for (var i = 0; i < length; i++) {
+
+      current = get(current, path.getValue(i));
+      if (current == null) {
+
+        throw new IllegalArgumentException("The path " + path + " is not defined.");
+      }
+    }
+    return current;
+
+  }
+
+  /**
+   * Obtain the value of a field of an object or an element of an array.
+   *
+   * @param container object or array to get the value.
+   * @param key       name of the field or index of the element.
+   *
+   * @return the value of the field or element, or {@code null} if it is not
+   *         defined.
+   */
+  protected static Object get(final Object container, final Object key) {
+
+    if (container instanceof JsonObject) {
+
+      return ((JsonObject) container).getValue(String.valueOf(key));
+
+    } else if (container instanceof JsonArray && key instanceof Number) {
+
+      final var array = (JsonArray) container;
+      final var index = ((Number) key).intValue();
+      if (index >= 0 && index < array.size()) {
+
+        return array.getValue(index);
+      }
+    }
+
+    return null;
+
+  }
+
+  /**
+   * Change the value of a field of an object or an element of an array.
+   *
+   * @param container object or array to modify.
+   * @param key       name of the field or index of the element.
+   * @param value     to set.
+   *
+   * @throws IllegalArgumentException if the value can not be changed.
+   */
+  protected static void set(final Object container, final Object key, final Object value)
+      throws IllegalArgumentException {
+
+    if (container instanceof JsonObject) {
+
+      ((JsonObject) container).put(String.valueOf(key), value);
+
+    } else if (container instanceof JsonArray && key instanceof Number
+        && ((Number) key).intValue() < ((JsonArray) container).size()) {
+
+      ((JsonArray) container).set(((Number) key).intValue(), value);
+
+    } else {
+
+      throw new IllegalArgumentException("Cannot set the value " + key + " of " + container + ".");
+    }
+
+  }
+
+  /**
+   * Replace some elements of an array.
+   *
+   * @param array  to modify.
+   * @param index  of the first element to replace.
+   * @param remove number of elements to remove.
+   * @param values to insert on the index.
+   *
+   * @throws IllegalArgumentException if the elements to replace are not on the
+   *                                  array.
+   */
+  protected static void splice(final JsonArray array, final int index, final int remove, final JsonArray values)
+      throws IllegalArgumentException {
+
+    if (index < 0 || remove < 0 || index + remove > array.size()) {
+
+      throw new IllegalArgumentException("Cannot replace " + remove + " elements from " + index + ".");
+    }
+    final var list = array.getList();
+    for (var i = 0; i < remove; i++) {
+
+      list.remove(index);
+    }
+    for (var i = 0; i < values.size(); i++) {
+
+      list.add(index + i, copy(values.getValue(i)));
+    }
+
+  }
+
+}
@@ -0,0 +1,282 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+/**
+ * The component used to obtain pages of documents using a continuation token
+ * (cursor) that contains the sort keys of the last returned document, instead
+ * of skipping the documents before the page.
+ *
+ * The sort keys can be {@code null} or undefined, and they are ordered as the
+ * database does, before any other value on ascending order and after any other
+ * value on descending order. The identifier of the documents is always the last
+ * sort key, thus any document has a different sort key.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class KeysetPages {
+
+  /**
+   * The cursor value to use to obtain the first page.
+   */
+  public static final String FIRST_PAGE_CURSOR = "first";
+
+  /**
+   * The name of the field of the page that contains the cursor to obtain the
+   * next page.
+   */
+  public static final String NEXT_CURSOR_FIELD = "nextCursor";
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private KeysetPages() {
+
+  }
+
+  /**
+   * Check if a cursor value represents the first page.
+   *
+   * @param cursor to check.
+   *
+   * @return {@code true} if the cursor is for the first page.
+   */
+  public static boolean isFirstPage(final String cursor) {
+
+    return cursor == null || FIRST_PAGE_CURSOR.equals(cursor) || cursor.isBlank();
+
+  }
+
+  /**
+   * Encode the sort keys of the last document of a page as a cursor.
+   *
+   * @param keys of the last document of the page.
+   *
+   * @return the cursor to obtain the next page.
+   */
+  public static String encodeCursor(final JsonObject keys) {
+
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(keys.encode().getBytes(StandardCharsets.UTF_8));
+
+  }
+
+  /**
+   * Decode the sort keys that are encoded on a cursor.
+   *
+   * @param cursor to decode.
+   * @param sort   that has to match the cursor.
+   *
+   * @return the keys of the last document of the previous page or {@code null}
+   *         if the cursor is for the first page.
+   *
+   * @throws IllegalArgumentException if the cursor is not valid for the sort.
+   */
+  public static JsonObject decodeCursor(final String cursor, final JsonObject sort) throws IllegalArgumentException {
+
+    if (isFirstPage(cursor)) {
+
+      return null;
+
+    } else {
+
+      final JsonObject keys;
+      try {
+
+        final var decoded = Base64.getUrlDecoder().decode(cursor);
+        keys = new JsonObject(new String(decoded, StandardCharsets.UTF_8));
+
+      } catch (final Throwable error) {
+
+        throw new IllegalArgumentException("The cursor is not valid.", error);
+      }
+
+      if (!keys.fieldNames().equals(sort.fieldNames())) {
+
+        throw new IllegalArgumentException("The cursor does not match the order of the page.");
+      }
+      return keys;
+    }
+
+  }
+
+  /**
+   * Create the sort that identifies uniquely any document, adding the
+   * identifier of the document as the last sort key if it is not defined.
+   *
+   * @param sort of the documents.
+   *
+   * @return the sort with the identifier of the documents.
+   */
+  public static JsonObject createUniqueSort(final JsonObject sort) {
+
+    final var unique = new JsonObject();
+    if (sort != null) {
+
+      unique.mergeIn(sort);
+    }
+    if (!unique.containsKey("_id")) {
+
+      unique.put("_id", 1);
+    }
+    return unique;
+
+  }
+
+  /**
+   * Create the query to obtain the documents that are after the specified keys.
+   * The {@code null} keys match the documents where the field is {@code null}
+   * or undefined.
+   *
+   * @param query to obtain the documents.
+   * @param sort  of the documents.
+   * @param after keys of the last document of the previous page.
+   *
+   * @return the query to obtain the documents after the specified keys.
+   */
+  public static JsonObject createQueryAfter(final JsonObject query, final JsonObject sort, final JsonObject after) {
+
+    if (after == null) {
+
+      return query;
+
+    } else {
+
+      final var alternatives = new JsonArray();
+      final var previous = new JsonObject();
+      for (final var field : sort.fieldNames()) {
+
+        final var value = after.getValue(field);
+        final var descending = sort.getInteger(field, 1) < 0;
+        if (value == null) {
+
+          if (!descending) {
+
+            alternatives.add(previous.copy().put(field, new JsonObject().putNull("$ne")));
+          }
+
+        } else if (descending) {
+
+          alternatives.add(previous.copy().put(field, new JsonObject().put("$lt", value)));
+          alternatives.add(previous.copy().putNull(field));
+
+        } else {
+
+          alternatives.add(previous.copy().put(field, new JsonObject().put("$gt", value)));
+        }
+        previous.put(field, value);
+      }
+
+      final var keyset = new JsonObject().put("$or", alternatives);
+      if (query == null || query.isEmpty()) {
+
+        return keyset;
+
+      } else {
+
+        return new JsonObject().put("$and", new JsonArray().add(query).add(keyset));
+      }
+    }
+
+  }
+
+  /**
+   * Search for a page of documents after a cursor.
+   *
+   * @param pool       to the database.
+   * @param collection where are the documents.
+   * @param query      to obtain the documents.
+   * @param sort       of the documents. The identifier of the documents is
+   *                   added as the last sort key if it is not defined.
+   * @param fields     to return of the documents, or {@code null} to return all
+   *                   of them.
+   * @param cursor     to the previous page.
+   * @param limit      number maximum of documents to return.
+   * @param resultKey  name of the field of the page that contains the found
+   *                   documents.
+   * @param map        function to apply to the found documents, or {@code null}
+   *                   if not has to be modified.
+   *
+   * @return the future with the found page. The page contains the field
+   *         {@link #NEXT_CURSOR_FIELD} if exist more documents after the
+   *         returned ones.
+   */
+  public static Future<JsonObject> searchPage(final MongoClient pool, final String collection, final JsonObject query,
+      final JsonObject sort, final JsonObject fields, final String cursor, final int limit, final String resultKey,
+      final Consumer<JsonObject> map) {
+
+    final var keysetSort = createUniqueSort(sort);
+    final JsonObject after;
+    try {
+
+      after = decodeCursor(cursor, keysetSort);
+
+    } catch (final IllegalArgumentException error) {
+
+      return Future.failedFuture(error);
+    }
+
+    final var options = new FindOptions();
+    options.setSort(keysetSort);
+    options.setLimit(limit + 1);
+    if (fields != null) {
+
+      options.setFields(fields);
+    }
+    return pool.findWithOptions(collection, createQueryAfter(query, keysetSort, after), options).map(found -> {
+
+      final var page = new JsonObject();
+      final var documents = new JsonArray();
+      page.put(resultKey, documents);
+      final var max = Math.min(found.size(), limit);
+      for (var i = 0; i < max; i++) {
+
+        final var document = found.get(i);
+        if (i == max - 1 && found.size() > limit) {
+
+          final var keys = new JsonObject();
+          for (final var field : keysetSort.fieldNames()) {
+
+            keys.put(field, document.getValue(field));
+          }
+          page.put(NEXT_CURSOR_FIELD, encodeCursor(keys));
+        }
+        if (map != null) {
+
+          map.accept(document);
+        }
+        documents.add(document);
+      }
+      return page;
+
+    });
+
+  }
+
+}
@@ -0,0 +1,357 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registry of the repositories that can be called directly by the
+ * components that are deployed on the same Vert.x instance, instead of sending
+ * the calls through the event bus. The local calls do not encode the
+ * parameters or the results, but they are copied, as the event bus does, thus
+ * the caller and the repository can not modify the values of the other. They
+ * are still executed on the context where the repository has been registered,
+ * and the results are returned on the context of the caller.
+ *
+ * The repositories are always bound to the event bus too, so the clustered
+ * deployments can still use the proxies.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class LocalServices {
+
+  /**
+   * The local services of each Vert.x instance where the local calls are
+   * enabled.
+   */
+  protected static final Map<Vertx, Map<String, Object>> SERVICES = Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private LocalServices() {
+
+  }
+
+  /**
+   * Enable or disable the local calls to the services of a Vert.x instance.
+   *
+   * @param vertx   instance where the services are registered.
+   * @param enabled is {@code true} if the services can be called locally.
+   */
+  public static void setEnabled(final Vertx vertx, final boolean enabled) {
+
+    if (enabled) {
+
+      SERVICES.putIfAbsent(vertx, new ConcurrentHashMap<>());
+
+    } else {
+
+      SERVICES.remove(vertx);
+    }
+
+  }
+
+  /**
+   * Register a service that can be called locally. It is ignored if the local
+   * calls are not enabled on the Vert.x instance.
+   *
+   * @param vertx   instance where the service is registered.
+   * @param address of the service.
+   * @param type    of the service.
+   * @param service to register.
+   * @param <T>     type of the service.
+   */
+  public static <T> void register(final Vertx vertx, final String address, final Class<T> type, final T service) {
+
+    final var services = SERVICES.get(vertx);
+    if (services != null) {
+
+      services.put(address, createLocalProxy(vertx.getOrCreateContext(), type, service));
+    }
+
+  }
+
+  /**
+   * Obtain a service that can be called locally.
+   *
+   * @param vertx   instance where the service is registered.
+   * @param address of the service.
+   * @param type    of the service.
+   * @param <T>     type of the service.
+   *
+   * @return the local service, or {@code null} if it can not be called locally.
+   */
+  public static <T> T lookup(final Vertx vertx, final String address, final Class<T> type) {
+
+    final var services = SERVICES.get(vertx);
+    if (services == null) {
+
+      return null;
+
+    } else {
+
+      return type.cast(services.get(address));
+    }
+
+  }
+
+  /**
+   * Create a proxy that calls directly a service on a context.
+   *
+   * @param context where the service has to be called.
+   * @param type    of the service.
+   * @param service to call.
+   * @param <T>     type of the service.
+   *
+   * @return the proxy to call the service.
+   */
+  public static <T> T createLocalProxy(final Context context, final Class<T> type, final T service) {
+
+    return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] { type },
+        new LocalInvocationHandler(context, service)));
+
+  }
+
+  /**
+   * The handler that executes the calls to a local service.
+   */
+  protected static class LocalInvocationHandler implements InvocationHandler {
+
+    /**
+     * The context where the service has to be called.
+     */
+    protected Context context;
+
+    /**
+     * The service to call.
+     */
+    protected Object service;
+
+    /**
+     * Create the handler.
+     *
+     * @param context where the service has to be called.
+     * @param service to call.
+     */
+    public LocalInvocationHandler(final Context context, final Object service) {
+
+      this.context = context;
+      this.service = service;
+
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The default methods are executed on the proxy, thus the methods that they
+     * call are executed on the context of the service. The methods that receive
+     * a result handler are executed on the context of the service, and the
+     * result is returned on the context of the caller.
+     */
+    @Override
+    public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+
+      if (method.getDeclaringClass() == Object.class) {
+
+        return method.invoke(this.service, args);
+
+      } else if (method.isDefault()) {
+
+        final var declaring = method.getDeclaringClass();
+        return MethodHandles.privateLookupIn(declaring, MethodHandles.lookup()).unreflectSpecial(method, declaring)
+            .bindTo(proxy).invokeWithArguments(args == null ? new Object[0] : args);
+
+      } else if (method.getReturnType() != void.class) {
+
+        return this.invokeService(method, args);
+
+      } else {
+
+        final var serviceArgs = args == null ? new Object[0] : args.clone();
+        for (var i = 0; i < serviceArgs.length; i++) {
+
+          serviceArgs[i] = copy(serviceArgs[i]);
+        }
+        Handler<AsyncResult<Object>> reply = null;
+        if (serviceArgs.length > 0 && serviceArgs[serviceArgs.length - 1] instanceof Handler) {
+
+          @SuppressWarnings("unchecked")
+          final var handler = (Handler<AsyncResult<Object>>) serviceArgs[serviceArgs.length - 1];
+          reply = this.createReply(handler);
+          serviceArgs[serviceArgs.length - 1] = reply;
+        }
+        final var serviceReply = reply;
+        this.context.runOnContext(any -> {
+
+          try {
+
+            this.invokeService(method, serviceArgs);
+
+          } catch (final Throwable cause) {
+
+            if (serviceReply != null) {
+
+              serviceReply.handle(Future.failedFuture(cause));
+            }
+          }
+
+        });
+        return null;
+      }
+
+    }
+
+    /**
+     * Create the handler that returns the result of a call on the context of the
+     * caller.
+     *
+     * @param handler of the caller to inform of the result.
+     *
+     * @return the handler to pass to the service.
+     */
+    protected Handler<AsyncResult<Object>> createReply(final Handler<AsyncResult<Object>> handler) {
+
+      final var caller = Vertx.currentContext();
+      return result -> {
+
+        final AsyncResult<Object> copied;
+        if (result.succeeded()) {
+
+          copied = Future.succeededFuture(copy(result.result()));
+
+        } else {
+
+          copied = result;
+        }
+        if (caller == null || caller == Vertx.currentContext()) {
+
+          handler.handle(copied);
+
+        } else {
+
+          caller.runOnContext(any -> handler.handle(copied));
+        }
+
+      };
+
+    }
+
+    /**
+     * Copy a parameter or a result of a call, as it is done when it is sent
+     * through the event bus. The JSON values and the lists and maps that
+     * contain them are copied, and the other values are immutable or handlers.
+     *
+     * @param value to copy.
+     *
+     * @return the copy of the value.
+     */
+    protected static Object copy(final Object value) {
+
+      if (value instanceof JsonObject) {
+
+        return ((JsonObject) value).copy();
+
+      } else if (value instanceof JsonArray) {
+
+        return ((JsonArray) value).copy();
+
+      } else if (value instanceof List) {
+
+        final var copied = new ArrayList<Object>();
+        for (final var element : (List<?>) value) {
+
+          copied.add(copy(element));
+        }
+        return copied;
+
+      } else if (value instanceof Set) {
+
+        final var copied = new LinkedHashSet<Object>();
+        for (final var element : (Set<?>) value) {
+
+          copied.add(copy(element));
+        }
+        return copied;
+
+      } else if (value instanceof Map) {
+
+        final var copied = new LinkedHashMap<Object, Object>();
+        for (final var entry : ((Map<?, ?>) value).entrySet()) {
+
+          copied.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return copied;
+
+      } else {
+
+        return value;
+      }
+
+    }
+
+    /**
+     * Call a method of the service.
+     *
+     * @param method to call.
+     * @param args   of the call.
+     *
+     * @return the result of the call.
+     *
+     * @throws Throwable the exception thrown by the method.
+     */
+    protected Object invokeService(final Method method, final Object[] args) throws Throwable {
+
+      try {
+
+        return method.invoke(this.service, args);
+
+      } catch (final InvocationTargetException exception) {
+
+        throw exception.getCause();
+      }
+
+    }
+
+  }
+
+}
@@ -0,0 +1,268 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import eu.internetofus.common.model.TimeManager;
+import eu.internetofus.common.vertx.Repository;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.function.Function;
+import org.tinylog.Logger;
+
+/**
+ * The ledger with the migration steps that has been applied over the
+ * database. Each step is applied only once, so when the service starts the
+ * completed migrations are skipped with only one query by identifier. While a
+ * step is applied it can store checkpoints, so if the service stops the step
+ * continues from the last checkpoint.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class MigrationLedger {
+
+  /**
+   * The name of the collection that contains the applied migration steps.
+   */
+  public static final String MIGRATIONS_COLLECTION = "migrations";
+
+  /**
+   * The maximum number of documents to migrate on each batch.
+   */
+  public static final int BATCH_SIZE = 500;
+
+  /**
+   * The status of a step that is being applied.
+   */
+  public static final String RUNNING_STATUS = "running";
+
+  /**
+   * The status of a step that has been applied.
+   */
+  public static final String DONE_STATUS = "done";
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The version of the schema that apply the migrations.
+   */
+  protected String schemaVersion;
+
+  /**
+   * Create the ledger.
+   *
+   * @param pool          to the database.
+   * @param schemaVersion version of the schema that apply the migrations.
+   */
+  public MigrationLedger(final MongoClient pool, final String schemaVersion) {
+
+    this.pool = pool;
+    this.schemaVersion = schemaVersion;
+
+  }
+
+  /**
+   * Apply a migration step if it has not been applied before.
+   *
+   * @param name      identifier of the step.
+   * @param migration the function to apply the step.
+   *
+   * @return the future that will be completed when the step is applied.
+   */
+  public Future<Void> apply(final String name, final Function<Step, Future<Void>> migration) {
+
+    final var query = new JsonObject().put("_id", name);
+    return this.pool.findOne(MIGRATIONS_COLLECTION, query, null).compose(found -> {
+
+      if (found != null && DONE_STATUS.equals(found.getString("status"))) {
+
+        Logger.trace("The migration step {} has been already applied.", name);
+        return Future.succeededFuture();
+
+      } else {
+
+        final var step = new Step(name, found, this);
+        final var started = System.currentTimeMillis();
+        if (step.checkpoint != null) {
+
+          Logger.info("Resuming the migration step {} after {} documents.", name, step.processed);
+        }
+        return step.store(RUNNING_STATUS).compose(empty -> migration.apply(step)).compose(empty -> {
+
+          step.durationMillis += System.currentTimeMillis() - started;
+          Logger.info("Applied the migration step {} over {} documents in {} ms.", name, step.processed,
+              step.durationMillis);
+          return step.store(DONE_STATUS);
+
+        });
+      }
+
+    });
+
+  }
+
+  /**
+   * The progress of a migration step.
+   */
+  public static class Step {
+
+    /**
+     * The identifier of the step.
+     */
+    protected String name;
+
+    /**
+     * The last checkpoint of the step.
+     */
+    protected Object checkpoint;
+
+    /**
+     * The number of documents that has been processed.
+     */
+    protected long processed;
+
+    /**
+     * The time, in milliseconds, spent applying the step.
+     */
+    protected long durationMillis;
+
+    /**
+     * The time stamp when the step has started.
+     */
+    protected long startTs;
+
+    /**
+     * The ledger where the progress is stored, or {@code null} if the progress
+     * is not stored.
+     */
+    protected MigrationLedger ledger;
+
+    /**
+     * Create the progress of a step.
+     *
+     * @param name     identifier of the step.
+     * @param previous stored progress of the step, or {@code null} if it has not
+     *                 been started before.
+     * @param ledger   where store the progress, or {@code null} if the progress
+     *                 is not stored.
+     */
+    protected Step(final String name, final JsonObject previous, final MigrationLedger ledger) {
+
+      this.name = name;
+      this.ledger = ledger;
+      if (previous == null) {
+
+        this.startTs = TimeManager.now();
+
+      } else {
+
+        this.checkpoint = previous.getValue("checkpoint");
+        this.processed = previous.getLong("processed", 0l);
+        this.durationMillis = previous.getLong("durationMillis", 0l);
+        this.startTs = previous.getLong("startTs", TimeManager.now());
+      }
+
+    }
+
+    /**
+     * Create a step that does not store its progress.
+     *
+     * @param name identifier of the step.
+     *
+     * @return the step without ledger.
+     */
+    public static Step unrecorded(final String name) {
+
+      return new Step(name, null, null);
+
+    }
+
+    /**
+     * Return the last checkpoint of the step.
+     *
+     * @return the last checkpoint, or {@code null} if the step has to start from
+     *         the beginning.
+     */
+    public Object getCheckpoint() {
+
+      return this.checkpoint;
+
+    }
+
+    /**
+     * Return the number of documents that has been processed.
+     *
+     * @return the processed documents.
+     */
+    public long getProcessed() {
+
+      return this.processed;
+
+    }
+
+    /**
+     * Store a checkpoint of the step.
+     *
+     * @param checkpoint value to continue the step.
+     * @param processed  number of documents processed after the last checkpoint.
+     *
+     * @return the future that will be completed when the checkpoint is stored.
+     */
+    public Future<Void> checkpoint(final Object checkpoint, final long processed) {
+
+      this.checkpoint = checkpoint;
+      this.processed += processed;
+      Logger.debug("Migration step {} has processed {} documents.", this.name, this.processed);
+      return this.store(RUNNING_STATUS);
+
+    }
+
+    /**
+     * Store the progress of the step.
+     *
+     * @param status of the step.
+     *
+     * @return the future that will be completed when the progress is stored.
+     */
+    protected Future<Void> store(final String status) {
+
+      if (this.ledger == null) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        final var document = new JsonObject().put("_id", this.name).put("status", status)
+            .put("checkpoint", this.checkpoint).put("processed", this.processed)
+            .put("durationMillis", this.durationMillis).put("startTs", this.startTs)
+            .put("updateTs", TimeManager.now()).put(Repository.SCHEMA_VERSION, this.ledger.schemaVersion);
+        return this.ledger.pool.save(MIGRATIONS_COLLECTION, document).mapEmpty();
+      }
+
+    }
+
+  }
+
+}
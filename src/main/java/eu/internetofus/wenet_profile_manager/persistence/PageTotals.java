@@ -0,0 +1,288 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * The component used to decide how to calculate the total number of documents
+ * that match the query of a page. The total can be the exact number of
+ * documents, an estimation of it or not be calculated.
+ *
+ * The estimation uses the collection metadata when the query does not filter
+ * any document, otherwise it uses the last counted value for the same query if
+ * it is not older than the time to live of the counts. Each repository has its
+ * own instance, so the counts are cached by the repository that has done them.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PageTotals {
+
+  /**
+   * The value to obtain the exact number of documents that match the query.
+   */
+  public static final String EXACT = "exact";
+
+  /**
+   * The value to obtain an estimation of the number of documents that match the
+   * query.
+   */
+  public static final String ESTIMATE = "estimate";
+
+  /**
+   * The value to not calculate the number of documents that match the query.
+   */
+  public static final String NONE = "none";
+
+  /**
+   * The default time, in milliseconds, that a count is cached.
+   */
+  public static final long DEFAULT_COUNTS_TIME_TO_LIVE = 10000l;
+
+  /**
+   * The maximum number of counts to cache.
+   */
+  public static final int MAX_CACHED_COUNTS = 1000;
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The cached counts.
+   */
+  protected final Map<String, CachedCount> counts = new ConcurrentHashMap<>();
+
+  /**
+   * The time, in milliseconds, that a count is cached.
+   */
+  protected long countsTimeToLive;
+
+  /**
+   * A count that has been cached.
+   */
+  protected static class CachedCount {
+
+    /**
+     * The number of documents.
+     */
+    public long count;
+
+    /**
+     * The time when the count expires.
+     */
+    public long expiresAt;
+
+  }
+
+  /**
+   * Create the component to calculate the totals.
+   *
+   * @param pool             of database connections.
+   * @param countsTimeToLive time, in milliseconds, that a count is cached. If it
+   *                         is zero or less the counts are not cached.
+   */
+  public PageTotals(final MongoClient pool, final long countsTimeToLive) {
+
+    this.pool = pool;
+    this.countsTimeToLive = countsTimeToLive;
+
+  }
+
+  /**
+   * Create the component to calculate the totals with the time to live defined
+   * on the configuration.
+   *
+   * @param pool of database connections.
+   * @param conf configuration of the profile manager.
+   *
+   * @return the component to calculate the totals.
+   */
+  public static PageTotals create(final MongoClient pool, final JsonObject conf) {
+
+    final var timeout = Long.parseLong(
+        String.valueOf(conf.getValue("pageTotalsCacheTimeout", DEFAULT_COUNTS_TIME_TO_LIVE / 1000l)));
+    return new PageTotals(pool, timeout * 1000l);
+
+  }
+
+  /**
+   * Check if a total value is valid.
+   *
+   * @param total to check.
+   *
+   * @return {@code true} if the total is {@code null} or one of the valid
+   *         values.
+   */
+  public static boolean isValid(final String total) {
+
+    return total == null || EXACT.equals(total) || ESTIMATE.equals(total) || NONE.equals(total);
+
+  }
+
+  /**
+   * Check if has to calculate the exact number of documents.
+   *
+   * @param total to check.
+   *
+   * @return {@code true} if the total is {@code null} or {@link #EXACT}.
+   */
+  public static boolean isExact(final String total) {
+
+    return total == null || EXACT.equals(total);
+
+  }
+
+  /**
+   * Count the number of documents that match a query.
+   *
+   * @param collection where are the documents.
+   * @param query      to match the documents.
+   * @param total      how the number of documents has to be calculated.
+   *
+   * @return the future with the number of documents, or {@code null} if the
+   *         total is {@link #NONE}.
+   */
+  public Future<Long> count(final String collection, final JsonObject query, final String total) {
+
+    if (!isValid(total)) {
+
+      return Future.failedFuture(new IllegalArgumentException(
+          "The total '" + total + "' is not valid, it has to be '" + EXACT + "', '" + ESTIMATE + "' or '" + NONE
+              + "'."));
+
+    } else if (NONE.equals(total)) {
+
+      return Future.succeededFuture(null);
+
+    } else if (ESTIMATE.equals(total)) {
+
+      if (query == null || query.isEmpty()) {
+
+        return this.pool.runCommand("count", new JsonObject().put("count", collection))
+            .map(result -> result.getLong("n", 0l));
+
+      } else {
+
+        final var key = collection + ":" + query.encode();
+        final var cached = this.counts.get(key);
+        if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+
+          return Future.succeededFuture(cached.count);
+
+        } else {
+
+          return this.pool.count(collection, query).onSuccess(count -> this.cacheCount(key, count));
+        }
+      }
+
+    } else {
+
+      return this.pool.count(collection, query);
+    }
+
+  }
+
+  /**
+   * Store a count on the cache.
+   *
+   * @param key   of the count.
+   * @param count number of documents.
+   */
+  protected void cacheCount(final String key, final long count) {
+
+    if (this.countsTimeToLive > 0) {
+
+      final var now = System.currentTimeMillis();
+      if (this.counts.size() >= MAX_CACHED_COUNTS) {
+
+        this.counts.values().removeIf(cached -> cached.expiresAt <= now);
+        if (this.counts.size() >= MAX_CACHED_COUNTS) {
+
+          this.counts.clear();
+        }
+      }
+      final var cached = new CachedCount();
+      cached.count = count;
+      cached.expiresAt = now + this.countsTimeToLive;
+      this.counts.put(key, cached);
+    }
+
+  }
+
+  /**
+   * Search for a page of documents calculating its total as requested.
+   *
+   * @param collection where are the documents.
+   * @param query      to obtain the documents.
+   * @param options    to find the documents.
+   * @param resultKey  name of the field of the page that contains the found
+   *                   documents.
+   * @param map        function to apply to the found documents, or {@code null}
+   *                   if not has to be modified.
+   * @param total      how the number of documents has to be calculated.
+   *
+   * @return the future with the found page. The page does not contains the
+   *         total if it is {@link #NONE}.
+   */
+  public Future<JsonObject> searchPageObject(final String collection, final JsonObject query,
+      final FindOptions options, final String resultKey, final Consumer<JsonObject> map, final String total) {
+
+    final var count = this.count(collection, query, total);
+    final var find = this.pool.findWithOptions(collection, query, options);
+    return CompositeFuture.all(count, find).map(any -> {
+
+      final var page = new JsonObject().put("offset", options.getSkip());
+      final var value = count.result();
+      if (value != null) {
+
+        page.put("total", value);
+      }
+      final var documents = find.result();
+      if (documents != null && !documents.isEmpty()) {
+
+        final var array = new JsonArray();
+        for (final var document : documents) {
+
+          if (map != null) {
+
+            map.accept(document);
+          }
+          array.add(document);
+        }
+        page.put(resultKey, array);
+      }
+      return page;
+
+    });
+
+  }
+
+}
@@ -23,7 +23,10 @@ package eu.internetofus.wenet_profile_manager.persistence;
 import eu.internetofus.common.vertx.AbstractPersistenceVerticle;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
+import io.vertx.core.Promise;
 import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import org.tinylog.Logger;
 
 /**
  * The verticle that provide the persistence services.
@@ -32,6 +35,11 @@ import io.vertx.core.json.JsonObject;
  */
 public class PersistenceVerticle extends AbstractPersistenceVerticle {
 
+  /**
+   * The trusts repository registered by this verticle.
+   */
+  protected TrustsRepositoryImpl trusts;
+
   /**
    * {@inheritDoc}
    */
@@ -39,16 +47,89 @@ public class PersistenceVerticle extends AbstractPersistenceVerticle {
   protected Future<Void> registerRepositoriesFor(final String schemaVersion) {
 
     final var conf = this.config().getJsonObject("profileManager", new JsonObject());
+    LocalServices.setEnabled(this.vertx, conf.getBoolean("localRepositories", false));
+    this.trusts = new TrustsRepositoryImpl(this.config(), this.vertx, this.pool, schemaVersion);
     return CompositeFuture.all(
-        ProfilesRepository.register(this.vertx, this.pool, schemaVersion,
+        ProfilesRepository.register(this.vertx, this.config(), this.pool, schemaVersion,
             conf.getBoolean("migrateProfilesInBackground", true)),
-        TrustsRepository.register(this.vertx, this.config(), this.pool, schemaVersion,
-            conf.getBoolean("migrateTrustsInBackground", true)),
-        CommunitiesRepository.register(this.vertx, this.pool, schemaVersion,
+        TrustsRepository.register(this.vertx, this.trusts, conf.getBoolean("migrateTrustsInBackground", true)),
+        CommunitiesRepository.register(this.vertx, this.config(), this.pool, schemaVersion,
             conf.getBoolean("migrateCommunitiesInBackground", true)),
-        RelationshipsRepository.register(this.vertx, this.pool, schemaVersion,
-            conf.getBoolean("migrateRelationshipsInBackground", true)))
-        .map(any -> null);
+        RelationshipsRepository.register(this.vertx, this.config(), this.pool, schemaVersion,
+            conf.getBoolean("migrateRelationshipsInBackground", true)),
+        DeletionJobsRepository.register(this.vertx, this.config(), this.pool, schemaVersion))
+        .compose(any -> {
+
+          final var indexes = this.ensureIndexes();
+          if (conf.getBoolean("ensureIndexesInBackground", true)) {
+
+            return Future.succeededFuture();
+
+          } else {
+
+            return indexes;
+          }
+
+        });
+
+  }
+
+  /**
+   * Store the trust events that are waiting on the write-behind buffer before
+   * stop the verticle.
+   *
+   * {@inheritDoc}
+   */
+  @Override
+  public void stop(final Promise<Void> stopPromise) throws Exception {
+
+    final Future<Void> pending = this.trusts == null ? Future.succeededFuture() : this.trusts.flushTrustEvents();
+    pending.onComplete(flush -> {
+
+      if (flush.failed()) {
+
+        Logger.error(flush.cause(), "Cannot store the pending trust events.");
+      }
+
+      try {
+
+        super.stop(stopPromise);
+
+      } catch (final Exception cause) {
+
+        stopPromise.fail(cause);
+      }
+
+    });
+
+  }
+
+  /**
+   * Create the indexes that the repositories need and report the state of the
+   * indexes defined on the database.
+   *
+   * @return the future that will be completed when the indexes are verified.
+   *
+   * @see RepositoryIndexes
+   */
+  protected Future<Void> ensureIndexes() {
+
+    final var indexes = new ArrayList<RepositoryIndex>();
+    indexes.addAll(ProfilesRepositoryImpl.INDEXES);
+    indexes.addAll(TrustsRepositoryImpl.INDEXES);
+    indexes.addAll(CommunitiesRepositoryImpl.INDEXES);
+    indexes.addAll(RelationshipsRepositoryImpl.INDEXES);
+    indexes.addAll(DeletionJobsRepositoryImpl.INDEXES);
+    return RepositoryIndexes.ensure(this.pool, indexes, true)
+        .compose(any -> RepositoryIndexes.verify(this.pool, indexes)).onSuccess(report -> {
+
+          Logger.info("Verified the database indexes {}", report);
+
+        }).onFailure(error -> {
+
+          Logger.error(error, "Cannot verify the database indexes");
+
+        }).map(any -> null);
 
   }
 
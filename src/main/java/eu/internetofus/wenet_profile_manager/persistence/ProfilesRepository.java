@@ -33,9 +33,11 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.serviceproxy.ServiceBinder;
+import java.util.List;
 import org.tinylog.Logger;
 
 /**
@@ -60,13 +62,22 @@ public interface ProfilesRepository {
    */
   static ProfilesRepository createProxy(final Vertx vertx) {
 
-    return new ProfilesRepositoryVertxEBProxy(vertx, ProfilesRepository.ADDRESS);
+    final var local = LocalServices.lookup(vertx, ProfilesRepository.ADDRESS, ProfilesRepository.class);
+    if (local != null) {
+
+      return local;
+
+    } else {
+
+      return new ProfilesRepositoryVertxEBProxy(vertx, ProfilesRepository.ADDRESS);
+    }
   }
 
   /**
    * Register this service.
    *
    * @param vertx      that contains the event bus to use.
+   * @param conf       configuration to use.
    * @param pool       to create the database connections.
    * @param version    of the schemas.
    * @param background is {@code true} if has to migrate the data base in
@@ -74,20 +85,40 @@ public interface ProfilesRepository {
    *
    * @return the future that inform when the repository will be registered or not.
    */
-  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version,
-      final boolean background) {
+  static Future<Void> register(final Vertx vertx, final JsonObject conf, final MongoClient pool,
+      final String version, final boolean background) {
 
     final var repository = new ProfilesRepositoryImpl(vertx, pool, version);
+    final var profileManager = conf.getJsonObject("profileManager", new JsonObject());
+    repository.pageTotals = PageTotals.create(pool, profileManager);
+    final var metricsPeriod = Long.parseLong(String
+        .valueOf(profileManager.getValue("cacheMetricsPeriod", ReadThroughCache.DEFAULT_METRICS_PERIOD)));
+    repository.profilesCache = ReadThroughCache
+        .create(vertx, ProfilesRepositoryImpl.PROFILES_COLLECTION, profileManager).start(metricsPeriod);
     new ServiceBinder(vertx).setAddress(ProfilesRepository.ADDRESS).register(ProfilesRepository.class, repository);
+    LocalServices.register(vertx, ProfilesRepository.ADDRESS, ProfilesRepository.class, repository);
+    new HistoricProfilesRetention(vertx, repository, conf).start();
+    final Future<Void> migration;
+    if (profileManager.getBoolean("lazySchemaUpgrade", false)) {
+
+      final var period = Long.parseLong(
+          String.valueOf(profileManager.getValue("schemaUpgradePeriod", SchemaTrickleUpgrader.DEFAULT_PERIOD)));
+      new SchemaTrickleUpgrader(vertx, "profiles", repository::upgradeOutdatedProfiles, period).start();
+      migration = repository.migrateHistoricProfilesToCurrentVersions();
+
+    } else {
+
+      migration = repository.migrateDocumentsToCurrentVersions();
+    }
+
     if (background) {
 
-      repository.migrateDocumentsToCurrentVersions()
-          .onFailure(error -> Logger.error(error, "Cannot migrate the profiles."));
+      migration.onFailure(error -> Logger.error(error, "Cannot migrate the profiles."));
       return Future.succeededFuture();
 
     } else {
 
-      return repository.migrateDocumentsToCurrentVersions();
+      return migration;
 
     }
 
@@ -117,6 +148,126 @@ public interface ProfilesRepository {
    */
   void searchProfile(String id, Handler<AsyncResult<JsonObject>> searchHandler);
 
+  /**
+   * Search for some fields of the profile with the specified identifier.
+   *
+   * @param id     identifier of the user to search.
+   * @param fields names of the profile fields to return, or {@code null} to
+   *               return all of them.
+   *
+   * @return the future with the found fields of the profile, or {@code null} if
+   *         it is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchProfileFields(final String id, final List<String> fields) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.searchProfileFields(id, fields, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Search for some fields of the profile with the specified identifier.
+   *
+   * @param id            identifier of the user to search.
+   * @param fields        names of the profile fields to return, or {@code null}
+   *                      to return all of them.
+   * @param searchHandler handler to manage the search.
+   */
+  void searchProfileFields(String id, List<String> fields, Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Search for some fields of the profiles with the specified identifiers.
+   *
+   * @param ids    identifiers of the users to search.
+   * @param fields names of the profile fields to return, or {@code null} to
+   *               return all of them.
+   *
+   * @return the future with the found profiles. The profiles that are not
+   *         defined are not returned.
+   */
+  @GenIgnore
+  default Future<JsonArray> searchProfiles(final List<String> ids, final List<String> fields) {
+
+    final Promise<JsonArray> promise = Promise.promise();
+    this.searchProfiles(ids, fields, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Search for some fields of the profiles with the specified identifiers.
+   *
+   * @param ids           identifiers of the users to search.
+   * @param fields        names of the profile fields to return, or {@code null}
+   *                      to return all of them.
+   * @param searchHandler handler to manage the search.
+   */
+  void searchProfiles(List<String> ids, List<String> fields, Handler<AsyncResult<JsonArray>> searchHandler);
+
+  /**
+   * Search for the profile that an user had at a time stamp. It is the current
+   * profile if it has not been updated after the time stamp, or the historic
+   * profile that was active at the time stamp.
+   *
+   * @param id identifier of the user to search.
+   * @param at time stamp, in seconds, when the profile was active.
+   *
+   * @return the future with the profile that was active at the time stamp, or
+   *         {@code null} if it is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> searchProfileAt(final String id, final long at) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.searchProfileAt(id, at, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Search for the profile that an user had at a time stamp.
+   *
+   * @param id            identifier of the user to search.
+   * @param at            time stamp, in seconds, when the profile was active.
+   * @param searchHandler handler to manage the search.
+   */
+  void searchProfileAt(String id, long at, Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Calculate the changes between two versions of the profile of an user.
+   *
+   * @param id     identifier of the user.
+   * @param source time stamp, in seconds, when the source version was active, or
+   *               {@code null} to use the current profile.
+   * @param target time stamp, in seconds, when the target version was active, or
+   *               {@code null} to use the current profile.
+   *
+   * @return the future with the changes between the versions, or {@code null}
+   *         if any of the versions is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> retrieveProfileDiff(final String id, final Long source, final Long target) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveProfileDiff(id, source, target, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Calculate the changes between two versions of the profile of an user.
+   *
+   * @param id          identifier of the user.
+   * @param source      time stamp, in seconds, when the source version was
+   *                    active, or {@code null} to use the current profile.
+   * @param target      time stamp, in seconds, when the target version was
+   *                    active, or {@code null} to use the current profile.
+   * @param diffHandler handler to manage the changes between the versions.
+   */
+  void retrieveProfileDiff(String id, Long source, Long target, Handler<AsyncResult<JsonObject>> diffHandler);
+
   /**
    * Store a profile.
    *
@@ -276,6 +427,47 @@ public interface ProfilesRepository {
   void searchHistoricProfilePageObject(JsonObject query, JsonObject sort, int offset, int limit,
       Handler<AsyncResult<JsonObject>> searchHandler);
 
+  /**
+   * Search for some historic profiles calculating the total as requested.
+   *
+   * @param query  that define the historic profiles to return.
+   * @param sort   define the order in with the historic profiles has to be
+   *               returned.
+   * @param offset index of the first profile to return.
+   * @param limit  number maximum of profiles to return.
+   * @param total  how the number of historic profiles has to be calculated.
+   *
+   * @return the future with the found page.
+   *
+   * @see PageTotals
+   */
+  @GenIgnore
+  default Future<HistoricWeNetUserProfilesPage> searchHistoricProfilePage(final JsonObject query, final JsonObject sort,
+      final int offset, final int limit, final String total) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.searchHistoricProfilePageObjectWithTotal(query, sort, offset, limit, total, promise);
+    return Model.fromFutureJsonObject(promise.future(), HistoricWeNetUserProfilesPage.class);
+
+  }
+
+  /**
+   * Search for some historic profiles calculating the total as requested.
+   *
+   * @param query         that define the historic profiles to return.
+   * @param sort          define the order in with the historic profiles has to be
+   *                      returned.
+   * @param offset        index of the first profile to return.
+   * @param limit         number maximum of profiles to return.
+   * @param total         how the number of historic profiles has to be
+   *                      calculated.
+   * @param searchHandler handler to manage the search.
+   *
+   * @see PageTotals
+   */
+  void searchHistoricProfilePageObjectWithTotal(JsonObject query, JsonObject sort, int offset, int limit, String total,
+      Handler<AsyncResult<JsonObject>> searchHandler);
+
   /**
    * Create the query to obtain the historic pages that match the specified
    * parameters.
@@ -325,6 +517,262 @@ public interface ProfilesRepository {
    */
   void retrieveProfilesPageObject(int offset, int limit, Handler<AsyncResult<JsonObject>> searchHandler);
 
+  /**
+   * Retrieve a page with some user identifiers that are after a cursor.
+   *
+   * @param cursor        to the previous page, or
+   *                      {@link KeysetPages#FIRST_PAGE_CURSOR} to obtain the
+   *                      first page.
+   * @param limit         the number maximum of identifiers to return.
+   * @param searchHandler handler to manage the search.
+   *
+   * @see KeysetPages
+   */
+  void retrieveProfileUserIdsPageObjectAfter(String cursor, int limit,
+      Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Retrieve a page with some profiles that are after a cursor.
+   *
+   * @param cursor        to the previous page, or
+   *                      {@link KeysetPages#FIRST_PAGE_CURSOR} to obtain the
+   *                      first page.
+   * @param limit         the number maximum of profiles to return.
+   * @param searchHandler handler to manage the search.
+   *
+   * @see KeysetPages
+   */
+  void retrieveProfilesPageObjectAfter(String cursor, int limit, Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Retrieve a page with some fields of the profiles.
+   *
+   * @param offset        to the first profile to return.
+   * @param limit         the number maximum of profiles to return.
+   * @param fields        names of the profile fields to return, or {@code null}
+   *                      to return all of them.
+   * @param total         how the number of profiles has to be calculated.
+   * @param searchHandler handler to manage the search.
+   *
+   * @see PageTotals
+   */
+  void retrieveProjectedProfilesPageObject(int offset, int limit, List<String> fields, String total,
+      Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Retrieve a page with some fields of the profiles that are after a cursor.
+   *
+   * @param cursor        to the previous page, or
+   *                      {@link KeysetPages#FIRST_PAGE_CURSOR} to obtain the
+   *                      first page.
+   * @param limit         the number maximum of profiles to return.
+   * @param fields        names of the profile fields to return, or {@code null}
+   *                      to return all of them.
+   * @param searchHandler handler to manage the search.
+   *
+   * @see KeysetPages
+   */
+  void retrieveProjectedProfilesPageObjectAfter(String cursor, int limit, List<String> fields,
+      Handler<AsyncResult<JsonObject>> searchHandler);
+
+  /**
+   * Add an element at the end of a list field of a profile. If the element has
+   * an identifier ({@code id}) it is only added if the list does not contains
+   * another element with the same identifier.
+   *
+   * @param userId       identifier of the profile to modify.
+   * @param field        name of the list field of the profile.
+   * @param element      to add.
+   * @param withPrevious is {@code true} if has to return the profile before the
+   *                     modification, otherwise only its identifier is returned.
+   *
+   * @return the future with the profile before the modification, or
+   *         {@code null} if the profile is not modified.
+   */
+  @GenIgnore
+  default Future<JsonObject> addProfileFieldElement(final String userId, final String field, final JsonObject element,
+      final boolean withPrevious) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.addProfileFieldElement(userId, field, element, withPrevious, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Add an element at the end of a list field of a profile.
+   *
+   * @param userId        identifier of the profile to modify.
+   * @param field         name of the list field of the profile.
+   * @param element       to add.
+   * @param withPrevious  is {@code true} if has to return the profile before
+   *                      the modification, otherwise only its identifier is
+   *                      returned.
+   * @param updateHandler handler to manage the update result.
+   *
+   * @see #addProfileFieldElement(String, String, JsonObject, boolean)
+   */
+  void addProfileFieldElement(String userId, String field, JsonObject element, boolean withPrevious,
+      Handler<AsyncResult<JsonObject>> updateHandler);
+
+  /**
+   * Replace the element of a list field of a profile that has an identifier.
+   *
+   * @param userId       identifier of the profile to modify.
+   * @param field        name of the list field of the profile.
+   * @param elementId    identifier of the element to replace.
+   * @param element      new value of the element.
+   * @param withPrevious is {@code true} if has to return the profile before the
+   *                     modification, otherwise only its identifier is returned.
+   *
+   * @return the future with the profile before the modification, or
+   *         {@code null} if the profile or the element is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> updateProfileFieldElementById(final String userId, final String field,
+      final String elementId, final JsonObject element, final boolean withPrevious) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.updateProfileFieldElementById(userId, field, elementId, element, withPrevious, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Replace the element of a list field of a profile that has an identifier.
+   *
+   * @param userId        identifier of the profile to modify.
+   * @param field         name of the list field of the profile.
+   * @param elementId     identifier of the element to replace.
+   * @param element       new value of the element.
+   * @param withPrevious  is {@code true} if has to return the profile before
+   *                      the modification, otherwise only its identifier is
+   *                      returned.
+   * @param updateHandler handler to manage the update result.
+   *
+   * @see #updateProfileFieldElementById(String, String, String, JsonObject,
+   *      boolean)
+   */
+  void updateProfileFieldElementById(String userId, String field, String elementId, JsonObject element,
+      boolean withPrevious, Handler<AsyncResult<JsonObject>> updateHandler);
+
+  /**
+   * Replace the element of a list field of a profile that is at a position.
+   *
+   * @param userId       identifier of the profile to modify.
+   * @param field        name of the list field of the profile.
+   * @param index        of the element to replace.
+   * @param element      new value of the element.
+   * @param withPrevious is {@code true} if has to return the profile before the
+   *                     modification, otherwise only its identifier is returned.
+   *
+   * @return the future with the profile before the modification, or
+   *         {@code null} if the profile or the element is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> updateProfileFieldElementByIndex(final String userId, final String field,
+      final int index, final JsonObject element, final boolean withPrevious) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.updateProfileFieldElementByIndex(userId, field, index, element, withPrevious, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Replace the element of a list field of a profile that is at a position.
+   *
+   * @param userId        identifier of the profile to modify.
+   * @param field         name of the list field of the profile.
+   * @param index         of the element to replace.
+   * @param element       new value of the element.
+   * @param withPrevious  is {@code true} if has to return the profile before
+   *                      the modification, otherwise only its identifier is
+   *                      returned.
+   * @param updateHandler handler to manage the update result.
+   *
+   * @see #updateProfileFieldElementByIndex(String, String, int, JsonObject,
+   *      boolean)
+   */
+  void updateProfileFieldElementByIndex(String userId, String field, int index, JsonObject element,
+      boolean withPrevious, Handler<AsyncResult<JsonObject>> updateHandler);
+
+  /**
+   * Remove the element of a list field of a profile that has an identifier.
+   *
+   * @param userId       identifier of the profile to modify.
+   * @param field        name of the list field of the profile.
+   * @param elementId    identifier of the element to remove.
+   * @param withPrevious is {@code true} if has to return the profile before the
+   *                     modification, otherwise only its identifier is returned.
+   *
+   * @return the future with the profile before the modification, or
+   *         {@code null} if the profile or the element is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> deleteProfileFieldElementById(final String userId, final String field,
+      final String elementId, final boolean withPrevious) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.deleteProfileFieldElementById(userId, field, elementId, withPrevious, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Remove the element of a list field of a profile that has an identifier.
+   *
+   * @param userId        identifier of the profile to modify.
+   * @param field         name of the list field of the profile.
+   * @param elementId     identifier of the element to remove.
+   * @param withPrevious  is {@code true} if has to return the profile before
+   *                      the modification, otherwise only its identifier is
+   *                      returned.
+   * @param deleteHandler handler to manage the delete result.
+   *
+   * @see #deleteProfileFieldElementById(String, String, String, boolean)
+   */
+  void deleteProfileFieldElementById(String userId, String field, String elementId, boolean withPrevious,
+      Handler<AsyncResult<JsonObject>> deleteHandler);
+
+  /**
+   * Remove the element of a list field of a profile that is at a position.
+   *
+   * @param userId       identifier of the profile to modify.
+   * @param field        name of the list field of the profile.
+   * @param index        of the element to remove.
+   * @param withPrevious is {@code true} if has to return the profile before the
+   *                     modification, otherwise only its identifier is returned.
+   *
+   * @return the future with the profile before the modification, or
+   *         {@code null} if the profile or the element is not defined.
+   */
+  @GenIgnore
+  default Future<JsonObject> deleteProfileFieldElementByIndex(final String userId, final String field,
+      final int index, final boolean withPrevious) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.deleteProfileFieldElementByIndex(userId, field, index, withPrevious, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Remove the element of a list field of a profile that is at a position.
+   *
+   * @param userId        identifier of the profile to modify.
+   * @param field         name of the list field of the profile.
+   * @param index         of the element to remove.
+   * @param withPrevious  is {@code true} if has to return the profile before
+   *                      the modification, otherwise only its identifier is
+   *                      returned.
+   * @param deleteHandler handler to manage the delete result.
+   *
+   * @see #deleteProfileFieldElementByIndex(String, String, int, boolean)
+   */
+  void deleteProfileFieldElementByIndex(String userId, String field, int index, boolean withPrevious,
+      Handler<AsyncResult<JsonObject>> deleteHandler);
+
   /**
    * Search for the profile with the specified identifier.
    *
@@ -372,4 +820,33 @@ public interface ProfilesRepository {
     return promise.future();
   }
 
+  /**
+   * Delete some of the historic profiles of some users.
+   *
+   * @param userIds       identifiers of the users.
+   * @param limit         maximum number of historic profiles to delete.
+   * @param deleteHandler handler to manage the number of deleted historic
+   *                      profiles. If it is less than the limit, there are not
+   *                      more historic profiles to delete.
+   */
+  void deleteHistoricProfilesBatch(JsonArray userIds, int limit, Handler<AsyncResult<Integer>> deleteHandler);
+
+  /**
+   * Delete some of the historic profiles of some users.
+   *
+   * @param userIds identifiers of the users.
+   * @param limit   maximum number of historic profiles to delete.
+   *
+   * @return the future with the number of deleted historic profiles. If it is
+   *         less than the limit, there are not more historic profiles to delete.
+   */
+  @GenIgnore
+  default Future<Integer> deleteHistoricProfilesBatch(final JsonArray userIds, final int limit) {
+
+    final Promise<Integer> promise = Promise.promise();
+    this.deleteHistoricProfilesBatch(userIds, limit, promise);
+    return promise.future();
+
+  }
+
 }
@@ -20,6 +20,7 @@
 
 package eu.internetofus.wenet_profile_manager.persistence;
 
+import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.Repository;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.CompositeFuture;
@@ -30,11 +31,19 @@ import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.AggregateOptions;
+import io.vertx.ext.mongo.BulkOperation;
 import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.ext.mongo.UpdateOptions;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import org.tinylog.Logger;
 
 /**
  * Implementation of the {@link ProfilesRepository}.
@@ -55,6 +64,91 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    */
   public static final String HISTORIC_PROFILES_COLLECTION = "historicProfiles";
 
+  /**
+   * The name of the collection that contains the compressed blocks with the
+   * oldest historic profiles.
+   */
+  public static final String HISTORIC_PROFILES_ARCHIVE_COLLECTION = "historicProfilesArchive";
+
+  /**
+   * The name of the collection with the users whose historic profiles are
+   * being rewritten by the retention policy.
+   */
+  public static final String HISTORIC_PROFILES_LEASES_COLLECTION = "historicProfilesLeases";
+
+  /**
+   * The time, in seconds, that the retention policy owns the historic profiles
+   * of an user.
+   */
+  public static final long HISTORIC_PROFILES_LEASE_TIME = 600L;
+
+  /**
+   * The indexes that has to be defined to the collections of the repository.
+   */
+  public static final List<RepositoryIndex> INDEXES = List.of(
+      RepositoryIndex.of(PROFILES_COLLECTION, "creationTsAndId",
+          new JsonObject().put("_creationTs", 1).put("_id", 1)),
+      RepositoryIndex.of(HISTORIC_PROFILES_COLLECTION, "profileIdFromAndTo",
+          new JsonObject().put("profile.id", 1).put("from", 1).put("to", 1)),
+      RepositoryIndex.of(HISTORIC_PROFILES_COLLECTION, "keyframe", new JsonObject().put("keyframe", 1)),
+      RepositoryIndex.of(HISTORIC_PROFILES_ARCHIVE_COLLECTION, "profileIdAndPeriod",
+          new JsonObject().put("profileId", 1).put("period", 1)));
+
+  /**
+   * The maximum number of consecutive historic profiles of an user that are
+   * stored as differences before storing again a full profile.
+   */
+  public static final int HISTORIC_PROFILES_KEYFRAME_INTERVAL = 10;
+
+  /**
+   * The maximum number of users whose last stored historic profile is kept in
+   * memory.
+   */
+  public static final int HISTORIC_PROFILE_TIPS_MAX_SIZE = 1000;
+
+  /**
+   * The order used to return the pages of profiles.
+   */
+  public static final JsonObject PROFILES_PAGE_SORT = new JsonObject().put("_creationTs", 1).put("_id", 1);
+
+  /**
+   * The upgrades to apply over the profiles stored with an old schema version.
+   */
+  protected SchemaUpgrades profileUpgrades;
+
+  /**
+   * The cache of the current profiles.
+   */
+  protected ReadThroughCache profilesCache;
+
+  /**
+   * The component to calculate the totals of the pages.
+   */
+  protected PageTotals pageTotals;
+
+  /**
+   * The last historic profile, with all its data, that this instance has stored
+   * for each user. It is used as the base of the next historic profile of the
+   * user, if it is still the last one, without resolving its differences again.
+   */
+  protected Map<String, JsonObject> historicProfileTips = new LinkedHashMap<>(16, 0.75f, true) {
+
+    /**
+     * Serialization identifier.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, JsonObject> eldest) {
+
+      return this.size() > HISTORIC_PROFILE_TIPS_MAX_SIZE;
+    }
+
+  };
+
   /**
    * Create a new repository.
    *
@@ -62,9 +156,1699 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * @param pool    to create the connections.
    * @param version of the schemas.
    */
-  public ProfilesRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version) {
+  public ProfilesRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version) {
+
+    super(vertx, pool, version);
+    this.pageTotals = new PageTotals(pool, PageTotals.DEFAULT_COUNTS_TIME_TO_LIVE);
+    this.profileUpgrades = new SchemaUpgrades(version)
+        .with("0.7.0", ProfilesRepositoryImpl::removeDuplicatedRelationships).with("1.0.0", profile -> {
+          profile.remove("relationships");
+          return profile;
+        });
+    this.profilesCache = new ReadThroughCache(vertx, PROFILES_COLLECTION, 0, 0);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchProfile(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    this.findProfile(id).compose(found -> {
+
+      if (found == null) {
+
+        return Future.failedFuture("Does not exist a profile with the identifier '" + id + "'.");
+
+      } else {
+
+        return Future.succeededFuture(found);
+      }
+
+    }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * Find the current profile of an user on the cache, or on the database if it
+   * is not cached.
+   *
+   * @param id identifier of the user.
+   *
+   * @return the future with the profile, or {@code null} if it is not defined.
+   *
+   * @see #findStoredProfile(String)
+   */
+  protected Future<JsonObject> findProfile(final String id) {
+
+    return this.profilesCache.get(id, this::findStoredProfile);
+
+  }
+
+  /**
+   * Find the current profile of an user on the database. If the profile is
+   * stored with an old schema version, it is upgraded in memory and the upgraded
+   * profile is stored in background.
+   *
+   * @param id identifier of the user.
+   *
+   * @return the future with the profile, or {@code null} if it is not defined.
+   */
+  protected Future<JsonObject> findStoredProfile(final String id) {
+
+    final var query = new JsonObject().put("_id", id);
+    return this.pool.findOne(PROFILES_COLLECTION, query, null).map(found -> {
+
+      if (found == null) {
+
+        return null;
+
+      } else {
+
+        var profile = found;
+        if (this.profileUpgrades.isOutdated(found)) {
+
+          profile = this.profileUpgrades.upgrade(found);
+          this.storeUpgradedProfile(found, profile.copy())
+              .onFailure(cause -> Logger.debug(cause, "Cannot store the upgraded profile {}.", id));
+        }
+        profile.remove(SCHEMA_VERSION);
+        profile.put("id", profile.remove("_id"));
+        return profile;
+      }
+
+    });
+
+  }
+
+  /**
+   * Remove the duplicated relationships of a profile, and the ones without
+   * application.
+   *
+   * @param profile to remove the duplicated relationships.
+   *
+   * @return the profile without duplicated relationships.
+   */
+  protected static JsonObject removeDuplicatedRelationships(final JsonObject profile) {
+
+    final var relationships = profile.getValue("relationships");
+    if (relationships instanceof JsonArray) {
+
+      final var unique = new JsonArray();
+      final var keys = new HashSet<List<Object>>();
+      for (final var element : (JsonArray) relationships) {
+
+        if (element instanceof JsonObject) {
+
+          final var relationship = (JsonObject) element;
+          final var appId = relationship.getValue("appId");
+          if (appId != null && keys
+              .add(Arrays.asList(appId, relationship.getValue("userId"), relationship.getValue("type")))) {
+
+            unique.add(relationship);
+          }
+        }
+      }
+      profile.put("relationships", unique);
+    }
+    return profile;
+
+  }
+
+  /**
+   * Store a profile that has been upgraded to the current schema version. The
+   * profile is only replaced if it has not been modified after it has been read,
+   * and only in this case its relationships are moved to the
+   * {@link RelationshipsRepository}. The moved relationships never replace the
+   * ones that already are stored on the {@link RelationshipsRepository}, because
+   * they can be newer than the ones defined on the profile.
+   *
+   * @param original profile that has been read.
+   * @param upgraded profile to store.
+   *
+   * @return the future that will be completed with {@code true} if the profile
+   *         is stored or {@code false} if it has been modified after it has
+   *         been read.
+   */
+  protected Future<Boolean> storeUpgradedProfile(final JsonObject original, final JsonObject upgraded) {
+
+    final var query = SchemaUpgrades.createUnmodifiedQuery(original);
+    return this.pool.replaceDocuments(PROFILES_COLLECTION, query, upgraded).compose(replaced -> {
+
+      if (replaced == null || replaced.getDocMatched() == 0) {
+
+        return Future.succeededFuture(false);
+
+      } else {
+
+        final var operations = this.createUpgradedProfileRelationshipOperations(original);
+        if (operations.isEmpty()) {
+
+          return Future.succeededFuture(true);
+
+        } else {
+
+          return this.pool.bulkWrite(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION, operations)
+              .onSuccess(written -> this.publishRelationshipsChanged(operations)).map(true);
+        }
+      }
+
+    });
+
+  }
+
+  /**
+   * Create the operations to move the relationships of a profile with an old
+   * schema version to the {@link RelationshipsRepository}. The relationships are
+   * only inserted if they are not already stored.
+   *
+   * @param original profile that has been read.
+   *
+   * @return the operations to store the relationships of the profile.
+   */
+  protected List<BulkOperation> createUpgradedProfileRelationshipOperations(final JsonObject original) {
+
+    final var operations = new ArrayList<BulkOperation>();
+    if (SchemaUpgrades.compareVersions(SchemaUpgrades.versionOf(original), "1.0.0") < 0
+        && original.getValue("relationships") instanceof JsonArray) {
+
+      final var profile = this.profileUpgrades.upgradeBefore(original, "1.0.0");
+      for (final var operation : createRelationshipOperations(profile.getString("_id"),
+          profile.getJsonArray("relationships"))) {
+
+        operations.add(BulkOperation.createUpdate(operation.getFilter(),
+            new JsonObject().put("$setOnInsert", operation.getDocument()), true, false));
+      }
+    }
+    return operations;
+
+  }
+
+  /**
+   * Create the operations to store the relationships that was defined on a
+   * profile into the {@link RelationshipsRepository}.
+   *
+   * @param id            identifier of the user of the profile.
+   * @param relationships that was defined on the profile.
+   *
+   * @return the operations to store the relationships.
+   */
+  protected static List<BulkOperation> createRelationshipOperations(final String id,
+      final JsonArray relationships) {
+
+    final var operations = new ArrayList<BulkOperation>();
+    final var max = relationships.size();
+    for (var i = 0; i < max; i++) {
+
+      final var element = relationships.getValue(i);
+      if (element instanceof JsonObject) {
+
+        final var relationship = ((JsonObject) element).copy();
+        relationship.put("sourceId", id);
+        relationship.put("targetId", relationship.remove("userId"));
+        relationship.put(SCHEMA_VERSION, "1.0.0");
+        final var relationshipId = RelationshipsRepository.createSocialNetworkRelationshipId(relationship);
+        relationship.put("_id", relationshipId);
+        operations
+            .add(BulkOperation.createReplace(new JsonObject().put("_id", relationshipId), relationship, true));
+      }
+    }
+    return operations;
+
+  }
+
+  /**
+   * Publish the applications of the relationships that have been written
+   * without the {@link RelationshipsRepository}, thus the social graphs of
+   * these applications are loaded again.
+   *
+   * @param operations that have been written on the relationships collection.
+   *
+   * @see SocialGraphIndex#publishChanged(Vertx, java.util.Collection)
+   */
+  protected void publishRelationshipsChanged(final List<BulkOperation> operations) {
+
+    final var appIds = new HashSet<String>();
+    for (final var operation : operations) {
+
+      final var document = operation.getDocument();
+      appIds.add(document.getJsonObject("$setOnInsert", document).getString("appId"));
+    }
+    SocialGraphIndex.publishChanged(this.vertx, appIds);
+
+  }
+
+  /**
+   * Upgrade a batch of the profiles that are stored with an old schema version.
+   * Each profile is stored as {@link #storeUpgradedProfile(JsonObject, JsonObject)},
+   * so the profiles modified while they are upgraded are ignored.
+   *
+   * @param limit maximum number of profiles to upgrade.
+   *
+   * @return the future with the number of profiles that have been upgraded.
+   */
+  protected Future<Integer> upgradeOutdatedProfiles(final int limit) {
+
+    final var query = this.createQueryToReturnDocumentsWithAVersionLessThan(this.schemaVersion);
+    final var options = new FindOptions().setLimit(limit);
+    return this.pool.findWithOptions(PROFILES_COLLECTION, query, options).compose(profiles -> {
+
+      Future<?> upgraded = Future.succeededFuture();
+      for (final var profile : profiles) {
+
+        upgraded = upgraded
+            .compose(any -> this.storeUpgradedProfile(profile, this.profileUpgrades.upgrade(profile)));
+      }
+      return upgraded.map(any -> profiles.size());
+
+    });
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchProfileFields(final String id, final List<String> fields,
+      final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    final JsonObject projection;
+    try {
+
+      projection = FieldsProjections.createProjection(fields);
+
+    } catch (final IllegalArgumentException error) {
+
+      searchHandler.handle(Future.failedFuture(error));
+      return;
+    }
+    final var cached = this.profilesCache.getIfPresent(id);
+    if (cached != null) {
+
+      searchHandler.handle(Future.succeededFuture(FieldsProjections.project(cached, fields)));
+      return;
+    }
+    if (projection != null) {
+
+      // The schema version is necessary to know if the profile has to be upgraded
+      projection.put(SCHEMA_VERSION, true);
+    }
+    final var query = new JsonObject().put("_id", id);
+    this.pool.findOne(PROFILES_COLLECTION, query, projection).compose(found -> {
+
+      if (found == null) {
+
+        return Future.succeededFuture();
+
+      } else if (this.profileUpgrades.isOutdated(found)) {
+
+        // The upgrade may need the fields that are not projected
+        return this.findProfile(id).map(profile -> FieldsProjections.project(profile, fields));
+
+      } else {
+
+        found.remove(SCHEMA_VERSION);
+        found.put("id", found.remove("_id"));
+        return Future.succeededFuture(found);
+      }
+
+    }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The cached profiles are not searched, and the others are obtained with only
+   * one query.
+   */
+  @Override
+  public void searchProfiles(final List<String> ids, final List<String> fields,
+      final Handler<AsyncResult<JsonArray>> searchHandler) {
+
+    final JsonObject projection;
+    try {
+
+      projection = FieldsProjections.createProjection(fields);
+
+    } catch (final IllegalArgumentException error) {
+
+      searchHandler.handle(Future.failedFuture(error));
+      return;
+    }
+
+    final var profiles = new JsonArray();
+    final var searchIds = new JsonArray();
+    if (ids != null) {
+
+      for (final var id : new LinkedHashSet<>(ids)) {
+
+        if (id != null) {
+
+          final var cached = this.profilesCache.getIfPresent(id);
+          if (cached != null) {
+
+            profiles.add(FieldsProjections.project(cached, fields));
+
+          } else {
+
+            searchIds.add(id);
+          }
+        }
+      }
+    }
+
+    if (searchIds.isEmpty()) {
+
+      searchHandler.handle(Future.succeededFuture(profiles));
+
+    } else {
+
+      final var query = new JsonObject().put("_id", new JsonObject().put("$in", searchIds));
+      final var options = new FindOptions();
+      if (projection != null) {
+
+        // The schema version is necessary to know if the profile has to be upgraded
+        projection.put(SCHEMA_VERSION, true);
+        options.setFields(projection);
+      }
+      this.pool.findWithOptions(PROFILES_COLLECTION, query, options).compose(found -> {
+
+        final var outdatedIds = new JsonArray();
+        for (final var stored : found) {
+
+          if (projection != null && this.profileUpgrades.isOutdated(stored)) {
+
+            outdatedIds.add(stored.getValue("_id"));
+
+          } else {
+
+            this.toProfileModel(stored);
+            profiles.add(stored);
+          }
+        }
+        if (outdatedIds.isEmpty()) {
+
+          return Future.succeededFuture(profiles);
+
+        } else {
+
+          // The upgrade may need the fields that are not projected
+          final var outdatedQuery = new JsonObject().put("_id", new JsonObject().put("$in", outdatedIds));
+          return this.pool.find(PROFILES_COLLECTION, outdatedQuery).map(outdated -> {
+
+            for (final var profile : outdated) {
+
+              this.toProfileModel(profile);
+              profiles.add(FieldsProjections.project(profile, fields));
+            }
+            return profiles;
+
+          });
+        }
+
+      }).onComplete(searchHandler);
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchProfileAt(final String id, final long at, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    this.findProfile(id).compose(current -> {
+
+      if (current != null && current.getLong("_lastUpdateTs", 0l) <= at) {
+
+        return Future.succeededFuture(current);
+
+      } else {
+
+        return this.searchHistoricProfileAt(id, at).map(historic -> {
+
+          if (historic == null) {
+
+            return null;
+
+          } else {
+
+            return historic.getJsonObject("profile");
+          }
+
+        });
+      }
+
+    }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveProfileDiff(final String id, final Long source, final Long target,
+      final Handler<AsyncResult<JsonObject>> diffHandler) {
+
+    this.searchProfileVersion(id, source)
+        .compose(sourceProfile -> this.searchProfileVersion(id, target).map(targetProfile -> {
+
+          if (sourceProfile == null || targetProfile == null) {
+
+            return null;
+
+          } else {
+
+            return new JsonObject().put("userId", id).put("source", source).put("target", target).put("changes",
+                JsonDiffs.diff(sourceProfile, targetProfile));
+          }
+
+        })).onComplete(diffHandler);
+
+  }
+
+  /**
+   * Search for a version of the profile of an user.
+   *
+   * @param id identifier of the user.
+   * @param at time stamp, in seconds, when the version was active, or
+   *           {@code null} to obtain the current profile.
+   *
+   * @return the future with the version of the profile, or {@code null} if it is
+   *         not defined.
+   */
+  protected Future<JsonObject> searchProfileVersion(final String id, final Long at) {
+
+    if (at == null) {
+
+      return this.findProfile(id);
+
+    } else {
+
+      return this.searchProfileAt(id, at);
+    }
+
+  }
+
+  /**
+   * Search for the historic profile that was active at a time stamp. It is
+   * searched with only one query over the index of the user identifier and the
+   * period of the historic profiles, and if it is not found, on the archived
+   * blocks that contains the time stamp.
+   *
+   * @param id identifier of the user.
+   * @param at time stamp, in seconds, when the historic profile was active.
+   *
+   * @return the future with the resolved historic profile, or {@code null} if
+   *         not found.
+   */
+  protected Future<JsonObject> searchHistoricProfileAt(final String id, final long at) {
+
+    final var query = new JsonObject().put("profile.id", id).put("from", new JsonObject().put("$lte", at)).put("to",
+        new JsonObject().put("$gt", at));
+    final var options = new FindOptions();
+    options.setSort(new JsonObject().put("from", -1)).setLimit(1);
+    return this.pool.findWithOptions(HISTORIC_PROFILES_COLLECTION, query, options).compose(found -> {
+
+      if (found.isEmpty()) {
+
+        final var blocksQuery = new JsonObject().put("profileId", id).put("from", new JsonObject().put("$lte", at))
+            .put("to", new JsonObject().put("$gt", at));
+        return this.searchArchivedHistoricProfiles(blocksQuery, query).map(archived -> {
+
+          archived.sort(HistoricProfilesArchive.comparatorFor(new JsonObject().put("from", -1)));
+          if (archived.isEmpty()) {
+
+            return null;
+
+          } else {
+
+            return archived.get(0);
+          }
+
+        });
+
+      } else {
+
+        return this.resolveHistoricProfiles(found).compose(unresolved -> {
+
+          if (!unresolved.isEmpty()) {
+
+            return Future.failedFuture("Cannot resolve the historic profile of the user " + id + " at " + at + ".");
+          }
+          final var historic = found.get(0);
+          historic.remove("_id");
+          return Future.succeededFuture(historic);
+
+        });
+      }
+
+    });
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void storeProfile(final JsonObject profile, final Handler<AsyncResult<JsonObject>> storeHandler) {
+
+    final var id = (String) profile.remove("id");
+    if (id != null) {
+
+      profile.put("_id", id);
+    }
+    this.invalidateProfile(id, this.storeOneDocument(PROFILES_COLLECTION, profile, stored -> {
+
+      final var _id = (String) stored.remove("_id");
+      return stored.put("id", _id);
+
+    })).onComplete(storeHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateProfile(final JsonObject profile, final Handler<AsyncResult<Void>> updateHandler) {
+
+    final var id = (String) profile.remove("id");
+    final var query = new JsonObject().put("_id", id);
+    this.invalidateProfile(id, this.updateOneDocument(PROFILES_COLLECTION, query, profile))
+        .onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteProfile(final String id, final Handler<AsyncResult<Void>> deleteHandler) {
+
+    final var query = new JsonObject().put("_id", id);
+    this.invalidateProfile(id, this.deleteOneDocument(PROFILES_COLLECTION, query)).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * Remove a profile from the cache when it has been modified.
+   *
+   * @param id           identifier of the modified profile.
+   * @param modification that change the profile.
+   * @param <T>          type of the result of the modification.
+   *
+   * @return the future of the modification.
+   */
+  protected <T> Future<T> invalidateProfile(final String id, final Future<T> modification) {
+
+    return modification.onComplete(any -> {
+
+      if (id != null) {
+
+        this.profilesCache.invalidate(id);
+      }
+
+    });
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void storeHistoricProfile(final JsonObject profile, final Handler<AsyncResult<JsonObject>> storeHandler) {
+
+    final var userProfile = profile.getValue("profile");
+    if (!(userProfile instanceof JsonObject) || ((JsonObject) userProfile).getString("id") == null) {
+
+      this.storeHistoricProfileKeyframe(profile).onComplete(storeHandler);
+
+    } else {
+
+      final var userId = ((JsonObject) userProfile).getString("id");
+      final var query = new JsonObject().put("profile.id", userId);
+      final var options = new FindOptions();
+      options.setSort(new JsonObject().put("from", -1).put("to", -1));
+      options.setLimit(1);
+      final var lastSearch = this.pool.findWithOptions(HISTORIC_PROFILES_COLLECTION, query, options);
+      final var leaseCheck = this.isHistoricProfilesLeased(userId);
+      CompositeFuture.all(lastSearch, leaseCheck).compose(searched -> {
+
+        final var found = lastSearch.result();
+        final var last = found == null || found.isEmpty() ? null : found.get(0);
+        if (last == null || last.getInteger("depth", 0) + 1 >= HISTORIC_PROFILES_KEYFRAME_INTERVAL
+            || leaseCheck.result()) {
+
+          return this.storeHistoricProfileKeyframe(profile);
+
+        } else {
+
+          final var tip = this.getHistoricProfileTip(userId);
+          final Future<JsonObject> resolved;
+          if (tip != null && last.getValue("_id") != null && last.getValue("_id").equals(tip.getValue("_id"))) {
+
+            resolved = Future.succeededFuture(tip);
+
+          } else {
+
+            final var base = last.copy();
+            resolved = this.resolveHistoricProfiles(List.of(base))
+                .map(unresolved -> unresolved.isEmpty() ? base : null);
+          }
+          return resolved.compose(base -> {
+
+            if (base == null) {
+
+              return this.storeHistoricProfileKeyframe(profile);
+            }
+            final var keyframe = last.containsKey("keyframe") ? last.getValue("keyframe") : last.getValue("_id");
+            final var diff = this.createHistoricProfileDifference(profile, base, keyframe,
+                last.getInteger("depth", 0) + 1);
+            if (diff == null) {
+
+              return this.storeHistoricProfileKeyframe(profile);
+
+            } else {
+
+              return this.storeOneDocument(HISTORIC_PROFILES_COLLECTION, diff, value -> {
+
+                this.putHistoricProfileTip(profile.copy().put("_id", value.getValue("_id")));
+                return profile;
+              });
+            }
+
+          });
+        }
+
+      }).onComplete(storeHandler);
+    }
+
+  }
+
+  /**
+   * Create the document to store a historic profile as the differences from
+   * another.
+   *
+   * @param historic profile to store.
+   * @param base     resolved historic profile to calculate the differences from.
+   * @param keyframe identifier of the historic profile that contains the full
+   *                 profile of the chain.
+   * @param depth    number of differences from the keyframe.
+   *
+   * @return the document with the differences, or {@code null} if the historic
+   *         profile has to be stored with all its data.
+   */
+  protected JsonObject createHistoricProfileDifference(final JsonObject historic, final JsonObject base,
+      final Object keyframe, final int depth) {
+
+    final var userProfile = historic.getValue("profile");
+    final var baseProfile = base.getValue("profile");
+    if (depth >= HISTORIC_PROFILES_KEYFRAME_INTERVAL || !(userProfile instanceof JsonObject)
+        || !(baseProfile instanceof JsonObject) || ((JsonObject) baseProfile).size() <= 1
+        || base.getValue("_id") == null || keyframe == null) {
+
+      return null;
+    }
+
+    final var patch = JsonDiffs.diff(baseProfile, userProfile);
+    if (patch.encode().length() >= ((JsonObject) userProfile).encode().length()) {
+
+      return null;
+
+    } else {
+
+      final var diff = historic.copy();
+      diff.put("profile", new JsonObject().put("id", ((JsonObject) userProfile).getValue("id")));
+      diff.put("patch", patch);
+      diff.put("base", base.getValue("_id"));
+      diff.put("keyframe", keyframe);
+      diff.put("depth", depth);
+      return diff;
+    }
+
+  }
+
+  /**
+   * Store a historic profile with all its data.
+   *
+   * @param profile to store.
+   *
+   * @return the future stored profile.
+   */
+  protected Future<JsonObject> storeHistoricProfileKeyframe(final JsonObject profile) {
+
+    return this.storeOneDocument(HISTORIC_PROFILES_COLLECTION, profile, value -> {
+      this.putHistoricProfileTip(value.copy());
+      value.remove("_id");
+      return value;
+    });
+
+  }
+
+  /**
+   * Return the last historic profile that this instance has stored for an user.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the last stored historic profile with all its data, or {@code null}
+   *         if it is not known.
+   */
+  protected JsonObject getHistoricProfileTip(final String userId) {
+
+    synchronized (this.historicProfileTips) {
+
+      return this.historicProfileTips.get(userId);
+    }
+
+  }
+
+  /**
+   * Keep the last historic profile that this instance has stored for an user.
+   *
+   * @param historic profile that has been stored with all its data and its
+   *                 identifier.
+   */
+  protected void putHistoricProfileTip(final JsonObject historic) {
+
+    final var userProfile = historic.getValue("profile");
+    if (userProfile instanceof JsonObject && ((JsonObject) userProfile).getString("id") != null
+        && historic.getValue("_id") != null) {
+
+      synchronized (this.historicProfileTips) {
+
+        this.historicProfileTips.put(((JsonObject) userProfile).getString("id"), historic);
+      }
+    }
+
+  }
+
+  /**
+   * Replace the historic profiles that are stored as differences by the full
+   * profile. For each keyframe that the historic profiles depends on, only one
+   * query is done to obtain all the profiles that are stored as differences from
+   * it. If a chain has been rewritten, the missing bases are obtained with extra
+   * queries. The historic profiles that can not be resolved only maintain the
+   * identifier of the profile, so they must not be used as valid data.
+   *
+   * @param historics historic profiles to resolve.
+   *
+   * @return the future with the historic profiles that can not be resolved.
+   */
+  protected Future<List<JsonObject>> resolveHistoricProfiles(final List<JsonObject> historics) {
+
+    final var keyframes = new JsonArray();
+    for (final var historic : historics) {
+
+      final var keyframe = historic.getValue("keyframe");
+      if (historic.containsKey("patch") && keyframe != null && !keyframes.contains(keyframe)) {
+
+        keyframes.add(keyframe);
+      }
+    }
+
+    if (keyframes.isEmpty()) {
+
+      historics.forEach(ProfilesRepositoryImpl::removeHistoricProfileChainFields);
+      return Future.succeededFuture(new ArrayList<>());
+
+    } else {
+
+      final var in = new JsonObject().put("$in", keyframes);
+      final var query = new JsonObject().put("$or",
+          new JsonArray().add(new JsonObject().put("_id", in)).add(new JsonObject().put("keyframe", in)));
+      final var documents = new HashMap<Object, JsonObject>();
+      return this.findHistoricProfileChains(query, historics, documents, HISTORIC_PROFILES_KEYFRAME_INTERVAL)
+          .map(any -> {
+
+            final var resolved = new HashMap<Object, JsonObject>();
+            final var unresolved = new ArrayList<JsonObject>();
+            for (final var historic : historics) {
+
+              if (historic.containsKey("patch")) {
+
+                final var profile = this.resolveHistoricProfile(historic, documents, resolved);
+                if (profile == null) {
+
+                  Logger.warn("Cannot resolve the historic profile {}.", historic);
+                  unresolved.add(historic);
+
+                } else {
+
+                  historic.put("profile", profile.copy());
+                }
+              }
+              removeHistoricProfileChainFields(historic);
+            }
+            return unresolved;
+
+          });
+    }
+
+  }
+
+  /**
+   * Obtain the historic profiles that are necessary to resolve others.
+   *
+   * @param query     to obtain the historic profiles.
+   * @param historics historic profiles to resolve.
+   * @param documents where add the found historic profiles indexed by its
+   *                  identifier.
+   * @param rounds    maximum number of queries to do.
+   *
+   * @return the future that will be completed when all the historic profiles of
+   *         the chains are found, or the maximum number of queries is done.
+   */
+  protected Future<Void> findHistoricProfileChains(final JsonObject query, final List<JsonObject> historics,
+      final Map<Object, JsonObject> documents, final int rounds) {
+
+    return this.pool.find(HISTORIC_PROFILES_COLLECTION, query).compose(found -> {
+
+      for (final var document : found) {
+
+        documents.put(document.getValue("_id"), document);
+      }
+      final var missing = new JsonArray();
+      for (final var historic : historics) {
+
+        var current = historic;
+        for (var i = 0; current != null && current.containsKey("patch") && i <= documents.size(); i++) {
+
+          final var base = current.getValue("base");
+          current = documents.get(base);
+          if (current == null && base != null && !missing.contains(base)) {
+
+            missing.add(base);
+          }
+        }
+      }
+
+      if (missing.isEmpty() || rounds <= 1) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        final var missingQuery = new JsonObject().put("_id", new JsonObject().put("$in", missing));
+        return this.findHistoricProfileChains(missingQuery, historics, documents, rounds - 1);
+      }
+
+    });
+
+  }
+
+  /**
+   * Obtain the full profile of a historic profile applying the differences from
+   * its keyframe.
+   *
+   * @param historic  to resolve.
+   * @param documents historic profiles of the chain indexed by its identifier.
+   * @param resolved  the profiles that has already been resolved indexed by the
+   *                  identifier of its historic profile.
+   *
+   * @return the full profile, or {@code null} if it can not be resolved.
+   */
+  protected JsonObject resolveHistoricProfile(final JsonObject historic, final Map<Object, JsonObject> documents,
+      final Map<Object, JsonObject> resolved) {
+
+    final var chain = new ArrayList<JsonObject>();
+    JsonObject profile = null;
+    var current = historic;
+    while (current != null && profile == null) {
+
+      final var id = current.getValue("_id");
+      if (resolved.containsKey(id)) {
+
+        profile = resolved.get(id);
+
+      } else if (!current.containsKey("patch")) {
+
+        profile = current.getJsonObject("profile");
+        resolved.put(id, profile);
+
+      } else if (chain.size() > documents.size()) {
+
+        return null;
+
+      } else {
+
+        chain.add(current);
+        current = documents.get(current.getValue("base"));
+      }
+    }
+
+    if (profile != null) {
+
+      try {
+
+        for (var i = chain.size() - 1; i >= 0; i--) {
+
+          final var link = chain.get(i);
+          profile = JsonDiffs.patch(profile, link.getJsonArray("patch"));
+          resolved.put(link.getValue("_id"), profile);
+        }
+
+      } catch (final IllegalArgumentException cause) {
+
+        Logger.warn(cause, "Cannot apply the differences of the historic profile {}.", historic);
+        return null;
+      }
+    }
+    return profile;
+
+  }
+
+  /**
+   * Remove the fields used to store a historic profile as differences.
+   *
+   * @param historic profile to clean.
+   */
+  protected static void removeHistoricProfileChainFields(final JsonObject historic) {
+
+    historic.remove("patch");
+    historic.remove("base");
+    historic.remove("keyframe");
+    historic.remove("depth");
+    historic.remove("retained");
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchHistoricProfilePageObject(final JsonObject query, final JsonObject sort, final int offset,
+      final int limit, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    this.searchHistoricProfilePageObjectWithTotal(query, sort, offset, limit, PageTotals.EXACT, searchHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void searchHistoricProfilePageObjectWithTotal(final JsonObject query, final JsonObject sort,
+      final int offset, final int limit, final String total, final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    this.searchArchivedHistoricProfiles(query).compose(archived -> {
+
+      if (archived.isEmpty()) {
+
+        return this.searchHistoricProfilePageObjectOnCollection(query, sort, offset, limit, total);
+
+      } else {
+
+        final var end = (int) Math.min(Integer.MAX_VALUE, (long) offset + limit);
+        return this.searchHistoricProfilePageObjectOnCollection(query, sort, 0, end, total).map(page -> {
+
+          final var historics = new ArrayList<JsonObject>(archived);
+          final var profiles = page.getJsonArray("profiles", new JsonArray());
+          for (var i = 0; i < profiles.size(); i++) {
+
+            historics.add(profiles.getJsonObject(i));
+          }
+          historics.sort(HistoricProfilesArchive.comparatorFor(sort));
+          final var selected = new JsonArray();
+          for (var i = Math.max(0, offset); i < historics.size() && i < end; i++) {
+
+            selected.add(historics.get(i));
+          }
+          page.put("offset", offset);
+          if (page.containsKey("total")) {
+
+            page.put("total", page.getLong("total") + archived.size());
+          }
+          if (selected.isEmpty()) {
+
+            page.remove("profiles");
+
+          } else {
+
+            page.put("profiles", selected);
+          }
+          return page;
+
+        });
+      }
+
+    }).onComplete(searchHandler);
+
+  }
+
+  /**
+   * Search for a page of the historic profiles that are on the historic profile
+   * collection.
+   *
+   * @param query  to obtain the historic profiles.
+   * @param sort   order to return the historic profiles.
+   * @param offset index of the first historic profile to return.
+   * @param limit  maximum number of historic profiles to return.
+   * @param total  how the number of historic profiles has to be calculated.
+   *
+   * @return the future with the page of resolved historic profiles.
+   */
+  protected Future<JsonObject> searchHistoricProfilePageObjectOnCollection(final JsonObject query,
+      final JsonObject sort, final int offset, final int limit, final String total) {
+
+    final var options = new FindOptions();
+    options.setSkip(offset);
+    options.setLimit(limit);
+    options.setSort(sort);
+    return this.pageTotals.searchPageObject(HISTORIC_PROFILES_COLLECTION, query, options, "profiles", null, total)
+        .compose(page -> {
+
+          final var historics = new ArrayList<JsonObject>();
+          final var profiles = page.getJsonArray("profiles", new JsonArray());
+          for (var i = 0; i < profiles.size(); i++) {
+
+            historics.add(profiles.getJsonObject(i));
+          }
+          return this.resolveHistoricProfiles(historics).map(unresolved -> {
+
+            if (!unresolved.isEmpty()) {
+
+              final var valid = new JsonArray();
+              for (final var historic : historics) {
+
+                if (!unresolved.contains(historic)) {
+
+                  valid.add(historic);
+                }
+              }
+              if (valid.isEmpty()) {
+
+                page.remove("profiles");
+
+              } else {
+
+                page.put("profiles", valid);
+              }
+            }
+            historics.forEach(historic -> historic.remove("_id"));
+            return page;
+          });
+
+        });
+
+  }
+
+  /**
+   * Search for the archived historic profiles that match a query. The query over
+   * the user identifier of the historic profiles is used to select the blocks to
+   * decompress.
+   *
+   * @param query to match the historic profiles.
+   *
+   * @return the future with the archived historic profiles that match the
+   *         query.
+   */
+  protected Future<List<JsonObject>> searchArchivedHistoricProfiles(final JsonObject query) {
+
+    return this.searchArchivedHistoricProfiles(createArchivedBlocksQuery(query), query);
+
+  }
+
+  /**
+   * Create the query to select the archived blocks that can contain the
+   * historic profiles that match a query. The blocks are selected by the user
+   * identifier, and by the period and the time range of the blocks when the
+   * query limits the start or the end of the historic profiles.
+   *
+   * @param query to match the historic profiles.
+   *
+   * @return the query to select the blocks to decompress.
+   */
+  protected static JsonObject createArchivedBlocksQuery(final JsonObject query) {
+
+    final var blocksQuery = new JsonObject();
+    if (query != null) {
+
+      if (query.containsKey("profile.id")) {
+
+        blocksQuery.put("profileId", query.getValue("profile.id"));
+      }
+      final var period = new JsonObject();
+      final var from = boundOf(query.getValue("from"), "$gte", "$gt");
+      if (from != null) {
+
+        period.put("$gte", HistoricProfilesArchive.periodOf(from));
+        blocksQuery.put("to", new JsonObject().put("$gte", from));
+      }
+      final var to = boundOf(query.getValue("to"), "$lte", "$lt");
+      if (to != null) {
+
+        period.put("$lte", HistoricProfilesArchive.periodOf(to));
+        blocksQuery.put("from", new JsonObject().put("$lte", to));
+      }
+      if (!period.isEmpty()) {
+
+        blocksQuery.put("period", period);
+      }
+    }
+    return blocksQuery;
+
+  }
+
+  /**
+   * Obtain the bound that a condition defines over a time stamp.
+   *
+   * @param condition to check.
+   * @param inclusive operator of the inclusive bound.
+   * @param exclusive operator of the exclusive bound.
+   *
+   * @return the bound of the condition, or {@code null} if it does not define
+   *         it.
+   */
+  protected static Long boundOf(final Object condition, final String inclusive, final String exclusive) {
+
+    if (condition instanceof Number) {
+
+      return ((Number) condition).longValue();
+
+    } else if (condition instanceof JsonObject) {
+
+      final var operators = (JsonObject) condition;
+      for (final var operator : List.of("$eq", inclusive, exclusive)) {
+
+        final var value = operators.getValue(operator);
+        if (value instanceof Number) {
+
+          return ((Number) value).longValue();
+        }
+      }
+    }
+    return null;
+
+  }
+
+  /**
+   * Search for the archived historic profiles that match a query.
+   *
+   * @param blocksQuery to select the blocks to decompress.
+   * @param query       to match the historic profiles.
+   *
+   * @return the future with the archived historic profiles that match the
+   *         query.
+   */
+  protected Future<List<JsonObject>> searchArchivedHistoricProfiles(final JsonObject blocksQuery,
+      final JsonObject query) {
+
+    return this.pool.find(HISTORIC_PROFILES_ARCHIVE_COLLECTION, blocksQuery).compose(blocks -> {
+
+      final List<JsonObject> archived = new ArrayList<>();
+      try {
+
+        for (final var block : blocks) {
+
+          final var historics = HistoricProfilesArchive.unpack(block.getString("data"));
+          for (var i = 0; i < historics.size(); i++) {
+
+            final var historic = historics.getJsonObject(i);
+            if (HistoricProfilesArchive.matches(query, historic)) {
+
+              historic.remove("_id");
+              archived.add(historic);
+            }
+          }
+        }
+
+      } catch (final IllegalArgumentException cause) {
+
+        return Future.failedFuture(cause);
+      }
+      return Future.succeededFuture(archived);
+
+    });
+
+  }
+
+  /**
+   * Obtain the identifiers of the users that have some historic profiles where
+   * the retention policy has to be applied.
+   *
+   * @param dailyLimit time stamp, in seconds, where the historic profiles that
+   *                   finish before it are thinned.
+   * @param coldLimit  time stamp, in seconds, where the historic profiles that
+   *                   finish before it are archived.
+   *
+   * @return the future with the identifiers of the users.
+   */
+  protected Future<JsonArray> retrieveHistoricProfileUserIdsBefore(final long dailyLimit, final long coldLimit) {
+
+    final var query = createHistoricProfilesToRetainQuery(dailyLimit, coldLimit);
+    return this.pool.distinct(HISTORIC_PROFILES_COLLECTION, "profile.id", String.class.getName(), query);
+
+  }
+
+  /**
+   * Create the query to match the historic profiles that have to be archived,
+   * or that have to be thinned and they are not already thinned.
+   *
+   * @param dailyLimit time stamp, in seconds, where the historic profiles that
+   *                   finish before it are thinned.
+   * @param coldLimit  time stamp, in seconds, where the historic profiles that
+   *                   finish before it are archived.
+   *
+   * @return the query to the historic profiles where the retention policy has
+   *         to be applied.
+   */
+  protected static JsonObject createHistoricProfilesToRetainQuery(final long dailyLimit, final long coldLimit) {
+
+    return new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().put("to", new JsonObject().put("$lt", coldLimit)))
+            .add(new JsonObject().put("to", new JsonObject().put("$lt", dailyLimit)).put("retained",
+                new JsonObject().put("$ne", true))));
+
+  }
+
+  /**
+   * Check if the retention policy owns the historic profiles of an user.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the future with {@code true} if the historic profiles of the user
+   *         are being rewritten.
+   */
+  protected Future<Boolean> isHistoricProfilesLeased(final String userId) {
+
+    final var query = new JsonObject().put("_id", userId).put("until",
+        new JsonObject().put("$gte", TimeManager.now()));
+    return this.pool.count(HISTORIC_PROFILES_LEASES_COLLECTION, query).map(count -> count > 0);
+
+  }
+
+  /**
+   * Try to own the historic profiles of an user. The lease is obtained if it is
+   * not defined or it has expired.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the future with {@code true} if the lease has been obtained.
+   */
+  protected Future<Boolean> acquireHistoricProfilesLease(final String userId) {
+
+    final var now = TimeManager.now();
+    final var query = new JsonObject().put("_id", userId).put("until", new JsonObject().put("$lt", now));
+    final var update = new JsonObject().put("$set", new JsonObject().put("until", now + HISTORIC_PROFILES_LEASE_TIME));
+    return this.pool.updateCollection(HISTORIC_PROFILES_LEASES_COLLECTION, query, update).compose(updated -> {
+
+      if (updated != null && updated.getDocMatched() > 0) {
+
+        return Future.succeededFuture(true);
+
+      } else {
+
+        final var lease = new JsonObject().put("_id", userId).put("until", now + HISTORIC_PROFILES_LEASE_TIME);
+        return this.pool.insert(HISTORIC_PROFILES_LEASES_COLLECTION, lease).map(true).otherwise(cause -> {
+
+          Logger.trace(cause, "The historic profiles of {} are leased.", userId);
+          return false;
+
+        });
+      }
+
+    });
+
+  }
+
+  /**
+   * Release the historic profiles of an user.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the future that will be completed when the lease is released.
+   */
+  protected Future<Void> releaseHistoricProfilesLease(final String userId) {
+
+    return this.pool.removeDocument(HISTORIC_PROFILES_LEASES_COLLECTION, new JsonObject().put("_id", userId))
+        .mapEmpty();
+
+  }
+
+  /**
+   * Apply the retention policy over the historic profiles of an user. The
+   * historic profiles that finish before a time stamp are thinned to keep only
+   * the last one of each day, and the ones that finish before another time stamp
+   * are moved to the archive. After that the remaining historic profiles of the
+   * chains that have been modified are stored again as a new chain of
+   * differences.
+   *
+   * Only the users with historic profiles that are not archived or thinned yet
+   * are processed, and for them only the chains of these historic profiles are
+   * read. The historic profiles are rewritten while the retention policy owns a
+   * lease over the user, and meanwhile the new historic profiles of the user are
+   * stored with all its data. Also, if a chain can not be resolved, or some
+   * historic profile has been stored since they have been read, the historic
+   * profiles of the user are not modified.
+   *
+   * @param userId     identifier of the user.
+   * @param dailyLimit time stamp, in seconds, where the historic profiles that
+   *                   finish before it are thinned.
+   * @param coldLimit  time stamp, in seconds, where the historic profiles that
+   *                   finish before it are archived.
+   *
+   * @return the future with the number of historic profiles that have been
+   *         removed from the historic profiles collection.
+   */
+  protected Future<Integer> applyHistoricProfilesRetention(final String userId, final long dailyLimit,
+      final long coldLimit) {
+
+    return this.acquireHistoricProfilesLease(userId).compose(acquired -> {
+
+      if (!acquired) {
+
+        return Future.succeededFuture(0);
+      }
+
+      final Promise<Integer> promise = Promise.promise();
+      this.applyHistoricProfilesRetentionWithLease(userId, dailyLimit, coldLimit)
+          .onComplete(applied -> this.releaseHistoricProfilesLease(userId).onComplete(released -> {
+
+            if (released.failed()) {
+
+              Logger.warn(released.cause(), "Cannot release the lease over the historic profiles of {}.", userId);
+            }
+            promise.handle(applied);
+
+          }));
+      return promise.future();
+
+    });
+
+  }
+
+  /**
+   * Apply the retention policy over the historic profiles of an user that is
+   * leased.
+   *
+   * @param userId     identifier of the user.
+   * @param dailyLimit time stamp, in seconds, where the historic profiles that
+   *                   finish before it are thinned.
+   * @param coldLimit  time stamp, in seconds, where the historic profiles that
+   *                   finish before it are archived.
+   *
+   * @return the future with the number of historic profiles that have been
+   *         removed from the historic profiles collection.
+   *
+   * @see #applyHistoricProfilesRetention(String, long, long)
+   */
+  protected Future<Integer> applyHistoricProfilesRetentionWithLease(final String userId, final long dailyLimit,
+      final long coldLimit) {
+
+    final var pendingQuery = createHistoricProfilesToRetainQuery(dailyLimit, coldLimit).put("profile.id", userId);
+    final var firstOptions = new FindOptions().setFields(new JsonObject().put("from", true))
+        .setSort(new JsonObject().put("from", 1)).setLimit(1);
+    return this.pool.findWithOptions(HISTORIC_PROFILES_COLLECTION, pendingQuery, firstOptions).compose(first -> {
+
+      if (first.isEmpty()) {
+
+        return Future.succeededFuture(first);
+      }
+
+      final var day = HistoricProfilesArchive.dayOf(first.get(0).getLong("from", 0l));
+      final var dayStart = day * HistoricProfilesArchive.DAY;
+      final var affectedQuery = new JsonObject().put("profile.id", userId).put("$or",
+          new JsonArray().add(new JsonObject().put("to", new JsonObject().put("$lt", coldLimit)))
+              .add(new JsonObject().put("to", new JsonObject().put("$lt", dailyLimit)).put("from",
+                  new JsonObject().put("$gte", dayStart))));
+      final var keyframeOptions = new FindOptions().setFields(new JsonObject().put("keyframe", true));
+      return this.pool.findWithOptions(HISTORIC_PROFILES_COLLECTION, affectedQuery, keyframeOptions);
+
+    }).compose(affected -> {
+
+      if (affected.isEmpty()) {
+
+        return Future.succeededFuture(0);
+      }
+
+      final var keyframes = new JsonArray();
+      for (final var historic : affected) {
+
+        final var keyframe = historic.containsKey("keyframe") ? historic.getValue("keyframe")
+            : historic.getValue("_id");
+        if (!keyframes.contains(keyframe)) {
+
+          keyframes.add(keyframe);
+        }
+      }
+      final var in = new JsonObject().put("$in", keyframes);
+      final var chainsQuery = new JsonObject().put("profile.id", userId).put("$or",
+          new JsonArray().add(new JsonObject().put("_id", in)).add(new JsonObject().put("keyframe", in)));
+      final var options = new FindOptions();
+      options.setSort(new JsonObject().put("from", 1).put("to", 1));
+      return this.pool.findWithOptions(HISTORIC_PROFILES_COLLECTION, chainsQuery, options)
+          .compose(found -> this.resolveHistoricProfiles(found).compose(unresolved -> {
+
+            if (!unresolved.isEmpty()) {
+
+              Logger.warn("Cannot apply the retention policy over the historic profiles of {}, because {} of them "
+                  + "can not be resolved.", userId, unresolved.size());
+              return Future.succeededFuture(0);
+            }
+
+            final var removed = new JsonArray();
+            final var kept = new ArrayList<JsonObject>();
+            JsonObject lastOfDay = null;
+            for (final var historic : found) {
+
+              final var from = historic.getLong("from", 0l);
+              if (historic.getLong("to", 0l) < dailyLimit) {
+
+                if (lastOfDay != null
+                    && HistoricProfilesArchive.dayOf(lastOfDay.getLong("from", 0l)) == HistoricProfilesArchive
+                        .dayOf(from)) {
+
+                  historic.put("from", lastOfDay.getLong("from"));
+                  removed.add(lastOfDay.getValue("_id"));
+                  kept.remove(kept.size() - 1);
+                }
+                lastOfDay = historic;
+
+              } else {
+
+                lastOfDay = null;
+              }
+              kept.add(historic);
+            }
+
+            final var archived = new ArrayList<JsonObject>();
+            final var remaining = new ArrayList<JsonObject>();
+            for (final var historic : kept) {
+
+              if (historic.getLong("to", 0l) < coldLimit) {
+
+                archived.add(historic);
+                removed.add(historic.getValue("_id"));
+
+              } else {
+
+                remaining.add(historic);
+              }
+            }
+
+            final var read = new JsonArray();
+            found.forEach(historic -> read.add(historic.getValue("_id")));
+            final var storedQuery = new JsonObject().put("profile.id", userId)
+                .put("_id", new JsonObject().put("$nin", read)).put("$or", new JsonArray()
+                    .add(new JsonObject().put("keyframe", in.copy()))
+                    .add(new JsonObject().put("base", new JsonObject().put("$in", read))));
+            return this.pool.count(HISTORIC_PROFILES_COLLECTION, storedQuery).compose(stored -> {
+
+              if (stored > 0) {
+
+                Logger.debug("Postponed the retention policy over the historic profiles of {}, because they have "
+                    + "been modified.", userId);
+                return Future.succeededFuture(0);
+              }
+
+              for (final var historic : remaining) {
+
+                if (historic.getLong("to", 0l) < dailyLimit) {
+
+                  historic.put("retained", true);
+                }
+              }
+              final var deleteQuery = new JsonObject().put("_id", new JsonObject().put("$in", removed));
+              return this.archiveHistoricProfiles(userId, archived)
+                  .compose(empty -> this.rewriteHistoricProfileChain(remaining))
+                  .compose(empty -> {
+
+                    if (removed.isEmpty()) {
+
+                      return Future.succeededFuture(0);
+
+                    } else {
+
+                      return this.pool.removeDocuments(HISTORIC_PROFILES_COLLECTION, deleteQuery)
+                          .map(result -> removed.size());
+                    }
+
+                  });
+
+            });
+
+          }));
+
+    });
+
+  }
+
+  /**
+   * Add some historic profiles of an user to the archive.
+   *
+   * @param userId    identifier of the user.
+   * @param historics resolved historic profiles to archive.
+   *
+   * @return the future that will be completed when the historic profiles are
+   *         archived.
+   */
+  protected Future<Void> archiveHistoricProfiles(final String userId, final List<JsonObject> historics) {
+
+    final var periods = new HashMap<Long, List<JsonObject>>();
+    for (final var historic : historics) {
+
+      final var period = HistoricProfilesArchive.periodOf(historic.getLong("from", 0l));
+      periods.computeIfAbsent(period, key -> new ArrayList<>()).add(historic);
+    }
+
+    Future<Void> future = Future.succeededFuture();
+    for (final var entry : periods.entrySet()) {
+
+      future = future.compose(empty -> this.archiveHistoricProfilesOnBlock(userId, entry.getKey(), entry.getValue()));
+    }
+    return future;
+
+  }
+
+  /**
+   * Add some historic profiles of an user to the block of a period.
+   *
+   * @param userId    identifier of the user.
+   * @param period    of the historic profiles.
+   * @param historics resolved historic profiles to add into the block.
+   *
+   * @return the future that will be completed when the block is stored.
+   */
+  protected Future<Void> archiveHistoricProfilesOnBlock(final String userId, final long period,
+      final List<JsonObject> historics) {
+
+    final var blockId = userId + "|" + period;
+    return this.pool.findOne(HISTORIC_PROFILES_ARCHIVE_COLLECTION, new JsonObject().put("_id", blockId), null)
+        .compose(block -> {
+
+          final var merged = new HashMap<Object, JsonObject>();
+          if (block != null) {
+
+            final var previous = HistoricProfilesArchive.unpack(block.getString("data"));
+            for (var i = 0; i < previous.size(); i++) {
+
+              final var historic = previous.getJsonObject(i);
+              merged.put(historic.getValue("_id"), historic);
+            }
+          }
+          for (final var historic : historics) {
+
+            final var archived = historic.copy();
+            archived.remove(SCHEMA_VERSION);
+            merged.put(archived.getValue("_id"), archived);
+          }
+          final var sorted = new ArrayList<JsonObject>(merged.values());
+          sorted.sort(HistoricProfilesArchive.comparatorFor(new JsonObject().put("from", 1).put("to", 1)));
+          final var data = new JsonArray();
+          sorted.forEach(data::add);
+          final var document = new JsonObject().put("_id", blockId).put("profileId", userId).put("period", period)
+              .put("from", sorted.get(0).getLong("from", 0l))
+              .put("to", sorted.get(sorted.size() - 1).getLong("to", 0l)).put("count", sorted.size())
+              .put("codec", HistoricProfilesArchive.CODEC).put("data", HistoricProfilesArchive.pack(data))
+              .put(SCHEMA_VERSION, this.schemaVersion);
+          return this.pool.save(HISTORIC_PROFILES_ARCHIVE_COLLECTION, document).mapEmpty();
+
+        });
+
+  }
+
+  /**
+   * Store again some historic profiles as a new chain of differences. The
+   * historic profiles maintain its identifiers, so the historic profiles that
+   * has been stored as differences from them can be resolved.
+   *
+   * @param historics resolved historic profiles sorted by time.
+   *
+   * @return the future that will be completed when the historic profiles are
+   *         stored.
+   */
+  protected Future<Void> rewriteHistoricProfileChain(final List<JsonObject> historics) {
+
+    if (historics.isEmpty()) {
+
+      return Future.succeededFuture();
+    }
+
+    final var operations = new ArrayList<BulkOperation>();
+    JsonObject previous = null;
+    Object keyframe = null;
+    var depth = 0;
+    for (final var historic : historics) {
+
+      final var id = historic.getValue("_id");
+      var document = previous == null ? null
+          : this.createHistoricProfileDifference(historic, previous, keyframe, depth + 1);
+      if (document == null) {
+
+        document = historic.copy();
+        keyframe = id;
+        depth = 0;
+
+      } else {
+
+        depth++;
+      }
+      document.put(SCHEMA_VERSION, this.schemaVersion);
+      operations.add(BulkOperation.createReplace(new JsonObject().put("_id", id), document));
+      previous = historic;
+    }
+    return this.pool.bulkWrite(HISTORIC_PROFILES_COLLECTION, operations).mapEmpty();
+
+  }
+
+  /**
+   * Migrate the collections to the current version. The steps that has been
+   * already applied are skipped.
+   *
+   * @return the future that will inform if the migration is a success or not.
+   *
+   * @see MigrationLedger
+   */
+  public Future<Void> migrateDocumentsToCurrentVersions() {
+
+    final var ledger = new MigrationLedger(this.pool, this.schemaVersion);
+    return ledger.apply("profiles.fixDuplicatedRelationships", step -> this.migrateFixingDuplicatedRelationships())
+        .compose(empty -> ledger.apply("profiles.moveRelationshipsToItsOwnCollection",
+            this::migrateProfileRelationshipsToItsOwnCollection))
+        .compose(empty -> ledger.apply("profiles.schemaVersion." + this.schemaVersion,
+            step -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, PROFILES_COLLECTION)))
+        .compose(empty -> this.migrateHistoricProfilesToCurrentVersions());
+
+  }
+
+  /**
+   * Migrate the historic profiles to the current version. The steps that has
+   * been already applied are skipped.
+   *
+   * @return the future that will inform if the migration is a success or not.
+   *
+   * @see MigrationLedger
+   */
+  public Future<Void> migrateHistoricProfilesToCurrentVersions() {
 
-    super(vertx, pool, version);
+    final var ledger = new MigrationLedger(this.pool, this.schemaVersion);
+    return ledger
+        .apply("historicProfiles.deleteRelationships", step -> this.migrateDeletingRelationshipsOnHistoricProfiles())
+        .compose(empty -> ledger.apply("historicProfiles.schemaVersion." + this.schemaVersion,
+            step -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, HISTORIC_PROFILES_COLLECTION)));
 
   }
 
@@ -72,13 +1856,47 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * {@inheritDoc}
    */
   @Override
-  public void searchProfile(final String id, final Handler<AsyncResult<JsonObject>> searchHandler) {
+  public void retrieveProfileUserIdsPageObject(final int offset, final int limit,
+      final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    final var options = new FindOptions();
+    options.setFields(new JsonObject().put("_id", true));
+    options.setSort(PROFILES_PAGE_SORT.copy());
+    options.setSkip(offset);
+    options.setLimit(limit);
+    this.searchPageObject(PROFILES_COLLECTION, new JsonObject(), options, "profiles", null).compose(page -> {
+
+      final var userIds = new JsonArray();
+      page.put("userIds", userIds);
+      final var profiles = (JsonArray) page.remove("profiles");
+      if (profiles != null) {
+
+        for (var i = 0; i < profiles.size(); i++) {
+
+          final var profile = profiles.getJsonObject(i);
+          final var id = profile.getString("_id");
+          userIds.add(id);
+
+        }
+      }
+      return Future.succeededFuture(page);
 
-    final var query = new JsonObject().put("_id", id);
-    this.findOneDocument(PROFILES_COLLECTION, query, null, found -> {
-      final var _id = (String) found.remove("_id");
-      return found.put("id", _id);
     }).onComplete(searchHandler);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveProfilesPageObject(final int offset, final int limit,
+      final Handler<AsyncResult<JsonObject>> searchHandler) {
+
+    final var options = new FindOptions();
+    options.setSort(PROFILES_PAGE_SORT.copy());
+    options.setSkip(offset);
+    options.setLimit(limit);
+    this.searchPageObject(PROFILES_COLLECTION, new JsonObject(), options, "profiles", this::toProfileModel)
+        .onComplete(searchHandler);
 
   }
 
@@ -86,19 +1904,23 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * {@inheritDoc}
    */
   @Override
-  public void storeProfile(final JsonObject profile, final Handler<AsyncResult<JsonObject>> storeHandler) {
+  public void retrieveProfileUserIdsPageObjectAfter(final String cursor, final int limit,
+      final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    final var id = (String) profile.remove("id");
-    if (id != null) {
+    final var fields = new JsonObject().put("_id", true).put("_creationTs", true);
+    KeysetPages.searchPage(this.pool, PROFILES_COLLECTION, new JsonObject(), PROFILES_PAGE_SORT.copy(), fields, cursor,
+        limit, "profiles", null).map(page -> {
 
-      profile.put("_id", id);
-    }
-    this.storeOneDocument(PROFILES_COLLECTION, profile, stored -> {
+          final var userIds = new JsonArray();
+          final var profiles = (JsonArray) page.remove("profiles");
+          for (var i = 0; i < profiles.size(); i++) {
 
-      final var _id = (String) stored.remove("_id");
-      return stored.put("id", _id);
+            final var profile = profiles.getJsonObject(i);
+            userIds.add(profile.getString("_id"));
+          }
+          return page.put("userIds", userIds);
 
-    }).onComplete(storeHandler);
+        }).onComplete(searchHandler);
 
   }
 
@@ -106,22 +1928,31 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * {@inheritDoc}
    */
   @Override
-  public void updateProfile(final JsonObject profile, final Handler<AsyncResult<Void>> updateHandler) {
+  public void retrieveProfilesPageObjectAfter(final String cursor, final int limit,
+      final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    final var id = profile.remove("id");
-    final var query = new JsonObject().put("_id", id);
-    this.updateOneDocument(PROFILES_COLLECTION, query, profile).onComplete(updateHandler);
+    KeysetPages.searchPage(this.pool, PROFILES_COLLECTION, new JsonObject(), PROFILES_PAGE_SORT.copy(), null, cursor,
+        limit, "profiles", this::toProfileModel).onComplete(searchHandler);
 
   }
 
   /**
-   * {@inheritDoc}
+   * Convert a stored profile into the profile model. If the profile is stored
+   * with an old schema version it is upgraded.
+   *
+   * @param profile that has been read from the database. It is modified to be
+   *                the profile model.
    */
-  @Override
-  public void deleteProfile(final String id, final Handler<AsyncResult<Void>> deleteHandler) {
+  protected void toProfileModel(final JsonObject profile) {
 
-    final var query = new JsonObject().put("_id", id);
-    this.deleteOneDocument(PROFILES_COLLECTION, query).onComplete(deleteHandler);
+    if (this.profileUpgrades.isOutdated(profile)) {
+
+      final var upgraded = this.profileUpgrades.upgrade(profile);
+      profile.clear();
+      profile.mergeIn(upgraded);
+    }
+    profile.remove(SCHEMA_VERSION);
+    profile.put("id", profile.remove("_id"));
 
   }
 
@@ -129,12 +1960,29 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * {@inheritDoc}
    */
   @Override
-  public void storeHistoricProfile(final JsonObject profile, final Handler<AsyncResult<JsonObject>> storeHandler) {
+  public void retrieveProjectedProfilesPageObject(final int offset, final int limit, final List<String> fields,
+      final String total, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    this.storeOneDocument(HISTORIC_PROFILES_COLLECTION, profile, value -> {
-      value.remove("_id");
-      return value;
-    }).onComplete(storeHandler);
+    final JsonObject projection;
+    try {
+
+      projection = FieldsProjections.createProjection(fields);
+
+    } catch (final IllegalArgumentException error) {
+
+      searchHandler.handle(Future.failedFuture(error));
+      return;
+    }
+    final var options = new FindOptions();
+    if (projection != null) {
+
+      options.setFields(projection);
+    }
+    options.setSort(PROFILES_PAGE_SORT.copy());
+    options.setSkip(offset);
+    options.setLimit(limit);
+    this.searchPageObject(PROFILES_COLLECTION, new JsonObject(), options, "profiles",
+        profile -> profile.put("id", profile.remove("_id")), total).onComplete(searchHandler);
 
   }
 
@@ -142,31 +1990,76 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * {@inheritDoc}
    */
   @Override
-  public void searchHistoricProfilePageObject(final JsonObject query, final JsonObject sort, final int offset,
-      final int limit, final Handler<AsyncResult<JsonObject>> searchHandler) {
+  public void retrieveProjectedProfilesPageObjectAfter(final String cursor, final int limit,
+      final List<String> fields, final Handler<AsyncResult<JsonObject>> searchHandler) {
 
-    final var options = new FindOptions();
-    options.setSkip(offset);
-    options.setLimit(limit);
-    options.getFields().put("_id", false);
-    options.setSort(sort);
-    this.searchPageObject(HISTORIC_PROFILES_COLLECTION, query, options, "profiles", value -> value.remove("_id"))
-        .onComplete(searchHandler);
+    final JsonObject projection;
+    try {
+
+      projection = FieldsProjections.createProjection(fields);
+
+    } catch (final IllegalArgumentException error) {
+
+      searchHandler.handle(Future.failedFuture(error));
+      return;
+    }
+    final var sort = PROFILES_PAGE_SORT.copy();
+    final var withoutSortKeys = new ArrayList<String>();
+    if (projection != null) {
+
+      // The sort keys are necessary to calculate the next cursor
+      for (final var key : sort.fieldNames()) {
+
+        if (!projection.containsKey(key)) {
+
+          projection.put(key, true);
+          withoutSortKeys.add(key);
+        }
+      }
+    }
+    KeysetPages.searchPage(this.pool, PROFILES_COLLECTION, new JsonObject(), sort, projection, cursor, limit,
+        "profiles", profile -> {
+
+          for (final var key : withoutSortKeys) {
+
+            profile.remove(key);
+          }
+          profile.put("id", profile.remove("_id"));
+
+        }).onComplete(searchHandler);
 
   }
 
   /**
-   * Migrate the collections to the current version.
+   * Update a profile and return it before the modification.
    *
-   * @return the future that will inform if the migration is a success or not.
+   * @param query        to select the profile to update.
+   * @param update       to apply.
+   * @param withPrevious is {@code true} if has to return all the profile
+   *                     fields, otherwise only its identifier is returned.
+   *
+   * @return the future with the profile before the update, or {@code null} if
+   *         not any profile match the query.
    */
-  public Future<Void> migrateDocumentsToCurrentVersions() {
+  protected Future<JsonObject> findProfileAndUpdate(final JsonObject query, final JsonObject update,
+      final boolean withPrevious) {
+
+    final var findOptions = new FindOptions();
+    if (!withPrevious) {
+
+      findOptions.setFields(new JsonObject().put("_id", true));
+    }
+    final var modification = this.pool.findOneAndUpdateWithOptions(PROFILES_COLLECTION, query, update, findOptions,
+        new UpdateOptions());
+    return this.invalidateProfile(query.getString("_id"), modification).map(previous -> {
+
+      if (previous != null) {
+
+        previous.put("id", previous.remove("_id"));
+      }
+      return previous;
 
-    return this.migrateFixingDuplicatedRelationships()
-        .compose(empty -> this.migrateProfileRelationshipsToItsOwnCollection())
-        .compose(empty -> this.migrateDeletingRelationshipsOnHistoricProfiles())
-        .compose(empty -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, PROFILES_COLLECTION))
-        .compose(empty -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, HISTORIC_PROFILES_COLLECTION));
+    });
 
   }
 
@@ -174,47 +2067,154 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    * {@inheritDoc}
    */
   @Override
-  public void retrieveProfileUserIdsPageObject(final int offset, final int limit,
-      final Handler<AsyncResult<JsonObject>> searchHandler) {
+  public void addProfileFieldElement(final String userId, final String field, final JsonObject element,
+      final boolean withPrevious, final Handler<AsyncResult<JsonObject>> updateHandler) {
 
-    final var options = new FindOptions();
-    options.setFields(new JsonObject().put("_id", true));
-    options.setSort(new JsonObject().put("_creationTs", 1).put("_id", 1));
-    options.setSkip(offset);
-    options.setLimit(limit);
-    this.searchPageObject(PROFILES_COLLECTION, new JsonObject(), options, "profiles", null).compose(page -> {
+    final var now = TimeManager.now();
+    final var query = new JsonObject().put("_id", userId).put(field, new JsonObject().put("$type", "array"));
+    final var elementId = element.getValue("id");
+    if (elementId != null) {
 
-      final var userIds = new JsonArray();
-      page.put("userIds", userIds);
-      final var profiles = (JsonArray) page.remove("profiles");
-      if (profiles != null) {
+      query.put(field + ".id", new JsonObject().put("$ne", elementId));
+    }
+    final var push = new JsonObject().put("$push", new JsonObject().put(field, element)).put("$set",
+        new JsonObject().put("_lastUpdateTs", now));
+    this.findProfileAndUpdate(query, push, withPrevious).compose(previous -> {
 
-        for (var i = 0; i < profiles.size(); i++) {
+      if (previous != null) {
 
-          final var profile = profiles.getJsonObject(i);
-          final var id = profile.getString("_id");
-          userIds.add(id);
+        return Future.succeededFuture(previous);
 
-        }
+      } else {
+
+        // The field may be not defined or null
+        final var undefinedQuery = new JsonObject().put("_id", userId).putNull(field);
+        final var set = new JsonObject().put("$set",
+            new JsonObject().put(field, new JsonArray().add(element)).put("_lastUpdateTs", now));
+        return this.findProfileAndUpdate(undefinedQuery, set, withPrevious);
       }
-      return Future.succeededFuture(page);
 
-    }).onComplete(searchHandler);
+    }).onComplete(updateHandler);
+
   }
 
   /**
    * {@inheritDoc}
    */
   @Override
-  public void retrieveProfilesPageObject(final int offset, final int limit,
-      final Handler<AsyncResult<JsonObject>> searchHandler) {
+  public void updateProfileFieldElementById(final String userId, final String field, final String elementId,
+      final JsonObject element, final boolean withPrevious, final Handler<AsyncResult<JsonObject>> updateHandler) {
 
-    final var options = new FindOptions();
-    options.setSort(new JsonObject().put("_creationTs", 1).put("_id", 1));
-    options.setSkip(offset);
-    options.setLimit(limit);
-    this.searchPageObject(PROFILES_COLLECTION, new JsonObject(), options, "profiles",
-        profile -> profile.put("id", profile.remove("_id"))).onComplete(searchHandler);
+    final var query = new JsonObject().put("_id", userId).put(field + ".id", elementId);
+    final var update = new JsonObject().put("$set",
+        new JsonObject().put(field + ".$", element).put("_lastUpdateTs", TimeManager.now()));
+    this.findProfileAndUpdate(query, update, withPrevious).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateProfileFieldElementByIndex(final String userId, final String field, final int index,
+      final JsonObject element, final boolean withPrevious, final Handler<AsyncResult<JsonObject>> updateHandler) {
+
+    if (index < 0) {
+
+      updateHandler.handle(Future.succeededFuture());
+
+    } else {
+
+      final var elementField = field + "." + index;
+      final var query = new JsonObject().put("_id", userId).put(elementField,
+          new JsonObject().put("$exists", true));
+      final var update = new JsonObject().put("$set",
+          new JsonObject().put(elementField, element).put("_lastUpdateTs", TimeManager.now()));
+      this.findProfileAndUpdate(query, update, withPrevious).onComplete(updateHandler);
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteProfileFieldElementById(final String userId, final String field, final String elementId,
+      final boolean withPrevious, final Handler<AsyncResult<JsonObject>> deleteHandler) {
+
+    final var query = new JsonObject().put("_id", userId).put(field + ".id", elementId);
+    final var update = new JsonObject()
+        .put("$pull", new JsonObject().put(field, new JsonObject().put("id", elementId)))
+        .put("$set", new JsonObject().put("_lastUpdateTs", TimeManager.now()));
+    this.findProfileAndUpdate(query, update, withPrevious).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * The element is removed with an aggregation pipeline update, because MongoDB
+   * can not remove an array element by its position with an update operator.
+   * When the previous profile is required, it is read first and the update is
+   * only done if the profile has not been modified since then.
+   */
+  @Override
+  public void deleteProfileFieldElementByIndex(final String userId, final String field, final int index,
+      final boolean withPrevious, final Handler<AsyncResult<JsonObject>> deleteHandler) {
+
+    if (index < 0) {
+
+      deleteHandler.handle(Future.succeededFuture());
+      return;
+    }
+
+    final var query = new JsonObject().put("_id", userId).put(field + "." + index,
+        new JsonObject().put("$exists", true));
+    final Future<JsonObject> search;
+    if (withPrevious) {
+
+      search = this.pool.findOne(PROFILES_COLLECTION, query, null);
+
+    } else {
+
+      search = Future.succeededFuture(new JsonObject().put("_id", userId));
+    }
+    search.compose(previous -> {
+
+      if (previous == null) {
+
+        return Future.succeededFuture();
+      }
+
+      final var guard = query.copy();
+      if (withPrevious) {
+
+        guard.put("_lastUpdateTs", previous.getValue("_lastUpdateTs"));
+      }
+      final var array = "$" + field;
+      final var removed = new JsonObject().put("$concatArrays",
+          new JsonArray().add(new JsonObject().put("$slice", new JsonArray().add(array).add(index)))
+              .add(new JsonObject().put("$slice", new JsonArray().add(array).add(index + 1)
+                  .add(new JsonObject().put("$size", array)))));
+      final var pipeline = new JsonArray().add(new JsonObject().put("$set", new JsonObject().put(field, removed)
+          .put("_lastUpdateTs", new JsonObject().put("$literal", TimeManager.now()))));
+      final var modification = this.pool.updateCollectionWithOptions(PROFILES_COLLECTION, guard, pipeline,
+          new UpdateOptions());
+      return this.invalidateProfile(userId, modification).map(result -> {
+
+        if (result.getDocMatched() == 0) {
+
+          return null;
+
+        } else {
+
+          previous.put("id", previous.remove("_id"));
+          return previous;
+        }
+
+      });
+
+    }).onComplete(deleteHandler);
 
   }
 
@@ -238,11 +2238,28 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
 
   /**
    * {@inheritDoc}
+   *
+   * The cached profiles are not searched, and the others are checked with a
+   * query that only returns the identifier of the profile.
    */
   @Override
   public void isProfileDefined(final String id, final Handler<AsyncResult<Boolean>> searchHandler) {
 
-    this.searchProfile(id).onComplete(search -> searchHandler.handle(Future.succeededFuture(search.result() != null)));
+    if (id == null) {
+
+      searchHandler.handle(Future.succeededFuture(false));
+
+    } else if (this.profilesCache.isCached(id)) {
+
+      searchHandler.handle(Future.succeededFuture(true));
+
+    } else {
+
+      final var query = new JsonObject().put("_id", id);
+      final var projection = new JsonObject().put("_id", true);
+      this.pool.findOne(PROFILES_COLLECTION, query, projection).map(found -> found != null)
+          .onComplete(searchHandler);
+    }
 
   }
 
@@ -253,48 +2270,95 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
    */
   protected Future<Void> migrateProfileRelationshipsToItsOwnCollection() {
 
-    final Promise<Void> promise = Promise.promise();
+    return this.migrateProfileRelationshipsToItsOwnCollection(
+        MigrationLedger.Step.unrecorded("profiles.moveRelationshipsToItsOwnCollection"));
+
+  }
+
+  /**
+   * Move the profile relationships to the {@link RelationshipsRepository}. The
+   * profiles are processed in batches sorted by identifier, and the
+   * relationships of each batch are stored with only one bulk write.
+   *
+   * @param step progress of the migration.
+   *
+   * @return the future with the update result.
+   */
+  protected Future<Void> migrateProfileRelationshipsToItsOwnCollection(final MigrationLedger.Step step) {
+
+    final var versionQuery = this.createQueryToReturnDocumentsWithAVersionLessThan("1.0.0");
     final var query = new JsonObject().put("$and",
-        new JsonArray().add(this.createQueryToReturnDocumentsWithAVersionLessThan("1.0.0"))
-            .add(new JsonObject("{\"relationships\":{\"$exists\":true}}"))
+        new JsonArray().add(versionQuery).add(new JsonObject("{\"relationships\":{\"$exists\":true}}"))
             .add(new JsonObject("{\"relationships\":{\"$not\":{\"$size\":0}}}")));
-    final var findStream = this.pool.findBatch(PROFILES_COLLECTION, query);
-    findStream.handler(profile -> {
-
-      final var id = profile.getString("_id");
-      final var relationships = profile.getJsonArray("relationships");
-      findStream.pause();
-      @SuppressWarnings("rawtypes")
-      final List<Future> inserts = new ArrayList<>();
-      final var max = relationships.size();
-      for (var i = 0; i < max; i++) {
-
-        final var relationship = relationships.getJsonObject(i);
-        relationship.put("sourceId", id);
-        relationship.put("targetId", relationship.remove("userId"));
-        relationship.put(SCHEMA_VERSION, "1.0.0");
-        inserts.add(this.pool.insert(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION, relationship));
-      }
+    return this.migrateProfileRelationshipsBatch(query, step).compose(any -> {
+
+      final var options = new UpdateOptions();
+      options.setMulti(true);
+      final var unsetQuery = new JsonObject().put("$and", new JsonArray().add(versionQuery.copy())
+          .add(new JsonObject("{\"relationships\":{\"$exists\":true}}")));
+      return this.pool.updateCollectionWithOptions(PROFILES_COLLECTION, unsetQuery,
+          new JsonObject().put("$unset", new JsonObject().put("relationships", "")), options).map(updated -> null);
+
+    });
 
-      CompositeFuture.all(inserts).onComplete(inserted -> {
+  }
+
+  /**
+   * Move the relationships of the next batch of profiles to the
+   * {@link RelationshipsRepository}, and continue with the following batches.
+   *
+   * @param query to match the profiles with relationships to move.
+   * @param step  progress of the migration.
+   *
+   * @return the future that will be completed when all the batches are moved.
+   */
+  protected Future<Void> migrateProfileRelationshipsBatch(final JsonObject query, final MigrationLedger.Step step) {
+
+    var batchQuery = query;
+    final var checkpoint = step.getCheckpoint();
+    if (checkpoint != null) {
+
+      batchQuery = new JsonObject().put("$and",
+          new JsonArray().add(query).add(new JsonObject().put("_id", new JsonObject().put("$gt", checkpoint))));
+    }
+    final var options = new FindOptions();
+    options.setSort(new JsonObject().put("_id", 1)).setLimit(MigrationLedger.BATCH_SIZE);
+    options.setFields(new JsonObject().put("relationships", true));
+    return this.pool.findWithOptions(PROFILES_COLLECTION, batchQuery, options).compose(profiles -> {
+
+      if (profiles.isEmpty()) {
+
+        return Future.succeededFuture();
 
-        if (inserted.failed()) {
+      } else {
 
-          promise.tryFail(inserted.cause());
+        final var operations = new ArrayList<BulkOperation>();
+        for (final var profile : profiles) {
 
+          final var relationships = profile.getJsonArray("relationships");
+          operations.addAll(createRelationshipOperations(profile.getString("_id"), relationships));
         }
-        findStream.resume();
 
-      });
+        Future<?> write = Future.succeededFuture();
+        if (!operations.isEmpty()) {
 
-    }).exceptionHandler(error -> promise.tryFail(error)).endHandler(any -> promise.tryComplete());
-    return promise.future().compose(any -> {
+          write = this.pool.bulkWrite(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION, operations)
+              .onSuccess(written -> this.publishRelationshipsChanged(operations));
+        }
+        final var lastId = profiles.get(profiles.size() - 1).getValue("_id");
+        return write.compose(written -> step.checkpoint(lastId, profiles.size())).compose(empty -> {
 
-      final var options = new UpdateOptions();
-      options.setMulti(true);
-      query.getJsonArray("$and").remove(2);
-      return this.pool.updateCollectionWithOptions(PROFILES_COLLECTION, query,
-          new JsonObject().put("$unset", new JsonObject().put("relationships", "")), options).map(updated -> null);
+          if (profiles.size() < MigrationLedger.BATCH_SIZE) {
+
+            return Future.succeededFuture();
+
+          } else {
+
+            return this.migrateProfileRelationshipsBatch(query, step);
+          }
+
+        });
+      }
 
     });
 
@@ -321,7 +2385,10 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
           } else {
 
             final Promise<Void> promise = Promise.promise();
-            final var dupPipeline = new JsonArray().add(new JsonObject().put("$sort", new JsonObject().put("from", 1)))
+            final var dupPipeline = new JsonArray()
+                .add(new JsonObject().put("$match",
+                    new JsonObject().put("patch", new JsonObject().put("$exists", false))))
+                .add(new JsonObject().put("$sort", new JsonObject().put("from", 1)))
                 .add(new JsonObject().put("$group", new JsonObject()
                     .put("_id", new JsonObject().put("$function", new JsonObject().put("body",
                         "function(profile){ var str = JSON.stringify(profile); var hash = 0; for (var i = 0; i < str.length; i++) { var character = str.charCodeAt(i); hash = ((hash<<5)-hash)+character; hash = hash & hash;} return hash;}")
@@ -361,7 +2428,44 @@ public class ProfilesRepositoryImpl extends Repository implements ProfilesReposi
   public void deleteHistoricProfile(final String id, final Handler<AsyncResult<Void>> deleteHandler) {
 
     final var query = new JsonObject().put("profile.id", id);
-    this.deleteDocuments(HISTORIC_PROFILES_COLLECTION, query).onComplete(deleteHandler);
+    final var archiveQuery = new JsonObject().put("profileId", id);
+    this.pool.removeDocuments(HISTORIC_PROFILES_COLLECTION, query).compose(
+        removed -> this.pool.removeDocuments(HISTORIC_PROFILES_ARCHIVE_COLLECTION, archiveQuery).compose(archived -> {
+
+          if (removed.getRemovedCount() + archived.getRemovedCount() == 0) {
+
+            return Future.<Void>failedFuture("Not found any historic profile to delete.");
+
+          } else {
+
+            return Future.<Void>succeededFuture();
+          }
+
+        })).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteHistoricProfilesBatch(final JsonArray userIds, final int limit,
+      final Handler<AsyncResult<Integer>> deleteHandler) {
+
+    BatchDeletes.deleteBatch(this.pool, HISTORIC_PROFILES_COLLECTION, BatchDeletes.in("profile.id", userIds), limit)
+        .compose(deleted -> {
+
+          if (deleted >= limit) {
+
+            return Future.succeededFuture(deleted);
+
+          } else {
+
+            return BatchDeletes.deleteBatch(this.pool, HISTORIC_PROFILES_ARCHIVE_COLLECTION,
+                BatchDeletes.in("profileId", userIds), limit - deleted).map(archived -> deleted + archived);
+          }
+
+        }).onComplete(deleteHandler);
 
   }
 }
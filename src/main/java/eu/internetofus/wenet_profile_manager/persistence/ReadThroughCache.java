@@ -0,0 +1,520 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import java.util.LinkedHashMap;
+import java.util.function.Function;
+import org.tinylog.Logger;
+
+/**
+ * A bounded cache of the documents that are read from a repository. The values
+ * expire after a time to live, and when the cache is full a new value is only
+ * admitted if it has been requested more frequently than the least recently
+ * used one, as TinyLFU does.
+ *
+ * The invalidations are published on the event bus, thus the caches of the
+ * other instances of the component that use the same database remove the
+ * modified values too.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class ReadThroughCache {
+
+  /**
+   * The prefix of the address where the invalidations are published.
+   */
+  public static final String INVALIDATIONS_ADDRESS_PREFIX = "wenet_profile_manager.persistence.cache.";
+
+  /**
+   * The default maximum number of values to cache.
+   */
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  /**
+   * The default time, in milliseconds, that a value is cached.
+   */
+  public static final long DEFAULT_TIME_TO_LIVE = 60000L;
+
+  /**
+   * The default milliseconds between the reports of the cache metrics.
+   */
+  public static final long DEFAULT_METRICS_PERIOD = 300000L;
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The name of the cached values.
+   */
+  protected String name;
+
+  /**
+   * The maximum number of values to cache.
+   */
+  protected int maxSize;
+
+  /**
+   * The time, in milliseconds, that a value is cached.
+   */
+  protected long timeToLive;
+
+  /**
+   * The cached values in access order, so the first one is the least recently
+   * used.
+   */
+  protected LinkedHashMap<String, CachedValue> values = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * The estimation of how frequently the keys are requested.
+   */
+  protected FrequencySketch sketch;
+
+  /**
+   * The number of invalidations that have been done. It is used to not cache a
+   * value that has been read before an invalidation.
+   */
+  protected long generation;
+
+  /**
+   * The number of requests that have been answered by the cache.
+   */
+  protected long hits;
+
+  /**
+   * The number of requests that have not been answered by the cache.
+   */
+  protected long misses;
+
+  /**
+   * The number of values that have been removed to make room for others.
+   */
+  protected long evictions;
+
+  /**
+   * The number of values that have not been cached because they are less
+   * frequently requested than the values on the cache.
+   */
+  protected long rejections;
+
+  /**
+   * A value that has been cached.
+   */
+  protected static class CachedValue {
+
+    /**
+     * The cached value.
+     */
+    public JsonObject value;
+
+    /**
+     * The time when the value expires.
+     */
+    public long expiresAt;
+
+  }
+
+  /**
+   * Create the cache.
+   *
+   * @param vertx      event bus to use.
+   * @param name       of the cached values.
+   * @param maxSize    maximum number of values to cache. If it is zero or less
+   *                   the values are not cached.
+   * @param timeToLive time, in milliseconds, that a value is cached. If it is
+   *                   zero or less the values are not cached.
+   */
+  public ReadThroughCache(final Vertx vertx, final String name, final int maxSize, final long timeToLive) {
+
+    this.vertx = vertx;
+    this.name = name;
+    this.maxSize = maxSize;
+    this.timeToLive = timeToLive;
+    this.sketch = new FrequencySketch(Math.max(1, maxSize));
+
+  }
+
+  /**
+   * Create a cache with the parameters defined on a configuration.
+   *
+   * @param vertx event bus to use.
+   * @param name  of the cached values.
+   * @param conf  configuration of the profile manager.
+   *
+   * @return the cache defined on the configuration.
+   */
+  public static ReadThroughCache create(final Vertx vertx, final String name, final JsonObject conf) {
+
+    final var maxSize = Integer.parseInt(String.valueOf(conf.getValue("cacheMaxSize", DEFAULT_MAX_SIZE)));
+    final var timeToLive = Long
+        .parseLong(String.valueOf(conf.getValue("cacheTimeToLive", DEFAULT_TIME_TO_LIVE)));
+    return new ReadThroughCache(vertx, name, maxSize, timeToLive);
+
+  }
+
+  /**
+   * Check if the values are cached.
+   *
+   * @return {@code true} if the values are cached.
+   */
+  public boolean isEnabled() {
+
+    return this.maxSize > 0 && this.timeToLive > 0;
+
+  }
+
+  /**
+   * Return the address where the invalidations of the cache are published.
+   *
+   * @return the address of the invalidations.
+   */
+  public String getInvalidationsAddress() {
+
+    return INVALIDATIONS_ADDRESS_PREFIX + this.name;
+
+  }
+
+  /**
+   * Start to listen for the invalidations published by the other instances and
+   * to report periodically the metrics of the cache.
+   *
+   * @param metricsPeriod milliseconds between the reports of the metrics. If it
+   *                      is zero or less the metrics are not reported.
+   *
+   * @return this cache.
+   */
+  public ReadThroughCache start(final long metricsPeriod) {
+
+    if (this.isEnabled()) {
+
+      this.vertx.eventBus().<JsonObject>consumer(this.getInvalidationsAddress(),
+          message -> this.invalidateLocally(message.body().getString("key")));
+      if (metricsPeriod > 0) {
+
+        this.vertx.setPeriodic(metricsPeriod,
+            id -> Logger.info("Cache of {} metrics: {}", this.name, this.getMetrics().encode()));
+      }
+    }
+    return this;
+
+  }
+
+  /**
+   * Obtain a value from the cache, or load it if it is not cached.
+   *
+   * @param key    of the value.
+   * @param loader function to obtain the value that is not cached. It returns
+   *               {@code null} if the value does not exist.
+   *
+   * @return the future with a copy of the value, or {@code null} if it does not
+   *         exist.
+   */
+  public Future<JsonObject> get(final String key, final Function<String, Future<JsonObject>> loader) {
+
+    if (!this.isEnabled() || key == null) {
+
+      return loader.apply(key);
+    }
+
+    final var cached = this.getIfPresent(key);
+    if (cached != null) {
+
+      return Future.succeededFuture(cached);
+
+    } else {
+
+      final var generation = this.getGeneration();
+      return loader.apply(key).onSuccess(value -> this.put(key, value, generation));
+    }
+
+  }
+
+  /**
+   * Return the number of invalidations that have been done.
+   *
+   * @return the current generation of the cache.
+   */
+  protected synchronized long getGeneration() {
+
+    return this.generation;
+
+  }
+
+  /**
+   * Obtain a value that is cached.
+   *
+   * @param key of the value.
+   *
+   * @return a copy of the cached value, or {@code null} if it is not cached.
+   */
+  public synchronized JsonObject getIfPresent(final String key) {
+
+    if (!this.isEnabled() || key == null) {
+
+      return null;
+    }
+
+    this.sketch.increment(key);
+    final var cached = this.values.get(key);
+    if (cached != null && cached.expiresAt > System.currentTimeMillis()) {
+
+      this.hits++;
+      return cached.value.copy();
+
+    } else {
+
+      if (cached != null) {
+
+        this.values.remove(key);
+      }
+      this.misses++;
+      return null;
+    }
+
+  }
+
+  /**
+   * Check if a value is cached without counting it as a request.
+   *
+   * @param key of the value.
+   *
+   * @return {@code true} if the value is cached and it has not expired.
+   */
+  public synchronized boolean isCached(final String key) {
+
+    final var cached = this.values.get(key);
+    return cached != null && cached.expiresAt > System.currentTimeMillis();
+
+  }
+
+  /**
+   * Store a value on the cache.
+   *
+   * @param key        of the value.
+   * @param value      to cache.
+   * @param generation of the cache when the value has been read. If the cache
+   *                   has been invalidated since then the value is not stored.
+   */
+  protected synchronized void put(final String key, final JsonObject value, final long generation) {
+
+    if (value == null || generation != this.generation || !this.isEnabled()) {
+
+      return;
+    }
+
+    final var now = System.currentTimeMillis();
+    if (!this.values.containsKey(key) && this.values.size() >= this.maxSize) {
+
+      final var eldest = this.values.entrySet().iterator().next();
+      if (eldest.getValue().expiresAt > now) {
+
+        if (this.sketch.frequency(key) <= this.sketch.frequency(eldest.getKey())) {
+
+          this.rejections++;
+          return;
+        }
+        this.evictions++;
+      }
+      this.values.remove(eldest.getKey());
+    }
+    final var cached = new CachedValue();
+    cached.value = value.copy();
+    cached.expiresAt = now + this.timeToLive;
+    this.values.put(key, cached);
+
+  }
+
+  /**
+   * Remove a value from this cache and from the caches of the other instances.
+   *
+   * @param key of the value to remove.
+   */
+  public void invalidate(final String key) {
+
+    this.invalidateLocally(key);
+    this.vertx.eventBus().publish(this.getInvalidationsAddress(), new JsonObject().put("key", key));
+
+  }
+
+  /**
+   * Remove all the values from this cache and from the caches of the other
+   * instances.
+   */
+  public void invalidateAll() {
+
+    this.invalidateLocally(null);
+    this.vertx.eventBus().publish(this.getInvalidationsAddress(), new JsonObject());
+
+  }
+
+  /**
+   * Remove the values from this cache.
+   *
+   * @param key of the value to remove, or {@code null} to remove all the values.
+   */
+  protected synchronized void invalidateLocally(final String key) {
+
+    this.generation++;
+    if (key == null) {
+
+      this.values.clear();
+
+    } else {
+
+      this.values.remove(key);
+    }
+
+  }
+
+  /**
+   * Return the metrics of the cache.
+   *
+   * @return the number of cached values, hits, misses, evictions and rejections.
+   */
+  public synchronized JsonObject getMetrics() {
+
+    return new JsonObject().put("size", this.values.size()).put("hits", this.hits).put("misses", this.misses)
+        .put("evictions", this.evictions).put("rejections", this.rejections);
+
+  }
+
+  /**
+   * The count-min sketch used to estimate how frequently a key is requested.
+   * The counters are halved periodically so the old requests are forgotten.
+   */
+  protected static class FrequencySketch {
+
+    /**
+     * The maximum value of a counter.
+     */
+    public static final int MAX_COUNT = 15;
+
+    /**
+     * The seeds used to calculate the counter of each row.
+     */
+    protected static final int[] SEEDS = { 0x97cb3127, 0x4b3dcf69, 0x2545f491, 0x9e3779b9 };
+
+    /**
+     * The counters of the sketch by row.
+     */
+    protected byte[][] counters;
+
+    /**
+     * The mask to obtain the column of a counter.
+     */
+    protected int mask;
+
+    /**
+     * The number of increments before the counters are halved.
+     */
+    protected int sampleSize;
+
+    /**
+     * The number of increments since the last time the counters were halved.
+     */
+    protected int additions;
+
+    /**
+     * Create the sketch.
+     *
+     * @param maxSize maximum number of cached values.
+     */
+    public FrequencySketch(final int maxSize) {
+
+      final var width = Integer.highestOneBit(Math.max(16, maxSize - 1) << 1);
+      this.counters = new byte[SEEDS.length][width];
+      this.mask = width - 1;
+      this.sampleSize = 10 * Math.max(16, maxSize);
+
+    }
+
+    /**
+     * Calculate the column of a key on a row.
+     *
+     * @param key to calculate.
+     * @param row of the counter.
+     *
+     * @return the column of the counter of the key.
+     */
+    protected int indexOf(final String key, final int row) {
+
+      var hash = key.hashCode() * SEEDS[row];
+      hash ^= hash >>> 16;
+      return hash & this.mask;
+
+    }
+
+    /**
+     * Increment the frequency of a key.
+     *
+     * @param key to increment.
+     */
+    public void increment(final String key) {
+
+      for (var row = 0; row < this.counters.length; row++) {
+
+        final var index = this.indexOf(key, row);
+        if (this.counters[row][index] < MAX_COUNT) {
+
+          this.counters[row][index]++;
+        }
+      }
+      this.additions++;
+      if (this.additions >= this.sampleSize) {
+
+        for (final var row : this.counters) {
+
+          for (var index = 0; index < row.length; index++) {
+
+            row[index] = (byte) (row[index] >> 1);
+          }
+        }
+        this.additions /= 2;
+      }
+
+    }
+
+    /**
+     * Estimate the frequency of a key.
+     *
+     * @param key to estimate.
+     *
+     * @return the estimated number of times that the key has been requested.
+     */
+    public int frequency(final String key) {
+
+      var frequency = MAX_COUNT;
+      for (var row = 0; row < this.counters.length; row++) {
+
+        frequency = Math.min(frequency, this.counters[row][this.indexOf(key, row)]);
+      }
+      return frequency;
+
+    }
+
+  }
+
+}
@@ -34,9 +34,12 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.serviceproxy.ServiceBinder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.tinylog.Logger;
 
@@ -53,6 +56,29 @@ public interface RelationshipsRepository {
    */
   String ADDRESS = "wenet_profile_manager.persistence.relationships";
 
+  /**
+   * The status of a relationship that has been added.
+   */
+  String RELATIONSHIP_INSERTED = "inserted";
+
+  /**
+   * The status of a relationship that has been updated.
+   */
+  String RELATIONSHIP_UPDATED = "updated";
+
+  /**
+   * The status of a relationship that has not been modified because it already
+   * has the same weight, or because it is defined again after it on the same
+   * batch.
+   */
+  String RELATIONSHIP_UNCHANGED = "unchanged";
+
+  /**
+   * The value used on the identifier of a relationship for an undefined
+   * component. The URL encoding of a value never contains it.
+   */
+  String NULL_ID_COMPONENT = "~";
+
   /**
    * Create a proxy of the {@link RelationshipsRepository}.
    *
@@ -62,13 +88,22 @@ public interface RelationshipsRepository {
    */
   static RelationshipsRepository createProxy(final Vertx vertx) {
 
-    return new RelationshipsRepositoryVertxEBProxy(vertx, RelationshipsRepository.ADDRESS);
+    final var local = LocalServices.lookup(vertx, RelationshipsRepository.ADDRESS, RelationshipsRepository.class);
+    if (local != null) {
+
+      return local;
+
+    } else {
+
+      return new RelationshipsRepositoryVertxEBProxy(vertx, RelationshipsRepository.ADDRESS);
+    }
   }
 
   /**
    * Register this service.
    *
    * @param vertx      that contains the event bus to use.
+   * @param conf       configuration to use.
    * @param pool       to create the database connections.
    * @param version    of the schemas.
    * @param background is {@code true} if has to migrate the data base in
@@ -76,12 +111,17 @@ public interface RelationshipsRepository {
    *
    * @return the future that inform when the repository will be registered or not.
    */
-  static Future<Void> register(final Vertx vertx, final MongoClient pool, final String version,
-      final boolean background) {
+  static Future<Void> register(final Vertx vertx, final JsonObject conf, final MongoClient pool,
+      final String version, final boolean background) {
 
     final var repository = new RelationshipsRepositoryImpl(vertx, pool, version);
+    final var profileManager = conf.getJsonObject("profileManager", new JsonObject());
+    repository.pageTotals = PageTotals.create(pool, profileManager);
+    repository.socialGraph = SocialGraphIndex
+        .create(vertx, pool, RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION, profileManager).start();
     new ServiceBinder(vertx).setAddress(RelationshipsRepository.ADDRESS).register(RelationshipsRepository.class,
         repository);
+    LocalServices.register(vertx, RelationshipsRepository.ADDRESS, RelationshipsRepository.class, repository);
     if (background) {
 
       repository.migrateDocumentsToCurrentVersions()
@@ -142,6 +182,45 @@ public interface RelationshipsRepository {
    */
   void storeOrUpdateSocialNetworkRelationship(JsonObject relationship, Handler<AsyncResult<String>> updateHandler);
 
+  /**
+   * Store or update some relationships at once.
+   *
+   * @param relationships to add or update.
+   *
+   * @return the future with the number of relationships that has been inserted,
+   *         updated or that are unchanged, and the status of each relationship.
+   *
+   * @see #storeOrUpdateSocialNetworkRelationships(JsonArray, Handler)
+   */
+  @GenIgnore
+  default Future<JsonObject> storeOrUpdateSocialNetworkRelationships(
+      final List<SocialNetworkRelationship> relationships) {
+
+    final var array = new JsonArray();
+    for (final var relationship : relationships) {
+
+      array.add(relationship.toJsonObjectWithEmptyValues());
+    }
+    final Promise<JsonObject> promise = Promise.promise();
+    this.storeOrUpdateSocialNetworkRelationships(array, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Store or update some relationships at once. The relationships that already
+   * exist with the same weight are not written, and the others are written with
+   * a single unordered bulk write. If the same relationship is defined more than
+   * once, only the last one is stored.
+   *
+   * @param relationships to add or update.
+   * @param updateHandler handler to manage the update result. It has the number
+   *                      of relationships that has been {@code inserted},
+   *                      {@code updated} or that are {@code unchanged}, and the
+   *                      status of each relationship on {@code items}.
+   */
+  void storeOrUpdateSocialNetworkRelationships(JsonArray relationships, Handler<AsyncResult<JsonObject>> updateHandler);
+
   /**
    * Delete a social network relationship.
    *
@@ -190,6 +269,61 @@ public interface RelationshipsRepository {
 
   }
 
+  /**
+   * Create the identifier that a relationship is stored with. Each component
+   * is URL encoded and joined by {@code |}, so two different relationships never
+   * have the same identifier. An undefined component is stored as
+   * {@link #NULL_ID_COMPONENT}, that never is the result of encoding a value, to
+   * not confuse it with an empty component.
+   *
+   * @param appId    application identifier of the relationship.
+   * @param sourceId user identifier of the source of the relationship.
+   * @param targetId user identifier of the target of the relationship.
+   * @param type     of the relationship.
+   *
+   * @return the identifier of the relationship.
+   */
+  static String createSocialNetworkRelationshipId(final String appId, final String sourceId, final String targetId,
+      final String type) {
+
+    final var builder = new StringBuilder();
+    final var components = new String[] { appId, sourceId, targetId, type };
+    for (var i = 0; i < components.length; i++) {
+
+      final var component = components[i];
+      if (i > 0) {
+
+        builder.append('|');
+      }
+      if (component == null) {
+
+        builder.append(NULL_ID_COMPONENT);
+
+      } else {
+
+        builder.append(URLEncoder.encode(component, StandardCharsets.UTF_8));
+      }
+    }
+    return builder.toString();
+
+  }
+
+  /**
+   * Create the identifier that a relationship is stored with.
+   *
+   * @param relationship to obtain the identifier.
+   *
+   * @return the identifier of the relationship.
+   *
+   * @see #createSocialNetworkRelationshipId(String, String, String, String)
+   */
+  static String createSocialNetworkRelationshipId(final JsonObject relationship) {
+
+    return createSocialNetworkRelationshipId(relationship.getString("appId"), relationship.getString("sourceId"),
+        relationship.getString("targetId"), relationship.getString("type"));
+
+  }
+
   /**
    * Create the components used to sort the relationships to return.
    *
@@ -264,6 +398,66 @@ public interface RelationshipsRepository {
   void retrieveSocialNetworkRelationshipsPageObject(JsonObject query, JsonObject sort, int offset, int limit,
       Handler<AsyncResult<JsonObject>> handler);
 
+  /**
+   * Retrieve a page with some relationships calculating its total as requested.
+   *
+   * @param query   to obtain the required relationships.
+   * @param sort    describe how has to be ordered the obtained relationships.
+   * @param offset  the index of the first social network relationship to return.
+   * @param limit   the number maximum of relationships to return.
+   * @param total   how the number of relationships has to be calculated.
+   * @param handler to inform of the found relationships.
+   *
+   * @see PageTotals
+   */
+  void retrieveSocialNetworkRelationshipsPageObjectWithTotal(JsonObject query, JsonObject sort, int offset, int limit,
+      String total, Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * Create the sort to use to obtain the relationships after a cursor. It is the
+   * specified sort followed by the fields that identify a relationship, thus any
+   * relationship has a different sort key.
+   *
+   * @param sort describe how has to be ordered the obtained relationships.
+   *
+   * @return the sort that identify uniquely any relationship.
+   *
+   * @see KeysetPages
+   */
+  static JsonObject createSocialNetworkRelationshipsKeysetSort(final JsonObject sort) {
+
+    final var keysetSort = new JsonObject();
+    if (sort != null) {
+
+      keysetSort.mergeIn(sort);
+    }
+    for (final var field : new String[] { "appId", "sourceId", "targetId", "type" }) {
+
+      if (!keysetSort.containsKey(field)) {
+
+        keysetSort.put(field, 1);
+      }
+    }
+    return keysetSort;
+
+  }
+
+  /**
+   * Retrieve a page with some relationships that are after a cursor.
+   *
+   * @param query   to obtain the required relationships.
+   * @param sort    describe how has to be ordered the obtained relationships.
+   * @param cursor  to the previous page, or
+   *                {@link KeysetPages#FIRST_PAGE_CURSOR} to obtain the first
+   *                page.
+   * @param limit   the number maximum of relationships to return.
+   * @param handler to inform of the found relationships.
+   *
+   * @see #createSocialNetworkRelationshipsKeysetSort(JsonObject)
+   */
+  void retrieveSocialNetworkRelationshipsPageObjectAfter(JsonObject query, JsonObject sort, String cursor, int limit,
+      Handler<AsyncResult<JsonObject>> handler);
+
   /**
    * Delete all the social network relationships related to an user.
    *
@@ -288,4 +482,160 @@ public interface RelationshipsRepository {
 
   }
 
+  /**
+   * Delete some of the relationships where the source or the target is one of
+   * the users.
+   *
+   * @param userIds       identifiers of the users.
+   * @param limit         maximum number of relationships to delete.
+   * @param deleteHandler handler to manage the number of deleted relationships.
+   *                      If it is less than the limit, there are not more
+   *                      relationships to delete.
+   */
+  void deleteSocialNetworkRelationshipsBatchWith(JsonArray userIds, int limit,
+      Handler<AsyncResult<Integer>> deleteHandler);
+
+  /**
+   * Delete some of the relationships where the source or the target is one of
+   * the users.
+   *
+   * @param userIds identifiers of the users.
+   * @param limit   maximum number of relationships to delete.
+   *
+   * @return the future with the number of deleted relationships. If it is less
+   *         than the limit, there are not more relationships to delete.
+   */
+  @GenIgnore
+  default Future<Integer> deleteSocialNetworkRelationshipsBatchWith(final JsonArray userIds, final int limit) {
+
+    final Promise<Integer> promise = Promise.promise();
+    this.deleteSocialNetworkRelationshipsBatchWith(userIds, limit, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Obtain the ego network of an user from the relationships that are in
+   * memory.
+   *
+   * @param appId     identifier of the application of the relationships.
+   * @param userId    identifier of the user.
+   * @param type      of the relationships to use, or {@code null} for any type.
+   * @param minWeight minimal weight, inclusive, of the relationships to use or
+   *                  {@code null} to accept any weight.
+   * @param handler   to inform of the ego network.
+   *
+   * @see SocialGraph#egoNetwork(String, String, Double)
+   */
+  void retrieveSocialNetworkEgoNetwork(String appId, String userId, String type, Double minWeight,
+      Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * Obtain the ego network of an user from the relationships that are in
+   * memory.
+   *
+   * @param appId     identifier of the application of the relationships.
+   * @param userId    identifier of the user.
+   * @param type      of the relationships to use, or {@code null} for any type.
+   * @param minWeight minimal weight, inclusive, of the relationships to use or
+   *                  {@code null} to accept any weight.
+   *
+   * @return the future with the ego network.
+   */
+  @GenIgnore
+  default Future<JsonObject> retrieveSocialNetworkEgoNetwork(final String appId, final String userId,
+      final String type, final Double minWeight) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveSocialNetworkEgoNetwork(appId, userId, type, minWeight, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Obtain the users that can be reached from an user from the relationships
+   * that are in memory.
+   *
+   * @param appId     identifier of the application of the relationships.
+   * @param userId    identifier of the user.
+   * @param hops      maximum number of relationships to follow.
+   * @param type      of the relationships to follow, or {@code null} for any
+   *                  type.
+   * @param minWeight minimal weight, inclusive, of the relationships to follow
+   *                  or {@code null} to accept any weight.
+   * @param limit     maximum number of users to return.
+   * @param handler   to inform of the neighbourhood.
+   *
+   * @see SocialGraph#neighbourhood(String, int, String, Double, int)
+   */
+  void retrieveSocialNetworkNeighbourhood(String appId, String userId, int hops, String type, Double minWeight,
+      int limit, Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * Obtain the users that can be reached from an user from the relationships
+   * that are in memory.
+   *
+   * @param appId     identifier of the application of the relationships.
+   * @param userId    identifier of the user.
+   * @param hops      maximum number of relationships to follow.
+   * @param type      of the relationships to follow, or {@code null} for any
+   *                  type.
+   * @param minWeight minimal weight, inclusive, of the relationships to follow
+   *                  or {@code null} to accept any weight.
+   * @param limit     maximum number of users to return.
+   *
+   * @return the future with the neighbourhood.
+   */
+  @GenIgnore
+  default Future<JsonObject> retrieveSocialNetworkNeighbourhood(final String appId, final String userId,
+      final int hops, final String type, final Double minWeight, final int limit) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveSocialNetworkNeighbourhood(appId, userId, hops, type, minWeight, limit, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Obtain the relationships of an user with the highest weight from the
+   * relationships that are in memory.
+   *
+   * @param appId     identifier of the application of the relationships.
+   * @param userId    identifier of the user.
+   * @param type      of the relationships to return, or {@code null} for any
+   *                  type.
+   * @param minWeight minimal weight, inclusive, of the relationships to return
+   *                  or {@code null} to accept any weight.
+   * @param limit     maximum number of relationships to return.
+   * @param handler   to inform of the top neighbours.
+   *
+   * @see SocialGraph#topNeighbours(String, String, Double, int)
+   */
+  void retrieveSocialNetworkTopNeighbours(String appId, String userId, String type, Double minWeight, int limit,
+      Handler<AsyncResult<JsonObject>> handler);
+
+  /**
+   * Obtain the relationships of an user with the highest weight from the
+   * relationships that are in memory.
+   *
+   * @param appId     identifier of the application of the relationships.
+   * @param userId    identifier of the user.
+   * @param type      of the relationships to return, or {@code null} for any
+   *                  type.
+   * @param minWeight minimal weight, inclusive, of the relationships to return
+   *                  or {@code null} to accept any weight.
+   * @param limit     maximum number of relationships to return.
+   *
+   * @return the future with the top neighbours.
+   */
+  @GenIgnore
+  default Future<JsonObject> retrieveSocialNetworkTopNeighbours(final String appId, final String userId,
+      final String type, final Double minWeight, final int limit) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveSocialNetworkTopNeighbours(appId, userId, type, minWeight, limit, promise);
+    return promise.future();
+
+  }
+
 }
@@ -28,8 +28,14 @@ import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
 import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Objects;
 
 /**
  * Implementation of the {@link RelationshipsRepository}.
@@ -46,6 +52,30 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
    */
   public static final String RELATIONSHIPS_COLLECTION = "relationships";
 
+  /**
+   * The indexes that has to be defined to the collections of the repository.
+   */
+  public static final List<RepositoryIndex> INDEXES = List.of(
+      RepositoryIndex.of(RELATIONSHIPS_COLLECTION, "appIdSourceIdTargetIdAndType",
+          new JsonObject().put("appId", 1).put("sourceId", 1).put("targetId", 1).put("type", 1)),
+      RepositoryIndex.of(RELATIONSHIPS_COLLECTION, "sourceId", new JsonObject().put("sourceId", 1)),
+      RepositoryIndex.of(RELATIONSHIPS_COLLECTION, "targetId", new JsonObject().put("targetId", 1)));
+
+  /**
+   * The fields that identify a relationship.
+   */
+  protected static final List<String> KEY_FIELDS = List.of("appId", "sourceId", "targetId", "type");
+
+  /**
+   * The relationships of each application that are in memory.
+   */
+  protected SocialGraphIndex socialGraph;
+
+  /**
+   * The component to calculate the totals of the pages.
+   */
+  protected PageTotals pageTotals;
+
   /**
    * Create a new repository.
    *
@@ -56,6 +86,9 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
   public RelationshipsRepositoryImpl(final Vertx vertx, final MongoClient pool, final String version) {
 
     super(vertx, pool, version);
+    this.pageTotals = new PageTotals(pool, PageTotals.DEFAULT_COUNTS_TIME_TO_LIVE);
+    this.socialGraph = new SocialGraphIndex(vertx, pool, RELATIONSHIPS_COLLECTION,
+        SocialGraphIndex.DEFAULT_MAX_RELATIONSHIPS);
 
   }
 
@@ -66,10 +99,130 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
   public void storeOrUpdateSocialNetworkRelationship(final JsonObject relationship,
       final Handler<AsyncResult<String>> updateHandler) {
 
-    final var query = RelationshipsRepository.createSocialNetworkRelationshipsPageQuery(relationship.getString("appId"),
-        relationship.getString("sourceId"), relationship.getString("targetId"), relationship.getString("type"), null,
-        null);
-    this.upsertOneDocument(RELATIONSHIPS_COLLECTION, query, relationship, true).onComplete(updateHandler);
+    final var query = new JsonObject().put("_id",
+        RelationshipsRepository.createSocialNetworkRelationshipId(relationship));
+    relationship.remove("_id");
+    this.upsertOneDocument(RELATIONSHIPS_COLLECTION, query, relationship, true)
+        .onSuccess(stored -> this.socialGraph.put(relationship)).onComplete(updateHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void storeOrUpdateSocialNetworkRelationships(final JsonArray relationships,
+      final Handler<AsyncResult<JsonObject>> updateHandler) {
+
+    final var size = relationships.size();
+    final var keys = new ArrayList<String>();
+    final var lastIndexes = new HashMap<String, Integer>();
+    for (var i = 0; i < size; i++) {
+
+      final var key = RelationshipsRepository.createSocialNetworkRelationshipId(relationships.getJsonObject(i));
+      keys.add(key);
+      lastIndexes.put(key, i);
+    }
+
+    final var result = new JsonObject().put(RELATIONSHIP_INSERTED, 0).put(RELATIONSHIP_UPDATED, 0)
+        .put(RELATIONSHIP_UNCHANGED, 0).put("items", new JsonArray());
+    if (size == 0) {
+
+      updateHandler.handle(Future.succeededFuture(result));
+
+    } else {
+
+      final var query = new JsonObject().put("_id",
+          new JsonObject().put("$in", new JsonArray(new ArrayList<>(lastIndexes.keySet()))));
+      final var options = new FindOptions().setFields(new JsonObject().put("_id", true).put("weight", true));
+      this.pool.findWithOptions(RELATIONSHIPS_COLLECTION, query, options).compose(found -> {
+
+        final var weights = new HashMap<String, Object>();
+        for (final var relationship : found) {
+
+          weights.put(relationship.getString("_id"), relationship.getValue("weight"));
+        }
+
+        final var items = result.getJsonArray("items");
+        final var operations = new ArrayList<BulkOperation>();
+        for (var i = 0; i < size; i++) {
+
+          final var key = keys.get(i);
+          final var relationship = relationships.getJsonObject(i);
+          String status = null;
+          if (lastIndexes.get(key) != i) {
+
+            status = RELATIONSHIP_UNCHANGED;
+
+          } else if (!weights.containsKey(key)) {
+
+            status = RELATIONSHIP_INSERTED;
+
+          } else if (this.isSameWeight(weights.get(key), relationship.getValue("weight"))) {
+
+            status = RELATIONSHIP_UNCHANGED;
+
+          } else {
+
+            status = RELATIONSHIP_UPDATED;
+          }
+
+          items.add(status);
+          result.put(status, result.getInteger(status) + 1);
+          if (!RELATIONSHIP_UNCHANGED.equals(status)) {
+
+            final var values = relationship.copy();
+            values.remove("_id");
+            values.put(SCHEMA_VERSION, this.schemaVersion);
+            final var operation = BulkOperation.createUpdate(new JsonObject().put("_id", key),
+                new JsonObject().put("$set", values), true, false);
+            operations.add(operation);
+          }
+        }
+
+        if (operations.isEmpty()) {
+
+          return Future.succeededFuture(result);
+
+        } else {
+
+          return this.pool.bulkWriteWithOptions(RELATIONSHIPS_COLLECTION, operations, new BulkWriteOptions(false))
+              .map(written -> {
+
+                for (var i = 0; i < size; i++) {
+
+                  if (!RELATIONSHIP_UNCHANGED.equals(items.getString(i))) {
+
+                    this.socialGraph.put(relationships.getJsonObject(i));
+                  }
+                }
+                return result;
+              });
+        }
+
+      }).onComplete(updateHandler);
+    }
+
+  }
+
+  /**
+   * Check if two weights are the same.
+   *
+   * @param stored  weight of the stored relationship.
+   * @param updated weight of the relationship to store.
+   *
+   * @return {@code true} if both weights are the same.
+   */
+  protected boolean isSameWeight(final Object stored, final Object updated) {
+
+    if (stored instanceof Number && updated instanceof Number) {
+
+      return ((Number) stored).doubleValue() == ((Number) updated).doubleValue();
+
+    } else {
+
+      return Objects.equals(stored, updated);
+    }
 
   }
 
@@ -79,7 +232,60 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
   @Override
   public void deleteSocialNetworkRelationship(final JsonObject query, final Handler<AsyncResult<Void>> deleteHandler) {
 
-    this.deleteDocuments(RELATIONSHIPS_COLLECTION, query).onComplete(deleteHandler);
+    final var idQuery = this.toSocialNetworkRelationshipIdQuery(query);
+    if (idQuery != query) {
+
+      this.deleteDocuments(RELATIONSHIPS_COLLECTION, idQuery).onSuccess(empty -> this.socialGraph.remove(query))
+          .onComplete(deleteHandler);
+
+    } else if (this.socialGraph.isEmpty()) {
+
+      this.deleteDocuments(RELATIONSHIPS_COLLECTION, query).onComplete(deleteHandler);
+
+    } else {
+
+      final var options = new FindOptions().setFields(new JsonObject().put("_id", false).put("appId", true)
+          .put("sourceId", true).put("targetId", true).put("type", true));
+      this.pool.findWithOptions(RELATIONSHIPS_COLLECTION, query, options)
+          .compose(found -> this.deleteDocuments(RELATIONSHIPS_COLLECTION, query).onSuccess(empty -> {
+
+            for (final var relationship : found) {
+
+              this.socialGraph.remove(relationship);
+            }
+
+          })).onComplete(deleteHandler);
+    }
+
+  }
+
+  /**
+   * Convert a query that match exactly one relationship into a query by its
+   * identifier.
+   *
+   * @param query to convert.
+   *
+   * @return the query by the identifier of the relationship, or the same query
+   *         if it does not match exactly the application, source, target and
+   *         type of a relationship.
+   */
+  protected JsonObject toSocialNetworkRelationshipIdQuery(final JsonObject query) {
+
+    if (query != null && query.size() == KEY_FIELDS.size()) {
+
+      for (final var field : KEY_FIELDS) {
+
+        if (!(query.getValue(field) instanceof String)) {
+
+          return query;
+        }
+      }
+      return new JsonObject().put("_id", RelationshipsRepository.createSocialNetworkRelationshipId(query));
+
+    } else {
+
+      return query;
+    }
 
   }
 
@@ -90,12 +296,36 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
   public void retrieveSocialNetworkRelationshipsPageObject(final JsonObject query, final JsonObject sort,
       final int offset, final int limit, final Handler<AsyncResult<JsonObject>> handler) {
 
+    this.retrieveSocialNetworkRelationshipsPageObjectWithTotal(query, sort, offset, limit, PageTotals.EXACT, handler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkRelationshipsPageObjectWithTotal(final JsonObject query, final JsonObject sort,
+      final int offset, final int limit, final String total, final Handler<AsyncResult<JsonObject>> handler) {
+
     final var options = new FindOptions();
     options.setSort(sort);
     options.setSkip(offset);
     options.setLimit(limit);
-    this.searchPageObject(RELATIONSHIPS_COLLECTION, query, options, "relationships", relation -> relation.remove("_id"))
-        .onComplete(handler);
+    this.pageTotals.searchPageObject(RELATIONSHIPS_COLLECTION, query, options, "relationships",
+        relation -> relation.remove("_id"), total).onComplete(handler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkRelationshipsPageObjectAfter(final JsonObject query, final JsonObject sort,
+      final String cursor, final int limit, final Handler<AsyncResult<JsonObject>> handler) {
+
+    KeysetPages.searchPage(this.pool, RELATIONSHIPS_COLLECTION, query,
+        RelationshipsRepository.createSocialNetworkRelationshipsKeysetSort(sort), null, cursor, limit, "relationships",
+        relation -> relation.remove("_id")).onComplete(handler);
 
   }
 
@@ -107,7 +337,154 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
    */
   public Future<Void> migrateDocumentsToCurrentVersions() {
 
-    return this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, RELATIONSHIPS_COLLECTION);
+    final var ledger = new MigrationLedger(this.pool, this.schemaVersion);
+    return ledger.apply("relationships.deterministicIds", this::migrateSocialNetworkRelationshipIds)
+        .compose(empty -> ledger.apply("relationships.nullIdComponents", this::migrateNullSocialNetworkRelationshipIds))
+        .compose(empty -> ledger.apply("relationships.schemaVersion." + this.schemaVersion,
+            step -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, RELATIONSHIPS_COLLECTION)))
+        .onComplete(migrated -> this.socialGraph.clear());
+  }
+
+  /**
+   * Store the relationships that has not a deterministic identifier with the
+   * identifier obtained from its application, source, target and type. If
+   * already exist a relationship with the deterministic identifier it is
+   * maintained, because it has been stored after the legacy one.
+   *
+   * @return the future that will inform if the migration is a success or not.
+   *
+   * @see RelationshipsRepository#createSocialNetworkRelationshipId(JsonObject)
+   */
+  protected Future<Void> migrateSocialNetworkRelationshipIds() {
+
+    return this.migrateSocialNetworkRelationshipIds(MigrationLedger.Step.unrecorded("relationships.deterministicIds"));
+
+  }
+
+  /**
+   * Store the relationships that has not a deterministic identifier with the
+   * identifier obtained from its application, source, target and type. The
+   * relationships are processed in batches, and each batch is stored and
+   * removed with only one bulk write. The legacy relationship is only inserted
+   * if does not exist one with the deterministic identifier, so the
+   * relationships stored while the migration is running are not overwritten.
+   * The migrated relationships does not match the query any more, so the
+   * migration continues from where it has stopped.
+   *
+   * @param step progress of the migration.
+   *
+   * @return the future that will inform if the migration is a success or not.
+   *
+   * @see RelationshipsRepository#createSocialNetworkRelationshipId(JsonObject)
+   */
+  protected Future<Void> migrateSocialNetworkRelationshipIds(final MigrationLedger.Step step) {
+
+    final var query = new JsonObject().put("$nor",
+        new JsonArray().add(new JsonObject().put("_id", new JsonObject().put("$regex", "\\|"))));
+    final var options = new FindOptions().setLimit(MigrationLedger.BATCH_SIZE);
+    return this.pool.findWithOptions(RELATIONSHIPS_COLLECTION, query, options).compose(relationships -> {
+
+      if (relationships.isEmpty()) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        final var operations = new ArrayList<BulkOperation>();
+        for (final var relationship : relationships) {
+
+          this.addRekeyOperations(relationship, operations);
+        }
+        return this.pool.bulkWrite(RELATIONSHIPS_COLLECTION, operations)
+            .compose(written -> step.checkpoint(null, relationships.size())).compose(empty -> {
+
+              if (relationships.size() < MigrationLedger.BATCH_SIZE) {
+
+                return Future.succeededFuture();
+
+              } else {
+
+                return this.migrateSocialNetworkRelationshipIds(step);
+              }
+
+            });
+      }
+
+    });
+
+  }
+
+  /**
+   * Add the operations to store a relationship with its deterministic
+   * identifier and to remove it with its previous identifier. The relationship
+   * is only inserted if not exist one with the deterministic identifier.
+   *
+   * @param relationship to store with its deterministic identifier.
+   * @param operations   where add the operations to do.
+   */
+  protected void addRekeyOperations(final JsonObject relationship, final List<BulkOperation> operations) {
+
+    final var oldId = new JsonObject().put("_id", relationship.remove("_id"));
+    final var id = RelationshipsRepository.createSocialNetworkRelationshipId(relationship);
+    operations.add(BulkOperation.createUpdate(new JsonObject().put("_id", id),
+        new JsonObject().put("$setOnInsert", relationship), true, false));
+    operations.add(BulkOperation.createDelete(oldId));
+
+  }
+
+  /**
+   * Store the relationships with an undefined application, source, target or
+   * type with the identifier that distinguish the undefined components from the
+   * empty ones. The identifiers with an undefined component always contains
+   * {@link RelationshipsRepository#NULL_ID_COMPONENT}, so the migrated
+   * relationships does not match the query any more.
+   *
+   * @param step progress of the migration.
+   *
+   * @return the future that will inform if the migration is a success or not.
+   *
+   * @see RelationshipsRepository#createSocialNetworkRelationshipId(JsonObject)
+   */
+  protected Future<Void> migrateNullSocialNetworkRelationshipIds(final MigrationLedger.Step step) {
+
+    final var undefined = new JsonArray();
+    for (final var field : KEY_FIELDS) {
+
+      undefined.add(new JsonObject().putNull(field));
+    }
+    final var query = new JsonObject().put("$or", undefined).put("_id",
+        new JsonObject().put("$not", new JsonObject().put("$regex", RelationshipsRepository.NULL_ID_COMPONENT)));
+    final var options = new FindOptions().setLimit(MigrationLedger.BATCH_SIZE);
+    return this.pool.findWithOptions(RELATIONSHIPS_COLLECTION, query, options).compose(relationships -> {
+
+      if (relationships.isEmpty()) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        final var operations = new ArrayList<BulkOperation>();
+        for (final var relationship : relationships) {
+
+          this.addRekeyOperations(relationship, operations);
+        }
+        return this.pool.bulkWrite(RELATIONSHIPS_COLLECTION, operations)
+            .compose(written -> step.checkpoint(null, relationships.size())).compose(empty -> {
+
+              if (relationships.size() < MigrationLedger.BATCH_SIZE) {
+
+                return Future.succeededFuture();
+
+              } else {
+
+                return this.migrateNullSocialNetworkRelationshipIds(step);
+              }
+
+            });
+      }
+
+    });
+
   }
 
   /**
@@ -120,7 +497,65 @@ public class RelationshipsRepositoryImpl extends Repository implements Relations
     final var fields = new JsonArray().add(new JsonObject().put("sourceId", userId))
         .add(new JsonObject().put("targetId", userId));
     final var query = new JsonObject().put("$or", fields);
-    this.deleteDocuments(RELATIONSHIPS_COLLECTION, query).onComplete(deleteHandler);
+    this.deleteDocuments(RELATIONSHIPS_COLLECTION, query).onSuccess(empty -> this.socialGraph.removeUser(userId))
+        .onComplete(deleteHandler);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteSocialNetworkRelationshipsBatchWith(final JsonArray userIds, final int limit,
+      final Handler<AsyncResult<Integer>> deleteHandler) {
+
+    final var fields = new JsonObject().put("appId", true).put("sourceId", true).put("targetId", true).put("type",
+        true);
+    BatchDeletes.deleteBatch(this.pool, RELATIONSHIPS_COLLECTION, BatchDeletes.inAny("sourceId", "targetId", userIds),
+        fields, limit).map(deleted -> {
+
+          for (final var relationship : deleted) {
+
+            this.socialGraph.remove(relationship);
+          }
+          return deleted.size();
+
+        }).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkEgoNetwork(final String appId, final String userId, final String type,
+      final Double minWeight, final Handler<AsyncResult<JsonObject>> handler) {
+
+    this.socialGraph.graph(appId).map(graph -> graph.egoNetwork(userId, type, minWeight)).onComplete(handler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkNeighbourhood(final String appId, final String userId, final int hops,
+      final String type, final Double minWeight, final int limit, final Handler<AsyncResult<JsonObject>> handler) {
+
+    this.socialGraph.graph(appId).map(graph -> graph.neighbourhood(userId, hops, type, minWeight, limit))
+        .onComplete(handler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveSocialNetworkTopNeighbours(final String appId, final String userId, final String type,
+      final Double minWeight, final int limit, final Handler<AsyncResult<JsonObject>> handler) {
+
+    this.socialGraph.graph(appId).map(graph -> graph.topNeighbours(userId, type, minWeight, limit))
+        .onComplete(handler);
+
   }
 
 }
@@ -0,0 +1,138 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.IndexOptions;
+
+/**
+ * The definition of an index that has to exist on a collection.
+ *
+ * @see RepositoryIndexes
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class RepositoryIndex {
+
+  /**
+   * The name of the collection where the index has to be defined.
+   */
+  public final String collection;
+
+  /**
+   * The name of the index.
+   */
+  public final String name;
+
+  /**
+   * The keys of the index.
+   */
+  public final JsonObject keys;
+
+  /**
+   * This is {@code true} if the index has to be unique.
+   */
+  public boolean unique;
+
+  /**
+   * This is {@code true} if the index has to be sparse.
+   */
+  public boolean sparse;
+
+  /**
+   * Create a new index definition.
+   *
+   * @param collection name of the collection where the index has to be defined.
+   * @param name       of the index.
+   * @param keys       of the index.
+   */
+  public RepositoryIndex(final String collection, final String name, final JsonObject keys) {
+
+    this.collection = collection;
+    this.name = name;
+    this.keys = keys;
+
+  }
+
+  /**
+   * Create an index definition.
+   *
+   * @param collection name of the collection where the index has to be defined.
+   * @param name       of the index.
+   * @param keys       of the index.
+   *
+   * @return the defined index.
+   */
+  public static RepositoryIndex of(final String collection, final String name, final JsonObject keys) {
+
+    return new RepositoryIndex(collection, name, keys);
+
+  }
+
+  /**
+   * Mark the index as unique.
+   *
+   * @return this index.
+   */
+  public RepositoryIndex unique() {
+
+    this.unique = true;
+    return this;
+
+  }
+
+  /**
+   * Mark the index as sparse.
+   *
+   * @return this index.
+   */
+  public RepositoryIndex sparse() {
+
+    this.sparse = true;
+    return this;
+
+  }
+
+  /**
+   * Return the options to create the index.
+   *
+   * @param background is {@code true} if the index has to be build in
+   *                   background.
+   *
+   * @return the options to create the index.
+   */
+  public IndexOptions toIndexOptions(final boolean background) {
+
+    return new IndexOptions().name(this.name).unique(this.unique).sparse(this.sparse).background(background);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+
+    return this.collection + "." + this.name + this.keys;
+
+  }
+
+}
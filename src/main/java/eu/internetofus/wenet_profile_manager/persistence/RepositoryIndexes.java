@@ -0,0 +1,260 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.AggregateOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import org.tinylog.Logger;
+
+/**
+ * The component to maintain the indexes that the repositories need.
+ *
+ * @see RepositoryIndex
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class RepositoryIndexes {
+
+  /**
+   * The name of the index that MongoDB defines over the identifier of any
+   * collection.
+   */
+  public static final String ID_INDEX_NAME = "_id_";
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private RepositoryIndexes() {
+
+  }
+
+  /**
+   * Create the indexes that are not defined. If an index can not be created the
+   * error is logged but it not stop the creation of the other indexes.
+   *
+   * @param pool       to the database.
+   * @param indexes    to create.
+   * @param background is {@code true} if the indexes has to be build in
+   *                   background.
+   *
+   * @return the future that will be completed when all the indexes has been
+   *         processed.
+   */
+  public static Future<Void> ensure(final MongoClient pool, final List<RepositoryIndex> indexes,
+      final boolean background) {
+
+    @SuppressWarnings("rawtypes")
+    final List<Future> creations = new ArrayList<>();
+    for (final var index : indexes) {
+
+      creations.add(
+          pool.createIndexWithOptions(index.collection, index.keys, index.toIndexOptions(background)).recover(error -> {
+
+            Logger.warn(error, "Cannot create the index {}", index);
+            return Future.succeededFuture();
+
+          }));
+    }
+
+    return CompositeFuture.all(creations).map(any -> null);
+
+  }
+
+  /**
+   * Check the indexes defined on the database against the expected ones. The
+   * report contains for each collection the expected indexes that are not
+   * defined ({@code missing}), the defined indexes that are not expected
+   * ({@code unexpected}) and the indexes that has not been used since the
+   * database has started ({@code unused}).
+   *
+   * @param pool    to the database.
+   * @param indexes that are expected.
+   *
+   * @return the future with the report of the indexes.
+   */
+  public static Future<JsonObject> verify(final MongoClient pool, final List<RepositoryIndex> indexes) {
+
+    final var collections = new LinkedHashMap<String, List<RepositoryIndex>>();
+    for (final var index : indexes) {
+
+      collections.computeIfAbsent(index.collection, key -> new ArrayList<>()).add(index);
+    }
+
+    final var report = new JsonObject();
+    @SuppressWarnings("rawtypes")
+    final List<Future> verifications = new ArrayList<>();
+    for (final var entry : collections.entrySet()) {
+
+      final var collection = entry.getKey();
+      verifications.add(verifyCollection(pool, collection, entry.getValue())
+          .onSuccess(collectionReport -> report.put(collection, collectionReport)));
+    }
+
+    return CompositeFuture.all(verifications).map(any -> report);
+
+  }
+
+  /**
+   * Check the indexes defined on a collection.
+   *
+   * @param pool       to the database.
+   * @param collection to verify.
+   * @param indexes    that are expected on the collection.
+   *
+   * @return the future with the report of the collection indexes.
+   *
+   * @see #verify(MongoClient, List)
+   */
+  private static Future<JsonObject> verifyCollection(final MongoClient pool, final String collection,
+      final List<RepositoryIndex> indexes) {
+
+    return pool.listIndexes(collection).compose(defined -> {
+
+      final var missing = new JsonArray();
+      for (final var index : indexes) {
+
+        if (searchDefinedIndex(defined, index) == null) {
+
+          missing.add(index.name);
+        }
+      }
+
+      final var unexpected = new JsonArray();
+      final var max = defined.size();
+      for (var i = 0; i < max; i++) {
+
+        final var definedIndex = defined.getJsonObject(i);
+        final var name = definedIndex.getString("name");
+        if (!ID_INDEX_NAME.equals(name) && searchExpectedIndex(indexes, definedIndex) == null) {
+
+          unexpected.add(name);
+        }
+      }
+
+      return retrieveUnusedIndexes(pool, collection).map(unused -> new JsonObject().put("missing", missing)
+          .put("unexpected", unexpected).put("unused", unused));
+
+    });
+
+  }
+
+  /**
+   * Search for an expected index on the defined indexes.
+   *
+   * @param defined indexes on the collection.
+   * @param index   to search.
+   *
+   * @return the defined index that match the expected one or {@code null} if
+   *         it is not defined.
+   */
+  private static JsonObject searchDefinedIndex(final JsonArray defined, final RepositoryIndex index) {
+
+    final var max = defined.size();
+    for (var i = 0; i < max; i++) {
+
+      final var definedIndex = defined.getJsonObject(i);
+      if (index.name.equals(definedIndex.getString("name"))
+          || index.keys.equals(definedIndex.getJsonObject("key"))) {
+
+        return definedIndex;
+      }
+    }
+
+    return null;
+
+  }
+
+  /**
+   * Search for a defined index on the expected ones.
+   *
+   * @param indexes      that are expected.
+   * @param definedIndex index to search.
+   *
+   * @return the expected index that match the defined one or {@code null} if
+   *         it is not expected.
+   */
+  private static RepositoryIndex searchExpectedIndex(final List<RepositoryIndex> indexes,
+      final JsonObject definedIndex) {
+
+    final var name = definedIndex.getString("name");
+    final var keys = definedIndex.getJsonObject("key");
+    for (final var index : indexes) {
+
+      if (index.name.equals(name) || index.keys.equals(keys)) {
+
+        return index;
+      }
+    }
+
+    return null;
+
+  }
+
+  /**
+   * Obtain the names of the indexes of a collection that has not been used
+   * since the database has started.
+   *
+   * @param pool       to the database.
+   * @param collection to check.
+   *
+   * @return the future with the names of the unused indexes. If the statistics
+   *         can not be obtained the names will be empty.
+   */
+  private static Future<JsonArray> retrieveUnusedIndexes(final MongoClient pool, final String collection) {
+
+    final var pipeline = new JsonArray().add(new JsonObject().put("$indexStats", new JsonObject()));
+    final var command = new JsonObject().put("aggregate", collection).put("pipeline", pipeline).put("cursor",
+        new JsonObject().put("batchSize", AggregateOptions.DEFAULT_BATCH_SIZE));
+    return pool.runCommand("aggregate", command).map(result -> {
+
+      final var unused = new JsonArray();
+      final var stats = result.getJsonObject("cursor", new JsonObject()).getJsonArray("firstBatch", new JsonArray());
+      final var max = stats.size();
+      for (var i = 0; i < max; i++) {
+
+        final var stat = stats.getJsonObject(i);
+        final var name = stat.getString("name");
+        final var accesses = stat.getJsonObject("accesses", new JsonObject());
+        final var ops = accesses.getValue("ops");
+        if (!ID_INDEX_NAME.equals(name) && ops instanceof Number && ((Number) ops).longValue() == 0) {
+
+          unused.add(name);
+        }
+      }
+      return unused;
+
+    }).recover(error -> {
+
+      Logger.trace(error, "Cannot obtain the statistics of the indexes of {}", collection);
+      return Future.succeededFuture(new JsonArray());
+
+    });
+
+  }
+
+}
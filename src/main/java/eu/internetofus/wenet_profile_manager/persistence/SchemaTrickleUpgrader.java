@@ -0,0 +1,149 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import java.util.function.IntFunction;
+import org.tinylog.Logger;
+
+/**
+ * The component that upgrades in background, and in small batches, the
+ * documents of a collection that have an old schema version. It stops when
+ * there are not more documents to upgrade.
+ *
+ * @see SchemaUpgrades
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SchemaTrickleUpgrader {
+
+  /**
+   * The default milliseconds between the batches of upgrades.
+   */
+  public static final long DEFAULT_PERIOD = 1000L;
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The name of the upgraded documents.
+   */
+  protected String name;
+
+  /**
+   * The function to upgrade a batch of documents. It receives the maximum
+   * number of documents to upgrade and returns the number of upgraded ones.
+   */
+  protected IntFunction<Future<Integer>> batch;
+
+  /**
+   * The milliseconds between the batches of upgrades.
+   */
+  protected long period;
+
+  /**
+   * The identifier of the timer that upgrades the batches.
+   */
+  protected long timerId = -1;
+
+  /**
+   * This is {@code true} if a batch is being upgraded.
+   */
+  protected boolean upgrading;
+
+  /**
+   * The number of documents that have been upgraded.
+   */
+  protected long upgraded;
+
+  /**
+   * Create the upgrader.
+   *
+   * @param vertx  event bus to use.
+   * @param name   of the upgraded documents.
+   * @param batch  function to upgrade a batch of documents.
+   * @param period milliseconds between the batches.
+   */
+  public SchemaTrickleUpgrader(final Vertx vertx, final String name, final IntFunction<Future<Integer>> batch,
+      final long period) {
+
+    this.vertx = vertx;
+    this.name = name;
+    this.batch = batch;
+    this.period = Math.max(1L, period);
+
+  }
+
+  /**
+   * Start to upgrade the documents periodically.
+   */
+  public void start() {
+
+    this.timerId = this.vertx.setPeriodic(this.period, id -> this.upgradeBatch().onFailure(
+        cause -> Logger.error(cause, "Cannot upgrade a batch of {} to the current schema version.", this.name)));
+
+  }
+
+  /**
+   * Upgrade the next batch of documents. When there are not more documents to
+   * upgrade the periodic upgrade is stopped.
+   *
+   * @return the future with the number of upgraded documents.
+   */
+  public Future<Integer> upgradeBatch() {
+
+    if (this.upgrading) {
+
+      return Future.succeededFuture(0);
+    }
+
+    this.upgrading = true;
+    return this.batch.apply(MigrationLedger.BATCH_SIZE).onComplete(result -> {
+
+      this.upgrading = false;
+      if (result.succeeded()) {
+
+        final int count = result.result();
+        this.upgraded += count;
+        if (count == 0) {
+
+          Logger.info("Upgraded {} {} to the current schema version.", this.upgraded, this.name);
+          if (this.timerId != -1) {
+
+            this.vertx.cancelTimer(this.timerId);
+            this.timerId = -1;
+          }
+
+        } else {
+
+          Logger.debug("Upgraded {} {} to the current schema version.", this.upgraded, this.name);
+        }
+      }
+
+    });
+
+  }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import eu.internetofus.common.vertx.Repository;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * The chain of functions to upgrade a document stored with an old schema
+ * version to the current schema version. It is used to upgrade the documents
+ * when they are read, instead of rewriting all the collection when the
+ * service starts.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SchemaUpgrades {
+
+  /**
+   * The version to consider for the documents without schema version.
+   */
+  public static final String UNDEFINED_VERSION = "0.0.0";
+
+  /**
+   * The current version of the schema.
+   */
+  protected String schemaVersion;
+
+  /**
+   * The versions of the upgrades, sorted from the oldest to the newest.
+   */
+  protected List<String> versions = new ArrayList<>();
+
+  /**
+   * The functions to upgrade the documents, in the same order as the versions.
+   */
+  protected List<UnaryOperator<JsonObject>> upgrades = new ArrayList<>();
+
+  /**
+   * Create the upgrades to a schema version.
+   *
+   * @param schemaVersion current version of the schema.
+   */
+  public SchemaUpgrades(final String schemaVersion) {
+
+    this.schemaVersion = schemaVersion;
+
+  }
+
+  /**
+   * Add a function to upgrade the documents with a version less than the
+   * specified one. The upgrades has to be added from the oldest to the newest
+   * version.
+   *
+   * @param version of the schema that the upgrade produce.
+   * @param upgrade function to upgrade a document. It can modify the document.
+   *
+   * @return this upgrades.
+   */
+  public SchemaUpgrades with(final String version, final UnaryOperator<JsonObject> upgrade) {
+
+    this.versions.add(version);
+    this.upgrades.add(upgrade);
+    return this;
+
+  }
+
+  /**
+   * Compare two schema versions.
+   *
+   * @param source version to compare.
+   * @param target version to compare.
+   *
+   * @return a negative value if the source is older than the target, zero if
+   *         both are equals or a positive value if the source is newer than the
+   *         target.
+   */
+  public static int compareVersions(final String source, final String target) {
+
+    final var sourceParts = String.valueOf(source).split("\\.");
+    final var targetParts = String.valueOf(target).split("\\.");
+    final var max = Math.max(sourceParts.length, targetParts.length);
+    for (var i = 0; i < max; i++) {
+
+      final var sourcePart = i < sourceParts.length ? sourceParts[i] : "0";
+      final var targetPart = i < targetParts.length ? targetParts[i] : "0";
+      int comparison;
+      try {
+
+        comparison = Long.compare(Long.parseLong(sourcePart), Long.parseLong(targetPart));
+
+      } catch (final NumberFormatException cause) {
+
+        comparison = sourcePart.compareTo(targetPart);
+      }
+      if (comparison != 0) {
+
+        return comparison;
+      }
+    }
+    return 0;
+
+  }
+
+  /**
+   * Return the schema version of a document.
+   *
+   * @param document to get the version.
+   *
+   * @return the version of the document.
+   */
+  public static String versionOf(final JsonObject document) {
+
+    final var version = document.getValue(Repository.SCHEMA_VERSION);
+    if (version instanceof String) {
+
+      return (String) version;
+
+    } else {
+
+      return UNDEFINED_VERSION;
+    }
+
+  }
+
+  /**
+   * Check if a document has to be upgraded.
+   *
+   * @param document to check.
+   *
+   * @return {@code true} if the document has a version older than the current
+   *         one.
+   */
+  public boolean isOutdated(final JsonObject document) {
+
+    return document != null && compareVersions(versionOf(document), this.schemaVersion) < 0;
+
+  }
+
+  /**
+   * Upgrade a document to the current version.
+   *
+   * @param document to upgrade. It is not modified.
+   *
+   * @return the upgraded document.
+   */
+  public JsonObject upgrade(final JsonObject document) {
+
+    return this.upgradeBefore(document, null).put(Repository.SCHEMA_VERSION, this.schemaVersion);
+
+  }
+
+  /**
+   * Apply the upgrades over a document that produce a version older than a
+   * limit.
+   *
+   * @param document to upgrade. It is not modified.
+   * @param limit    version of the first upgrade that is not applied, or
+   *                 {@code null} to apply all the upgrades.
+   *
+   * @return the upgraded document.
+   */
+  public JsonObject upgradeBefore(final JsonObject document, final String limit) {
+
+    var upgraded = document.copy();
+    final var version = versionOf(document);
+    final var max = this.versions.size();
+    for (var i = 0; i < max; i++) {
+
+      final var upgradeVersion = this.versions.get(i);
+      if (limit != null && compareVersions(upgradeVersion, limit) >= 0) {
+
+        break;
+
+      } else if (compareVersions(version, upgradeVersion) < 0) {
+
+        upgraded = this.upgrades.get(i).apply(upgraded);
+      }
+    }
+    return upgraded;
+
+  }
+
+  /**
+   * Create the query to replace a document only if it has not been modified
+   * after it has been read.
+   *
+   * @param document that has been read.
+   *
+   * @return the query to match the document with the same version.
+   */
+  public static JsonObject createUnmodifiedQuery(final JsonObject document) {
+
+    final var query = new JsonObject().put("_id", document.getValue("_id"));
+    final var version = document.getValue(Repository.SCHEMA_VERSION);
+    if (version == null) {
+
+      query.put(Repository.SCHEMA_VERSION, new JsonObject().put("$exists", false));
+
+    } else {
+
+      query.put(Repository.SCHEMA_VERSION, version);
+    }
+    final var lastUpdateTs = document.getValue("_lastUpdateTs");
+    if (lastUpdateTs != null) {
+
+      query.put("_lastUpdateTs", lastUpdateTs);
+    }
+    return query;
+
+  }
+
+}
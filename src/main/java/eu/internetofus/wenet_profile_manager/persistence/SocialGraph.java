@@ -0,0 +1,690 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The relationships of an application stored in memory. Each user identifier
+ * is interned into an integer and the relationships that start on an user are
+ * stored on compact arrays with the index of the target user, the index of the
+ * type and the weight.
+ *
+ * The users that are not more on any relationship are released when they are
+ * more than the half of the interned users, so the memory of the graph depends
+ * on the current relationships and not on all the users that it has had.
+ *
+ * This class is not thread safe, so it has to be used from the context of the
+ * repository that maintains it.
+ *
+ * @see SocialGraphIndex
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SocialGraph {
+
+  /**
+   * The number of relationships to reserve when an user starts to have
+   * relationships.
+   */
+  protected static final int INITIAL_DEGREE = 4;
+
+  /**
+   * The value used to mark that any type is valid.
+   */
+  protected static final int ANY_TYPE = -1;
+
+  /**
+   * The value used to mark that the type is not used on any relationship.
+   */
+  protected static final int UNDEFINED_TYPE = -2;
+
+  /**
+   * The minimum number of users that are not on any relationship before the
+   * graph is compacted.
+   */
+  protected static final int MIN_UNUSED_USERS_TO_COMPACT = 1024;
+
+  /**
+   * The identifier of the application of the relationships.
+   */
+  protected String appId;
+
+  /**
+   * The index associated to each user identifier.
+   */
+  protected Map<String, Integer> userIndexes = new HashMap<>();
+
+  /**
+   * The user identifiers by its index.
+   */
+  protected String[] users = new String[16];
+
+  /**
+   * The number of interned users.
+   */
+  protected int usersCount = 0;
+
+  /**
+   * The index of the target users of the relationships that start on each user.
+   */
+  protected int[][] targets = new int[16][];
+
+  /**
+   * The index of the type of the relationships that start on each user.
+   */
+  protected int[][] types = new int[16][];
+
+  /**
+   * The weight of the relationships that start on each user.
+   */
+  protected double[][] weights = new double[16][];
+
+  /**
+   * The number of relationships that start on each user.
+   */
+  protected int[] degrees = new int[16];
+
+  /**
+   * The number of relationships that end on each user.
+   */
+  protected int[] inDegrees = new int[16];
+
+  /**
+   * The number of interned users that are not on any relationship.
+   */
+  protected int unusedUsers = 0;
+
+  /**
+   * The index associated to each type.
+   */
+  protected Map<String, Integer> typeIndexes = new HashMap<>();
+
+  /**
+   * The types by its index.
+   */
+  protected List<String> typeNames = new ArrayList<>();
+
+  /**
+   * The number of relationships on the graph.
+   */
+  protected int relationshipsCount = 0;
+
+  /**
+   * Create a new empty graph.
+   *
+   * @param appId identifier of the application of the relationships.
+   */
+  public SocialGraph(final String appId) {
+
+    this.appId = appId;
+
+  }
+
+  /**
+   * Return the number of relationships on the graph.
+   *
+   * @return the number of relationships.
+   */
+  public int size() {
+
+    return this.relationshipsCount;
+  }
+
+  /**
+   * Return the number of interned users.
+   *
+   * @return the number of users that the graph has in memory.
+   */
+  public int usersCount() {
+
+    return this.usersCount;
+  }
+
+  /**
+   * Return the index of an user, interning it if it is not defined.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the index of the user.
+   */
+  protected int internUser(final String userId) {
+
+    var index = this.userIndexes.get(userId);
+    if (index == null) {
+
+      index = this.usersCount++;
+      if (index == this.users.length) {
+
+        final var capacity = this.users.length * 2;
+        this.users = Arrays.copyOf(this.users, capacity);
+        this.targets = Arrays.copyOf(this.targets, capacity);
+        this.types = Arrays.copyOf(this.types, capacity);
+        this.weights = Arrays.copyOf(this.weights, capacity);
+        this.degrees = Arrays.copyOf(this.degrees, capacity);
+        this.inDegrees = Arrays.copyOf(this.inDegrees, capacity);
+      }
+      this.users[index] = userId;
+      this.userIndexes.put(userId, index);
+      this.unusedUsers++;
+    }
+
+    return index;
+
+  }
+
+  /**
+   * Return the index of an user.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the index of the user or {@code -1} if it is not interned.
+   */
+  protected int indexOfUser(final String userId) {
+
+    final var index = this.userIndexes.get(userId);
+    if (index == null) {
+
+      return -1;
+
+    } else {
+
+      return index;
+    }
+
+  }
+
+  /**
+   * Return the index of a type, interning it if it is not defined.
+   *
+   * @param type of the relationship.
+   *
+   * @return the index of the type.
+   */
+  protected int internType(final String type) {
+
+    var index = this.typeIndexes.get(type);
+    if (index == null) {
+
+      index = this.typeNames.size();
+      this.typeNames.add(type);
+      this.typeIndexes.put(type, index);
+    }
+    return index;
+
+  }
+
+  /**
+   * Return the index of the type to filter the relationships.
+   *
+   * @param type to filter or {@code null} if any type is valid.
+   *
+   * @return the index of the type, {@link #ANY_TYPE} or {@link #UNDEFINED_TYPE}.
+   */
+  protected int filterType(final String type) {
+
+    if (type == null) {
+
+      return ANY_TYPE;
+
+    } else {
+
+      final var index = this.typeIndexes.get(type);
+      if (index == null) {
+
+        return UNDEFINED_TYPE;
+
+      } else {
+
+        return index;
+      }
+    }
+
+  }
+
+  /**
+   * Return the position of a relationship on the relationships of its source.
+   *
+   * @param source index of the source user.
+   * @param target index of the target user.
+   * @param type   index of the type.
+   *
+   * @return the position of the relationship or {@code -1} if not defined.
+   */
+  protected int positionOf(final int source, final int target, final int type) {
+
+    final var degree = this.degrees[source];
+    for (var i = 0; i < degree; i++) {
+
+      if (this.targets[source][i] == target && this.types[source][i] == type) {
+
+        return i;
+      }
+    }
+
+    return -1;
+
+  }
+
+  /**
+   * Add or update a relationship.
+   *
+   * @param sourceId identifier of the source user.
+   * @param targetId identifier of the target user.
+   * @param type     of the relationship.
+   * @param weight   of the relationship.
+   */
+  public void put(final String sourceId, final String targetId, final String type, final double weight) {
+
+    final var source = this.internUser(sourceId);
+    final var target = this.internUser(targetId);
+    final var typeIndex = this.internType(type);
+    final var position = this.positionOf(source, target, typeIndex);
+    if (position > -1) {
+
+      this.weights[source][position] = weight;
+
+    } else {
+
+      final var degree = this.degrees[source];
+      if (this.targets[source] == null) {
+
+        this.targets[source] = new int[INITIAL_DEGREE];
+        this.types[source] = new int[INITIAL_DEGREE];
+        this.weights[source] = new double[INITIAL_DEGREE];
+
+      } else if (degree == this.targets[source].length) {
+
+        final var capacity = degree * 2;
+        this.targets[source] = Arrays.copyOf(this.targets[source], capacity);
+        this.types[source] = Arrays.copyOf(this.types[source], capacity);
+        this.weights[source] = Arrays.copyOf(this.weights[source], capacity);
+      }
+      this.targets[source][degree] = target;
+      this.types[source][degree] = typeIndex;
+      this.weights[source][degree] = weight;
+      this.link(source, target, 1);
+      this.relationshipsCount++;
+    }
+
+  }
+
+  /**
+   * Check if an user is not on any relationship.
+   *
+   * @param user index of the user.
+   *
+   * @return {@code true} if the user is not the source or target of any
+   *         relationship.
+   */
+  protected boolean isUnused(final int user) {
+
+    return this.degrees[user] == 0 && this.inDegrees[user] == 0;
+
+  }
+
+  /**
+   * Update the degrees of the users of a relationship that has been added or
+   * removed.
+   *
+   * @param source index of the source user.
+   * @param target index of the target user.
+   * @param delta  {@code 1} if the relationship is added or {@code -1} if it is
+   *               removed.
+   */
+  protected void link(final int source, final int target, final int delta) {
+
+    if (this.isUnused(source)) {
+
+      this.unusedUsers--;
+    }
+    this.degrees[source] += delta;
+    if (this.isUnused(source)) {
+
+      this.unusedUsers++;
+    }
+
+    if (this.isUnused(target)) {
+
+      this.unusedUsers--;
+    }
+    this.inDegrees[target] += delta;
+    if (this.isUnused(target)) {
+
+      this.unusedUsers++;
+    }
+
+  }
+
+  /**
+   * Release the users and types that are not on any relationship if they are
+   * more than the half of the interned users.
+   *
+   * @return {@code true} if the graph has been compacted.
+   */
+  protected boolean compactIfSparse() {
+
+    if (this.unusedUsers < MIN_UNUSED_USERS_TO_COMPACT || this.unusedUsers * 2 < this.usersCount) {
+
+      return false;
+    }
+
+    final var compacted = new SocialGraph(this.appId);
+    for (var source = 0; source < this.usersCount; source++) {
+
+      for (var i = 0; i < this.degrees[source]; i++) {
+
+        compacted.put(this.users[source], this.users[this.targets[source][i]],
+            this.typeNames.get(this.types[source][i]), this.weights[source][i]);
+      }
+    }
+    this.userIndexes = compacted.userIndexes;
+    this.users = compacted.users;
+    this.usersCount = compacted.usersCount;
+    this.targets = compacted.targets;
+    this.types = compacted.types;
+    this.weights = compacted.weights;
+    this.degrees = compacted.degrees;
+    this.inDegrees = compacted.inDegrees;
+    this.unusedUsers = compacted.unusedUsers;
+    this.typeIndexes = compacted.typeIndexes;
+    this.typeNames = compacted.typeNames;
+    this.relationshipsCount = compacted.relationshipsCount;
+    return true;
+
+  }
+
+  /**
+   * Remove the relationship at a position of the relationships of an user.
+   *
+   * @param source   index of the source user.
+   * @param position of the relationship to remove.
+   */
+  protected void removeAt(final int source, final int position) {
+
+    final var last = this.degrees[source] - 1;
+    this.link(source, this.targets[source][position], -1);
+    this.targets[source][position] = this.targets[source][last];
+    this.types[source][position] = this.types[source][last];
+    this.weights[source][position] = this.weights[source][last];
+    this.relationshipsCount--;
+
+  }
+
+  /**
+   * Remove a relationship.
+   *
+   * @param sourceId identifier of the source user.
+   * @param targetId identifier of the target user.
+   * @param type     of the relationship.
+   *
+   * @return {@code true} if the relationship has been removed.
+   */
+  public boolean remove(final String sourceId, final String targetId, final String type) {
+
+    final var source = this.indexOfUser(sourceId);
+    final var target = this.indexOfUser(targetId);
+    final var typeIndex = this.filterType(type);
+    if (source < 0 || target < 0 || typeIndex == UNDEFINED_TYPE) {
+
+      return false;
+
+    } else {
+
+      final var position = this.positionOf(source, target, typeIndex);
+      if (position < 0) {
+
+        return false;
+
+      } else {
+
+        this.removeAt(source, position);
+        this.compactIfSparse();
+        return true;
+      }
+    }
+
+  }
+
+  /**
+   * Remove all the relationships where an user is the source or the target.
+   *
+   * @param userId identifier of the user.
+   *
+   * @return the number of removed relationships.
+   */
+  public int removeUser(final String userId) {
+
+    final var user = this.indexOfUser(userId);
+    if (user < 0) {
+
+      return 0;
+
+    } else {
+
+      final var before = this.relationshipsCount;
+      while (this.degrees[user] > 0) {
+
+        this.removeAt(user, this.degrees[user] - 1);
+      }
+      for (var source = 0; source < this.usersCount && this.inDegrees[user] > 0; source++) {
+
+        for (var i = this.degrees[source] - 1; i >= 0; i--) {
+
+          if (this.targets[source][i] == user) {
+
+            this.removeAt(source, i);
+          }
+        }
+      }
+      final var removed = before - this.relationshipsCount;
+      this.compactIfSparse();
+      return removed;
+    }
+
+  }
+
+  /**
+   * Check if a relationship has to be used.
+   *
+   * @param source    index of the source user.
+   * @param position  of the relationship on the relationships of the source.
+   * @param type      index of the type to match, or {@link #ANY_TYPE}.
+   * @param minWeight minimal weight, inclusive, of the relationship or
+   *                  {@code null} to accept any weight.
+   *
+   * @return {@code true} if the relationship is valid.
+   */
+  protected boolean accept(final int source, final int position, final int type, final Double minWeight) {
+
+    return (type == ANY_TYPE || this.types[source][position] == type)
+        && (minWeight == null || this.weights[source][position] >= minWeight);
+
+  }
+
+  /**
+   * Create the JSON representation of a relationship.
+   *
+   * @param source   index of the source user.
+   * @param position of the relationship on the relationships of the source.
+   *
+   * @return the relationship.
+   */
+  protected JsonObject toRelationship(final int source, final int position) {
+
+    return new JsonObject().put("appId", this.appId).put("sourceId", this.users[source])
+        .put("targetId", this.users[this.targets[source][position]])
+        .put("type", this.typeNames.get(this.types[source][position])).put("weight", this.weights[source][position]);
+
+  }
+
+  /**
+   * Obtain the ego network of an user. It is formed by the user, the users that
+   * are the target of its relationships, and the relationships between all of
+   * them.
+   *
+   * @param userId    identifier of the user.
+   * @param type      of the relationships to use, or {@code null} for any type.
+   * @param minWeight minimal weight, inclusive, of the relationships to use or
+   *                  {@code null} to accept any weight.
+   *
+   * @return the ego network with the {@code users} and the
+   *         {@code relationships} between them.
+   */
+  public JsonObject egoNetwork(final String userId, final String type, final Double minWeight) {
+
+    final var users = new JsonArray();
+    final var relationships = new JsonArray();
+    final var ego = new JsonObject().put("appId", this.appId).put("userId", userId).put("users", users)
+        .put("relationships", relationships);
+    final var user = this.indexOfUser(userId);
+    final var typeIndex = this.filterType(type);
+    if (user > -1 && typeIndex != UNDEFINED_TYPE) {
+
+      final var members = new LinkedHashSet<Integer>();
+      members.add(user);
+      for (var i = 0; i < this.degrees[user]; i++) {
+
+        if (this.accept(user, i, typeIndex, minWeight)) {
+
+          members.add(this.targets[user][i]);
+        }
+      }
+
+      for (final int member : members) {
+
+        users.add(this.users[member]);
+        for (var i = 0; i < this.degrees[member]; i++) {
+
+          if (members.contains(this.targets[member][i]) && this.accept(member, i, typeIndex, minWeight)) {
+
+            relationships.add(this.toRelationship(member, i));
+          }
+        }
+      }
+    }
+    return ego;
+
+  }
+
+  /**
+   * Obtain the users that can be reached from an user following at most the
+   * specified number of relationships.
+   *
+   * @param userId    identifier of the user.
+   * @param hops      maximum number of relationships to follow.
+   * @param type      of the relationships to follow, or {@code null} for any
+   *                  type.
+   * @param minWeight minimal weight, inclusive, of the relationships to follow
+   *                  or {@code null} to accept any weight.
+   * @param limit     maximum number of users to return.
+   *
+   * @return the neighbourhood with the reached {@code users} and the minimum
+   *         number of relationships to follow to reach them.
+   */
+  public JsonObject neighbourhood(final String userId, final int hops, final String type, final Double minWeight,
+      final int limit) {
+
+    final var users = new JsonArray();
+    final var neighbourhood = new JsonObject().put("appId", this.appId).put("userId", userId).put("hops", hops)
+        .put("users", users);
+    final var user = this.indexOfUser(userId);
+    final var typeIndex = this.filterType(type);
+    if (user > -1 && typeIndex != UNDEFINED_TYPE) {
+
+      final var distances = new HashMap<Integer, Integer>();
+      distances.put(user, 0);
+      final var pending = new ArrayDeque<Integer>();
+      pending.add(user);
+      while (!pending.isEmpty() && users.size() < limit) {
+
+        final int source = pending.poll();
+        final int distance = distances.get(source);
+        if (distance < hops) {
+
+          for (var i = 0; i < this.degrees[source] && users.size() < limit; i++) {
+
+            final var target = this.targets[source][i];
+            if (!distances.containsKey(target) && this.accept(source, i, typeIndex, minWeight)) {
+
+              distances.put(target, distance + 1);
+              pending.add(target);
+              users.add(new JsonObject().put("userId", this.users[target]).put("distance", distance + 1));
+            }
+          }
+        }
+      }
+    }
+    return neighbourhood;
+
+  }
+
+  /**
+   * Obtain the relationships of an user with the highest weight.
+   *
+   * @param userId    identifier of the user.
+   * @param type      of the relationships to return, or {@code null} for any
+   *                  type.
+   * @param minWeight minimal weight, inclusive, of the relationships to return
+   *                  or {@code null} to accept any weight.
+   * @param limit     maximum number of relationships to return.
+   *
+   * @return the {@code relationships} of the user sorted by descending weight.
+   */
+  public JsonObject topNeighbours(final String userId, final String type, final Double minWeight, final int limit) {
+
+    final var relationships = new JsonArray();
+    final var top = new JsonObject().put("appId", this.appId).put("userId", userId).put("relationships",
+        relationships);
+    final var user = this.indexOfUser(userId);
+    final var typeIndex = this.filterType(type);
+    if (user > -1 && typeIndex != UNDEFINED_TYPE) {
+
+      final var positions = new ArrayList<Integer>();
+      for (var i = 0; i < this.degrees[user]; i++) {
+
+        if (this.accept(user, i, typeIndex, minWeight)) {
+
+          positions.add(i);
+        }
+      }
+      final var userWeights = this.weights[user];
+      positions.sort((a, b) -> Double.compare(userWeights[b], userWeights[a]));
+      final var max = Math.min(limit, positions.size());
+      for (var i = 0; i < max; i++) {
+
+        relationships.add(this.toRelationship(user, positions.get(i)));
+      }
+    }
+    return top;
+
+  }
+
+}
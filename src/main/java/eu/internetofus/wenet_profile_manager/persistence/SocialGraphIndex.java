@@ -0,0 +1,477 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.tinylog.Logger;
+
+/**
+ * The index that maintains in memory the relationships of each application.
+ * The relationships of an application are loaded from the database the first
+ * time that they are required, and after that the index is updated each time
+ * that a relationship is stored or removed. When the loaded graphs have more
+ * relationships than the configured maximum, the least recently used graphs
+ * are released, and they are loaded again when they are required.
+ *
+ * Each instance of the component has its own index, thus the applications
+ * whose relationships are modified are published on the event bus, and the
+ * other instances release its graphs of these applications. The components
+ * that modify the relationships without the {@link RelationshipsRepositoryImpl}
+ * have to call {@link #publishChanged(Vertx, Collection)} after the
+ * modification.
+ *
+ * All the methods have to be called from the context of the repository that
+ * uses the index.
+ *
+ * @see SocialGraph
+ * @see RelationshipsRepositoryImpl
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SocialGraphIndex {
+
+  /**
+   * The address where the applications whose relationships have been modified
+   * are published.
+   */
+  public static final String CHANGES_ADDRESS = "wenet_profile_manager.persistence.relationships.graphs";
+
+  /**
+   * The default maximum number of relationships to maintain in memory.
+   */
+  public static final int DEFAULT_MAX_RELATIONSHIPS = 1000000;
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The identifier of this index, used to ignore the changes that it has
+   * published.
+   */
+  protected String origin = UUID.randomUUID().toString();
+
+  /**
+   * The maximum number of relationships to maintain in memory.
+   */
+  protected int maxRelationships;
+
+  /**
+   * The applications whose changes have to be published.
+   */
+  protected Set<String> pendingChanges = new LinkedHashSet<>();
+
+  /**
+   * The pool of database connections.
+   */
+  protected MongoClient pool;
+
+  /**
+   * The name of the collection with the relationships.
+   */
+  protected String collection;
+
+  /**
+   * The graph of each application in access order, so the first one is the
+   * least recently used.
+   */
+  protected LinkedHashMap<String, SocialGraph> graphs = new LinkedHashMap<>(16, 0.75f, true);
+
+  /**
+   * The applications whose graph is loading.
+   */
+  protected Map<String, Loading> loadings = new HashMap<>();
+
+  /**
+   * The information of a graph that is loading.
+   */
+  protected static class Loading {
+
+    /**
+     * The promise to inform when the graph is loaded.
+     */
+    protected Promise<SocialGraph> promise = Promise.promise();
+
+    /**
+     * The identifiers of the relationships that have been modified while the
+     * graph is loading.
+     */
+    protected Set<String> relationships = new HashSet<>();
+
+    /**
+     * The identifiers of the users that have been removed while the graph is
+     * loading.
+     */
+    protected Set<String> users = new HashSet<>();
+
+  }
+
+  /**
+   * Create the index.
+   *
+   * @param vertx            event bus to use.
+   * @param pool             of database connections.
+   * @param collection       name of the collection with the relationships.
+   * @param maxRelationships maximum number of relationships to maintain in
+   *                         memory.
+   */
+  public SocialGraphIndex(final Vertx vertx, final MongoClient pool, final String collection,
+      final int maxRelationships) {
+
+    this.vertx = vertx;
+    this.pool = pool;
+    this.collection = collection;
+    this.maxRelationships = maxRelationships;
+
+  }
+
+  /**
+   * Create an index with the parameters defined on a configuration.
+   *
+   * @param vertx      event bus to use.
+   * @param pool       of database connections.
+   * @param collection name of the collection with the relationships.
+   * @param conf       configuration of the profile manager.
+   *
+   * @return the index defined on the configuration.
+   */
+  public static SocialGraphIndex create(final Vertx vertx, final MongoClient pool, final String collection,
+      final JsonObject conf) {
+
+    final var maxRelationships = Integer
+        .parseInt(String.valueOf(conf.getValue("socialGraphMaxRelationships", DEFAULT_MAX_RELATIONSHIPS)));
+    return new SocialGraphIndex(vertx, pool, collection, maxRelationships);
+
+  }
+
+  /**
+   * Start to listen for the changes published by the other instances.
+   *
+   * @return this index.
+   */
+  public SocialGraphIndex start() {
+
+    this.vertx.eventBus().<JsonObject>consumer(CHANGES_ADDRESS, message -> {
+
+      final var body = message.body();
+      if (!this.origin.equals(body.getString("origin"))) {
+
+        final var appIds = body.getJsonArray("appIds");
+        if (appIds == null) {
+
+          this.clear();
+
+        } else {
+
+          for (final var appId : appIds) {
+
+            this.release(String.valueOf(appId));
+          }
+        }
+      }
+
+    });
+    return this;
+
+  }
+
+  /**
+   * Publish that the relationships of some applications have been modified,
+   * thus the instances that have its graphs in memory release them.
+   *
+   * @param vertx  event bus to use.
+   * @param appIds identifiers of the modified applications, or {@code null} if
+   *               any application can be modified.
+   */
+  public static void publishChanged(final Vertx vertx, final Collection<String> appIds) {
+
+    final var changes = new JsonObject();
+    if (appIds != null) {
+
+      changes.put("appIds", new JsonArray(new ArrayList<>(appIds)));
+    }
+    vertx.eventBus().publish(CHANGES_ADDRESS, changes);
+
+  }
+
+  /**
+   * Publish to the other instances that the relationships of an application
+   * have been modified. The changes done while this context is running are
+   * published with only one message.
+   *
+   * @param appId identifier of the modified application, or {@code null} if
+   *              any application can be modified.
+   */
+  protected void changed(final String appId) {
+
+    if (this.pendingChanges.isEmpty()) {
+
+      this.vertx.runOnContext(any -> {
+
+        final var changes = new JsonObject().put("origin", this.origin);
+        if (!this.pendingChanges.contains(null)) {
+
+          changes.put("appIds", new JsonArray(new ArrayList<>(this.pendingChanges)));
+        }
+        this.pendingChanges.clear();
+        this.vertx.eventBus().publish(CHANGES_ADDRESS, changes);
+
+      });
+    }
+    this.pendingChanges.add(appId);
+
+  }
+
+  /**
+   * Remove the graph of an application, so it will be loaded again when it is
+   * required.
+   *
+   * @param appId identifier of the application.
+   */
+  protected void release(final String appId) {
+
+    this.graphs.remove(appId);
+    this.loadings.remove(appId);
+
+  }
+
+  /**
+   * Release the least recently used graphs while the graphs in memory have more
+   * relationships than the maximum. The graphs that are loading and the most
+   * recently used graph are never released.
+   */
+  protected void releaseLeastRecentlyUsed() {
+
+    var total = 0L;
+    for (final var graph : this.graphs.values()) {
+
+      total += graph.size();
+    }
+    final var iterator = this.graphs.entrySet().iterator();
+    while (total > this.maxRelationships && this.graphs.size() > 1 && iterator.hasNext()) {
+
+      final var entry = iterator.next();
+      if (!this.loadings.containsKey(entry.getKey())) {
+
+        total -= entry.getValue().size();
+        iterator.remove();
+        Logger.trace("Released the social graph of {}", entry.getKey());
+      }
+    }
+
+  }
+
+  /**
+   * Check if the index does not have any graph.
+   *
+   * @return {@code true} if any graph is loaded or loading.
+   */
+  public boolean isEmpty() {
+
+    return this.graphs.isEmpty();
+  }
+
+  /**
+   * Obtain the graph of an application, loading it if it is necessary.
+   *
+   * @param appId identifier of the application.
+   *
+   * @return the future with the graph of the application.
+   */
+  public Future<SocialGraph> graph(final String appId) {
+
+    final var loading = this.loadings.get(appId);
+    if (loading != null) {
+
+      return loading.promise.future();
+    }
+
+    final var graph = this.graphs.get(appId);
+    if (graph != null) {
+
+      return Future.succeededFuture(graph);
+    }
+
+    return this.load(appId);
+
+  }
+
+  /**
+   * Load the graph of an application.
+   *
+   * @param appId identifier of the application.
+   *
+   * @return the future with the loaded graph.
+   */
+  protected Future<SocialGraph> load(final String appId) {
+
+    final var graph = new SocialGraph(appId);
+    final var loading = new Loading();
+    this.graphs.put(appId, graph);
+    this.loadings.put(appId, loading);
+    final var options = new FindOptions().setFields(new JsonObject().put("_id", false).put("appId", true)
+        .put("sourceId", true).put("targetId", true).put("type", true).put("weight", true));
+    final var stream = this.pool.findBatchWithOptions(this.collection, new JsonObject().put("appId", appId), options);
+    stream.handler(relationship -> {
+
+      if (!loading.relationships.contains(RelationshipsRepository.createSocialNetworkRelationshipId(relationship))
+          && !loading.users.contains(relationship.getString("sourceId"))
+          && !loading.users.contains(relationship.getString("targetId"))) {
+
+        this.put(graph, relationship);
+      }
+
+    }).exceptionHandler(error -> {
+
+      Logger.trace(error, "Cannot load the social graph of {}", appId);
+      if (this.loadings.get(appId) == loading) {
+
+        this.loadings.remove(appId);
+        this.graphs.remove(appId);
+      }
+      loading.promise.tryFail(error);
+
+    }).endHandler(any -> {
+
+      if (this.loadings.get(appId) == loading) {
+
+        this.loadings.remove(appId);
+      }
+      Logger.trace("Loaded the social graph of {} with {} relationships", appId, graph.size());
+      loading.promise.tryComplete(graph);
+      this.releaseLeastRecentlyUsed();
+
+    });
+
+    return loading.promise.future();
+
+  }
+
+  /**
+   * Add or update a relationship into a graph.
+   *
+   * @param graph        to modify.
+   * @param relationship to add or update.
+   */
+  protected void put(final SocialGraph graph, final JsonObject relationship) {
+
+    final var weight = relationship.getValue("weight");
+    if (weight instanceof Number) {
+
+      graph.put(relationship.getString("sourceId"), relationship.getString("targetId"),
+          relationship.getString("type"), ((Number) weight).doubleValue());
+    }
+
+  }
+
+  /**
+   * Called when a relationship has been added or updated.
+   *
+   * @param relationship that has been stored.
+   */
+  public void put(final JsonObject relationship) {
+
+    final var appId = relationship.getString("appId");
+    this.changed(appId);
+    final var graph = this.graphs.get(appId);
+    if (graph != null) {
+
+      final var loading = this.loadings.get(appId);
+      if (loading != null) {
+
+        loading.relationships.add(RelationshipsRepository.createSocialNetworkRelationshipId(relationship));
+      }
+      this.put(graph, relationship);
+      this.releaseLeastRecentlyUsed();
+    }
+
+  }
+
+  /**
+   * Called when a relationship has been removed.
+   *
+   * @param relationship that has been removed.
+   */
+  public void remove(final JsonObject relationship) {
+
+    final var appId = relationship.getString("appId");
+    this.changed(appId);
+    final var graph = this.graphs.get(appId);
+    if (graph != null) {
+
+      final var loading = this.loadings.get(appId);
+      if (loading != null) {
+
+        loading.relationships.add(RelationshipsRepository.createSocialNetworkRelationshipId(relationship));
+      }
+      graph.remove(relationship.getString("sourceId"), relationship.getString("targetId"),
+          relationship.getString("type"));
+    }
+
+  }
+
+  /**
+   * Called when all the relationships of an user has been removed.
+   *
+   * @param userId identifier of the user.
+   */
+  public void removeUser(final String userId) {
+
+    this.changed(null);
+    for (final var loading : this.loadings.values()) {
+
+      loading.users.add(userId);
+    }
+    for (final var graph : this.graphs.values()) {
+
+      graph.removeUser(userId);
+    }
+
+  }
+
+  /**
+   * Remove all the graphs, so they will be loaded again when they are required.
+   */
+  public void clear() {
+
+    this.graphs.clear();
+    this.loadings.clear();
+
+  }
+
+}
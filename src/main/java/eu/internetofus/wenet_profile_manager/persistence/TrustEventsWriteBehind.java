@@ -0,0 +1,272 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.tinylog.Logger;
+
+/**
+ * The buffer used to coalesce the trust events that have to be stored. The
+ * events are accumulated until the delay has passed since the first pending
+ * event or the maximum number of events is reached, and after that all of them
+ * are stored at once. Each event is reported as stored only when the batch
+ * where it is has been written.
+ *
+ * All the methods have to be called from the context of the repository that
+ * uses the buffer.
+ *
+ * @see TrustsRepositoryImpl
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TrustEventsWriteBehind {
+
+  /**
+   * The default maximum number of events to accumulate before store them.
+   */
+  public static final int DEFAULT_MAX_EVENTS = 100;
+
+  /**
+   * The event bus to use.
+   */
+  protected Vertx vertx;
+
+  /**
+   * The maximum time, in milliseconds, that an event can wait before to be
+   * stored.
+   */
+  protected long delay;
+
+  /**
+   * The maximum number of events to accumulate before store them.
+   */
+  protected int maxEvents;
+
+  /**
+   * The function to store a batch of events. It has to return an array with the
+   * same size that the events, and on each position the stored event or
+   * {@code null} if the event has not been stored.
+   */
+  protected Function<JsonArray, Future<JsonArray>> writer;
+
+  /**
+   * The events that are waiting to be stored.
+   */
+  protected List<PendingEvent> pending = new ArrayList<>();
+
+  /**
+   * The identifier of the timer that will flush the pending events, or
+   * {@code -1} if it is not defined.
+   */
+  protected long timerId = -1;
+
+  /**
+   * The number of batches that are being stored.
+   */
+  protected int inFlight;
+
+  /**
+   * The number of flushed batches.
+   */
+  protected long flushes;
+
+  /**
+   * The number of flushed events.
+   */
+  protected long flushedEvents;
+
+  /**
+   * The time, in milliseconds, spent by the last flush.
+   */
+  protected long lastFlushLatency;
+
+  /**
+   * The maximum time, in milliseconds, spent by a flush.
+   */
+  protected long maxFlushLatency;
+
+  /**
+   * The total time, in milliseconds, spent by all the flushes.
+   */
+  protected long totalFlushLatency;
+
+  /**
+   * An event that is waiting to be stored.
+   */
+  protected static class PendingEvent {
+
+    /**
+     * The event to store.
+     */
+    public JsonObject event;
+
+    /**
+     * The promise to inform when the event is stored.
+     */
+    public Promise<JsonObject> promise;
+
+  }
+
+  /**
+   * Create the buffer.
+   *
+   * @param vertx     event bus to use.
+   * @param delay     maximum time, in milliseconds, that an event can wait before
+   *                  to be stored.
+   * @param maxEvents maximum number of events to accumulate before store them.
+   * @param writer    function to store a batch of events.
+   */
+  public TrustEventsWriteBehind(final Vertx vertx, final long delay, final int maxEvents,
+      final Function<JsonArray, Future<JsonArray>> writer) {
+
+    this.vertx = vertx;
+    this.delay = Math.max(1, delay);
+    this.maxEvents = Math.max(1, maxEvents);
+    this.writer = writer;
+
+  }
+
+  /**
+   * Add an event to store.
+   *
+   * @param event to store.
+   *
+   * @return the future stored event.
+   */
+  public Future<JsonObject> add(final JsonObject event) {
+
+    final var pendingEvent = new PendingEvent();
+    pendingEvent.event = event;
+    pendingEvent.promise = Promise.promise();
+    this.pending.add(pendingEvent);
+    if (this.pending.size() >= this.maxEvents) {
+
+      this.flush();
+
+    } else if (this.timerId == -1) {
+
+      this.timerId = this.vertx.setTimer(this.delay, id -> {
+
+        this.timerId = -1;
+        this.flush();
+      });
+    }
+    return pendingEvent.promise.future();
+
+  }
+
+  /**
+   * Store all the pending events.
+   *
+   * @return the future that inform when the pending events have been written.
+   */
+  public Future<Void> flush() {
+
+    if (this.timerId != -1) {
+
+      this.vertx.cancelTimer(this.timerId);
+      this.timerId = -1;
+    }
+
+    if (this.pending.isEmpty()) {
+
+      return Future.succeededFuture();
+
+    } else {
+
+      final var batch = this.pending;
+      this.pending = new ArrayList<>();
+      final var events = new JsonArray();
+      for (final var pendingEvent : batch) {
+
+        events.add(pendingEvent.event);
+      }
+      this.inFlight++;
+      final var start = System.nanoTime();
+      return this.writer.apply(events).onComplete(write -> {
+
+        this.inFlight--;
+        final var latency = (System.nanoTime() - start) / 1000000l;
+        this.flushes++;
+        this.flushedEvents += batch.size();
+        this.lastFlushLatency = latency;
+        this.maxFlushLatency = Math.max(this.maxFlushLatency, latency);
+        this.totalFlushLatency += latency;
+        Logger.trace("Flushed {} trust events in {}ms", batch.size(), latency);
+
+        for (var i = 0; i < batch.size(); i++) {
+
+          final var promise = batch.get(i).promise;
+          if (write.failed()) {
+
+            promise.fail(write.cause());
+
+          } else {
+
+            final var stored = write.result().getJsonObject(i);
+            if (stored == null) {
+
+              promise.fail("Cannot store the trust event.");
+
+            } else {
+
+              promise.complete(stored);
+            }
+          }
+        }
+
+      }).mapEmpty();
+    }
+
+  }
+
+  /**
+   * Obtain the status of the buffer.
+   *
+   * @return the number of pending and flushing events and the latencies of the
+   *         flushes.
+   */
+  public JsonObject getStatus() {
+
+    final var status = new JsonObject().put("enabled", true).put("delay", this.delay).put("maxEvents", this.maxEvents)
+        .put("queueDepth", this.pending.size()).put("inFlight", this.inFlight).put("flushes", this.flushes)
+        .put("flushedEvents", this.flushedEvents).put("lastFlushLatency", this.lastFlushLatency)
+        .put("maxFlushLatency", this.maxFlushLatency);
+    if (this.flushes > 0) {
+
+      status.put("averageFlushLatency", this.totalFlushLatency / this.flushes);
+
+    } else {
+
+      status.put("averageFlushLatency", 0l);
+    }
+    return status;
+
+  }
+
+}
@@ -0,0 +1,427 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import eu.internetofus.common.components.profile_manager.TrustAggregator;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.AggregateOptions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The component used to maintain the materialized state of the trust events
+ * between two users. The state is identified by the source, the target and the
+ * application of the events, or without application to aggregate the events of
+ * all the applications, and it contains the number of events, the sum, the
+ * minimum and maximum of the ratings, the last ratings and a sketch with the
+ * frequency of each rating. This state allows to calculate the trust without
+ * scanning the events when the query only filters by the source, the target
+ * and the application.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TrustStates {
+
+  /**
+   * The maximum number of different ratings to maintain on the sketch. If there
+   * are more different ratings the median is calculated over the events.
+   */
+  public static final int MAX_SKETCH_BINS = 256;
+
+  /**
+   * The fields that a query can have to be calculated with a state.
+   */
+  protected static final Set<String> STATE_QUERY_FIELDS = Set.of("sourceId", "targetId", "appId");
+
+  /**
+   * To avoid to create instances of this class.
+   */
+  private TrustStates() {
+
+  }
+
+  /**
+   * Create the identifier of a state.
+   *
+   * @param sourceId identifier of the user that has report the events.
+   * @param targetId identifier of the user that has been rated.
+   * @param appId    identifier of the application of the events, or {@code null}
+   *                 to aggregate the events of all the applications.
+   *
+   * @return the identifier of the state.
+   */
+  public static JsonObject createStateId(final String sourceId, final String targetId, final String appId) {
+
+    return new JsonObject().put("sourceId", sourceId).put("targetId", targetId).put("appId", appId);
+
+  }
+
+  /**
+   * Obtain the identifier of the state that can be used to calculate the trust
+   * of the events that match a query.
+   *
+   * @param query for the events.
+   *
+   * @return the identifier of the state that can be used to calculate the trust,
+   *         or {@code null} if the query is not an exact match of a source, a
+   *         target and optionally an application.
+   */
+  public static JsonObject createStateId(final JsonObject query) {
+
+    if (query == null || !STATE_QUERY_FIELDS.containsAll(query.fieldNames())) {
+
+      return null;
+
+    } else {
+
+      final var sourceId = query.getValue("sourceId");
+      final var targetId = query.getValue("targetId");
+      final var appId = query.getValue("appId");
+      if (sourceId instanceof String && targetId instanceof String
+          && (appId == null || appId instanceof String)) {
+
+        return createStateId((String) sourceId, (String) targetId, (String) appId);
+
+      } else {
+
+        return null;
+      }
+    }
+
+  }
+
+  /**
+   * Create the query to obtain the events that are aggregated on a state.
+   *
+   * @param id identifier of the state.
+   *
+   * @return the query to match the events of the state.
+   */
+  public static JsonObject createEventsQuery(final JsonObject id) {
+
+    final var query = new JsonObject().put("sourceId", id.getString("sourceId")).put("targetId",
+        id.getString("targetId"));
+    final var appId = id.getString("appId");
+    if (appId != null) {
+
+      query.put("appId", appId);
+    }
+    return query;
+
+  }
+
+  /**
+   * Obtain the key used on the sketch to count a rating.
+   *
+   * @param rating to obtain the key.
+   *
+   * @return the key of the rating.
+   */
+  public static String toSketchKey(final double rating) {
+
+    return Double.toString(rating).replace('.', '_');
+
+  }
+
+  /**
+   * Obtain the rating associated to a sketch key.
+   *
+   * @param key of the sketch.
+   *
+   * @return the rating of the key.
+   */
+  public static double fromSketchKey(final String key) {
+
+    return Double.parseDouble(key.replace('_', '.'));
+
+  }
+
+  /**
+   * Create the update to add some ratings into a state.
+   *
+   * @param ratings    to add.
+   * @param n          maximum number of last ratings to maintain.
+   * @param withSketch is {@code true} if the ratings have to be added into the
+   *                   sketch.
+   *
+   * @return the update to add the ratings.
+   */
+  public static JsonObject createAddRatingsUpdate(final List<Double> ratings, final int n,
+      final boolean withSketch) {
+
+    var sum = 0d;
+    var min = Double.MAX_VALUE;
+    var max = -Double.MAX_VALUE;
+    final var sketch = new JsonObject();
+    for (final var rating : ratings) {
+
+      sum += rating;
+      min = Math.min(min, rating);
+      max = Math.max(max, rating);
+      final var key = "sketch." + toSketchKey(rating);
+      sketch.put(key, sketch.getLong(key, 0l) + 1);
+    }
+    final var inc = new JsonObject().put("count", ratings.size()).put("sum", sum).put("version", 1);
+    if (withSketch) {
+
+      inc.mergeIn(sketch);
+    }
+    return new JsonObject().put("$inc", inc).put("$min", new JsonObject().put("min", min))
+        .put("$max", new JsonObject().put("max", max)).put("$push", new JsonObject().put("ring",
+            new JsonObject().put("$each", new JsonArray(new ArrayList<>(ratings))).put("$slice", -Math.max(1, n))));
+
+  }
+
+  /**
+   * Create the update to mark that the sketch of a state has too many different
+   * ratings.
+   *
+   * @return the update to discard the sketch.
+   */
+  public static JsonObject createSketchOverflowUpdate() {
+
+    return new JsonObject().put("$unset", new JsonObject().put("sketch", "")).put("$set",
+        new JsonObject().put("sketchOverflow", true));
+
+  }
+
+  /**
+   * Create the update to mark a state as stale, thus it can not be used until it
+   * is rebuilt from the events.
+   *
+   * @return the update to mark the state as stale.
+   */
+  public static JsonObject createStaleUpdate() {
+
+    return new JsonObject().put("$set", new JsonObject().put("stale", true)).put("$inc",
+        new JsonObject().put("version", 1));
+
+  }
+
+  /**
+   * Create the command to aggregate the events necessaries to rebuild a state.
+   *
+   * @param collection where are the events.
+   * @param query      to match the events of the state.
+   * @param n          maximum number of last ratings to maintain.
+   *
+   * @return the aggregate command to obtain the data of the state.
+   */
+  public static JsonObject createRebuildCommand(final String collection, final JsonObject query, final int n) {
+
+    final var stats = new JsonArray().add(new JsonObject().put("$group",
+        new JsonObject().putNull("_id").put("count", new JsonObject().put("$sum", 1))
+            .put("sum", new JsonObject().put("$sum", "$rating")).put("min", new JsonObject().put("$min", "$rating"))
+            .put("max", new JsonObject().put("$max", "$rating"))));
+    final var ring = new JsonArray().add(new JsonObject().put("$sort", new JsonObject().put("reportTime", -1)))
+        .add(new JsonObject().put("$limit", Math.max(1, n)))
+        .add(new JsonObject().put("$project", new JsonObject().put("_id", 0).put("rating", 1)));
+    final var sketch = new JsonArray()
+        .add(new JsonObject().put("$group",
+            new JsonObject().put("_id", "$rating").put("count", new JsonObject().put("$sum", 1))))
+        .add(new JsonObject().put("$limit", MAX_SKETCH_BINS + 1));
+    final var pipeline = new JsonArray();
+    pipeline.add(new JsonObject().put("$match", query));
+    pipeline.add(new JsonObject().put("$facet",
+        new JsonObject().put("stats", stats).put("ring", ring).put("sketch", sketch)));
+    return new JsonObject().put("aggregate", collection).put("pipeline", pipeline).put("cursor",
+        new JsonObject().put("batchSize", AggregateOptions.DEFAULT_BATCH_SIZE));
+
+  }
+
+  /**
+   * Create a state from the result of the rebuild command.
+   *
+   * @param id      identifier of the state.
+   * @param version of the state.
+   * @param result  of the rebuild command.
+   *
+   * @return the state of the events. If no events match the state it returns an
+   *         empty state, thus the pairs without events are not rebuilt again.
+   *
+   * @see #createRebuildCommand(String, JsonObject, int)
+   */
+  public static JsonObject createStateFrom(final JsonObject id, final Object version, final JsonObject result) {
+
+    final var facets = result.getJsonObject("cursor").getJsonArray("firstBatch").getJsonObject(0);
+    final var stats = facets.getJsonArray("stats", new JsonArray());
+    if (stats.isEmpty()) {
+
+      return new JsonObject().put("_id", id).put("version", version).put("stale", false).put("count", 0L)
+          .put("sum", 0d).put("ring", new JsonArray()).put("sketch", new JsonObject());
+
+    } else {
+
+      final var values = stats.getJsonObject(0);
+      final var state = new JsonObject().put("_id", id).put("version", version).put("stale", false)
+          .put("count", values.getNumber("count").longValue()).put("sum", values.getNumber("sum").doubleValue())
+          .put("min", values.getNumber("min").doubleValue()).put("max", values.getNumber("max").doubleValue());
+
+      final var lastRatings = facets.getJsonArray("ring", new JsonArray());
+      final var ring = new JsonArray();
+      for (var i = lastRatings.size() - 1; i >= 0; i--) {
+
+        ring.add(lastRatings.getJsonObject(i).getNumber("rating").doubleValue());
+      }
+      state.put("ring", ring);
+
+      final var bins = facets.getJsonArray("sketch", new JsonArray());
+      if (bins.size() > MAX_SKETCH_BINS) {
+
+        state.put("sketchOverflow", true);
+
+      } else {
+
+        final var sketch = new JsonObject();
+        for (var i = 0; i < bins.size(); i++) {
+
+          final var bin = bins.getJsonObject(i);
+          sketch.put(toSketchKey(bin.getNumber("_id").doubleValue()), bin.getNumber("count").longValue());
+        }
+        state.put("sketch", sketch);
+      }
+      return state;
+    }
+
+  }
+
+  /**
+   * Check if a state is usable and no events match it.
+   *
+   * @param state to check.
+   *
+   * @return {@code true} if the state is not stale and does not have any rating.
+   */
+  public static boolean isEmpty(final JsonObject state) {
+
+    return state != null && !state.getBoolean("stale", false) && state.getNumber("count", 0).longValue() <= 0;
+
+  }
+
+  /**
+   * Calculate the trust from a state.
+   *
+   * @param aggregator to use.
+   * @param state      to calculate the trust.
+   *
+   * @return the calculated trust, or {@code null} if the trust can not be
+   *         calculated from the state.
+   */
+  public static Double calculateTrust(final TrustAggregator aggregator, final JsonObject state) {
+
+    if (aggregator == null || state == null || state.getBoolean("stale", false)
+        || state.getNumber("count", 0).longValue() <= 0) {
+
+      return null;
+
+    } else {
+
+      switch (aggregator) {
+      case MAXIMUM:
+        return state.getDouble("max");
+      case MINIMUM:
+        return state.getDouble("min");
+      case AVERAGE:
+        return state.getDouble("sum") / state.getNumber("count").longValue();
+      case MEDIAN:
+        return calculateMedian(state);
+      case RECENCY_BASED:
+        return calculateAverage(state.getJsonArray("ring"));
+      default:
+        return null;
+      }
+    }
+
+  }
+
+  /**
+   * Calculate the median of the ratings of a state. As the calculus over the
+   * events, it is the rating at the position {@code round(total/2 - 1)} of the
+   * sorted ratings.
+   *
+   * @param state to calculate the median.
+   *
+   * @return the median of the state, or {@code null} if the sketch of the state
+   *         is not defined.
+   */
+  protected static Double calculateMedian(final JsonObject state) {
+
+    final var sketch = state.getJsonObject("sketch");
+    if (sketch == null || sketch.isEmpty() || state.getBoolean("sketchOverflow", false)) {
+
+      return null;
+
+    } else {
+
+      final var bins = new ArrayList<Map.Entry<Double, Long>>();
+      var total = 0l;
+      for (final var key : sketch.fieldNames()) {
+
+        final var count = sketch.getNumber(key).longValue();
+        bins.add(Map.entry(fromSketchKey(key), count));
+        total += count;
+      }
+      bins.sort(Map.Entry.comparingByKey());
+      final var position = Math.round(total / 2.0 - 1);
+      var accumulated = 0l;
+      for (final var bin : bins) {
+
+        accumulated += bin.getValue();
+        if (accumulated > position) {
+
+          return bin.getKey();
+        }
+      }
+      return null;
+    }
+
+  }
+
+  /**
+   * Calculate the average of some ratings.
+   *
+   * @param ratings to calculate the average.
+   *
+   * @return the average of the ratings, or {@code null} if not ratings are
+   *         defined.
+   */
+  protected static Double calculateAverage(final JsonArray ratings) {
+
+    if (ratings == null || ratings.isEmpty()) {
+
+      return null;
+
+    } else {
+
+      var sum = 0d;
+      for (var i = 0; i < ratings.size(); i++) {
+
+        sum += ratings.getNumber(i).doubleValue();
+      }
+      return sum / ratings.size();
+    }
+
+  }
+
+}
@@ -31,6 +31,7 @@ import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.MongoClient;
 import io.vertx.serviceproxy.ServiceBinder;
@@ -59,7 +60,15 @@ public interface TrustsRepository {
    */
   static TrustsRepository createProxy(final Vertx vertx) {
 
-    return new TrustsRepositoryVertxEBProxy(vertx, TrustsRepository.ADDRESS);
+    final var local = LocalServices.lookup(vertx, TrustsRepository.ADDRESS, TrustsRepository.class);
+    if (local != null) {
+
+      return local;
+
+    } else {
+
+      return new TrustsRepositoryVertxEBProxy(vertx, TrustsRepository.ADDRESS);
+    }
   }
 
   /**
@@ -78,7 +87,24 @@ public interface TrustsRepository {
       final boolean background) {
 
     final var repository = new TrustsRepositoryImpl(conf, vertx, pool, version);
+    return register(vertx, repository, background);
+
+  }
+
+  /**
+   * Register a repository as this service.
+   *
+   * @param vertx      that contains the event bus to use.
+   * @param repository to register.
+   * @param background is {@code true} if has to migrate the data base in
+   *                   background
+   *
+   * @return the future that inform when the repository will be registered or not.
+   */
+  static Future<Void> register(final Vertx vertx, final TrustsRepositoryImpl repository, final boolean background) {
+
     new ServiceBinder(vertx).setAddress(TrustsRepository.ADDRESS).register(TrustsRepository.class, repository);
+    LocalServices.register(vertx, TrustsRepository.ADDRESS, TrustsRepository.class, repository);
 
     if (background) {
 
@@ -118,6 +144,84 @@ public interface TrustsRepository {
    */
   void storeTrustEvent(JsonObject event, Handler<AsyncResult<JsonObject>> storeHandler);
 
+  /**
+   * Store some trust events at once.
+   *
+   * @param events of trust to store.
+   *
+   * @return the future with the result of store each event. The result has the
+   *         same size that the events, and on each position there is the stored
+   *         event or {@code null} if the event has not been stored.
+   */
+  @GenIgnore
+  default Future<JsonArray> storeTrustEvents(@NotNull final JsonArray events) {
+
+    final Promise<JsonArray> promise = Promise.promise();
+    this.storeTrustEvents(events, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Store some trust event documents at once. The events are stored with an
+   * unordered bulk write, thus the failure of an event does not stop to store the
+   * others.
+   *
+   * @param events       of trust to store.
+   * @param storeHandler handler to manage the result of store each event. The
+   *                     result has the same size that the events, and on each
+   *                     position there is the stored event or {@code null} if
+   *                     the event has not been stored.
+   */
+  void storeTrustEvents(JsonArray events, Handler<AsyncResult<JsonArray>> storeHandler);
+
+  /**
+   * Store the trust events that are waiting on the write-behind buffer.
+   *
+   * @return the future that inform when the pending events have been stored.
+   */
+  @GenIgnore
+  default Future<Void> flushTrustEvents() {
+
+    final Promise<Void> promise = Promise.promise();
+    this.flushTrustEvents(promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Store the trust events that are waiting on the write-behind buffer. If the
+   * buffer is not enabled it does nothing.
+   *
+   * @param flushHandler handler to inform when the pending events have been
+   *                     stored.
+   */
+  void flushTrustEvents(Handler<AsyncResult<Void>> flushHandler);
+
+  /**
+   * Obtain the status of the write-behind buffer of the trust events.
+   *
+   * @return the future with the status of the buffer.
+   */
+  @GenIgnore
+  default Future<JsonObject> retrieveTrustEventsWriteBehindStatus() {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    this.retrieveTrustEventsWriteBehindStatus(promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Obtain the status of the write-behind buffer of the trust events. The status
+   * contains if the buffer is enabled, the number of events waiting to be stored
+   * ({@code queueDepth}) and the last, maximum and average time, in
+   * milliseconds, spent to store a batch of events.
+   *
+   * @param statusHandler handler to inform of the status of the buffer.
+   */
+  void retrieveTrustEventsWriteBehindStatus(Handler<AsyncResult<JsonObject>> statusHandler);
+
   /**
    * Calculate the trust using the specified trust and the events that matches the
    * query.
@@ -194,4 +298,64 @@ public interface TrustsRepository {
 
   }
 
+  /**
+   * Delete some of the events, and after them the trust states, where the source
+   * or the target is one of the users.
+   *
+   * @param userIds       identifiers of the users.
+   * @param limit         maximum number of events to delete.
+   * @param deleteHandler handler to manage the number of deleted events. If it
+   *                      is less than the limit, there are not more events to
+   *                      delete.
+   */
+  void deleteEventsBatchForUsers(JsonArray userIds, int limit, Handler<AsyncResult<Integer>> deleteHandler);
+
+  /**
+   * Delete some of the events, and after them the trust states, where the source
+   * or the target is one of the users.
+   *
+   * @param userIds identifiers of the users.
+   * @param limit   maximum number of events to delete.
+   *
+   * @return the future with the number of deleted events. If it is less than
+   *         the limit, there are not more events to delete.
+   */
+  @GenIgnore
+  default Future<Integer> deleteEventsBatchForUsers(final JsonArray userIds, final int limit) {
+
+    final Promise<Integer> promise = Promise.promise();
+    this.deleteEventsBatchForUsers(userIds, limit, promise);
+    return promise.future();
+
+  }
+
+  /**
+   * Delete some of the events of some tasks.
+   *
+   * @param taskIds       identifiers of the tasks.
+   * @param limit         maximum number of events to delete.
+   * @param deleteHandler handler to manage the number of deleted events. If it
+   *                      is less than the limit, there are not more events to
+   *                      delete.
+   */
+  void deleteEventsBatchForTasks(JsonArray taskIds, int limit, Handler<AsyncResult<Integer>> deleteHandler);
+
+  /**
+   * Delete some of the events of some tasks.
+   *
+   * @param taskIds identifiers of the tasks.
+   * @param limit   maximum number of events to delete.
+   *
+   * @return the future with the number of deleted events. If it is less than
+   *         the limit, there are not more events to delete.
+   */
+  @GenIgnore
+  default Future<Integer> deleteEventsBatchForTasks(final JsonArray taskIds, final int limit) {
+
+    final Promise<Integer> promise = Promise.promise();
+    this.deleteEventsBatchForTasks(taskIds, limit, promise);
+    return promise.future();
+
+  }
+
 }
@@ -20,18 +20,30 @@
 
 package eu.internetofus.wenet_profile_manager.persistence;
 
+import com.mongodb.MongoBulkWriteException;
 import eu.internetofus.common.components.profile_manager.TrustAggregator;
 import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.Repository;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.AggregateOptions;
+import io.vertx.ext.mongo.BulkOperation;
+import io.vertx.ext.mongo.BulkWriteOptions;
 import io.vertx.ext.mongo.FindOptions;
 import io.vertx.ext.mongo.MongoClient;
+import io.vertx.ext.mongo.UpdateOptions;
+import io.vertx.ext.mongo.WriteOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import org.tinylog.Logger;
 
 /**
@@ -49,12 +61,31 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
    */
   public static final String TRUSTS_COLLECTION = "trusts";
 
+  /**
+   * The name of the collection that contains the materialized states of the
+   * trust events between two users.
+   *
+   * @see TrustStates
+   */
+  public static final String TRUST_STATES_COLLECTION = "trustStates";
+
   /**
    * The default value for n parameters used to
    * {@link TrustAggregator#RECENCY_BASED}.
    */
   public static final int DEFAULT_N = 5;
 
+  /**
+   * The indexes that has to be defined to the collections of the repository.
+   */
+  public static final List<RepositoryIndex> INDEXES = List.of(
+      RepositoryIndex.of(TRUSTS_COLLECTION, "sourceIdTargetIdAndReportTime",
+          new JsonObject().put("sourceId", 1).put("targetId", 1).put("reportTime", -1)),
+      RepositoryIndex.of(TRUSTS_COLLECTION, "targetId", new JsonObject().put("targetId", 1)),
+      RepositoryIndex.of(TRUSTS_COLLECTION, "taskId", new JsonObject().put("taskId", 1)).sparse(),
+      RepositoryIndex.of(TRUST_STATES_COLLECTION, "sourceId", new JsonObject().put("_id.sourceId", 1)),
+      RepositoryIndex.of(TRUST_STATES_COLLECTION, "targetId", new JsonObject().put("_id.targetId", 1)));
+
   /**
    * The n parameters to use in the {@link TrustAggregator#RECENCY_BASED}.
    *
@@ -62,6 +93,18 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
    */
   protected int n;
 
+  /**
+   * The write concern to use when store the events, or {@code null} to use the
+   * one defined on the pool.
+   */
+  protected WriteOption writeOption;
+
+  /**
+   * The buffer used to coalesce the events to store, or {@code null} if the
+   * events are stored when they are received.
+   */
+  protected TrustEventsWriteBehind writeBehind;
+
   /**
    * Create a new repository.
    *
@@ -75,6 +118,27 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
     super(vertx, pool, version);
     this.n = conf.getJsonObject("TrustAggregator", new JsonObject()).getJsonObject("RECENCY_BASED", new JsonObject())
         .getInteger("n", DEFAULT_N);
+    final var profileManager = conf.getJsonObject("profileManager", new JsonObject());
+    final var writeConcern = profileManager.getString("trustEventsWriteConcern");
+    if (writeConcern != null && !writeConcern.isBlank()) {
+
+      try {
+
+        this.writeOption = WriteOption.valueOf(writeConcern.trim().toUpperCase());
+
+      } catch (final IllegalArgumentException cause) {
+
+        Logger.error(cause, "The trust events write concern {} is not valid, so the default one is used.",
+            writeConcern);
+      }
+    }
+    final var delay = Long.parseLong(String.valueOf(profileManager.getValue("trustEventsWriteBehindDelay", 0)));
+    if (delay > 0) {
+
+      final var maxEvents = Integer.parseInt(String.valueOf(
+          profileManager.getValue("trustEventsWriteBehindMaxEvents", TrustEventsWriteBehind.DEFAULT_MAX_EVENTS)));
+      this.writeBehind = new TrustEventsWriteBehind(vertx, delay, maxEvents, this::insertTrustEvents);
+    }
 
   }
 
@@ -86,22 +150,306 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
 
     final var now = TimeManager.now();
     event.put("reportTime", now);
-    this.pool.save(TRUSTS_COLLECTION, event, store -> {
+    if (this.writeBehind != null) {
+
+      this.writeBehind.add(event).onComplete(storeHandler);
+
+    } else {
+
+      final Handler<AsyncResult<String>> saveHandler = store -> {
+
+        if (store.failed()) {
+
+          storeHandler.handle(Future.failedFuture(store.cause()));
+
+        } else {
 
-      if (store.failed()) {
+          event.remove("_id");
+          this.updateTrustStates(List.of(event)).map(event).onComplete(storeHandler);
+        }
+
+      };
+      if (this.writeOption == null) {
 
-        storeHandler.handle(Future.failedFuture(store.cause()));
+        this.pool.save(TRUSTS_COLLECTION, event, saveHandler);
 
       } else {
 
-        event.remove("_id");
-        storeHandler.handle(Future.succeededFuture(event));
+        this.pool.saveWithOptions(TRUSTS_COLLECTION, event, this.writeOption, saveHandler);
       }
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void storeTrustEvents(final JsonArray events, final Handler<AsyncResult<JsonArray>> storeHandler) {
+
+    final var now = TimeManager.now();
+    for (var i = 0; i < events.size(); i++) {
+
+      events.getJsonObject(i).put("reportTime", now);
+    }
+    this.insertTrustEvents(events).onComplete(storeHandler);
+
+  }
+
+  /**
+   * Insert some trust events with an unordered bulk write and add the stored
+   * ones into the states that aggregate them.
+   *
+   * @param events to insert.
+   *
+   * @return the future with an array with the same size that the events, and on
+   *         each position the stored event or {@code null} if the event has not
+   *         been stored.
+   */
+  protected Future<JsonArray> insertTrustEvents(final JsonArray events) {
+
+    final var operations = new ArrayList<BulkOperation>();
+    for (var i = 0; i < events.size(); i++) {
+
+      operations.add(BulkOperation.createInsert(events.getJsonObject(i)));
+    }
+
+    if (operations.isEmpty()) {
+
+      return Future.succeededFuture(new JsonArray());
+
+    } else {
+
+      final var options = new BulkWriteOptions(false);
+      if (this.writeOption != null) {
+
+        options.setWriteOption(this.writeOption);
+      }
+      final Promise<JsonArray> promise = Promise.promise();
+      this.pool.bulkWriteWithOptions(TRUSTS_COLLECTION, operations, options).onComplete(write -> {
+
+        final var failed = new HashSet<Integer>();
+        Throwable cause = null;
+        if (write.failed()) {
+
+          cause = write.cause();
+          if (cause instanceof MongoBulkWriteException) {
+
+            for (final var error : ((MongoBulkWriteException) cause).getWriteErrors()) {
+
+              failed.add(error.getIndex());
+            }
+            cause = null;
+          }
+        }
+
+        if (cause != null) {
+
+          Logger.trace(cause, "Cannot store the trust events.");
+          promise.fail(cause);
+
+        } else {
+
+          final var result = new JsonArray();
+          final var stored = new ArrayList<JsonObject>();
+          for (var i = 0; i < events.size(); i++) {
+
+            if (failed.contains(i)) {
+
+              result.addNull();
+
+            } else {
+
+              final var event = events.getJsonObject(i);
+              event.remove("_id");
+              stored.add(event);
+              result.add(event);
+            }
+          }
+          this.updateTrustStates(stored).map(result).onComplete(promise);
+        }
+
+      });
+      return promise.future();
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void flushTrustEvents(final Handler<AsyncResult<Void>> flushHandler) {
+
+    if (this.writeBehind == null) {
+
+      flushHandler.handle(Future.succeededFuture());
+
+    } else {
+
+      this.writeBehind.flush().onComplete(flushHandler);
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveTrustEventsWriteBehindStatus(final Handler<AsyncResult<JsonObject>> statusHandler) {
+
+    if (this.writeBehind == null) {
+
+      statusHandler.handle(Future.succeededFuture(new JsonObject().put("enabled", false)));
+
+    } else {
+
+      statusHandler.handle(Future.succeededFuture(this.writeBehind.getStatus()));
+    }
+
+  }
+
+  /**
+   * Update the states with some stored events. If the events can not be added
+   * into the states, these are marked as stale, thus the next calculus uses the
+   * events and rebuilds them.
+   *
+   * @param events that have been stored.
+   *
+   * @return the future that inform when the states are updated, or that fails
+   *         if the states can not be updated or marked as stale.
+   */
+  protected Future<Void> updateTrustStates(final List<JsonObject> events) {
+
+    return this.addToTrustStates(events).recover(cause -> {
+
+      Logger.warn(cause, "Cannot update the trust states, so they are marked as stale.");
+      return this.markStatesAsStale(events).onFailure(
+          error -> Logger.error(error, "Cannot mark as stale the trust states that can not be updated."));
 
     });
 
   }
 
+  /**
+   * Add some stored events into the states that aggregate them. The ratings of
+   * the events are grouped by state, thus each state is updated only once.
+   *
+   * @param events that have been stored.
+   *
+   * @return the future that inform when the states are updated.
+   */
+  protected Future<Void> addToTrustStates(final List<JsonObject> events) {
+
+    final var ratingsByState = new LinkedHashMap<JsonObject, List<Double>>();
+    for (final var event : events) {
+
+      final var sourceId = event.getString("sourceId");
+      final var targetId = event.getString("targetId");
+      final var rating = event.getDouble("rating");
+      if (sourceId != null && targetId != null && rating != null) {
+
+        ratingsByState.computeIfAbsent(TrustStates.createStateId(sourceId, targetId, null), id -> new ArrayList<>())
+            .add(rating);
+        final var appId = event.getString("appId");
+        if (appId != null) {
+
+          ratingsByState
+              .computeIfAbsent(TrustStates.createStateId(sourceId, targetId, appId), id -> new ArrayList<>())
+              .add(rating);
+        }
+      }
+    }
+
+    @SuppressWarnings("rawtypes")
+    final List<Future> updates = new ArrayList<>();
+    for (final var entry : ratingsByState.entrySet()) {
+
+      updates.add(this.addToTrustState(entry.getKey(), entry.getValue()));
+    }
+    return CompositeFuture.join(updates).mapEmpty();
+
+  }
+
+  /**
+   * Add some ratings into a state. If the state is not defined or it is stale it
+   * is rebuilt from the events.
+   *
+   * @param id      identifier of the state.
+   * @param ratings to add.
+   *
+   * @return the future that inform when the state is updated.
+   */
+  protected Future<Void> addToTrustState(final JsonObject id, final List<Double> ratings) {
+
+    final var query = new JsonObject().put("_id", id).put("stale", new JsonObject().put("$ne", true));
+    final var queryWithSketch = query.copy().put("sketchOverflow", new JsonObject().put("$ne", true));
+    final var findOptions = new FindOptions().setFields(new JsonObject().put("sketch", true));
+    final var updateOptions = new UpdateOptions().setReturningNewDocument(true);
+    return this.pool.findOneAndUpdateWithOptions(TRUST_STATES_COLLECTION, queryWithSketch,
+        TrustStates.createAddRatingsUpdate(ratings, this.n, true), findOptions, updateOptions).compose(state -> {
+
+          if (state != null) {
+
+            final var sketch = state.getJsonObject("sketch");
+            if (sketch != null && sketch.size() > TrustStates.MAX_SKETCH_BINS) {
+
+              return this.pool.updateCollection(TRUST_STATES_COLLECTION, new JsonObject().put("_id", id),
+                  TrustStates.createSketchOverflowUpdate()).mapEmpty();
+
+            } else {
+
+              return Future.succeededFuture();
+            }
+
+          } else {
+
+            return this.pool.updateCollection(TRUST_STATES_COLLECTION, query,
+                TrustStates.createAddRatingsUpdate(ratings, this.n, false)).compose(update -> {
+
+                  if (update == null || update.getDocMatched() == 0) {
+
+                    return this.rebuildTrustState(id);
+
+                  } else {
+
+                    return Future.succeededFuture();
+                  }
+                });
+          }
+        });
+
+  }
+
+  /**
+   * Rebuild a state from the events. The state is marked as stale while it is
+   * rebuilt, and it is only replaced if any other rebuild has not started in the
+   * meantime.
+   *
+   * @param id identifier of the state to rebuild.
+   *
+   * @return the future that inform when the state is rebuilt.
+   */
+  protected Future<Void> rebuildTrustState(final JsonObject id) {
+
+    final var findOptions = new FindOptions().setFields(new JsonObject().put("version", true));
+    final var updateOptions = new UpdateOptions().setUpsert(true).setReturningNewDocument(true);
+    return this.pool.findOneAndUpdateWithOptions(TRUST_STATES_COLLECTION, new JsonObject().put("_id", id),
+        TrustStates.createStaleUpdate(), findOptions, updateOptions).compose(marked -> {
+
+          final var version = marked.getValue("version");
+          final var command = TrustStates.createRebuildCommand(TRUSTS_COLLECTION, TrustStates.createEventsQuery(id),
+              this.n);
+          return this.pool.runCommand("aggregate", command).compose(result -> {
+
+            final var guard = new JsonObject().put("_id", id).put("version", version);
+            final var state = TrustStates.createStateFrom(id, version, result);
+            return this.pool.replaceDocuments(TRUST_STATES_COLLECTION, guard, state).mapEmpty();
+          });
+        });
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -109,6 +457,49 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
   public void calculateTrustBy(final TrustAggregator aggregator, final JsonObject query,
       final Handler<AsyncResult<Double>> trustHandler) {
 
+    final var id = TrustStates.createStateId(query);
+    if (id == null) {
+
+      this.calculateTrustByEvents(aggregator, query, trustHandler);
+
+    } else {
+
+      this.pool.findOne(TRUST_STATES_COLLECTION, new JsonObject().put("_id", id), null).onComplete(find -> {
+
+        final var state = find.result();
+        final var trust = TrustStates.calculateTrust(aggregator, state);
+        if (trust != null) {
+
+          trustHandler.handle(Future.succeededFuture(trust));
+
+        } else if (TrustStates.isEmpty(state)) {
+
+          trustHandler.handle(Future.failedFuture("No events match the query."));
+
+        } else {
+
+          if (find.succeeded() && (state == null || state.getBoolean("stale", false))) {
+
+            this.rebuildTrustState(id)
+                .onFailure(error -> Logger.trace(error, "Cannot rebuild the trust state {}.", id));
+          }
+          this.calculateTrustByEvents(aggregator, query, trustHandler);
+        }
+
+      });
+    }
+  }
+
+  /**
+   * Calculate the trust aggregating the events that match the query.
+   *
+   * @param aggregator   to use.
+   * @param query        that has to match the vents.
+   * @param trustHandler handler to manage the calculated trust.
+   */
+  protected void calculateTrustByEvents(final TrustAggregator aggregator, final JsonObject query,
+      final Handler<AsyncResult<Double>> trustHandler) {
+
     switch (aggregator) {
 
     case MAXIMUM:
@@ -259,7 +650,9 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
   public Future<Void> migrateDocumentsToCurrentVersions() {
 
     // No changes => only update schema information
-    return this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, TRUSTS_COLLECTION);
+    final var ledger = new MigrationLedger(this.pool, this.schemaVersion);
+    return ledger.apply("trusts.schemaVersion." + this.schemaVersion,
+        step -> this.migrateSchemaVersionOnCollectionTo(this.schemaVersion, TRUSTS_COLLECTION));
   }
 
   /**
@@ -271,7 +664,12 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
     final var fields = new JsonArray().add(new JsonObject().put("sourceId", userId))
         .add(new JsonObject().put("targetId", userId));
     final var query = new JsonObject().put("$or", fields);
-    this.deleteDocuments(TRUSTS_COLLECTION, query).onComplete(deleteHandler);
+    final var states = new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().put("_id.sourceId", userId))
+            .add(new JsonObject().put("_id.targetId", userId)));
+    this.deleteDocuments(TRUSTS_COLLECTION, query)
+        .compose(empty -> this.pool.removeDocuments(TRUST_STATES_COLLECTION, states).<Void>mapEmpty())
+        .onComplete(deleteHandler);
 
   }
 
@@ -281,7 +679,88 @@ public class TrustsRepositoryImpl extends Repository implements TrustsRepository
   @Override
   public void deleteAllEventsForTask(final String taskId, final Handler<AsyncResult<Void>> deleteHandler) {
 
-    this.deleteDocuments(TRUSTS_COLLECTION, new JsonObject().put("taskId", taskId)).onComplete(deleteHandler);
+    final var query = new JsonObject().put("taskId", taskId);
+    final var options = new FindOptions()
+        .setFields(new JsonObject().put("_id", false).put("sourceId", true).put("targetId", true).put("appId", true));
+    this.pool.findWithOptions(TRUSTS_COLLECTION, query, options).compose(
+        events -> this.deleteDocuments(TRUSTS_COLLECTION, query).compose(empty -> this.markStatesAsStale(events)))
+        .onComplete(deleteHandler);
+
+  }
+
+  /**
+   * Mark as stale the trust states affected by some removed events. The removed
+   * ratings can not be subtracted from the states, so they are rebuilt from the
+   * events the next time that they are used.
+   *
+   * @param events that have been removed.
+   *
+   * @return the future that will be completed when the states are marked.
+   */
+  protected Future<Void> markStatesAsStale(final List<JsonObject> events) {
+
+    final var ids = new LinkedHashSet<JsonObject>();
+    for (final var event : events) {
+
+      final var sourceId = event.getString("sourceId");
+      final var targetId = event.getString("targetId");
+      ids.add(TrustStates.createStateId(sourceId, targetId, null));
+      final var appId = event.getString("appId");
+      if (appId != null) {
+
+        ids.add(TrustStates.createStateId(sourceId, targetId, appId));
+      }
+    }
+
+    if (ids.isEmpty()) {
+
+      return Future.succeededFuture();
+
+    } else {
+
+      final var stale = new JsonObject().put("_id", new JsonObject().put("$in", new JsonArray(List.copyOf(ids))));
+      return this.pool.updateCollectionWithOptions(TRUST_STATES_COLLECTION, stale, TrustStates.createStaleUpdate(),
+          new UpdateOptions().setMulti(true)).<Void>mapEmpty();
+    }
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteEventsBatchForUsers(final JsonArray userIds, final int limit,
+      final Handler<AsyncResult<Integer>> deleteHandler) {
+
+    BatchDeletes.deleteBatch(this.pool, TRUSTS_COLLECTION, BatchDeletes.inAny("sourceId", "targetId", userIds), limit)
+        .compose(events -> {
+
+          if (events < limit) {
+
+            // When all the events are removed, continue with the states
+            return BatchDeletes.deleteBatch(this.pool, TRUST_STATES_COLLECTION,
+                BatchDeletes.inAny("_id.sourceId", "_id.targetId", userIds), limit - events)
+                .map(states -> events + states);
+
+          } else {
+
+            return Future.succeededFuture(events);
+          }
+
+        }).onComplete(deleteHandler);
+
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteEventsBatchForTasks(final JsonArray taskIds, final int limit,
+      final Handler<AsyncResult<Integer>> deleteHandler) {
+
+    final var fields = new JsonObject().put("sourceId", true).put("targetId", true).put("appId", true);
+    BatchDeletes.deleteBatch(this.pool, TRUSTS_COLLECTION, BatchDeletes.in("taskId", taskIds), fields, limit)
+        .compose(events -> this.markStatesAsStale(events).map(events.size())).onComplete(deleteHandler);
 
   }
 
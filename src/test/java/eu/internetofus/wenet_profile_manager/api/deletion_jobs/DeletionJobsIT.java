@@ -0,0 +1,225 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.api.deletion_jobs;
+
+import static eu.internetofus.common.vertx.HttpResponses.assertThatBodyIs;
+import static io.reactiverse.junit5.web.TestRequest.testRequest;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.profile_manager.TrustAggregator;
+import eu.internetofus.common.components.profile_manager.UserPerformanceRatingEventTest;
+import eu.internetofus.common.model.ErrorMessage;
+import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExtension;
+import eu.internetofus.wenet_profile_manager.persistence.DeletionJobsRepository;
+import eu.internetofus.wenet_profile_manager.persistence.TrustsRepository;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxTestContext;
+import javax.ws.rs.core.Response.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The integration test over the {@link DeletionJobs}.
+ *
+ * @see DeletionJobs
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(WeNetProfileManagerIntegrationExtension.class)
+public class DeletionJobsIT {
+
+  /**
+   * The maximum number of times to check if a deletion job has finished.
+   */
+  protected static final int MAX_CHECKS = 300;
+
+  /**
+   * Wait until a deletion job has finished.
+   *
+   * @param vertx  event bus to use.
+   * @param id     identifier of the job.
+   * @param checks number of times that the job can be checked yet.
+   *
+   * @return the future with the finished job.
+   */
+  protected Future<JsonObject> waitUntilFinished(final Vertx vertx, final String id, final int checks) {
+
+    return DeletionJobsRepository.createProxy(vertx).searchDeletionJob(id).compose(job -> {
+
+      final var status = job.getString("status");
+      if (DeletionJobsRepository.DONE_STATUS.equals(status) || DeletionJobsRepository.FAILED_STATUS.equals(status)) {
+
+        return Future.succeededFuture(job);
+
+      } else if (checks <= 1) {
+
+        return Future.failedFuture("The deletion job " + id + " has not finished.");
+
+      } else {
+
+        final Promise<JsonObject> promise = Promise.promise();
+        vertx.setTimer(100, any -> this.waitUntilFinished(vertx, id, checks - 1).onComplete(promise));
+        return promise.future();
+      }
+
+    });
+
+  }
+
+  /**
+   * Verify that can not create a job with a bad type.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see DeletionJobs#createDeletionJob(JsonObject,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldNotCreateJobWithBadType(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.POST, DeletionJobs.PATH).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+      final var error = assertThatBodyIs(ErrorMessage.class, res);
+      assertThat(error.code).isEqualTo("bad_type");
+      assertThat(error.message).isNotEmpty();
+
+    }).sendJson(new JsonObject().put("type", "undefined").put("ids", new JsonArray().add("1")), testContext);
+
+  }
+
+  /**
+   * Verify that can not create a job without identifiers.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see DeletionJobs#createDeletionJob(JsonObject,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldNotCreateJobWithoutIds(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.POST, DeletionJobs.PATH).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+      final var error = assertThatBodyIs(ErrorMessage.class, res);
+      assertThat(error.code).isEqualTo("bad_ids");
+      assertThat(error.message).isNotEmpty();
+
+    }).sendJson(new JsonObject().put("type", DeletionJobsRepository.USERS_TYPE).put("ids", new JsonArray()),
+        testContext);
+
+  }
+
+  /**
+   * Verify that can not get an undefined job.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see DeletionJobs#retrieveDeletionJob(String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldNotRetrieveUndefinedJob(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, DeletionJobs.PATH + "/undefined-job-identifier").expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.NOT_FOUND.getStatusCode());
+      final var error = assertThatBodyIs(ErrorMessage.class, res);
+      assertThat(error.code).isEqualTo("not_found_deletion_job");
+
+    }).send(testContext);
+
+  }
+
+  /**
+   * Verify that a job deletes the data of a task and reports its progress.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see DeletionJobs#createDeletionJob(JsonObject,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   * @see DeletionJobs#retrieveDeletionJob(String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldDeleteTaskData(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
+
+    final var event = new UserPerformanceRatingEventTest().createModelExample(1);
+    testContext.assertComplete(TrustsRepository.createProxy(vertx).storeTrustEvent(event)).onSuccess(stored -> {
+
+      final var checkpoint = testContext.checkpoint(2);
+      final var body = new JsonObject().put("type", DeletionJobsRepository.TASKS_TYPE).put("ids",
+          new JsonArray().add(event.taskId));
+      testRequest(client, HttpMethod.POST, DeletionJobs.PATH).expect(res -> testContext.verify(() -> {
+
+        assertThat(res.statusCode()).isEqualTo(Status.CREATED.getStatusCode());
+        final var job = assertThatBodyIs(DeletionJob.class, res);
+        assertThat(job.id).isNotEmpty();
+        assertThat(job.type).isEqualTo(DeletionJobsRepository.TASKS_TYPE);
+        assertThat(job.ids).containsExactly(event.taskId);
+        assertThat(job.steps).hasSize(1);
+        assertThat(job.steps.get(0).name).isEqualTo(DeletionJobsRepository.TRUSTS_STEP);
+
+        testContext.assertComplete(this.waitUntilFinished(vertx, job.id, MAX_CHECKS)).onSuccess(finished -> {
+
+          testRequest(client, HttpMethod.GET, DeletionJobs.PATH + "/" + job.id).expect(resJob -> {
+
+            assertThat(resJob.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var done = assertThatBodyIs(DeletionJob.class, resJob);
+            assertThat(done.status).isEqualTo(DeletionJobsRepository.DONE_STATUS);
+            assertThat(done.steps).hasSize(1);
+            assertThat(done.steps.get(0).done).isTrue();
+            assertThat(done.steps.get(0).deleted).isGreaterThanOrEqualTo(1L);
+            assertThat(done.updateTime).isGreaterThanOrEqualTo(job.creationTime);
+
+            TrustsRepository.createProxy(vertx)
+                .calculateTrustBy(TrustAggregator.MINIMUM, new JsonObject().put("taskId", event.taskId))
+                .onComplete(result -> testContext.verify(() -> {
+
+                  assertThat(result.failed()).isTrue();
+                  testContext.completeNow();
+
+                }));
+
+          }).send(testContext, checkpoint);
+
+        });
+
+      })).sendJson(body, testContext, checkpoint);
+
+    });
+
+  }
+
+}
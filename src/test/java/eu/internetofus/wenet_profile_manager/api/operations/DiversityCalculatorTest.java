@@ -0,0 +1,184 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.operations;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import eu.internetofus.common.components.profile_diversity_manager.AgentData;
+import eu.internetofus.common.components.profile_diversity_manager.AgentsData;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link DiversityCalculator}.
+ *
+ * @see DiversityCalculator
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class DiversityCalculatorTest {
+
+  /**
+   * Create the data of some agents.
+   *
+   * @param genders the qualitative value of each agent.
+   * @param levels  the quantitative value of each agent.
+   *
+   * @return the data of the agents.
+   */
+  private AgentsData createAgentsData(final String[] genders, final double[] levels) {
+
+    final var data = new AgentsData();
+    data.agents = new ArrayList<>();
+    data.qualitativeAttributes = new HashMap<>();
+    data.quantitativeAttributes = new HashSet<>();
+    if (genders != null) {
+
+      data.qualitativeAttributes.put("gender", new HashSet<>());
+    }
+    if (levels != null) {
+
+      data.quantitativeAttributes.add("level");
+    }
+    final var max = genders != null ? genders.length : levels.length;
+    for (var i = 0; i < max; i++) {
+
+      final var agent = new AgentData();
+      agent.id = String.valueOf(i);
+      agent.qualitativeAttributes = new HashMap<>();
+      agent.quantitativeAttributes = new HashMap<>();
+      if (genders != null) {
+
+        agent.qualitativeAttributes.put("gender", genders[i]);
+        data.qualitativeAttributes.get("gender").add(genders[i]);
+      }
+      if (levels != null) {
+
+        agent.quantitativeAttributes.put("level", levels[i]);
+      }
+      data.agents.add(agent);
+    }
+    return data;
+
+  }
+
+  /**
+   * Should the diversity be zero when the agents are equals.
+   *
+   * @see DiversityCalculator#calculate(AgentsData)
+   */
+  @Test
+  public void shouldCalculateZeroDiversityForEqualAgents() {
+
+    final var data = this.createAgentsData(new String[] { "F", "F", "F" }, new double[] { 0.3d, 0.3d, 0.3d });
+    assertThat(new DiversityCalculator(DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD).calculate(data))
+        .isEqualTo(0d);
+
+  }
+
+  /**
+   * Should the diversity be one when the agents are totally different.
+   *
+   * @see DiversityCalculator#calculate(AgentsData)
+   */
+  @Test
+  public void shouldCalculateMaxDiversityForDifferentAgents() {
+
+    final var data = this.createAgentsData(new String[] { "F", "M" }, new double[] { 0d, 1d });
+    assertThat(new DiversityCalculator(DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD).calculate(data))
+        .isEqualTo(1d, offset(0.000000001d));
+
+  }
+
+  /**
+   * Should calculate the diversity of a qualitative attribute.
+   *
+   * @see DiversityCalculator#calculate(AgentsData)
+   */
+  @Test
+  public void shouldCalculateQualitativeDiversity() {
+
+    // 4 of the 6 pairs of agents have different values
+    final var data = this.createAgentsData(new String[] { "F", "M", "F", "M" }, null);
+    assertThat(new DiversityCalculator(DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD).calculate(data))
+        .isEqualTo(4d / 6d, offset(0.000000001d));
+
+  }
+
+  /**
+   * Should calculate the diversity of a quantitative attribute.
+   *
+   * @see DiversityCalculator#calculate(AgentsData)
+   */
+  @Test
+  public void shouldCalculateQuantitativeDiversity() {
+
+    // The differences are 0.5, 1 and 0.5
+    final var data = this.createAgentsData(null, new double[] { 1d, 0d, 0.5d });
+    assertThat(new DiversityCalculator(DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD).calculate(data))
+        .isEqualTo(2d / 3d, offset(0.000000001d));
+
+  }
+
+  /**
+   * Should calculate the same diversity in parallel that sequentially.
+   *
+   * @see DiversityCalculator#calculate(AgentsData)
+   */
+  @Test
+  public void shouldCalculateSameDiversityInParallel() {
+
+    final var max = 5000;
+    final var genders = new String[max];
+    final var levels = new double[max];
+    for (var i = 0; i < max; i++) {
+
+      genders[i] = String.valueOf(i % 7);
+      levels[i] = (i % 101) / 100d;
+    }
+    final var data = this.createAgentsData(genders, levels);
+    final var sequential = new DiversityCalculator(Integer.MAX_VALUE);
+    final var parallel = new DiversityCalculator(2);
+    assertThat(sequential.isParallel(data)).isFalse();
+    assertThat(parallel.isParallel(data)).isTrue();
+    assertThat(parallel.calculate(data)).isEqualTo(sequential.calculate(data), offset(0.000000001d));
+
+  }
+
+  /**
+   * Should the diversity be zero when there are not enough agents.
+   *
+   * @see DiversityCalculator#calculate(AgentsData)
+   */
+  @Test
+  public void shouldCalculateZeroDiversityWithoutEnoughAgents() {
+
+    final var calculator = new DiversityCalculator(DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD);
+    assertThat(calculator.calculate(new AgentsData())).isEqualTo(0d);
+    assertThat(calculator.calculate(this.createAgentsData(new String[] { "F" }, new double[] { 0.5d })))
+        .isEqualTo(0d);
+
+  }
+
+}
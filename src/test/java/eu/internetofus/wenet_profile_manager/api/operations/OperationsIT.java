@@ -49,6 +49,8 @@ import java.util.UUID;
 import javax.ws.rs.core.Response.Status;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /**
  * The integration test over the {@link Operations}.
@@ -322,6 +324,39 @@ public class OperationsIT {
 
   }
 
+  /**
+   * Verify that fail calculate diversity with an attribute name that can not be
+   * used to obtain the profile fields.
+   *
+   * @param attributeName that is not valid.
+   * @param vertx         event bus to use.
+   * @param client        to connect to the server.
+   * @param testContext   context to test.
+   *
+   * @see Operations#diversity(JsonObject,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @ParameterizedTest(name = "Should not calculate diversity with the attribute name ''{0}''")
+  @ValueSource(strings = { "", "$x", "competences.$x", "competences..c_law" })
+  public void shouldFailDiversityWithNotValidAttributeName(final String attributeName, final Vertx vertx,
+      final WebClient client, final VertxTestContext testContext) {
+
+    new DiversityDataTest().createModelExample(0, vertx, testContext).onSuccess(data -> {
+
+      data.attributes.add(attributeName);
+      testRequest(client, HttpMethod.POST, Operations.PATH + "/diversity").expect(res -> {
+
+        assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+        final var error = assertThatBodyIs(ErrorMessage.class, res);
+        assertThat(error.code).isEqualTo("bad_profile_attribute_value");
+        assertThat(error.message).isNotEmpty().isNotEqualTo(error.code);
+
+      }).sendJson(data.toJsonObject(), testContext);
+
+    });
+
+  }
+
   /**
    * Verify that calculate diversity.
    *
@@ -340,6 +375,8 @@ public class OperationsIT {
       testRequest(client, HttpMethod.POST, Operations.PATH + "/diversity").expect(res -> {
 
         assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+        assertThat(res.getHeader(OperationsResource.DIVERSITY_ENGINE_HEADER))
+            .isEqualTo(OperationsResource.REMOTE_DIVERSITY_ENGINE);
         final var diversityValue = assertThatBodyIs(DiversityValue.class, res);
         assertThat(diversityValue.diversity).isGreaterThan(0d).isLessThan(1d);
 
@@ -22,7 +22,18 @@ package eu.internetofus.wenet_profile_manager.api.operations;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import eu.internetofus.common.components.profile_diversity_manager.AgentsData;
+import eu.internetofus.common.model.ValidationErrorException;
+import eu.internetofus.common.vertx.ServiceContext;
+import io.vertx.core.Future;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.api.service.ServiceResponse;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.ws.rs.core.Response.Status;
 import org.junit.jupiter.api.Test;
 
 /**
@@ -67,4 +78,94 @@ public class OperationsResourceTest {
 
   }
 
+  /**
+   * Should not accept the attribute names that can not be used to obtain the
+   * profile fields.
+   *
+   * @see OperationsResource#validateAttributeNames(java.util.Set)
+   */
+  @Test
+  public void shouldValidateAttributeNames() {
+
+    final var resource = new OperationsResource(null);
+    assertThat(resource.validateAttributeNames(Set.of("gender", "dateOfBirth.year", "competences.c_law"))
+        .succeeded()).isTrue();
+    for (final var attributeName : List.of("", " ", "$x", "competences.$x", "competences.", ".gender",
+        "competences..c_law")) {
+
+      final var validation = resource.validateAttributeNames(Set.of(attributeName));
+      assertThat(validation.failed()).isTrue();
+      assertThat(validation.cause()).isInstanceOf(ValidationErrorException.class);
+    }
+
+  }
+
+  /**
+   * Should not use the other diversity engine by default.
+   *
+   * @see OperationsResource#OperationsResource(io.vertx.core.Vertx, JsonObject)
+   */
+  @Test
+  public void shouldNotUseDiversityFallbackByDefault() {
+
+    final var resource = new OperationsResource(null);
+    assertThat(resource.localDiversity).isFalse();
+    assertThat(resource.diversityFallback).isFalse();
+    assertThat(resource.diversityCalculator.parallelThreshold)
+        .isEqualTo(DiversityCalculator.DEFAULT_PARALLEL_THRESHOLD);
+
+  }
+
+  /**
+   * Should obtain the diversity configuration from the properties defined as
+   * strings.
+   *
+   * @see OperationsResource#OperationsResource(io.vertx.core.Vertx, JsonObject)
+   */
+  @Test
+  public void shouldConfigureDiversityFromStrings() {
+
+    final var conf = new JsonObject().put(OperationsResource.DIVERSITY_ENGINE_KEY, "local")
+        .put(OperationsResource.DIVERSITY_FALLBACK_KEY, "true")
+        .put(OperationsResource.DIVERSITY_PARALLEL_THRESHOLD_KEY, "10");
+    final var resource = new OperationsResource(null, conf);
+    assertThat(resource.localDiversity).isTrue();
+    assertThat(resource.diversityFallback).isTrue();
+    assertThat(resource.diversityCalculator.parallelThreshold).isEqualTo(10);
+
+  }
+
+  /**
+   * Should fail when the diversity engine can not calculate the diversity,
+   * instead of returning a diversity that has not been calculated.
+   *
+   * @see OperationsResource#calculateDiversity(io.vertx.core.AsyncResult,
+   *      ServiceContext)
+   */
+  @Test
+  public void shouldFailWhenDiversityEngineFails() {
+
+    final var resource = new OperationsResource(null) {
+
+      @Override
+      protected Future<ServiceResponse> calculateDiversity(final String engine, final AgentsData data) {
+
+        return Future.failedFuture("Unavailable " + engine);
+      }
+
+    };
+    final var data = new AgentsData();
+    data.agents = new ArrayList<>();
+    data.qualitativeAttributes = new HashMap<>();
+    data.qualitativeAttributes.put("gender", new HashSet<>());
+    data.quantitativeAttributes = new HashSet<>();
+    final var responses = new ArrayList<ServiceResponse>();
+    resource.calculateDiversity(Future.succeededFuture(data),
+        new ServiceContext(null, response -> responses.add(response.result())));
+    assertThat(responses).hasSize(1);
+    assertThat(responses.get(0).getStatusCode()).isEqualTo(Status.SERVICE_UNAVAILABLE.getStatusCode());
+    assertThat(responses.get(0).getPayload().toJsonObject().getString("message")).contains("'remote'");
+
+  }
+
 }
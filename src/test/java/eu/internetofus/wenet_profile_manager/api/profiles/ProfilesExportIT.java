@@ -0,0 +1,130 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.profiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.StoreServices;
+import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExtension;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.junit5.VertxTestContext;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import javax.ws.rs.core.Response.Status;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * The integration test over the {@link ProfilesExport}.
+ *
+ * @see ProfilesExport
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(WeNetProfileManagerIntegrationExtension.class)
+public class ProfilesExportIT {
+
+  /**
+   * Check that the exported lines are profiles and that contains the specified
+   * one.
+   *
+   * @param content  of the export.
+   * @param expected identifier of a profile that has to be exported.
+   */
+  private static void assertExportedProfiles(final String content, final String expected) {
+
+    final var lines = content.split("\n");
+    assertThat(lines).isNotEmpty();
+    var found = false;
+    for (final var line : lines) {
+
+      final var profile = new JsonObject(line);
+      assertThat(profile.getString("id")).isNotNull();
+      assertThat(profile.containsKey("_id")).isFalse();
+      found |= expected.equals(profile.getString("id"));
+    }
+    assertThat(found).isTrue();
+
+  }
+
+  /**
+   * Verify that can export the profiles.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see ProfilesExport#exportProfiles(boolean, io.vertx.ext.web.RoutingContext)
+   */
+  @Test
+  public void shouldExportProfiles(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
+
+    testContext.assertComplete(StoreServices.storeProfileExample(1, vertx, testContext)).onSuccess(stored -> {
+
+      client.get(Profiles.PATH + ProfilesExport.EXPORT_PATH).send(testContext.succeeding(res -> testContext.verify(() -> {
+
+        assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+        assertThat(res.getHeader("Content-Type")).isEqualTo(ProfilesExport.NDJSON_MEDIA_TYPE);
+        assertExportedProfiles(res.bodyAsString(), stored.id);
+        testContext.completeNow();
+
+      })));
+
+    });
+
+  }
+
+  /**
+   * Verify that can export the profiles compressed with gzip.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see ProfilesExport#exportProfiles(boolean, io.vertx.ext.web.RoutingContext)
+   */
+  @Test
+  public void shouldExportProfilesWithGzip(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testContext.assertComplete(StoreServices.storeProfileExample(2, vertx, testContext)).onSuccess(stored -> {
+
+      client.get(Profiles.PATH + ProfilesExport.EXPORT_PATH).addQueryParam("gzip", "true")
+          .send(testContext.succeeding(res -> testContext.verify(() -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            assertThat(res.getHeader("Content-Encoding")).isEqualTo("gzip");
+            try (var input = new GZIPInputStream(new ByteArrayInputStream(res.bodyAsBuffer().getBytes()))) {
+
+              assertExportedProfiles(new String(input.readAllBytes(), StandardCharsets.UTF_8), stored.id);
+            }
+            testContext.completeNow();
+
+          })));
+
+    });
+
+  }
+
+}
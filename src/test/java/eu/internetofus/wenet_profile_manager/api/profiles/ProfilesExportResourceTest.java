@@ -0,0 +1,169 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.api.profiles;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import eu.internetofus.wenet_profile_manager.persistence.KeysetPages;
+import eu.internetofus.wenet_profile_manager.persistence.LocalServices;
+import eu.internetofus.wenet_profile_manager.persistence.ProfilesRepository;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+/**
+ * Test the {@link ProfilesExportResource}.
+ *
+ * @see ProfilesExportResource
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith({ VertxExtension.class, MockitoExtension.class })
+public class ProfilesExportResourceTest {
+
+  /**
+   * Disable the local services that the tests have registered.
+   *
+   * @param vertx event bus to use.
+   */
+  @AfterEach
+  public void disableLocalServices(final Vertx vertx) {
+
+    LocalServices.setEnabled(vertx, false);
+
+  }
+
+  /**
+   * Register the repository that the export has to use.
+   *
+   * @param vertx      event bus to use.
+   * @param repository mocked repository of the profiles.
+   * @param cursor     of the page to return.
+   * @param next       cursor of the next page, or {@code null} if it is the last
+   *                   page.
+   */
+  protected void registerPage(final Vertx vertx, final ProfilesRepository repository, final String cursor,
+      final String next) {
+
+    LocalServices.setEnabled(vertx, true);
+    LocalServices.register(vertx, ProfilesRepository.ADDRESS, ProfilesRepository.class, repository);
+    doAnswer(invocation -> {
+
+      final Handler<AsyncResult<JsonObject>> handler = invocation.getArgument(2);
+      final var page = new JsonObject().put("profiles", new JsonArray().add(new JsonObject().put("id", cursor)));
+      if (next != null) {
+
+        page.put(KeysetPages.NEXT_CURSOR_FIELD, next);
+      }
+      handler.handle(Future.succeededFuture(page));
+      return null;
+
+    }).when(repository).retrieveProfilesPageObjectAfter(eq(cursor), anyInt(), any());
+
+  }
+
+  /**
+   * Verify that the profiles are requested to the repository page by page.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   * @param context     mocked context of the request.
+   * @param response    mocked response to the request.
+   * @param repository  mocked repository of the profiles.
+   *
+   * @see ProfilesExportResource#exportProfiles(boolean, RoutingContext)
+   */
+  @Test
+  public void shouldExportProfilesPageByPage(final Vertx vertx, final VertxTestContext testContext,
+      @Mock final RoutingContext context, @Mock final HttpServerResponse response,
+      @Mock final ProfilesRepository repository) {
+
+    doReturn(response).when(context).response();
+    this.registerPage(vertx, repository, KeysetPages.FIRST_PAGE_CURSOR, "next");
+    this.registerPage(vertx, repository, "next", null);
+
+    new ProfilesExportResource(vertx).exportProfiles(false, context);
+
+    vertx.setTimer(100, timer -> testContext.verify(() -> {
+
+      verify(response, times(2)).write(any(Buffer.class));
+      verify(response).end();
+      testContext.completeNow();
+
+    }));
+
+  }
+
+  /**
+   * Verify that no more profiles are requested when the client closes the
+   * connection before the export ends.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   * @param context     mocked context of the request.
+   * @param response    mocked response to the request.
+   * @param repository  mocked repository of the profiles.
+   *
+   * @see ProfilesExportResource#exportProfiles(boolean, RoutingContext)
+   */
+  @Test
+  public void shouldNotRequestMoreProfilesWhenClientDisconnects(final Vertx vertx,
+      final VertxTestContext testContext, @Mock final RoutingContext context,
+      @Mock final HttpServerResponse response, @Mock final ProfilesRepository repository) {
+
+    doReturn(response).when(context).response();
+    doReturn(true).when(response).closed();
+    this.registerPage(vertx, repository, KeysetPages.FIRST_PAGE_CURSOR, "next");
+
+    new ProfilesExportResource(vertx).exportProfiles(true, context);
+
+    vertx.setTimer(100, timer -> testContext.verify(() -> {
+
+      verify(repository, never()).retrieveProfilesPageObjectAfter(eq("next"), anyInt(), any());
+      verify(response, never()).write(any(Buffer.class));
+      verify(response, never()).end();
+      testContext.completeNow();
+
+    }));
+
+  }
+
+}
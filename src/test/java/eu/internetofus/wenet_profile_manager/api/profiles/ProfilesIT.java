@@ -51,6 +51,7 @@ import eu.internetofus.common.model.Model;
 import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.common.vertx.AbstractModelResourcesIT;
 import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExtension;
+import eu.internetofus.wenet_profile_manager.persistence.JsonDiffs;
 import eu.internetofus.wenet_profile_manager.persistence.ProfilesRepository;
 import eu.internetofus.wenet_profile_manager.persistence.ProfilesRepositoryIT;
 import io.vertx.core.CompositeFuture;
@@ -249,7 +250,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -323,7 +324,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -390,7 +391,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -426,7 +427,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -493,7 +494,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -554,7 +555,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param testContext context to test.
    *
    * @see Profiles#retrieveProfileHistoricPage(String, Long, Long, String, int,
-   *      int, io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   *      int, String, io.vertx.ext.web.api.service.ServiceRequest, Handler)
    */
   @Test
   public void shouldNotFoundHistoricOfANUndefinedProfile(final Vertx vertx, final WebClient client,
@@ -579,7 +580,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param testContext context to test.
    *
    * @see Profiles#retrieveProfileHistoricPage(String, Long, Long, String, int,
-   *      int, io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   *      int, String, io.vertx.ext.web.api.service.ServiceRequest, Handler)
    */
   @Test
   public void shouldNotFoundHistoricOfNonUpdateProfile(final Vertx vertx, final WebClient client,
@@ -608,7 +609,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param testContext context to test.
    *
    * @see Profiles#retrieveProfileHistoricPage(String, Long, Long, String, int,
-   *      int, io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   *      int, String, io.vertx.ext.web.api.service.ServiceRequest, Handler)
    */
   @Test
   public void shouldFoundHistoricProfilePage(final Vertx vertx, final WebClient client,
@@ -637,7 +638,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param testContext context to test.
    *
    * @see Profiles#retrieveProfileHistoricPage(String, Long, Long, String, int,
-   *      int, io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   *      int, String, io.vertx.ext.web.api.service.ServiceRequest, Handler)
    */
   @Test
   public void shouldFoundHistoricProfilePageForARange(final Vertx vertx, final WebClient client,
@@ -667,6 +668,167 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
 
   }
 
+  /**
+   * Verify that can obtain the historic profile that was active at a time
+   * stamp.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfile(String, String, Long,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveProfileAt(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    final var userId = UUID.randomUUID().toString();
+    ProfilesRepositoryIT.createProfilePage(5, userId, vertx, testContext).onSuccess(created -> {
+
+      final var checkpoint = testContext.checkpoint(3);
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + userId).with(queryParam("at", "25000"))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var found = assertThatBodyIs(WeNetUserProfile.class, res);
+            assertThat(found).isEqualTo(created.profiles.get(2).profile);
+
+          }).send(testContext, checkpoint);
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + userId)
+          .with(queryParam("at", "30000"), queryParam("fields", "name,locale")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var profile = created.profiles.get(3).profile;
+            assertThat(res.bodyAsJsonObject()).isEqualTo(new JsonObject().put("id", userId)
+                .put("name", profile.name.toJsonObject()).put("locale", profile.locale));
+
+          }).send(testContext, checkpoint);
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + userId).with(queryParam("at", "50000"))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.NOT_FOUND.getStatusCode());
+            final var error = assertThatBodyIs(ErrorMessage.class, res);
+            assertThat(error.code).isEqualTo("not_found_profile");
+            assertThat(error.message).isNotEmpty().isNotEqualTo(error.code);
+
+          }).send(testContext, checkpoint);
+
+    });
+
+  }
+
+  /**
+   * Verify that obtain the current profile when it has not been updated after
+   * the time stamp.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfile(String, String, Long,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveCurrentProfileAt(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    StoreServices.storeProfileExample(1, vertx, testContext).onSuccess(storedProfile -> {
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + storedProfile.id)
+          .with(queryParam("at", String.valueOf(storedProfile._lastUpdateTs))).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var found = assertThatBodyIs(WeNetUserProfile.class, res);
+            assertThat(found).isEqualTo(storedProfile);
+
+          }).send(testContext);
+
+    });
+
+  }
+
+  /**
+   * Verify that can obtain the changes between two historic profiles.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfileDiff(String, Long, Long,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveProfileDiff(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    final var userId = UUID.randomUUID().toString();
+    ProfilesRepositoryIT.createProfilePage(5, userId, vertx, testContext).onSuccess(created -> {
+
+      final var checkpoint = testContext.checkpoint(2);
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + userId + Profiles.DIFF_PATH)
+          .with(queryParam("source", "5000"), queryParam("target", "35000")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var diff = assertThatBodyIs(ProfileDiff.class, res);
+            assertThat(diff.userId).isEqualTo(userId);
+            assertThat(diff.source).isEqualTo(5000l);
+            assertThat(diff.target).isEqualTo(35000l);
+            assertThat(diff.changes).isNotEmpty();
+            final var changes = res.bodyAsJsonObject().getJsonArray("changes");
+            final var source = created.profiles.get(0).profile.toJsonObject();
+            final var target = Model.fromJsonObject(JsonDiffs.patch(source, changes), WeNetUserProfile.class);
+            assertThat(target).isEqualTo(created.profiles.get(3).profile);
+
+          }).send(testContext, checkpoint);
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + userId + Profiles.DIFF_PATH)
+          .with(queryParam("source", "5000")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.NOT_FOUND.getStatusCode());
+            final var error = assertThatBodyIs(ErrorMessage.class, res);
+            assertThat(error.code).isEqualTo("not_found_profile");
+            assertThat(error.message).isNotEmpty().isNotEqualTo(error.code);
+
+          }).send(testContext, checkpoint);
+
+    });
+
+  }
+
+  /**
+   * Verify that not found changes of the same version.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfileDiff(String, Long, Long,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveEmptyProfileDiffForCurrentProfile(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    StoreServices.storeProfileExample(1, vertx, testContext).onSuccess(storedProfile -> {
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + storedProfile.id + Profiles.DIFF_PATH)
+          .with(queryParam("source", String.valueOf(storedProfile._lastUpdateTs))).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var diff = assertThatBodyIs(ProfileDiff.class, res);
+            assertThat(diff.userId).isEqualTo(storedProfile.id);
+            assertThat(diff.target).isNull();
+            assertThat(diff.changes).isEmpty();
+
+          }).send(testContext);
+
+    });
+
+  }
+
   /**
    * Verify that only update the middle name of an user.
    *
@@ -674,7 +836,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -736,7 +898,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -1010,7 +1172,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -1113,7 +1275,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -1218,7 +1380,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfile(String,
+   * @see Profiles#retrieveProfile(String, String, Long,
    *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
@@ -1339,7 +1501,7 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see Profiles#retrieveProfilesPage(int, int,
+   * @see Profiles#retrieveProfilesPage(int, int, String, String, String,
    *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
    */
   @Test
@@ -1370,6 +1532,212 @@ public class ProfilesIT extends AbstractModelResourcesIT<WeNetUserProfile, Strin
 
   }
 
+  /**
+   * Verify that can retrieve some profiles using a cursor.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfilesPage(int, int, String, String, String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldRetrieveProfilesPageWithCursor(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    final var checkpoint = testContext.checkpoint(3);
+    testRequest(client, HttpMethod.GET, Profiles.PATH).with(queryParam("limit", "6")).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+      final var page = assertThatBodyIs(WeNetUserProfilesPage.class, res);
+      assertThat(page.profiles).isNotNull().hasSize(6);
+      testRequest(client, HttpMethod.GET, Profiles.PATH).with(queryParam("cursor", "first"), queryParam("limit", "3"))
+          .expect(res2 -> {
+
+            assertThat(res2.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var page2 = assertThatBodyIs(WeNetUserProfilesPage.class, res2);
+            assertThat(page2.profiles).isNotNull().isEqualTo(page.profiles.subList(0, 3));
+            assertThat(page2.nextCursor).isNotNull();
+            testRequest(client, HttpMethod.GET, Profiles.PATH)
+                .with(queryParam("cursor", page2.nextCursor), queryParam("limit", "3")).expect(res3 -> {
+
+                  assertThat(res3.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                  final var page3 = assertThatBodyIs(WeNetUserProfilesPage.class, res3);
+                  assertThat(page3.profiles).isNotNull().isEqualTo(page.profiles.subList(3, 6));
+                  testContext.completeNow();
+
+                }).send(testContext, checkpoint);
+
+          }).send(testContext, checkpoint);
+
+    }).send(testContext, checkpoint);
+
+  }
+
+  /**
+   * Verify that can not retrieve profiles with a bad cursor.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfilesPage(int, int, String, String, String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldNotRetrieveProfilesPageWithBadCursor(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Profiles.PATH).with(queryParam("cursor", "undefined-cursor")).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+      testContext.completeNow();
+
+    }).send(testContext);
+
+  }
+
+  /**
+   * Verify that can retrieve only some fields of a profile.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfile(String, String, Long,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldRetrieveProfileFields(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testContext.assertComplete(StoreServices.storeProfileExample(1, vertx, testContext)).onSuccess(storedProfile -> {
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH + "/" + storedProfile.id)
+          .with(queryParam("fields", "name,locale")).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var profile = res.bodyAsJsonObject();
+            assertThat(profile.fieldNames()).containsOnly("id", "name", "locale");
+            assertThat(profile.getString("id")).isEqualTo(storedProfile.id);
+            assertThat(profile.getString("locale")).isEqualTo(storedProfile.locale);
+            testContext.completeNow();
+
+          }).send(testContext);
+    });
+
+  }
+
+  /**
+   * Verify that can retrieve a page with only some fields of the profiles.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfilesPage(int, int, String, String, String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldRetrieveProfilesPageWithFields(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testContext.assertComplete(StoreServices.storeProfileExample(1, vertx, testContext)).onSuccess(storedProfile -> {
+
+      testRequest(client, HttpMethod.GET, Profiles.PATH).with(queryParam("fields", "locale"), queryParam("limit", "5"))
+          .expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var profiles = res.bodyAsJsonObject().getJsonArray("profiles");
+            assertThat(profiles).isNotEmpty();
+            for (var i = 0; i < profiles.size(); i++) {
+
+              assertThat(profiles.getJsonObject(i).fieldNames()).contains("id").isSubsetOf("id", "locale");
+            }
+            testContext.completeNow();
+
+          }).send(testContext);
+    });
+
+  }
+
+  /**
+   * Verify that can retrieve a page of profiles without or with an estimated
+   * total.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfilesPage(int, int, String, String, String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldRetrieveProfilesPageWithTotalOptions(final WebClient client, final VertxTestContext testContext) {
+
+    final var checkpoint = testContext.checkpoint(2);
+    testRequest(client, HttpMethod.GET, Profiles.PATH).with(queryParam("total", "none"), queryParam("limit", "3"))
+        .expect(res -> {
+
+          assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+          final var page = res.bodyAsJsonObject();
+          assertThat(page.containsKey("total")).isFalse();
+          assertThat(page.getJsonArray("profiles")).hasSizeLessThanOrEqualTo(3);
+          testRequest(client, HttpMethod.GET, Profiles.PATH)
+              .with(queryParam("total", "estimate"), queryParam("limit", "3")).expect(res2 -> {
+
+                assertThat(res2.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                final var page2 = assertThatBodyIs(WeNetUserProfilesPage.class, res2);
+                assertThat(page2.total).isGreaterThanOrEqualTo(page2.profiles.size());
+                testContext.completeNow();
+
+              }).send(testContext, checkpoint);
+
+        }).send(testContext, checkpoint);
+
+  }
+
+  /**
+   * Verify that can not retrieve a page of profiles with a bad total.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfilesPage(int, int, String, String, String,
+   *      io.vertx.ext.web.api.service.ServiceRequest, Handler)
+   */
+  @Test
+  public void shouldNotRetrieveProfilesPageWithBadTotal(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Profiles.PATH).with(queryParam("total", "undefined")).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+      testContext.completeNow();
+
+    }).send(testContext);
+
+  }
+
+  /**
+   * Verify that can not retrieve a profile with a bad field.
+   *
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Profiles#retrieveProfile(String, String, Long,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldNotRetrieveProfileWithBadFields(final WebClient client, final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Profiles.PATH + "/undefined").with(queryParam("fields", "$where"))
+        .expect(res -> {
+
+          assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+          testContext.completeNow();
+
+        }).send(testContext);
+
+  }
+
   /**
    * Should allow to update the profile with {@code null} values.
    *
@@ -31,8 +31,12 @@ import eu.internetofus.common.components.profile_manager.SocialNetworkRelationsh
 import eu.internetofus.common.components.profile_manager.WeNetProfileManager;
 import eu.internetofus.common.model.ErrorMessage;
 import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExtension;
+import eu.internetofus.wenet_profile_manager.persistence.RelationshipsRepository;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxTestContext;
 import java.util.Arrays;
@@ -235,4 +239,87 @@ public class RelationshipsIT {
     });
   }
 
+  /**
+   * Should obtain the ego network, the neighbourhood and the top neighbours of
+   * an user.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldRetrieveSocialGraph(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    final var appId = UUID.randomUUID().toString();
+    final var relationships = new JsonArray()
+        .add(new JsonObject().put("appId", appId).put("sourceId", "1").put("targetId", "2").put("type", "friend")
+            .put("weight", 0.9))
+        .add(new JsonObject().put("appId", appId).put("sourceId", "1").put("targetId", "3").put("type", "friend")
+            .put("weight", 0.2))
+        .add(new JsonObject().put("appId", appId).put("sourceId", "2").put("targetId", "4").put("type", "friend")
+            .put("weight", 0.7));
+    final var repository = RelationshipsRepository.createProxy(vertx);
+    testContext.assertComplete(repository.retrieveSocialNetworkTopNeighbours(appId, "1", null, null, 10)
+        .compose(empty -> {
+
+          final Promise<JsonObject> promise = Promise.promise();
+          repository.storeOrUpdateSocialNetworkRelationships(relationships, promise);
+          return promise.future();
+
+        })).onSuccess(stored -> {
+
+          final var checkpoint = testContext.checkpoint(3);
+          testRequest(client, HttpMethod.GET, Relationships.PATH + "/graph/" + appId + "/1/ego").expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var ego = assertThatBodyIs(SocialNetworkEgoNetwork.class, res);
+            assertThat(ego.users).containsExactly("1", "2", "3");
+            assertThat(ego.relationships).hasSize(2);
+
+          }).send(testContext, checkpoint);
+          testRequest(client, HttpMethod.GET, Relationships.PATH + "/graph/" + appId + "/1/neighbourhood")
+              .with(queryParam("weightFrom", "0.5")).expect(res -> {
+
+                assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                final var neighbourhood = assertThatBodyIs(SocialNetworkNeighbourhood.class, res);
+                assertThat(neighbourhood.users).hasSize(2);
+                assertThat(neighbourhood.users.get(1).userId).isEqualTo("4");
+                assertThat(neighbourhood.users.get(1).distance).isEqualTo(2);
+
+              }).send(testContext, checkpoint);
+          testRequest(client, HttpMethod.GET, Relationships.PATH + "/graph/" + appId + "/1/top")
+              .with(queryParam("limit", "1")).expect(res -> {
+
+                assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+                final var top = assertThatBodyIs(SocialNetworkTopNeighbours.class, res);
+                assertThat(top.relationships).hasSize(1);
+                assertThat(top.relationships.get(0).targetId).isEqualTo("2");
+
+              }).send(testContext, checkpoint);
+
+        });
+  }
+
+  /**
+   * Should not obtain a neighbourhood with too many hops.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   */
+  @Test
+  public void shouldNotRetrieveNeighbourhoodWithTooManyHops(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Relationships.PATH + "/graph/app/1/neighbourhood")
+        .with(queryParam("hops", String.valueOf(Relationships.MAX_HOPS + 1))).expect(res -> {
+
+          assertThat(res.statusCode()).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+          final var error = assertThatBodyIs(ErrorMessage.class, res);
+          assertThat(error.code).isEqualTo("bad_hops");
+
+        }).send(testContext);
+  }
+
 }
@@ -23,14 +23,20 @@ package eu.internetofus.wenet_profile_manager.api.tasks;
 import static io.reactiverse.junit5.web.TestRequest.testRequest;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import eu.internetofus.common.components.Containers;
 import eu.internetofus.common.components.profile_manager.TrustAggregator;
 import eu.internetofus.common.components.profile_manager.UserPerformanceRatingEventTest;
 import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExtension;
+import eu.internetofus.wenet_profile_manager.persistence.DeletionJobsRepository;
+import eu.internetofus.wenet_profile_manager.persistence.DeletionJobsRepositoryImpl;
 import eu.internetofus.wenet_profile_manager.persistence.TrustsRepository;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxTestContext;
 import javax.ws.rs.core.Response.Status;
@@ -47,6 +53,48 @@ import org.junit.jupiter.api.extension.ExtendWith;
 @ExtendWith(WeNetProfileManagerIntegrationExtension.class)
 public class TasksIT {
 
+  /**
+   * The maximum number of times to check if a deletion job has finished.
+   */
+  protected static final int MAX_CHECKS = 300;
+
+  /**
+   * Wait until the deletion job of a task has finished.
+   *
+   * @param vertx  event bus to use.
+   * @param pool   to the database.
+   * @param taskId identifier of the deleted task.
+   * @param checks number of times that the job can be checked yet.
+   *
+   * @return the future with the finished job.
+   */
+  protected Future<JsonObject> waitUntilDeletionJobFinished(final Vertx vertx, final MongoClient pool,
+      final String taskId, final int checks) {
+
+    final var query = new JsonObject().put("type", DeletionJobsRepository.TASKS_TYPE).put("ids", taskId);
+    return pool.findOne(DeletionJobsRepositoryImpl.DELETION_JOBS_COLLECTION, query, null).compose(job -> {
+
+      final var status = job == null ? null : job.getString("status");
+      if (DeletionJobsRepository.DONE_STATUS.equals(status) || DeletionJobsRepository.FAILED_STATUS.equals(status)) {
+
+        return Future.succeededFuture(job);
+
+      } else if (checks <= 1) {
+
+        return Future.failedFuture("The deletion job of the task " + taskId + " has not finished.");
+
+      } else {
+
+        final Promise<JsonObject> promise = Promise.promise();
+        vertx.setTimer(100, any -> this.waitUntilDeletionJobFinished(vertx, pool, taskId, checks - 1)
+            .onComplete(promise));
+        return promise.future();
+      }
+
+    });
+
+  }
+
   /**
    * Verify that remove information about a task.
    *
@@ -66,9 +114,17 @@ public class TasksIT {
       testRequest(client, HttpMethod.DELETE, Tasks.PATH + "/" + event.taskId).expect(res -> testContext.verify(() -> {
 
         assertThat(res.statusCode()).isEqualTo(Status.NO_CONTENT.getStatusCode());
-        TrustsRepository.createProxy(vertx)
-            .calculateTrustBy(TrustAggregator.MINIMUM, new JsonObject().put("taskId", event.taskId))
-            .onComplete(result -> testContext.verify(() -> {
+        Containers.status().startMongoContainer();
+        final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), "TasksIT");
+        testContext.assertComplete(this.waitUntilDeletionJobFinished(vertx, pool, event.taskId, MAX_CHECKS))
+            .compose(job -> {
+
+              testContext.verify(
+                  () -> assertThat(job.getString("status")).isEqualTo(DeletionJobsRepository.DONE_STATUS));
+              return TrustsRepository.createProxy(vertx).calculateTrustBy(TrustAggregator.MINIMUM,
+                  new JsonObject().put("taskId", event.taskId));
+
+            }).onComplete(result -> testContext.verify(() -> {
 
               assertThat(result.failed()).isTrue();
               testContext.completeNow();
@@ -22,6 +22,7 @@ package eu.internetofus.wenet_profile_manager.api.trusts;
 
 import static eu.internetofus.common.vertx.HttpResponses.assertThatBodyIs;
 import static io.reactiverse.junit5.web.TestRequest.queryParam;
+import static io.reactiverse.junit5.web.TestRequest.requestHeader;
 import static io.reactiverse.junit5.web.TestRequest.testRequest;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
@@ -33,10 +34,13 @@ import eu.internetofus.common.components.profile_manager.UserPerformanceRatingEv
 import eu.internetofus.common.model.ErrorMessage;
 import eu.internetofus.common.model.TimeManager;
 import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExtension;
+import eu.internetofus.wenet_profile_manager.api.profiles.ProfilesExport;
 import eu.internetofus.wenet_profile_manager.persistence.TrustsRepositoryIT;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.http.HttpMethod;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.web.client.WebClient;
 import io.vertx.junit5.VertxTestContext;
@@ -136,6 +140,91 @@ public class TrustsIT {
 
   }
 
+  /**
+   * Verify can add a batch of events with some bad ones.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Trusts#addTrustEvents(io.vertx.core.json.JsonArray,
+   *      io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldAddEventsBatch(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
+
+    new UserPerformanceRatingEventTest().createModelExample(1, vertx, testContext).onSuccess(event -> {
+
+      final var badEvent = event.toJsonObject().put("sourceId", UUID.randomUUID().toString());
+      final var body = new JsonArray().add(event.toJsonObject()).add(badEvent).add("undefined")
+          .add(event.toJsonObject().put("rating", 0.25));
+      final var time = TimeManager.now();
+      testRequest(client, HttpMethod.POST, Trusts.PATH + Trusts.RATING_BATCH_PATH).expect(res -> {
+
+        assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+        final var batch = assertThatBodyIs(TrustEventsBatch.class, res);
+        assertThat(batch.stored).isEqualTo(2);
+        assertThat(batch.failed).isEqualTo(2);
+        assertThat(batch.items).hasSize(4);
+        for (var i = 0; i < 4; i++) {
+
+          final var item = batch.items.get(i);
+          assertThat(item.index).isEqualTo(i);
+          if (i % 3 == 0) {
+
+            assertThat(item.status).isEqualTo(Status.CREATED.getStatusCode());
+            assertThat(item.error).isNull();
+            assertThat(item.event.reportTime).isGreaterThanOrEqualTo(time);
+
+          } else {
+
+            assertThat(item.status).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+            assertThat(item.event).isNull();
+            assertThat(item.error.code).isNotEmpty();
+          }
+        }
+        assertThat(batch.items.get(3).event.rating).isEqualTo(0.25);
+
+      }).sendJson(body, testContext);
+
+    });
+
+  }
+
+  /**
+   * Verify can add a batch of events as newline-delimited JSON.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see TrustEventsNdjsonHandler
+   */
+  @Test
+  public void shouldAddEventsBatchAsNdjson(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    new UserPerformanceRatingEventTest().createModelExample(1, vertx, testContext).onSuccess(event -> {
+
+      final var body = Buffer.buffer(event.toJsonObject().encode()).appendString("\n").appendString("{bad json\n")
+          .appendString(event.toJsonObject().put("rating", 1.0).encode()).appendString("\n");
+      testRequest(client, HttpMethod.POST, Trusts.PATH + Trusts.RATING_BATCH_PATH)
+          .with(requestHeader("Content-Type", ProfilesExport.NDJSON_MEDIA_TYPE)).expect(res -> {
+
+            assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+            final var batch = assertThatBodyIs(TrustEventsBatch.class, res);
+            assertThat(batch.stored).isEqualTo(2);
+            assertThat(batch.failed).isEqualTo(1);
+            assertThat(batch.items.get(0).status).isEqualTo(Status.CREATED.getStatusCode());
+            assertThat(batch.items.get(1).status).isEqualTo(Status.BAD_REQUEST.getStatusCode());
+            assertThat(batch.items.get(2).event.rating).isEqualTo(1.0);
+
+          }).sendBuffer(body, testContext);
+
+    });
+
+  }
+
   /**
    * Verify that can calculate the trust with a bad regular expression.
    *
@@ -241,4 +330,28 @@ public class TrustsIT {
 
   }
 
+  /**
+   * Verify that can obtain the status of the buffer of rating events.
+   *
+   * @param vertx       event bus to use.
+   * @param client      to connect to the server.
+   * @param testContext context to test.
+   *
+   * @see Trusts#retrieveTrustEventsWriteBehindStatus(io.vertx.ext.web.api.service.ServiceRequest,
+   *      Handler)
+   */
+  @Test
+  public void shouldRetrieveTrustEventsWriteBehindStatus(final Vertx vertx, final WebClient client,
+      final VertxTestContext testContext) {
+
+    testRequest(client, HttpMethod.GET, Trusts.PATH + Trusts.RATING_WRITE_BEHIND_PATH).expect(res -> {
+
+      assertThat(res.statusCode()).isEqualTo(Status.OK.getStatusCode());
+      final var status = res.bodyAsJsonObject();
+      assertThat(status.getBoolean("enabled")).isNotNull();
+
+    }).send(testContext);
+
+  }
+
 }
@@ -53,7 +53,7 @@ public class UserIdentifiersIT {
    * @param client      to connect to the server.
    * @param testContext context to test.
    *
-   * @see UserIdentifiers#getUserIdentifiersPage(int, int, io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
+   * @see UserIdentifiers#getUserIdentifiersPage(int, int, String, io.vertx.ext.web.api.service.ServiceRequest, io.vertx.core.Handler)
    */
   @Test
   public void shouldGetUserIdentifiersPage(final Vertx vertx, final WebClient client, final VertxTestContext testContext) {
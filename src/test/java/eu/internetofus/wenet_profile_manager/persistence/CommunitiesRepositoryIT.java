@@ -22,6 +22,7 @@ package eu.internetofus.wenet_profile_manager.persistence;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import eu.internetofus.common.components.models.CommunityMember;
 import eu.internetofus.common.components.models.CommunityMemberTest;
 import eu.internetofus.common.components.models.CommunityProfile;
 import eu.internetofus.common.components.models.CommunityProfileTest;
@@ -813,4 +814,98 @@ public class CommunitiesRepositoryIT {
         }));
 
   }
+
+  /**
+   * Verify that can add, update and remove atomically the members of a
+   * community.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see CommunitiesRepository#addCommunityMember(String, CommunityMember)
+   * @see CommunitiesRepository#updateCommunityMember(String, String,
+   *      CommunityMember)
+   * @see CommunitiesRepository#deleteCommunityMember(String, String)
+   */
+  @Test
+  public void shouldModifyAtomicallyCommunityMembers(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var repository = CommunitiesRepository.createProxy(vertx);
+    final var member = new CommunityMemberTest().createModelExample(1);
+    member.userId = UUID.randomUUID().toString();
+    member._creationTs = 1;
+    member._lastUpdateTs = 1;
+    final var updated = new CommunityMemberTest().createModelExample(2);
+    updated.userId = member.userId;
+    repository.storeCommunity(new CommunityProfile(), testContext.succeeding(community -> {
+
+      testContext.assertComplete(repository.addCommunityMember(community.id, member)).onSuccess(added -> {
+
+        testContext.verify(() -> assertThat(added).isEqualTo(member));
+        testContext.assertComplete(repository.addCommunityMember(community.id, member)).onSuccess(duplicated -> {
+
+          testContext.verify(() -> assertThat(duplicated).isNull());
+          testContext.assertComplete(repository.updateCommunityMember(community.id, member.userId, updated))
+              .onSuccess(changed -> {
+
+                testContext.verify(() -> {
+
+                  assertThat(changed.privileges).isEqualTo(updated.privileges);
+                  assertThat(changed._creationTs).isEqualTo(1);
+                });
+                testContext.assertComplete(repository.deleteCommunityMember(community.id, member.userId))
+                    .onSuccess(removed -> {
+
+                      testContext.verify(() -> assertThat(removed).isEqualTo(changed));
+                      testContext.assertComplete(repository.deleteCommunityMember(community.id, member.userId))
+                          .onSuccess(notFound -> testContext.verify(() -> {
+
+                            assertThat(notFound).isNull();
+                            testContext.completeNow();
+
+                          }));
+                    });
+              });
+        });
+      });
+    }));
+
+  }
+
+  /**
+   * Verify that the update of a member removes the fields that are not defined.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see CommunitiesRepository#updateCommunityMember(String, String,
+   *      CommunityMember)
+   */
+  @Test
+  public void shouldRemoveUndefinedFieldsWhenUpdateCommunityMember(final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    final var repository = CommunitiesRepository.createProxy(vertx);
+    final var member = new CommunityMemberTest().createModelExample(1);
+    member.userId = UUID.randomUUID().toString();
+    member._creationTs = 1;
+    member._lastUpdateTs = 1;
+    final var updated = new CommunityMember();
+    updated.userId = member.userId;
+    repository.storeCommunity(new CommunityProfile(), testContext.succeeding(community -> {
+
+      testContext.assertComplete(repository.addCommunityMember(community.id, member)
+          .compose(added -> repository.updateCommunityMember(community.id, member.userId, updated)))
+          .onSuccess(changed -> testContext.verify(() -> {
+
+            assertThat(changed.privileges).isNullOrEmpty();
+            assertThat(changed._creationTs).isEqualTo(1);
+            assertThat(changed._lastUpdateTs).isGreaterThan(1);
+            testContext.completeNow();
+
+          }));
+    }));
+
+  }
+
 }
@@ -163,4 +163,46 @@ public class CommunitiesRepositoryImplIT {
         })));
 
   }
+
+  /**
+   * Verify that a community with an old schema is upgraded when it is read.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see CommunitiesRepositoryImpl#searchCommunity(String, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldUpgradeCommunityOnRead(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), "TEST");
+    final var repository = new CommunitiesRepositoryImpl(vertx, pool, "1.0.0");
+    final var community = new JsonObject().put(CommunitiesRepositoryImpl.SCHEMA_VERSION, "0.16.0").put("name",
+        "Old community");
+    final var expectedNorms = repository.defaultNormsForCommunitiesWitghoutNormsAndSchema_0_16_0_or_less();
+    testContext.assertComplete(pool.insert(CommunitiesRepositoryImpl.COMMUNITIES_COLLECTION, community)
+        .compose(id -> repository.searchCommunity(id).map(found -> {
+
+          testContext.verify(() -> {
+
+            assertThat(found.id).isEqualTo(id);
+            assertThat(found.norms).hasSize(expectedNorms.size());
+
+          });
+          return id;
+
+        }))).onSuccess(id -> vertx.setTimer(1000,
+            timer -> testContext
+                .assertComplete(pool.findOne(CommunitiesRepositoryImpl.COMMUNITIES_COLLECTION,
+                    new JsonObject().put("_id", id), null))
+                .onSuccess(stored -> testContext.verify(() -> {
+
+                  assertThat(stored.getString(CommunitiesRepositoryImpl.SCHEMA_VERSION)).isEqualTo("1.0.0");
+                  assertThat(stored.getJsonArray("norms")).isEqualTo(expectedNorms);
+                  testContext.completeNow();
+
+                }))));
+
+  }
+
 }
@@ -22,7 +22,9 @@ package eu.internetofus.wenet_profile_manager.persistence;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import java.util.List;
 
 /**
  * A dummy implementation of the {@link CommunitiesRepository}.
@@ -72,6 +74,16 @@ public class DummyCommunitiesRepository implements CommunitiesRepository {
 
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void retrieveProjectedCommunityProfilesPageObject(final JsonObject query, final JsonObject sort,
+      final int offset, final int limit, final List<String> fields, final String total,
+      final Handler<AsyncResult<JsonObject>> handler) {
+
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -86,4 +98,36 @@ public class DummyCommunitiesRepository implements CommunitiesRepository {
   public void deleteAllMembersForUser(final String userId, final Handler<AsyncResult<Void>> deleteHandler) {
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteMembersBatchForUsers(final JsonArray userIds, final int limit,
+      final Handler<AsyncResult<Integer>> deleteHandler) {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void addCommunityMember(final String communityId, final JsonObject member,
+      final Handler<AsyncResult<JsonObject>> addHandler) {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void updateCommunityMember(final String communityId, final String userId, final JsonObject member,
+      final Handler<AsyncResult<JsonObject>> updateHandler) {
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void deleteCommunityMember(final String communityId, final String userId,
+      final Handler<AsyncResult<JsonObject>> deleteHandler) {
+  }
+
 }
@@ -0,0 +1,130 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link FieldsProjections}
+ *
+ * @see FieldsProjections
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class FieldsProjectionsTest {
+
+  /**
+   * Verify that not create a projection when not fields are defined.
+   *
+   * @see FieldsProjections#createProjection(List)
+   */
+  @Test
+  public void shouldNotCreateProjectionWithoutFields() {
+
+    assertThat(FieldsProjections.createProjection(null)).isNull();
+    assertThat(FieldsProjections.createProjection(new ArrayList<>())).isNull();
+
+  }
+
+  /**
+   * Verify that create a projection that contains the identifier.
+   *
+   * @see FieldsProjections#createProjection(List)
+   */
+  @Test
+  public void shouldCreateProjection() {
+
+    assertThat(FieldsProjections.createProjection(List.of("id", "name.first", "locale")))
+        .isEqualTo(new JsonObject().put("_id", true).put("name.first", true).put("locale", true));
+
+  }
+
+  /**
+   * Verify that not create a projection with a bad field.
+   *
+   * @see FieldsProjections#createProjection(List)
+   */
+  @Test
+  public void shouldNotCreateProjectionWithBadField() {
+
+    assertThatThrownBy(() -> FieldsProjections.createProjection(List.of("name", "$where")))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FieldsProjections.createProjection(List.of("name..first")))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> FieldsProjections.createProjection(List.of(" ")))
+        .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Verify that return the same document when not fields are defined.
+   *
+   * @see FieldsProjections#project(JsonObject, List)
+   */
+  @Test
+  public void shouldNotProjectWithoutFields() {
+
+    final var document = new JsonObject().put("id", "1").put("locale", "en_US");
+    assertThat(FieldsProjections.project(document, null)).isSameAs(document);
+    assertThat(FieldsProjections.project(null, List.of("locale"))).isNull();
+
+  }
+
+  /**
+   * Verify that project the fields of a loaded document.
+   *
+   * @see FieldsProjections#project(JsonObject, List)
+   */
+  @Test
+  public void shouldProject() {
+
+    final var document = new JsonObject().put("id", "1").put("locale", "en_US").put("gender", "F")
+        .put("name", new JsonObject().put("first", "Jane").put("last", "Doe"))
+        .put("competences", new JsonArray().add(new JsonObject().put("name", "c1").put("level", 0.5))
+            .add(new JsonObject().put("name", "c2").put("level", 1)));
+    assertThat(FieldsProjections.project(document, List.of("name.first", "locale", "competences.name", "undefined")))
+        .isEqualTo(new JsonObject().put("id", "1").put("locale", "en_US")
+            .put("name", new JsonObject().put("first", "Jane")).put("competences", new JsonArray()
+                .add(new JsonObject().put("name", "c1")).add(new JsonObject().put("name", "c2"))));
+
+  }
+
+  /**
+   * Verify that not project with a bad field.
+   *
+   * @see FieldsProjections#project(JsonObject, List)
+   */
+  @Test
+  public void shouldNotProjectWithBadField() {
+
+    assertThatThrownBy(() -> FieldsProjections.project(new JsonObject(), List.of("$where")))
+        .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.internetofus.common.components.profile_manager.HistoricWeNetUserProfileTest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link HistoricProfilesArchive}
+ *
+ * @see HistoricProfilesArchive
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class HistoricProfilesArchiveTest {
+
+  /**
+   * Verify that can pack and unpack some historic profiles.
+   *
+   * @see HistoricProfilesArchive#pack(JsonArray)
+   * @see HistoricProfilesArchive#unpack(String)
+   */
+  @Test
+  public void shouldPackAndUnpack() {
+
+    final var historics = new JsonArray();
+    for (var i = 0; i < 50; i++) {
+
+      historics.add(new HistoricWeNetUserProfileTest().createModelExample(i).toJsonObject());
+    }
+    final var data = HistoricProfilesArchive.pack(historics);
+    assertThat(data.length()).isLessThan(historics.encode().length());
+    assertThat(HistoricProfilesArchive.unpack(data)).isEqualTo(historics);
+
+  }
+
+  /**
+   * Verify that can not unpack bad data.
+   *
+   * @see HistoricProfilesArchive#unpack(String)
+   */
+  @Test
+  public void shouldNotUnpackBadData() {
+
+    assertThatThrownBy(() -> HistoricProfilesArchive.unpack("bad data")).isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> HistoricProfilesArchive.unpack("AAAA")).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Verify that match the queries used to search for historic profiles.
+   *
+   * @see HistoricProfilesArchive#matches(JsonObject, JsonObject)
+   */
+  @Test
+  public void shouldMatchHistoricProfileQueries() {
+
+    final var historic = new JsonObject().put("from", 100).put("to", 200).put("profile",
+        new JsonObject().put("id", "1").put("name", new JsonObject().put("first", "Jane")));
+    assertThat(HistoricProfilesArchive.matches(null, historic)).isTrue();
+    assertThat(HistoricProfilesArchive.matches(new JsonObject(), historic)).isTrue();
+    assertThat(HistoricProfilesArchive.matches(ProfilesRepository.createProfileHistoricPageQuery("1", 100l, 200l),
+        historic)).isTrue();
+    assertThat(HistoricProfilesArchive.matches(ProfilesRepository.createProfileHistoricPageQuery("1", 101l, null),
+        historic)).isFalse();
+    assertThat(HistoricProfilesArchive.matches(ProfilesRepository.createProfileHistoricPageQuery("1", null, 199l),
+        historic)).isFalse();
+    assertThat(HistoricProfilesArchive.matches(ProfilesRepository.createProfileHistoricPageQuery("2", null, null),
+        historic)).isFalse();
+    assertThat(HistoricProfilesArchive.matches(
+        new JsonObject().put("profile.id", new JsonObject().put("$in", new JsonArray().add("0").add("1"))), historic))
+            .isTrue();
+    assertThat(HistoricProfilesArchive.matches(new JsonObject().put("profile.name.first",
+        new JsonObject().put("$regex", "^ja").put("$options", "i")), historic)).isTrue();
+    assertThat(HistoricProfilesArchive.matches(new JsonObject().put("$or", new JsonArray()
+        .add(new JsonObject().put("from", 0)).add(new JsonObject().put("to", new JsonObject().put("$gt", 150)))),
+        historic)).isTrue();
+    assertThat(HistoricProfilesArchive.matches(
+        new JsonObject().put("profile.email", new JsonObject().put("$exists", true)), historic)).isFalse();
+    assertThatThrownBy(() -> HistoricProfilesArchive
+        .matches(new JsonObject().put("from", new JsonObject().put("$where", "true")), historic))
+            .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Verify that sort the historic profiles.
+   *
+   * @see HistoricProfilesArchive#comparatorFor(JsonObject)
+   */
+  @Test
+  public void shouldSortHistoricProfiles() {
+
+    final var historics = new ArrayList<JsonObject>();
+    historics.add(new JsonObject().put("from", 2));
+    historics.add(new JsonObject().put("from", 3L));
+    historics.add(new JsonObject().put("from", 1));
+    historics.sort(HistoricProfilesArchive.comparatorFor(ProfilesRepository.createProfileHistoricPageSort("-")));
+    assertThat(historics).extracting(historic -> historic.getLong("from")).containsExactly(3L, 2L, 1L);
+    historics.sort(HistoricProfilesArchive.comparatorFor(ProfilesRepository.createProfileHistoricPageSort("+")));
+    assertThat(historics).extracting(historic -> historic.getLong("from")).containsExactly(1L, 2L, 3L);
+
+  }
+
+}
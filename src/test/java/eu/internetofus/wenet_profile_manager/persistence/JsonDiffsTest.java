@@ -0,0 +1,161 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import eu.internetofus.common.components.models.WeNetUserProfileTest;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link JsonDiffs}
+ *
+ * @see JsonDiffs
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class JsonDiffsTest {
+
+  /**
+   * Verify that not exist differences between equals values.
+   *
+   * @see JsonDiffs#diff(Object, Object)
+   */
+  @Test
+  public void shouldNotHaveDifferencesBetweenEqualsValues() {
+
+    final var source = new JsonObject().put("a", 1).put("b", new JsonArray().add(1).add("2"));
+    final var target = new JsonObject().put("b", new JsonArray().add(1L).add("2")).put("a", 1L);
+    assertThat(JsonDiffs.diff(source, target)).isEmpty();
+    assertThat(JsonDiffs.diff(null, null)).isEmpty();
+
+  }
+
+  /**
+   * Verify that the differences convert the source into the target.
+   *
+   * @see JsonDiffs#diff(Object, Object)
+   * @see JsonDiffs#patch(JsonObject, JsonArray)
+   */
+  @Test
+  public void shouldPatchWithDifferences() {
+
+    final var source = new JsonObject("{\"id\":\"1\",\"name\":{\"first\":\"Jane\",\"last\":\"Doe\"},"
+        + "\"email\":\"jane@doe.com\",\"norms\":[{\"a\":1},{\"b\":2},{\"c\":3}],\"values\":[1,2,3,4]}");
+    final var target = new JsonObject("{\"id\":\"1\",\"name\":{\"first\":\"Janet\",\"last\":\"Doe\"},"
+        + "\"locale\":\"en\",\"norms\":[{\"a\":1},{\"b\":5},{\"c\":3}],\"values\":[1,5,6,4],\"other\":null}");
+    final var ops = JsonDiffs.diff(source, target);
+    assertThat(ops).hasSize(7);
+    final var sourceCopy = source.copy();
+    assertThat(JsonDiffs.patch(source, ops)).isEqualTo(target);
+    assertThat(source).isEqualTo(sourceCopy);
+
+  }
+
+  /**
+   * Verify that only replace the modified elements of an array.
+   *
+   * @see JsonDiffs#diff(Object, Object)
+   * @see JsonDiffs#patch(JsonObject, JsonArray)
+   */
+  @Test
+  public void shouldSpliceArrays() {
+
+    final var source = new JsonObject().put("values", new JsonArray().add(1).add(2).add(3).add(4).add(5));
+    final var target = new JsonObject().put("values", new JsonArray().add(1).add(2).add(7).add(8).add(9).add(5));
+    final var ops = JsonDiffs.diff(source, target);
+    assertThat(ops).hasSize(1);
+    final var op = ops.getJsonObject(0);
+    assertThat(op.getString("op")).isEqualTo(JsonDiffs.SPLICE_OP);
+    assertThat(op.getInteger("index")).isEqualTo(2);
+    assertThat(op.getInteger("remove")).isEqualTo(2);
+    assertThat(op.getJsonArray("values")).isEqualTo(new JsonArray().add(7).add(8).add(9));
+    assertThat(JsonDiffs.patch(source, ops)).isEqualTo(target);
+
+    final var removed = new JsonObject().put("values", new JsonArray().add(1).add(5));
+    assertThat(JsonDiffs.patch(source, JsonDiffs.diff(source, removed))).isEqualTo(removed);
+    assertThat(JsonDiffs.patch(removed, JsonDiffs.diff(removed, source))).isEqualTo(source);
+
+  }
+
+  /**
+   * Verify that the differences between two profiles convert one into the
+   * other.
+   *
+   * @see JsonDiffs#diff(Object, Object)
+   * @see JsonDiffs#patch(JsonObject, JsonArray)
+   */
+  @Test
+  public void shouldPatchProfiles() {
+
+    final var builder = new WeNetUserProfileTest();
+    for (var i = 0; i < 5; i++) {
+
+      final var source = builder.createModelExample(i).toJsonObject();
+      final var target = builder.createModelExample(i + 1).toJsonObject();
+      assertThat(JsonDiffs.patch(source, JsonDiffs.diff(source, target))).isEqualTo(target);
+      assertThat(JsonDiffs.patch(target, JsonDiffs.diff(target, source))).isEqualTo(source);
+    }
+
+  }
+
+  /**
+   * Verify that can replace the full value.
+   *
+   * @see JsonDiffs#patch(Object, JsonArray)
+   */
+  @Test
+  public void shouldReplaceRootValue() {
+
+    assertThat(JsonDiffs.patch((Object) "source", JsonDiffs.diff("source", 1))).isEqualTo(1);
+    assertThat(JsonDiffs.patch((Object) new JsonArray().add(1), JsonDiffs.diff(new JsonArray().add(1), null)))
+        .isNull();
+
+  }
+
+  /**
+   * Verify that can not apply bad operations.
+   *
+   * @see JsonDiffs#patch(JsonObject, JsonArray)
+   */
+  @Test
+  public void shouldNotPatchWithBadOperations() {
+
+    final var source = new JsonObject().put("a", new JsonArray().add(1));
+    final var undefinedOp = new JsonArray().add(new JsonObject().put("op", "undefined"));
+    assertThatThrownBy(() -> JsonDiffs.patch(source, undefinedOp)).isInstanceOf(IllegalArgumentException.class);
+    final var undefinedPath = new JsonArray()
+        .add(new JsonObject().put("op", JsonDiffs.SET_OP).put("path", new JsonArray().add("b").add("c")));
+    assertThatThrownBy(() -> JsonDiffs.patch(source, undefinedPath)).isInstanceOf(IllegalArgumentException.class);
+    final var badSplice = new JsonArray().add(new JsonObject().put("op", JsonDiffs.SPLICE_OP)
+        .put("path", new JsonArray().add("a")).put("index", 0).put("remove", 3));
+    assertThatThrownBy(() -> JsonDiffs.patch(source, badSplice)).isInstanceOf(IllegalArgumentException.class);
+    final var notObject = new JsonArray()
+        .add(new JsonObject().put("op", JsonDiffs.SET_OP).put("path", new JsonArray()).put("value", 1));
+    assertThatThrownBy(() -> JsonDiffs.patch(source, notObject)).isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+}
@@ -0,0 +1,127 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.Containers;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Integration test over the {@link KeysetPages}.
+ *
+ * @see KeysetPages
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class KeysetPagesIT {
+
+  /**
+   * Obtain the identifiers of all the documents of a collection page by page.
+   *
+   * @param pool       to the database.
+   * @param collection where are the documents.
+   * @param sort       of the documents.
+   * @param cursor     to the previous page.
+   * @param ids        where add the identifiers of the found documents.
+   *
+   * @return the future with the identifiers of the found documents.
+   */
+  protected Future<List<String>> searchAllPages(final MongoClient pool, final String collection,
+      final JsonObject sort, final String cursor, final List<String> ids) {
+
+    return KeysetPages.searchPage(pool, collection, new JsonObject(), sort, null, cursor, 2, "documents", null)
+        .compose(page -> {
+
+          final var documents = page.getJsonArray("documents");
+          for (var i = 0; i < documents.size(); i++) {
+
+            ids.add(documents.getJsonObject(i).getString("_id"));
+          }
+          final var next = page.getString(KeysetPages.NEXT_CURSOR_FIELD);
+          if (next == null) {
+
+            return Future.succeededFuture(ids);
+
+          } else {
+
+            return this.searchAllPages(pool, collection, sort, next, ids);
+          }
+
+        });
+
+  }
+
+  /**
+   * Should return the documents with a {@code null} or undefined sort key.
+   *
+   * @param order       of the sort key.
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @ParameterizedTest(name = "Should return the documents without a sort key with the order {0}")
+  @ValueSource(ints = { 1, -1 })
+  public void shouldReturnDocumentsWithoutSortKey(final int order, final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(),
+        "shouldReturnDocumentsWithoutSortKey");
+    final var collection = "keysetPages_" + UUID.randomUUID().toString().replaceAll("-", "");
+    final var documents = List.of(new JsonObject().put("_id", "1"), new JsonObject().put("_id", "2").putNull("key"),
+        new JsonObject().put("_id", "3").put("key", 1), new JsonObject().put("_id", "4"),
+        new JsonObject().put("_id", "5").put("key", 2), new JsonObject().put("_id", "6").put("key", 1));
+    Future<?> future = Future.succeededFuture();
+    for (final var document : documents) {
+
+      future = future.compose(any -> pool.insert(collection, document));
+    }
+    final var sort = new JsonObject().put("key", order);
+    testContext.assertComplete(future.compose(any -> this.searchAllPages(pool, collection, sort,
+        KeysetPages.FIRST_PAGE_CURSOR, new ArrayList<>())).compose(ids -> pool.dropCollection(collection).map(ids)))
+        .onSuccess(ids -> testContext.verify(() -> {
+
+          if (order > 0) {
+
+            assertThat(ids).containsExactly("1", "2", "4", "3", "6", "5");
+
+          } else {
+
+            assertThat(ids).containsExactly("5", "3", "6", "1", "2", "4");
+          }
+          testContext.completeNow();
+
+        }));
+
+  }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link KeysetPages}
+ *
+ * @see KeysetPages
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class KeysetPagesTest {
+
+  /**
+   * Verify that a cursor can be encoded and decoded.
+   *
+   * @see KeysetPages#encodeCursor(JsonObject)
+   * @see KeysetPages#decodeCursor(String, JsonObject)
+   */
+  @Test
+  public void shouldEncodeAndDecodeCursor() {
+
+    final var keys = new JsonObject().put("_creationTs", 1234567890123l).put("_id", "user/1");
+    final var cursor = KeysetPages.encodeCursor(keys);
+    assertThat(cursor).doesNotContain("/", "+", "=");
+    final var decoded = KeysetPages.decodeCursor(cursor, new JsonObject().put("_creationTs", 1).put("_id", 1));
+    assertThat(decoded.getLong("_creationTs")).isEqualTo(1234567890123l);
+    assertThat(decoded.getString("_id")).isEqualTo("user/1");
+
+  }
+
+  /**
+   * Verify that the first page cursor is decoded as {@code null}.
+   *
+   * @see KeysetPages#decodeCursor(String, JsonObject)
+   */
+  @Test
+  public void shouldDecodeFirstPageCursor() {
+
+    assertThat(KeysetPages.decodeCursor(KeysetPages.FIRST_PAGE_CURSOR, new JsonObject())).isNull();
+    assertThat(KeysetPages.decodeCursor("", new JsonObject())).isNull();
+
+  }
+
+  /**
+   * Verify that can not decode a bad cursor.
+   *
+   * @see KeysetPages#decodeCursor(String, JsonObject)
+   */
+  @Test
+  public void shouldNotDecodeBadCursor() {
+
+    assertThatThrownBy(() -> KeysetPages.decodeCursor("undefined-cursor", new JsonObject().put("_id", 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Verify that can not decode a cursor for another sort.
+   *
+   * @see KeysetPages#decodeCursor(String, JsonObject)
+   */
+  @Test
+  public void shouldNotDecodeCursorForOtherSort() {
+
+    final var cursor = KeysetPages.encodeCursor(new JsonObject().put("_id", "1"));
+    assertThatThrownBy(() -> KeysetPages.decodeCursor(cursor, new JsonObject().put("type", 1)))
+        .isInstanceOf(IllegalArgumentException.class);
+
+  }
+
+  /**
+   * Verify the query to obtain the documents after some keys.
+   *
+   * @see KeysetPages#createQueryAfter(JsonObject, JsonObject, JsonObject)
+   */
+  @Test
+  public void shouldCreateQueryAfter() {
+
+    final var query = new JsonObject().put("appId", "1");
+    final var sort = new JsonObject().put("weight", -1).put("sourceId", 1);
+    final var after = new JsonObject().put("weight", 0.5).put("sourceId", "2");
+    final var expected = new JsonObject().put("$and", new JsonArray().add(query).add(new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().put("weight", new JsonObject().put("$lt", 0.5)))
+            .add(new JsonObject().putNull("weight"))
+            .add(new JsonObject().put("weight", 0.5).put("sourceId", new JsonObject().put("$gt", "2"))))));
+    assertThat(KeysetPages.createQueryAfter(query, sort, after)).isEqualTo(expected);
+    assertThat(KeysetPages.createQueryAfter(query, sort, null)).isSameAs(query);
+
+  }
+
+  /**
+   * Verify the query to obtain the documents after some keys that are
+   * {@code null}.
+   *
+   * @see KeysetPages#createQueryAfter(JsonObject, JsonObject, JsonObject)
+   */
+  @Test
+  public void shouldCreateQueryAfterNullKeys() {
+
+    final var sort = new JsonObject().put("weight", -1).put("appId", 1).put("_id", 1);
+    final var after = new JsonObject().putNull("weight").putNull("appId").put("_id", "2");
+    final var expected = new JsonObject().put("$or",
+        new JsonArray().add(new JsonObject().putNull("weight").put("appId", new JsonObject().putNull("$ne")))
+            .add(new JsonObject().putNull("weight").putNull("appId").put("_id", new JsonObject().put("$gt", "2"))));
+    assertThat(KeysetPages.createQueryAfter(new JsonObject(), sort, after)).isEqualTo(expected);
+
+  }
+
+  /**
+   * Verify that the identifier is added as the last sort key.
+   *
+   * @see KeysetPages#createUniqueSort(JsonObject)
+   */
+  @Test
+  public void shouldCreateUniqueSort() {
+
+    assertThat(KeysetPages.createUniqueSort(null)).isEqualTo(new JsonObject().put("_id", 1));
+    assertThat(KeysetPages.createUniqueSort(new JsonObject().put("weight", -1)))
+        .isEqualTo(new JsonObject().put("weight", -1).put("_id", 1));
+    assertThat(KeysetPages.createUniqueSort(new JsonObject().put("_id", -1).put("weight", 1)))
+        .isEqualTo(new JsonObject().put("_id", -1).put("weight", 1));
+
+  }
+
+}
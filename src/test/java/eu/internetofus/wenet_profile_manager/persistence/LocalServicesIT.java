@@ -0,0 +1,154 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.Containers;
+import eu.internetofus.common.components.models.WeNetUserProfile;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import io.vertx.serviceproxy.ServiceBinder;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.tinylog.Logger;
+
+/**
+ * Integration test over the {@link LocalServices} that compares the time to
+ * search for a profile, as the {@code GET /profiles/{userId}} does, calling the
+ * repository through the event bus or locally.
+ *
+ * @see LocalServices
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class LocalServicesIT {
+
+  /**
+   * The number of searches to do on each measure.
+   */
+  public static final int ITERATIONS = 2000;
+
+  /**
+   * Search for a profile several times.
+   *
+   * @param repository to use.
+   * @param id         identifier of the profile to search.
+   * @param iterations number of searches to do.
+   *
+   * @return the future with the last found profile.
+   */
+  protected Future<JsonObject> searchProfile(final ProfilesRepository repository, final String id,
+      final int iterations) {
+
+    final Promise<JsonObject> promise = Promise.promise();
+    repository.searchProfile(id, promise);
+    if (iterations <= 1) {
+
+      return promise.future();
+
+    } else {
+
+      return promise.future().compose(found -> this.searchProfile(repository, id, iterations - 1));
+    }
+
+  }
+
+  /**
+   * Measure the time to search for a profile several times.
+   *
+   * @param name       of the measure.
+   * @param repository to use.
+   * @param id         identifier of the profile to search.
+   *
+   * @return the future with the nanoseconds that the searches have taken.
+   */
+  protected Future<Long> measureSearchProfile(final String name, final ProfilesRepository repository,
+      final String id) {
+
+    return this.searchProfile(repository, id, ITERATIONS).compose(warm -> {
+
+      final var start = System.nanoTime();
+      return this.searchProfile(repository, id, ITERATIONS).map(found -> {
+
+        final var elapsed = System.nanoTime() - start;
+        Logger.info("Search a profile through {} takes {} microseconds on average.", name,
+            elapsed / 1000L / ITERATIONS);
+        return elapsed;
+
+      });
+
+    });
+
+  }
+
+  /**
+   * Compare the search of a profile through the event bus and locally. The
+   * profiles are cached, so the difference measures the cost to send the calls
+   * through the event bus, that has to be greater than the cost to copy the
+   * values of the local calls.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldSearchProfileLocallyAndThroughEventBus(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var pool = MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(),
+        "shouldSearchProfileLocallyAndThroughEventBus");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    repository.profilesCache = new ReadThroughCache(vertx, ProfilesRepositoryImpl.PROFILES_COLLECTION, 100, 60000L);
+    final var address = "benchmark." + ProfilesRepository.ADDRESS;
+    new ServiceBinder(vertx).setAddress(address).register(ProfilesRepository.class, repository);
+    final ProfilesRepository eventBus = new ProfilesRepositoryVertxEBProxy(vertx, address);
+    final var local = LocalServices.createLocalProxy(vertx.getOrCreateContext(), ProfilesRepository.class,
+        repository);
+    testContext.assertComplete(repository.storeProfile(new WeNetUserProfile()).compose(stored -> this
+        .searchProfile(eventBus, stored.id, 1).compose(throughEventBus -> this.searchProfile(local, stored.id, 1)
+            .map(locally -> {
+
+              testContext.verify(() -> assertThat(locally).isEqualTo(throughEventBus));
+              return stored.id;
+
+            })))
+        .compose(id -> this.measureSearchProfile("the event bus", eventBus, id)
+            .compose(throughEventBus -> this.measureSearchProfile("local calls", local, id).map(locally -> {
+
+              testContext.verify(() -> assertThat(locally).isLessThan(throughEventBus));
+              return null;
+
+            }))))
+        .onSuccess(any -> testContext.completeNow());
+
+  }
+
+}
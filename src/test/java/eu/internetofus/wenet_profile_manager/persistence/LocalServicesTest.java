@@ -0,0 +1,176 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link LocalServices}.
+ *
+ * @see LocalServices
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class LocalServicesTest {
+
+  /**
+   * The service used to test the local calls.
+   */
+  public interface EchoService {
+
+    /**
+     * Return the same value.
+     *
+     * @param value   to return.
+     * @param handler to inform of the value.
+     */
+    void echo(JsonObject value, Handler<AsyncResult<JsonObject>> handler);
+
+    /**
+     * Return the same value.
+     *
+     * @param value to return.
+     *
+     * @return the future value.
+     */
+    default Future<JsonObject> echo(final JsonObject value) {
+
+      final Promise<JsonObject> promise = Promise.promise();
+      this.echo(value, promise);
+      return promise.future();
+
+    }
+
+  }
+
+  /**
+   * Verify that the local services are only registered when they are enabled.
+   *
+   * @param vertx event bus to use.
+   *
+   * @see LocalServices#register(Vertx, String, Class, Object)
+   */
+  @Test
+  public void shouldRegisterOnlyWhenEnabled(final Vertx vertx) {
+
+    final EchoService service = (value, handler) -> handler.handle(Future.succeededFuture(value));
+    LocalServices.register(vertx, "echo", EchoService.class, service);
+    assertThat(LocalServices.lookup(vertx, "echo", EchoService.class)).isNull();
+
+    LocalServices.setEnabled(vertx, true);
+    LocalServices.register(vertx, "echo", EchoService.class, service);
+    assertThat(LocalServices.lookup(vertx, "echo", EchoService.class)).isNotNull();
+
+    LocalServices.setEnabled(vertx, false);
+    assertThat(LocalServices.lookup(vertx, "echo", EchoService.class)).isNull();
+
+  }
+
+  /**
+   * Verify that a local service is called with a copy of the values.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see LocalServices#createLocalProxy(io.vertx.core.Context, Class, Object)
+   */
+  @Test
+  public void shouldCallLocalService(final Vertx vertx, final VertxTestContext testContext) {
+
+    final EchoService service = (value, handler) -> handler.handle(Future.succeededFuture(value));
+    final var local = LocalServices.createLocalProxy(vertx.getOrCreateContext(), EchoService.class, service);
+    final var value = new JsonObject().put("key", "value");
+    local.echo(value).onComplete(testContext.succeeding(echo -> testContext.verify(() -> {
+
+      assertThat(echo).isEqualTo(value).isNotSameAs(value);
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Verify that a local service can not modify the values of the caller.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see LocalServices#createLocalProxy(io.vertx.core.Context, Class, Object)
+   */
+  @Test
+  public void shouldNotModifyCallerValues(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var stored = new JsonObject().put("key", "stored");
+    final EchoService service = (value, handler) -> {
+      value.put("key", "modified");
+      handler.handle(Future.succeededFuture(stored));
+    };
+    final var local = LocalServices.createLocalProxy(vertx.getOrCreateContext(), EchoService.class, service);
+    final var value = new JsonObject().put("key", "value");
+    local.echo(value).onComplete(testContext.succeeding(echo -> testContext.verify(() -> {
+
+      assertThat(value.getString("key")).isEqualTo("value");
+      echo.put("key", "modified");
+      assertThat(stored.getString("key")).isEqualTo("stored");
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Verify that the exceptions of a local service are returned as failures.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see LocalServices#createLocalProxy(io.vertx.core.Context, Class, Object)
+   */
+  @Test
+  public void shouldFailWhenLocalServiceThrowsException(final Vertx vertx, final VertxTestContext testContext) {
+
+    final EchoService service = (value, handler) -> {
+      throw new IllegalStateException("Cannot echo");
+    };
+    final var local = LocalServices.createLocalProxy(vertx.getOrCreateContext(), EchoService.class, service);
+    local.echo(new JsonObject()).onComplete(testContext.failing(cause -> testContext.verify(() -> {
+
+      assertThat(cause).isInstanceOf(IllegalStateException.class).hasMessage("Cannot echo");
+      testContext.completeNow();
+
+    })));
+
+  }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.Containers;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Integration test over the {@link MigrationLedger}.
+ *
+ * @see MigrationLedger
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class MigrationLedgerIT {
+
+  /**
+   * Create the pool to connect to the database.
+   *
+   * @param vertx event bus to use.
+   * @param name  of the pool.
+   *
+   * @return the pool to the database.
+   */
+  protected MongoClient createPool(final Vertx vertx, final String name) {
+
+    Containers.status().startMongoContainer();
+    return MongoClient.createShared(vertx, Containers.status().getMongoDBConfig(), name);
+
+  }
+
+  /**
+   * Should apply a step only once.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  public void shouldApplyStepOnlyOnce(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = this.createPool(vertx, "shouldApplyStepOnlyOnce");
+    final var ledger = new MigrationLedger(pool, "1.0.0");
+    final var name = "test." + UUID.randomUUID().toString();
+    final var applied = new AtomicInteger(0);
+    testContext.assertComplete(ledger.apply(name, step -> {
+
+      applied.incrementAndGet();
+      return step.checkpoint("last", 10);
+
+    }).compose(empty -> ledger.apply(name, step -> {
+
+      applied.incrementAndGet();
+      return Future.succeededFuture();
+
+    })).compose(empty -> pool.findOne(MigrationLedger.MIGRATIONS_COLLECTION, new JsonObject().put("_id", name), null)))
+        .onSuccess(stored -> testContext.verify(() -> {
+
+          assertThat(applied.get()).isEqualTo(1);
+          assertThat(stored.getString("status")).isEqualTo(MigrationLedger.DONE_STATUS);
+          assertThat(stored.getString("checkpoint")).isEqualTo("last");
+          assertThat(stored.getLong("processed")).isEqualTo(10l);
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Should resume a step from its last checkpoint.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  public void shouldResumeStepFromLastCheckpoint(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var pool = this.createPool(vertx, "shouldResumeStepFromLastCheckpoint");
+    final var ledger = new MigrationLedger(pool, "1.0.0");
+    final var name = "test." + UUID.randomUUID().toString();
+    testContext.assertFailure(ledger.apply(name, step -> step.checkpoint("first", 5)
+        .compose(empty -> Future.failedFuture("Stopped the migration")))).onFailure(error -> {
+
+          testContext.assertComplete(ledger.apply(name, step -> {
+
+            testContext.verify(() -> {
+
+              assertThat(step.getCheckpoint()).isEqualTo("first");
+              assertThat(step.getProcessed()).isEqualTo(5l);
+
+            });
+            return step.checkpoint("second", 3);
+
+          }).compose(empty -> pool.findOne(MigrationLedger.MIGRATIONS_COLLECTION, new JsonObject().put("_id", name),
+              null))).onSuccess(stored -> testContext.verify(() -> {
+
+                assertThat(stored.getString("status")).isEqualTo(MigrationLedger.DONE_STATUS);
+                assertThat(stored.getString("checkpoint")).isEqualTo("second");
+                assertThat(stored.getLong("processed")).isEqualTo(8l);
+                testContext.completeNow();
+
+              }));
+
+        });
+
+  }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link PageTotals}
+ *
+ * @see PageTotals
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class PageTotalsTest {
+
+  /**
+   * Verify the valid totals.
+   *
+   * @see PageTotals#isValid(String)
+   * @see PageTotals#isExact(String)
+   */
+  @Test
+  public void shouldCheckTotals() {
+
+    assertThat(PageTotals.isValid(null)).isTrue();
+    assertThat(PageTotals.isValid(PageTotals.EXACT)).isTrue();
+    assertThat(PageTotals.isValid(PageTotals.ESTIMATE)).isTrue();
+    assertThat(PageTotals.isValid(PageTotals.NONE)).isTrue();
+    assertThat(PageTotals.isValid("undefined")).isFalse();
+    assertThat(PageTotals.isExact(null)).isTrue();
+    assertThat(PageTotals.isExact(PageTotals.EXACT)).isTrue();
+    assertThat(PageTotals.isExact(PageTotals.ESTIMATE)).isFalse();
+
+  }
+
+  /**
+   * Verify that the counts are cached.
+   *
+   * @see PageTotals#cacheCount(String, long)
+   */
+  @Test
+  public void shouldCacheCount() {
+
+    final var totals = new PageTotals(null, PageTotals.DEFAULT_COUNTS_TIME_TO_LIVE);
+    totals.cacheCount("key", 3l);
+    assertThat(totals.counts.get("key").count).isEqualTo(3l);
+    assertThat(totals.counts.get("key").expiresAt).isGreaterThan(System.currentTimeMillis());
+    assertThat(new PageTotals(null, PageTotals.DEFAULT_COUNTS_TIME_TO_LIVE).counts).doesNotContainKey("key");
+
+  }
+
+  /**
+   * Verify that the counts are not cached if the time to live is zero.
+   *
+   * @see PageTotals#PageTotals(io.vertx.ext.mongo.MongoClient, long)
+   */
+  @Test
+  public void shouldNotCacheCountWithoutTimeToLive() {
+
+    final var totals = new PageTotals(null, 0);
+    totals.cacheCount("key", 3l);
+    assertThat(totals.counts).doesNotContainKey("key");
+
+  }
+
+  /**
+   * Verify that the number of cached counts is limited.
+   *
+   * @see PageTotals#cacheCount(String, long)
+   */
+  @Test
+  public void shouldLimitCachedCounts() {
+
+    final var totals = new PageTotals(null, PageTotals.DEFAULT_COUNTS_TIME_TO_LIVE);
+    for (var i = 0; i < PageTotals.MAX_CACHED_COUNTS + 10; i++) {
+
+      totals.cacheCount("key" + i, i);
+    }
+    assertThat(totals.counts.size()).isLessThanOrEqualTo(PageTotals.MAX_CACHED_COUNTS);
+
+  }
+
+}
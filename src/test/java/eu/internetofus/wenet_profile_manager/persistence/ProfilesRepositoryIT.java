@@ -40,6 +40,7 @@ import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxTestContext;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -111,6 +112,39 @@ public class ProfilesRepositoryIT {
 
   }
 
+  /**
+   * Verify that can found some fields of several profiles.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see ProfilesRepository#searchProfiles(List, List)
+   */
+  @Test
+  public void shouldSearchProfiles(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var repository = ProfilesRepository.createProxy(vertx);
+    final var first = new WeNetUserProfile();
+    first.nationality = "Italian";
+    first.occupation = "Teacher";
+    final var second = new WeNetUserProfile();
+    second.nationality = "Spanish";
+    testContext.assertComplete(repository.storeProfile(first).compose(storedFirst -> repository.storeProfile(second)
+        .compose(storedSecond -> repository
+            .searchProfiles(List.of(storedFirst.id, "undefined user identifier", storedSecond.id, storedFirst.id),
+                List.of("nationality"))
+            .map(profiles -> {
+
+              testContext.verify(() -> assertThat(profiles).containsExactlyInAnyOrder(
+                  new JsonObject().put("id", storedFirst.id).put("nationality", "Italian"),
+                  new JsonObject().put("id", storedSecond.id).put("nationality", "Spanish")));
+              return profiles;
+
+            }))))
+        .onSuccess(any -> testContext.completeNow());
+
+  }
+
   /**
    * Verify that can found a profile object.
    *
@@ -1112,4 +1146,63 @@ public class ProfilesRepositoryIT {
 
   }
 
+  /**
+   * Verify that can add and remove atomically an element of a profile field.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see ProfilesRepository#addProfileFieldElement(String, String, JsonObject, boolean)
+   * @see ProfilesRepository#deleteProfileFieldElementByIndex(String, String, int, boolean)
+   */
+  @Test
+  public void shouldAddAndDeleteProfileFieldElement(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var repository = ProfilesRepository.createProxy(vertx);
+    final var material = new JsonObject().put("name", "Material").put("description", "Description");
+    testContext.assertComplete(repository.storeProfile(new WeNetUserProfile()).compose(stored -> repository
+        .addProfileFieldElement(stored.id, "materials", material, true)
+        .compose(previous -> repository.addProfileFieldElement(stored.id, "materials", material, false))
+        .compose(previous -> repository.deleteProfileFieldElementByIndex(stored.id, "materials", 0, true))
+        .compose(previous -> repository.searchProfile(stored.id).map(profile -> {
+
+          assertThat(previous.getJsonArray("materials")).hasSize(2);
+          return profile;
+
+        })))).onSuccess(profile -> testContext.verify(() -> {
+
+          assertThat(profile.materials).hasSize(1);
+          assertThat(profile.materials.get(0).name).isEqualTo("Material");
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Verify that can not update atomically an undefined element of a profile
+   * field.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see ProfilesRepository#updateProfileFieldElementById(String, String, String, JsonObject, boolean)
+   */
+  @Test
+  public void shouldNotUpdateUndefinedProfileFieldElement(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var repository = ProfilesRepository.createProxy(vertx);
+    testContext
+        .assertComplete(repository.storeProfile(new WeNetUserProfile())
+            .compose(stored -> repository.updateProfileFieldElementById(stored.id, "plannedActivities", "undefined",
+                new JsonObject().put("id", "undefined"), false)))
+        .onSuccess(previous -> testContext.verify(() -> {
+
+          assertThat(previous).isNull();
+          testContext.completeNow();
+
+        }));
+
+  }
+
 }
@@ -23,7 +23,9 @@ package eu.internetofus.wenet_profile_manager.persistence;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import eu.internetofus.common.components.Containers;
+import eu.internetofus.common.components.models.WeNetUserProfile;
 import eu.internetofus.common.components.models.WeNetUserProfileTest;
+import eu.internetofus.common.components.profile_manager.HistoricWeNetUserProfileTest;
 import eu.internetofus.common.vertx.Repository;
 import io.vertx.core.CompositeFuture;
 import io.vertx.core.Future;
@@ -40,6 +42,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 
@@ -356,4 +359,645 @@ public class ProfilesRepositoryImplIT {
 
   }
 
+  /**
+   * Should store the historic profiles as differences with keyframes.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldStoreHistoricProfilesAsDifferences(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldStoreHistoricProfilesAsDifferences");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var userId = UUID.randomUUID().toString();
+    final var total = ProfilesRepositoryImpl.HISTORIC_PROFILES_KEYFRAME_INTERVAL + 5;
+    final var historics = new ArrayList<JsonObject>();
+    Future<?> future = Future.succeededFuture();
+    for (var i = 0; i < total; i++) {
+
+      final var historic = new HistoricWeNetUserProfileTest().createModelExample(1);
+      historic.from = i * 10000l;
+      historic.to = (i + 1) * 10000l;
+      historic.profile.id = userId;
+      historic.profile.name.first = "Name " + i;
+      historics.add(historic.toJsonObject());
+      future = future.compose(any -> repository.storeHistoricProfile(historic));
+
+    }
+    final var options = new FindOptions();
+    options.setSort(new JsonObject().put("from", 1));
+    final var query = new JsonObject().put("profile.id", userId);
+    testContext
+        .assertComplete(future
+            .compose(any -> pool.findWithOptions(ProfilesRepositoryImpl.HISTORIC_PROFILES_COLLECTION, query, options)))
+        .onSuccess(stored -> {
+
+          testContext.verify(() -> {
+
+            assertThat(stored).hasSize(total);
+            for (var i = 0; i < total; i++) {
+
+              final var document = stored.get(i);
+              if (i % ProfilesRepositoryImpl.HISTORIC_PROFILES_KEYFRAME_INTERVAL == 0) {
+
+                assertThat(document.containsKey("patch")).isFalse();
+                assertThat(document.getJsonObject("profile")).isEqualTo(historics.get(i).getJsonObject("profile"));
+
+              } else {
+
+                assertThat(document.getJsonArray("patch")).hasSize(1);
+                assertThat(document.getJsonObject("profile")).isEqualTo(new JsonObject().put("id", userId));
+              }
+            }
+
+          });
+
+          final var sort = ProfilesRepository.createProfileHistoricPageSort("+");
+          testContext.assertComplete(repository.searchHistoricProfilePage(query, sort, 0, total))
+              .onSuccess(page -> testContext.verify(() -> {
+
+                assertThat(page.total).isEqualTo(total);
+                assertThat(page.profiles).hasSize(total);
+                for (var i = 0; i < total; i++) {
+
+                  assertThat(page.profiles.get(i).toJsonObject()).isEqualTo(historics.get(i));
+                }
+                testContext.completeNow();
+
+              }));
+        });
+
+  }
+
+  /**
+   * Should store the historic profiles as differences from the last stored one
+   * without resolving it again, and resolve it when it has been stored by
+   * another instance.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldStoreHistoricProfilesDifferencesFromTheLastStored(final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf,
+        "shouldStoreHistoricProfilesDifferencesFromTheLastStored");
+    final var resolutions = new AtomicInteger();
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0") {
+
+      /**
+       * {@inheritDoc}
+       */
+      @Override
+      protected Future<List<JsonObject>> resolveHistoricProfiles(final List<JsonObject> historics) {
+
+        resolutions.incrementAndGet();
+        return super.resolveHistoricProfiles(historics);
+      }
+
+    };
+    final var userId = UUID.randomUUID().toString();
+    final var total = ProfilesRepositoryImpl.HISTORIC_PROFILES_KEYFRAME_INTERVAL - 1;
+    Future<?> future = Future.succeededFuture();
+    for (var i = 0; i < total; i++) {
+
+      final var historic = new HistoricWeNetUserProfileTest().createModelExample(1);
+      historic.from = i * 10000l;
+      historic.to = (i + 1) * 10000l;
+      historic.profile.id = userId;
+      historic.profile.name.first = "Name " + i;
+      future = future.compose(any -> repository.storeHistoricProfile(historic));
+
+    }
+    final var query = new JsonObject().put("profile.id", userId);
+    testContext.assertComplete(future.compose(any -> {
+
+      testContext.verify(() -> assertThat(resolutions.get()).isEqualTo(0));
+      repository.historicProfileTips.clear();
+      final var historic = new HistoricWeNetUserProfileTest().createModelExample(1);
+      historic.from = total * 10000l;
+      historic.to = (total + 1) * 10000l;
+      historic.profile.id = userId;
+      historic.profile.name.first = "Name " + total;
+      return repository.storeHistoricProfile(historic);
+
+    }).compose(any -> pool.find(ProfilesRepositoryImpl.HISTORIC_PROFILES_COLLECTION, query)))
+        .onSuccess(stored -> testContext.verify(() -> {
+
+          assertThat(resolutions.get()).isEqualTo(1);
+          assertThat(stored).hasSize(total + 1);
+          assertThat(stored.stream().filter(document -> document.containsKey("patch")).count()).isEqualTo(total);
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Should not return the historic profiles that can not be resolved.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldNotReturnUnresolvedHistoricProfiles(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldNotReturnUnresolvedHistoricProfiles");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var userId = UUID.randomUUID().toString();
+    Future<?> future = Future.succeededFuture();
+    for (var i = 0; i < 2; i++) {
+
+      final var historic = new HistoricWeNetUserProfileTest().createModelExample(1);
+      historic.from = i * 10000l;
+      historic.to = (i + 1) * 10000l;
+      historic.profile.id = userId;
+      historic.profile.name.first = "Name " + i;
+      future = future.compose(any -> repository.storeHistoricProfile(historic));
+
+    }
+    final var query = new JsonObject().put("profile.id", userId);
+    final var keyframeQuery = new JsonObject().put("profile.id", userId).put("from", 0l);
+    testContext
+        .assertComplete(future
+            .compose(any -> pool.removeDocuments(ProfilesRepositoryImpl.HISTORIC_PROFILES_COLLECTION, keyframeQuery))
+            .compose(removed -> repository.searchHistoricProfilePage(query,
+                ProfilesRepository.createProfileHistoricPageSort("+"), 0, 10)))
+        .onSuccess(page -> {
+
+          testContext.verify(() -> {
+
+            assertThat(page.total).isEqualTo(1);
+            assertThat(page.profiles).isNullOrEmpty();
+
+          });
+          repository.searchHistoricProfileAt(userId, 15000l)
+              .onComplete(testContext.failing(cause -> testContext.completeNow()));
+
+        });
+
+  }
+
+  /**
+   * Check that the retention policy is not applied over the historic profiles
+   * of an user that are leased.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldNotApplyHistoricProfilesRetentionWhenLeased(final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf,
+        "shouldNotApplyHistoricProfilesRetentionWhenLeased");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var userId = UUID.randomUUID().toString();
+    final var step = HistoricProfilesArchive.DAY / 3;
+    Future<?> future = repository.acquireHistoricProfilesLease(userId)
+        .onSuccess(acquired -> testContext.verify(() -> assertThat(acquired).isTrue()));
+    for (var i = 0; i < 6; i++) {
+
+      final var historic = new HistoricWeNetUserProfileTest().createModelExample(1);
+      historic.from = i * step;
+      historic.to = (i + 1) * step;
+      historic.profile.id = userId;
+      historic.profile.name.first = "Name " + i;
+      future = future.compose(any -> repository.storeHistoricProfile(historic));
+
+    }
+    final var query = new JsonObject().put("profile.id", userId).put("patch", new JsonObject().put("$exists", true));
+    final var dailyLimit = 3 * HistoricProfilesArchive.DAY;
+    final var coldLimit = 2 * HistoricProfilesArchive.DAY + 1;
+    testContext.assertComplete(future
+        .compose(any -> pool.count(ProfilesRepositoryImpl.HISTORIC_PROFILES_COLLECTION, query)).compose(diffs -> {
+
+          testContext.verify(() -> assertThat(diffs).isEqualTo(0l));
+          return repository.applyHistoricProfilesRetention(userId, dailyLimit, coldLimit);
+
+        }).compose(removed -> {
+
+          testContext.verify(() -> assertThat(removed).isEqualTo(0));
+          return repository.releaseHistoricProfilesLease(userId);
+
+        }).compose(released -> repository.applyHistoricProfilesRetention(userId, dailyLimit, coldLimit)))
+        .onSuccess(removed -> testContext.verify(() -> {
+
+          assertThat(removed).isEqualTo(6);
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Check that thin and archive the old historic profiles.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldApplyHistoricProfilesRetention(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldApplyHistoricProfilesRetention");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var userId = UUID.randomUUID().toString();
+    final var step = HistoricProfilesArchive.DAY / 3;
+    final var historics = new ArrayList<JsonObject>();
+    Future<?> future = Future.succeededFuture();
+    for (var i = 0; i < 12; i++) {
+
+      final var historic = new HistoricWeNetUserProfileTest().createModelExample(1);
+      historic.from = i * step;
+      historic.to = (i + 1) * step;
+      historic.profile.id = userId;
+      historic.profile.name.first = "Name " + i;
+      historics.add(historic.toJsonObject());
+      future = future.compose(any -> repository.storeHistoricProfile(historic));
+
+    }
+    final var expected = new ArrayList<JsonObject>();
+    expected.add(historics.get(2).put("from", 0l));
+    expected.add(historics.get(5).put("from", HistoricProfilesArchive.DAY));
+    expected.add(historics.get(8).put("from", 2 * HistoricProfilesArchive.DAY));
+    expected.addAll(historics.subList(9, 12));
+
+    final var query = new JsonObject().put("profile.id", userId);
+    final var archiveQuery = new JsonObject().put("profileId", userId);
+    final var dailyLimit = 3 * HistoricProfilesArchive.DAY + 1;
+    final var coldLimit = 2 * HistoricProfilesArchive.DAY + 1;
+    testContext
+        .assertComplete(future.compose(any -> repository.applyHistoricProfilesRetention(userId, dailyLimit, coldLimit)))
+        .onSuccess(removed -> {
+
+          testContext.verify(() -> assertThat(removed).isEqualTo(8));
+          testContext.assertComplete(pool.count(ProfilesRepositoryImpl.HISTORIC_PROFILES_COLLECTION, query)
+              .compose(hot -> pool.find(ProfilesRepositoryImpl.HISTORIC_PROFILES_ARCHIVE_COLLECTION, archiveQuery)
+                  .map(blocks -> {
+
+                    testContext.verify(() -> {
+
+                      assertThat(hot).isEqualTo(4l);
+                      assertThat(blocks).hasSize(1);
+                      assertThat(blocks.get(0).getString("codec")).isEqualTo(HistoricProfilesArchive.CODEC);
+                      assertThat(blocks.get(0).getInteger("count")).isEqualTo(2);
+
+                    });
+                    return blocks;
+                  }))
+              .compose(blocks -> repository.searchHistoricProfilePage(query,
+                  ProfilesRepository.createProfileHistoricPageSort("+"), 0, 100))
+              .compose(page -> {
+
+                testContext.verify(() -> {
+
+                  assertThat(page.total).isEqualTo(expected.size());
+                  assertThat(page.profiles).hasSize(expected.size());
+                  for (var i = 0; i < expected.size(); i++) {
+
+                    assertThat(page.profiles.get(i).toJsonObject()).isEqualTo(expected.get(i));
+                  }
+
+                });
+                final var sort = ProfilesRepository.createProfileHistoricPageSort("-");
+                return repository.searchHistoricProfilePage(query, sort, 1, 3);
+
+              })).onSuccess(page -> testContext.verify(() -> {
+
+                assertThat(page.total).isEqualTo(expected.size());
+                assertThat(page.profiles).hasSize(3);
+                assertThat(page.profiles.get(0).toJsonObject()).isEqualTo(expected.get(4));
+                assertThat(page.profiles.get(1).toJsonObject()).isEqualTo(expected.get(3));
+                assertThat(page.profiles.get(2).toJsonObject()).isEqualTo(expected.get(2));
+                testContext.completeNow();
+
+              }));
+        });
+
+  }
+
+  /**
+   * Create a profile with the schema version 0.16.0 that has some relationships.
+   *
+   * @param index of the profile to create.
+   *
+   * @return the profile with an old schema version.
+   */
+  protected JsonObject createProfileWithOldSchema(final int index) {
+
+    final var profile = new WeNetUserProfileTest().createModelExample(index).toJsonObject();
+    profile.put("_id", UUID.randomUUID().toString());
+    profile.remove("id");
+    profile.put(Repository.SCHEMA_VERSION, "0.16.0");
+    profile.put("relationships",
+        new JsonArray().add(new JsonObject("{\"userId\":\"1\",\"type\":\"friend\",\"weight\":0.5}"))
+            .add(new JsonObject("{\"userId\":\"1\",\"type\":\"friend\",\"weight\":0.5,\"appId\":\"0\"}"))
+            .add(new JsonObject("{\"userId\":\"1\",\"type\":\"friend\",\"weight\":0.4,\"appId\":\"0\"}"))
+            .add(new JsonObject("{\"userId\":\"2\",\"type\":\"friend\",\"weight\":0.5,\"appId\":\"0\"}")));
+    return profile;
+
+  }
+
+  /**
+   * Check that a profile with an old schema is upgraded when it is read.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldUpgradeProfileOnRead(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldUpgradeProfileOnRead");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var profile = this.createProfileWithOldSchema(1);
+    final var id = profile.getString("_id");
+    testContext.assertComplete(pool.insert(ProfilesRepositoryImpl.PROFILES_COLLECTION, profile.copy())
+        .compose(any -> repository.searchProfile(id))).onSuccess(found -> {
+
+          testContext.verify(() -> {
+
+            assertThat(found.id).isEqualTo(id);
+            assertThat(found.toJsonObject().containsKey("relationships")).isFalse();
+
+          });
+          vertx.setTimer(1000, timer -> {
+
+            final var relationshipsQuery = new JsonObject().put("sourceId", id);
+            testContext.assertComplete(
+                pool.findOne(ProfilesRepositoryImpl.PROFILES_COLLECTION, new JsonObject().put("_id", id), null)
+                    .compose(stored -> pool.find(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION,
+                        relationshipsQuery).map(relationships -> {
+
+                          testContext.verify(() -> {
+
+                            assertThat(stored.getString(Repository.SCHEMA_VERSION)).isEqualTo("1.0.0");
+                            assertThat(stored.containsKey("relationships")).isFalse();
+                            assertThat(relationships).hasSize(2);
+
+                          });
+                          return null;
+                        })))
+                .onSuccess(any -> testContext.completeNow());
+          });
+
+        });
+
+  }
+
+  /**
+   * Check that a profile with an old schema is upgraded when some of its fields
+   * are read.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldUpgradeProjectedProfileOnRead(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldUpgradeProjectedProfileOnRead");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var profile = this.createProfileWithOldSchema(1);
+    final var id = profile.getString("_id");
+    final var fields = List.of("name", "relationships");
+    testContext.assertComplete(pool.insert(ProfilesRepositoryImpl.PROFILES_COLLECTION, profile.copy())
+        .compose(any -> repository.searchProfiles(List.of(id), fields))
+        .compose(profiles -> repository.searchProfileFields(id, fields).map(found -> {
+
+          testContext.verify(() -> {
+
+            assertThat(profiles).hasSize(1);
+            for (final var projected : List.of(profiles.getJsonObject(0), found)) {
+
+              assertThat(projected.getString("id")).isEqualTo(id);
+              assertThat(projected.getJsonObject("name")).isEqualTo(profile.getJsonObject("name"));
+              assertThat(projected.containsKey("relationships")).isFalse();
+              assertThat(projected.containsKey(Repository.SCHEMA_VERSION)).isFalse();
+            }
+
+          });
+          return found;
+
+        }))).onSuccess(any -> testContext.completeNow());
+
+  }
+
+  /**
+   * Check that an upgraded profile is not stored, neither its relationships,
+   * when the profile has been modified after it has been read.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldNotStoreUpgradedProfileWhenModified(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldNotStoreUpgradedProfileWhenModified");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var original = this.createProfileWithOldSchema(1);
+    original.put("_lastUpdateTs", 1);
+    final var id = original.getString("_id");
+    final var modified = original.copy().put("_lastUpdateTs", 2);
+    testContext.assertComplete(pool.insert(ProfilesRepositoryImpl.PROFILES_COLLECTION, modified)
+        .compose(any -> repository.storeUpgradedProfile(original, repository.profileUpgrades.upgrade(original)))
+        .compose(stored -> pool.count(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION,
+            new JsonObject().put("sourceId", id)).map(count -> {
+
+              testContext.verify(() -> {
+
+                assertThat(stored).isFalse();
+                assertThat(count).isEqualTo(0l);
+
+              });
+              return null;
+            })))
+        .onSuccess(any -> testContext.completeNow());
+
+  }
+
+  /**
+   * Check that the relationships of an upgraded profile does not replace the
+   * ones that are already stored.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldNotReplaceStoredRelationshipsWhenUpgradeProfile(final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf,
+        "shouldNotReplaceStoredRelationshipsWhenUpgradeProfile");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var original = this.createProfileWithOldSchema(1);
+    final var id = original.getString("_id");
+    final var newer = new JsonObject().put("appId", "0").put("sourceId", id).put("targetId", "1")
+        .put("type", "friend").put("weight", 0.9).put(Repository.SCHEMA_VERSION, "1.0.0");
+    final var relationshipId = RelationshipsRepository.createSocialNetworkRelationshipId(newer);
+    newer.put("_id", relationshipId);
+    testContext.assertComplete(pool.insert(ProfilesRepositoryImpl.PROFILES_COLLECTION, original.copy())
+        .compose(any -> pool.insert(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION, newer))
+        .compose(any -> repository.storeUpgradedProfile(original, repository.profileUpgrades.upgrade(original)))
+        .compose(stored -> pool.find(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION,
+            new JsonObject().put("sourceId", id)).map(relationships -> {
+
+              testContext.verify(() -> {
+
+                assertThat(stored).isTrue();
+                assertThat(relationships).hasSize(2);
+                for (final var relationship : relationships) {
+
+                  if (relationshipId.equals(relationship.getString("_id"))) {
+
+                    assertThat(relationship.getDouble("weight")).isEqualTo(0.9);
+                  }
+                }
+
+              });
+              return null;
+            })))
+        .onSuccess(any -> testContext.completeNow());
+
+  }
+
+  /**
+   * Check that the defined profiles are checked on the database, even the ones
+   * that have been inserted by another component.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see ProfilesRepositoryImpl#isProfileDefined(String, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldCheckDefinedProfilesOnDatabase(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldCheckDefinedProfilesOnDatabase");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var id = UUID.randomUUID().toString();
+    testContext.assertComplete(repository.storeProfile(new WeNetUserProfile())
+        .compose(stored -> repository.isProfileDefined(stored.id).compose(defined -> {
+
+          testContext.verify(() -> assertThat(defined).isTrue());
+          return repository.deleteProfile(stored.id).compose(any -> repository.isProfileDefined(stored.id));
+
+        })).compose(defined -> {
+
+          testContext.verify(() -> assertThat(defined).isFalse());
+          return pool.insert(ProfilesRepositoryImpl.PROFILES_COLLECTION, new JsonObject().put("_id", id))
+              .compose(any -> repository.isProfileDefined(id));
+
+        })).onSuccess(defined -> testContext.verify(() -> {
+
+          assertThat(defined).isTrue();
+          testContext.completeNow();
+
+        }));
+
+  }
+
+  /**
+   * Check that upgrade in batches the profiles with an old schema.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 5, timeUnit = TimeUnit.MINUTES)
+  public void shouldUpgradeOutdatedProfiles(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldUpgradeOutdatedProfiles");
+    final var repository = new ProfilesRepositoryImpl(vertx, pool, "1.0.0");
+    final var ids = new JsonArray();
+    Future<?> future = Future.succeededFuture();
+    for (var i = 0; i < 3; i++) {
+
+      final var profile = this.createProfileWithOldSchema(i);
+      ids.add(profile.getString("_id"));
+      future = future.compose(any -> pool.insert(ProfilesRepositoryImpl.PROFILES_COLLECTION, profile));
+    }
+    final var query = new JsonObject().put("_id", new JsonObject().put("$in", ids));
+    testContext.assertComplete(future.compose(any -> this.upgradeAllOutdatedProfiles(repository))
+        .compose(any -> pool.find(ProfilesRepositoryImpl.PROFILES_COLLECTION, query))).onSuccess(profiles -> {
+
+          testContext.verify(() -> {
+
+            assertThat(profiles).hasSize(3);
+            for (final var profile : profiles) {
+
+              assertThat(profile.getString(Repository.SCHEMA_VERSION)).isEqualTo("1.0.0");
+              assertThat(profile.containsKey("relationships")).isFalse();
+            }
+
+          });
+          final var relationshipsQuery = new JsonObject().put("sourceId", new JsonObject().put("$in", ids));
+          testContext
+              .assertComplete(pool.count(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION, relationshipsQuery))
+              .onSuccess(count -> testContext.verify(() -> {
+
+                assertThat(count).isEqualTo(6l);
+                testContext.completeNow();
+
+              }));
+        });
+
+  }
+
+  /**
+   * Upgrade all the profiles with an old schema.
+   *
+   * @param repository to upgrade the profiles.
+   *
+   * @return the future that will be completed when all the profiles are
+   *         upgraded.
+   */
+  protected Future<Void> upgradeAllOutdatedProfiles(final ProfilesRepositoryImpl repository) {
+
+    return repository.upgradeOutdatedProfiles(100).compose(upgraded -> {
+
+      if (upgraded == 0) {
+
+        return Future.succeededFuture();
+
+      } else {
+
+        return this.upgradeAllOutdatedProfiles(repository);
+      }
+
+    });
+
+  }
+
 }
@@ -20,9 +20,17 @@
 
 package eu.internetofus.wenet_profile_manager.persistence;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import eu.internetofus.common.vertx.Repository;
 import io.vertx.core.Future;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.mongo.FindOptions;
+import io.vertx.ext.mongo.MongoClient;
 import io.vertx.junit5.VertxExtension;
 import io.vertx.junit5.VertxTestContext;
 import java.util.function.Consumer;
@@ -62,4 +70,63 @@ public class ProfilesRepositoryImplTest {
 
   }
 
+  /**
+   * Should select the archived blocks by the user and the time range of the
+   * historic profiles to search.
+   *
+   * @see ProfilesRepositoryImpl#createArchivedBlocksQuery(JsonObject)
+   */
+  @Test
+  public void shouldCreateArchivedBlocksQuery() {
+
+    final var from = 3 * HistoricProfilesArchive.PERIOD + 10;
+    final var to = 5 * HistoricProfilesArchive.PERIOD + 20;
+    final var query = ProfilesRepository.createProfileHistoricPageQuery("userId", from, to);
+    assertThat(ProfilesRepositoryImpl.createArchivedBlocksQuery(query)).isEqualTo(new JsonObject()
+        .put("profileId", "userId").put("to", new JsonObject().put("$gte", from))
+        .put("from", new JsonObject().put("$lte", to))
+        .put("period", new JsonObject().put("$gte", 3l).put("$lte", 5l)));
+    assertThat(ProfilesRepositoryImpl.createArchivedBlocksQuery(new JsonObject().put("profile.id", "userId")))
+        .isEqualTo(new JsonObject().put("profileId", "userId"));
+    assertThat(ProfilesRepositoryImpl.createArchivedBlocksQuery(null)).isEqualTo(new JsonObject());
+
+  }
+
+  /**
+   * Verify that a profile stored with an old schema is upgraded when it is
+   * converted to the profile model.
+   *
+   * @see ProfilesRepositoryImpl#toProfileModel(JsonObject)
+   */
+  @Test
+  public void shouldUpgradeOutdatedProfileToModel() {
+
+    final var repository = new ProfilesRepositoryImpl(null, null, "1.0.0");
+    final var profile = new JsonObject().put("_id", "1").put(Repository.SCHEMA_VERSION, "0.16.0").put("relationships",
+        new JsonArray().add(new JsonObject().put("userId", "2").put("type", "friend").put("appId", "0")));
+    repository.toProfileModel(profile);
+    assertThat(profile.getString("id")).isEqualTo("1");
+    assertThat(profile.containsKey("_id")).isFalse();
+    assertThat(profile.containsKey(Repository.SCHEMA_VERSION)).isFalse();
+    assertThat(profile.containsKey("relationships")).isFalse();
+
+  }
+
+  /**
+   * Should not report that a profile is not defined when the database fails.
+   *
+   * @param testContext context that executes the test.
+   *
+   * @see ProfilesRepositoryImpl#isProfileDefined(String, io.vertx.core.Handler)
+   */
+  @Test
+  public void shouldFailIsProfileDefinedWhenDatabaseFails(final VertxTestContext testContext) {
+
+    final var pool = mock(MongoClient.class);
+    doReturn(Future.failedFuture("Cannot connect")).when(pool).findOne(any(), any(), any());
+    final var repository = new ProfilesRepositoryImpl(null, pool, "1.0.0");
+    repository.isProfileDefined("undefined", testContext.failing(error -> testContext.completeNow()));
+
+  }
+
 }
@@ -0,0 +1,197 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link ReadThroughCache}.
+ *
+ * @see ReadThroughCache
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class ReadThroughCacheTest {
+
+  /**
+   * Verify that a value is only loaded once and that the cache returns copies.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see ReadThroughCache#get(String, java.util.function.Function)
+   */
+  @Test
+  public void shouldLoadValueOnce(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var cache = new ReadThroughCache(vertx, "test", 10, 60000L);
+    final var loads = new AtomicInteger();
+    cache.get("1", key -> {
+
+      loads.incrementAndGet();
+      return Future.succeededFuture(new JsonObject().put("id", key));
+
+    }).compose(first -> {
+
+      first.put("modified", true);
+      return cache.get("1", key -> Future.failedFuture("Not cached"));
+
+    }).onComplete(testContext.succeeding(second -> testContext.verify(() -> {
+
+      assertThat(loads.get()).isEqualTo(1);
+      assertThat(second).isEqualTo(new JsonObject().put("id", "1"));
+      final var metrics = cache.getMetrics();
+      assertThat(metrics.getLong("hits")).isEqualTo(1L);
+      assertThat(metrics.getLong("misses")).isEqualTo(1L);
+      assertThat(metrics.getInteger("size")).isEqualTo(1);
+      testContext.completeNow();
+
+    })));
+
+  }
+
+  /**
+   * Verify that the undefined values and the disabled caches do not store any
+   * value.
+   *
+   * @param vertx event bus to use.
+   *
+   * @see ReadThroughCache#put(String, JsonObject, long)
+   */
+  @Test
+  public void shouldNotCacheUndefinedValues(final Vertx vertx) {
+
+    final var cache = new ReadThroughCache(vertx, "test", 10, 60000L);
+    cache.put("1", null, cache.getGeneration());
+    assertThat(cache.getIfPresent("1")).isNull();
+
+    final var disabled = new ReadThroughCache(vertx, "test", 0, 60000L);
+    assertThat(disabled.isEnabled()).isFalse();
+    disabled.put("1", new JsonObject(), disabled.getGeneration());
+    assertThat(disabled.getIfPresent("1")).isNull();
+
+  }
+
+  /**
+   * Verify that the expired values are not returned.
+   *
+   * @param vertx event bus to use.
+   *
+   * @throws InterruptedException if cannot wait to expire the value.
+   *
+   * @see ReadThroughCache#getIfPresent(String)
+   */
+  @Test
+  public void shouldExpireValues(final Vertx vertx) throws InterruptedException {
+
+    final var cache = new ReadThroughCache(vertx, "test", 10, 1L);
+    cache.put("1", new JsonObject(), cache.getGeneration());
+    Thread.sleep(10);
+    assertThat(cache.getIfPresent("1")).isNull();
+    assertThat(cache.getMetrics().getInteger("size")).isEqualTo(0);
+
+  }
+
+  /**
+   * Verify that a value read before an invalidation is not cached.
+   *
+   * @param vertx event bus to use.
+   *
+   * @see ReadThroughCache#invalidate(String)
+   */
+  @Test
+  public void shouldNotCacheValueReadBeforeInvalidation(final Vertx vertx) {
+
+    final var cache = new ReadThroughCache(vertx, "test", 10, 60000L);
+    cache.put("1", new JsonObject(), cache.getGeneration());
+    final var generation = cache.getGeneration();
+    cache.invalidate("1");
+    assertThat(cache.getIfPresent("1")).isNull();
+    cache.put("1", new JsonObject(), generation);
+    assertThat(cache.getIfPresent("1")).isNull();
+
+  }
+
+  /**
+   * Verify that only the frequently requested values replace the cached ones.
+   *
+   * @param vertx event bus to use.
+   *
+   * @see ReadThroughCache#put(String, JsonObject, long)
+   */
+  @Test
+  public void shouldAdmitOnlyFrequentValuesWhenIsFull(final Vertx vertx) {
+
+    final var cache = new ReadThroughCache(vertx, "test", 1, 60000L);
+    assertThat(cache.getIfPresent("1")).isNull();
+    cache.put("1", new JsonObject().put("id", "1"), cache.getGeneration());
+    assertThat(cache.getIfPresent("2")).isNull();
+    cache.put("2", new JsonObject().put("id", "2"), cache.getGeneration());
+    assertThat(cache.getMetrics().getLong("rejections")).isEqualTo(1L);
+    assertThat(cache.getIfPresent("1")).isNotNull();
+
+    assertThat(cache.getIfPresent("2")).isNull();
+    assertThat(cache.getIfPresent("2")).isNull();
+    cache.put("2", new JsonObject().put("id", "2"), cache.getGeneration());
+    final var metrics = cache.getMetrics();
+    assertThat(metrics.getLong("evictions")).isEqualTo(1L);
+    assertThat(metrics.getInteger("size")).isEqualTo(1);
+    assertThat(cache.getIfPresent("2")).isEqualTo(new JsonObject().put("id", "2"));
+
+  }
+
+  /**
+   * Verify that the invalidations published by other instances remove the
+   * cached values.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see ReadThroughCache#start(long)
+   */
+  @Test
+  public void shouldInvalidateFromOtherInstances(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var cache = new ReadThroughCache(vertx, "test", 10, 60000L).start(0);
+    final var other = new ReadThroughCache(vertx, "test", 10, 60000L);
+    cache.put("1", new JsonObject(), cache.getGeneration());
+    other.invalidate("1");
+    vertx.setTimer(100, id -> testContext.verify(() -> {
+
+      assertThat(cache.getIfPresent("1")).isNull();
+      testContext.completeNow();
+
+    }));
+
+  }
+
+}
@@ -30,6 +30,7 @@ import eu.internetofus.wenet_profile_manager.WeNetProfileManagerIntegrationExten
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
 import io.vertx.junit5.VertxTestContext;
+import java.util.List;
 import java.util.UUID;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -89,7 +90,8 @@ public class RelationshipsRepositoryIT {
         .assertComplete(RelationshipsRepository.createProxy(vertx).storeOrUpdateSocialNetworkRelationship(relationship))
         .onSuccess(stored -> testContext.verify(() -> {
 
-          assertThat(stored).isNotNull();
+          assertThat(stored).isNotNull()
+              .isEqualTo(RelationshipsRepository.createSocialNetworkRelationshipId(relationship.toJsonObject()));
           testContext
               .assertComplete(
                   RelationshipsRepository.createProxy(vertx).storeOrUpdateSocialNetworkRelationship(relationship))
@@ -102,6 +104,57 @@ public class RelationshipsRepositoryIT {
 
   }
 
+  /**
+   * Verify that can store or update some relationships at once.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see RelationshipsRepository#storeOrUpdateSocialNetworkRelationships(List)
+   */
+  @Test
+  public void shouldStoreOrUpdateSocialNetworkRelationships(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var relationship1 = new SocialNetworkRelationshipTest().createModelExample(1);
+    relationship1.appId = UUID.randomUUID().toString();
+    relationship1.weight = 0.1;
+    final var relationship2 = Model.fromJsonObject(relationship1.toJsonObject(), SocialNetworkRelationship.class);
+    relationship2.targetId = UUID.randomUUID().toString();
+    final var repository = RelationshipsRepository.createProxy(vertx);
+    testContext.assertComplete(repository.storeOrUpdateSocialNetworkRelationships(List.of(relationship1, relationship2))
+        .compose(result -> {
+
+          testContext.verify(() -> {
+
+            assertThat(result.getInteger(RelationshipsRepository.RELATIONSHIP_INSERTED)).isEqualTo(2);
+            assertThat(result.getInteger(RelationshipsRepository.RELATIONSHIP_UPDATED)).isEqualTo(0);
+            assertThat(result.getInteger(RelationshipsRepository.RELATIONSHIP_UNCHANGED)).isEqualTo(0);
+          });
+          final var relationship3 = Model.fromJsonObject(relationship2.toJsonObject(),
+              SocialNetworkRelationship.class);
+          relationship3.weight = 0.3;
+          return repository
+              .storeOrUpdateSocialNetworkRelationships(List.of(relationship1, relationship2, relationship3));
+
+        })).onSuccess(result -> testContext.verify(() -> {
+
+          assertThat(result.getInteger(RelationshipsRepository.RELATIONSHIP_INSERTED)).isEqualTo(0);
+          assertThat(result.getInteger(RelationshipsRepository.RELATIONSHIP_UPDATED)).isEqualTo(1);
+          assertThat(result.getInteger(RelationshipsRepository.RELATIONSHIP_UNCHANGED)).isEqualTo(2);
+          assertThat(result.getJsonArray("items")).containsExactly(RelationshipsRepository.RELATIONSHIP_UNCHANGED,
+              RelationshipsRepository.RELATIONSHIP_UNCHANGED, RelationshipsRepository.RELATIONSHIP_UPDATED);
+          final var query = new JsonObject().put("appId", relationship1.appId).put("weight", 0.3);
+          testContext.assertComplete(repository.retrieveSocialNetworkRelationshipsPage(query, new JsonObject(), 0, 10))
+              .onSuccess(page -> testContext.verify(() -> {
+
+                assertThat(page.total).isEqualTo(1);
+                assertThat(page.relationships.get(0).targetId).isEqualTo(relationship2.targetId);
+                testContext.completeNow();
+              }));
+        }));
+
+  }
+
   /**
    * Verify that can not delete a relationship if it is not defined.
    *
@@ -24,6 +24,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import eu.internetofus.common.model.ValidationErrorException;
+import io.vertx.core.json.JsonObject;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.jupiter.api.Test;
@@ -77,4 +78,27 @@ public class RelationshipsRepositoryTest {
 
   }
 
+  /**
+   * Verify that the identifier of a relationship depends only on its key.
+   *
+   * @see RelationshipsRepository#createSocialNetworkRelationshipId(JsonObject)
+   */
+  @Test
+  public void shouldCreateSocialNetworkRelationshipId() {
+
+    final var relationship = new JsonObject().put("appId", "app|1").put("sourceId", "source").put("targetId", "target")
+        .put("type", "friend").put("weight", 0.5);
+    final var id = RelationshipsRepository.createSocialNetworkRelationshipId(relationship);
+    assertThat(id).isEqualTo("app%7C1|source|target|friend")
+        .isEqualTo(RelationshipsRepository.createSocialNetworkRelationshipId("app|1", "source", "target", "friend"));
+    assertThat(RelationshipsRepository.createSocialNetworkRelationshipId("app", "1|source", "target", "friend"))
+        .isNotEqualTo(RelationshipsRepository.createSocialNetworkRelationshipId("app|1", "source", "target", "friend"));
+    assertThat(RelationshipsRepository.createSocialNetworkRelationshipId(null, "source", "target", null))
+        .isEqualTo("~|source|target|~")
+        .isNotEqualTo(RelationshipsRepository.createSocialNetworkRelationshipId("", "source", "target", ""));
+    assertThat(RelationshipsRepository.createSocialNetworkRelationshipId("~", "source", "target", null))
+        .isEqualTo("%7E|source|target|~");
+
+  }
+
 }
@@ -0,0 +1,106 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.components.Containers;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.mongo.IndexOptions;
+import io.vertx.ext.mongo.MongoClient;
+import io.vertx.junit5.Timeout;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the integration with a database of {@link RepositoryIndexes}.
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class RepositoryIndexesIT {
+
+  /**
+   * Should create the indexes and report the unexpected ones.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 1, timeUnit = TimeUnit.MINUTES)
+  public void shouldEnsureAndVerifyIndexes(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldEnsureAndVerifyIndexes");
+    final var collection = "indexes_" + UUID.randomUUID().toString().replaceAll("-", "");
+    final var indexes = List.of(RepositoryIndex.of(collection, "first", new JsonObject().put("first", 1)),
+        RepositoryIndex.of(collection, "secondAndThird", new JsonObject().put("second", 1).put("third", -1)).unique());
+    pool.createIndexWithOptions(collection, new JsonObject().put("other", 1), new IndexOptions().name("other"))
+        .compose(any -> RepositoryIndexes.ensure(pool, indexes, true))
+        .compose(any -> RepositoryIndexes.verify(pool, indexes))
+        .onComplete(testContext.succeeding(report -> testContext.verify(() -> {
+
+          final var collectionReport = report.getJsonObject(collection);
+          assertThat(collectionReport).isNotNull();
+          assertThat(collectionReport.getJsonArray("missing")).isEqualTo(new JsonArray());
+          assertThat(collectionReport.getJsonArray("unexpected")).isEqualTo(new JsonArray().add("other"));
+          assertThat(collectionReport.getJsonArray("unused")).contains("first", "secondAndThird", "other");
+          testContext.completeNow();
+
+        })));
+
+  }
+
+  /**
+   * Should ensure the same indexes twice.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   */
+  @Test
+  @Timeout(value = 1, timeUnit = TimeUnit.MINUTES)
+  public void shouldEnsureIndexesTwice(final Vertx vertx, final VertxTestContext testContext) {
+
+    Containers.status().startMongoContainer();
+    final var persitenceConf = Containers.status().getMongoDBConfig();
+    final var pool = MongoClient.createShared(vertx, persitenceConf, "shouldEnsureIndexesTwice");
+    final var indexes = RelationshipsRepositoryImpl.INDEXES;
+    RepositoryIndexes.ensure(pool, indexes, false).compose(any -> RepositoryIndexes.ensure(pool, indexes, true))
+        .compose(any -> RepositoryIndexes.verify(pool, indexes))
+        .onComplete(testContext.succeeding(report -> testContext.verify(() -> {
+
+          final var collectionReport = report.getJsonObject(RelationshipsRepositoryImpl.RELATIONSHIPS_COLLECTION);
+          assertThat(collectionReport.getJsonArray("missing")).isEqualTo(new JsonArray());
+          testContext.completeNow();
+
+        })));
+
+  }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import eu.internetofus.common.vertx.Repository;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link SchemaUpgrades}
+ *
+ * @see SchemaUpgrades
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SchemaUpgradesTest {
+
+  /**
+   * Create the upgrades to use in the tests. Each upgrade adds its version to
+   * the field 'applied'.
+   *
+   * @return the upgrades to the version 1.0.0.
+   */
+  protected SchemaUpgrades createUpgrades() {
+
+    return new SchemaUpgrades("1.0.0").with("0.7.0", document -> this.addApplied(document, "0.7.0"))
+        .with("0.10.0", document -> this.addApplied(document, "0.10.0"))
+        .with("1.0.0", document -> this.addApplied(document, "1.0.0"));
+
+  }
+
+  /**
+   * Mark an upgrade as applied over a document.
+   *
+   * @param document to mark.
+   * @param version  of the applied upgrade.
+   *
+   * @return the marked document.
+   */
+  protected JsonObject addApplied(final JsonObject document, final String version) {
+
+    final var applied = document.getJsonArray("applied", new JsonArray());
+    document.put("applied", applied.add(version));
+    return document;
+
+  }
+
+  /**
+   * Verify that compare the versions.
+   *
+   * @see SchemaUpgrades#compareVersions(String, String)
+   */
+  @Test
+  public void shouldCompareVersions() {
+
+    assertThat(SchemaUpgrades.compareVersions("1.0.0", "1.0.0")).isZero();
+    assertThat(SchemaUpgrades.compareVersions("1.0", "1.0.0")).isZero();
+    assertThat(SchemaUpgrades.compareVersions("0.9.0", "0.10.0")).isNegative();
+    assertThat(SchemaUpgrades.compareVersions("0.16.1", "0.16.0")).isPositive();
+    assertThat(SchemaUpgrades.compareVersions("0.1", "0.16.0")).isNegative();
+    assertThat(SchemaUpgrades.compareVersions(SchemaUpgrades.UNDEFINED_VERSION, "0.1.0")).isNegative();
+
+  }
+
+  /**
+   * Verify that detect the outdated documents.
+   *
+   * @see SchemaUpgrades#isOutdated(JsonObject)
+   */
+  @Test
+  public void shouldDetectOutdatedDocuments() {
+
+    final var upgrades = this.createUpgrades();
+    assertThat(upgrades.isOutdated(null)).isFalse();
+    assertThat(upgrades.isOutdated(new JsonObject())).isTrue();
+    assertThat(upgrades.isOutdated(new JsonObject().put(Repository.SCHEMA_VERSION, "0.16.0"))).isTrue();
+    assertThat(upgrades.isOutdated(new JsonObject().put(Repository.SCHEMA_VERSION, "1.0.0"))).isFalse();
+    assertThat(upgrades.isOutdated(new JsonObject().put(Repository.SCHEMA_VERSION, "1.1.0"))).isFalse();
+
+  }
+
+  /**
+   * Verify that apply only the upgrades newer than the document version.
+   *
+   * @see SchemaUpgrades#upgrade(JsonObject)
+   */
+  @Test
+  public void shouldUpgradeOnlyWithNewerVersions() {
+
+    final var upgrades = this.createUpgrades();
+    final var document = new JsonObject().put(Repository.SCHEMA_VERSION, "0.9.0");
+    final var upgraded = upgrades.upgrade(document);
+    assertThat(upgraded).isEqualTo(new JsonObject().put(Repository.SCHEMA_VERSION, "1.0.0").put("applied",
+        new JsonArray().add("0.10.0").add("1.0.0")));
+    assertThat(document).isEqualTo(new JsonObject().put(Repository.SCHEMA_VERSION, "0.9.0"));
+    assertThat(upgrades.upgrade(new JsonObject()).getJsonArray("applied"))
+        .isEqualTo(new JsonArray().add("0.7.0").add("0.10.0").add("1.0.0"));
+
+  }
+
+  /**
+   * Verify that apply only the upgrades before a version.
+   *
+   * @see SchemaUpgrades#upgradeBefore(JsonObject, String)
+   */
+  @Test
+  public void shouldUpgradeBefore() {
+
+    final var upgrades = this.createUpgrades();
+    assertThat(upgrades.upgradeBefore(new JsonObject(), "1.0.0"))
+        .isEqualTo(new JsonObject().put("applied", new JsonArray().add("0.7.0").add("0.10.0")));
+
+  }
+
+  /**
+   * Verify that create the query to match an unmodified document.
+   *
+   * @see SchemaUpgrades#createUnmodifiedQuery(JsonObject)
+   */
+  @Test
+  public void shouldCreateUnmodifiedQuery() {
+
+    assertThat(SchemaUpgrades.createUnmodifiedQuery(new JsonObject().put("_id", "1"))).isEqualTo(new JsonObject()
+        .put("_id", "1").put(Repository.SCHEMA_VERSION, new JsonObject().put("$exists", false)));
+    assertThat(SchemaUpgrades.createUnmodifiedQuery(
+        new JsonObject().put("_id", "1").put(Repository.SCHEMA_VERSION, "0.1").put("_lastUpdateTs", 10)))
+            .isEqualTo(new JsonObject().put("_id", "1").put(Repository.SCHEMA_VERSION, "0.1").put("_lastUpdateTs",
+                10));
+
+  }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test the {@link SocialGraph}.
+ *
+ * @see SocialGraph
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class SocialGraphTest {
+
+  /**
+   * Create a graph where {@code 1} is friend of {@code 2} and {@code 3},
+   * {@code 2} is friend of {@code 3} and {@code 4}, and {@code 4} is colleague
+   * of {@code 5}.
+   *
+   * @return the created graph.
+   */
+  protected SocialGraph createGraph() {
+
+    final var graph = new SocialGraph("app");
+    graph.put("1", "2", "friend", 0.9);
+    graph.put("1", "3", "friend", 0.2);
+    graph.put("2", "3", "friend", 0.5);
+    graph.put("2", "4", "friend", 0.7);
+    graph.put("4", "5", "colleague", 1.0);
+    return graph;
+
+  }
+
+  /**
+   * Verify that update a relationship does not add a new one.
+   *
+   * @see SocialGraph#put(String, String, String, double)
+   */
+  @Test
+  public void shouldUpdateRelationship() {
+
+    final var graph = this.createGraph();
+    graph.put("1", "3", "friend", 1.0);
+    assertThat(graph.size()).isEqualTo(5);
+    assertThat(graph.topNeighbours("1", null, null, 1).getJsonArray("relationships").getJsonObject(0))
+        .isEqualTo(new JsonObject().put("appId", "app").put("sourceId", "1").put("targetId", "3").put("type", "friend")
+            .put("weight", 1.0));
+
+  }
+
+  /**
+   * Verify that remove relationships.
+   *
+   * @see SocialGraph#remove(String, String, String)
+   * @see SocialGraph#removeUser(String)
+   */
+  @Test
+  public void shouldRemoveRelationships() {
+
+    final var graph = this.createGraph();
+    assertThat(graph.remove("1", "2", "colleague")).isFalse();
+    assertThat(graph.remove("1", "2", "friend")).isTrue();
+    assertThat(graph.remove("1", "2", "friend")).isFalse();
+    assertThat(graph.size()).isEqualTo(4);
+    assertThat(graph.removeUser("4")).isEqualTo(2);
+    assertThat(graph.size()).isEqualTo(2);
+    assertThat(graph.removeUser("undefined")).isEqualTo(0);
+
+  }
+
+  /**
+   * Verify that the users that are not on any relationship are released.
+   *
+   * @see SocialGraph#removeUser(String)
+   * @see SocialGraph#compactIfSparse()
+   */
+  @Test
+  public void shouldReleaseUnusedUsers() {
+
+    final var graph = this.createGraph();
+    final var max = SocialGraph.MIN_UNUSED_USERS_TO_COMPACT * 2;
+    for (var i = 0; i < max; i++) {
+
+      graph.put("1", "user_" + i, "colleague", 0.1);
+    }
+    assertThat(graph.usersCount()).isEqualTo(max + 5);
+    assertThat(graph.removeUser("1")).isEqualTo(max + 2);
+    assertThat(graph.size()).isEqualTo(3);
+    assertThat(graph.usersCount()).isEqualTo(4);
+    assertThat(graph.neighbourhood("2", 2, null, null, 100).getJsonArray("users")).isEqualTo(new JsonArray()
+        .add(new JsonObject().put("userId", "3").put("distance", 1))
+        .add(new JsonObject().put("userId", "4").put("distance", 1))
+        .add(new JsonObject().put("userId", "5").put("distance", 2)));
+
+  }
+
+  /**
+   * Verify the ego network of an user.
+   *
+   * @see SocialGraph#egoNetwork(String, String, Double)
+   */
+  @Test
+  public void shouldObtainEgoNetwork() {
+
+    final var graph = this.createGraph();
+    final var ego = graph.egoNetwork("1", null, null);
+    assertThat(ego.getJsonArray("users")).isEqualTo(new JsonArray().add("1").add("2").add("3"));
+    assertThat(ego.getJsonArray("relationships")).hasSize(3);
+    assertThat(graph.egoNetwork("1", "friend", 0.3).getJsonArray("users")).isEqualTo(new JsonArray().add("1").add("2"));
+    assertThat(graph.egoNetwork("1", "undefined", null).getJsonArray("users")).isEmpty();
+    assertThat(graph.egoNetwork("undefined", null, null).getJsonArray("relationships")).isEmpty();
+
+  }
+
+  /**
+   * Verify the neighbourhood of an user.
+   *
+   * @see SocialGraph#neighbourhood(String, int, String, Double, int)
+   */
+  @Test
+  public void shouldObtainNeighbourhood() {
+
+    final var graph = this.createGraph();
+    assertThat(graph.neighbourhood("1", 1, null, null, 100).getJsonArray("users")).isEqualTo(new JsonArray()
+        .add(new JsonObject().put("userId", "2").put("distance", 1))
+        .add(new JsonObject().put("userId", "3").put("distance", 1)));
+    assertThat(graph.neighbourhood("1", 3, null, null, 100).getJsonArray("users")).hasSize(4)
+        .contains(new JsonObject().put("userId", "5").put("distance", 3));
+    assertThat(graph.neighbourhood("1", 3, "friend", 0.6, 100).getJsonArray("users")).isEqualTo(new JsonArray()
+        .add(new JsonObject().put("userId", "2").put("distance", 1))
+        .add(new JsonObject().put("userId", "4").put("distance", 2)));
+    assertThat(graph.neighbourhood("1", 3, null, null, 2).getJsonArray("users")).hasSize(2);
+
+  }
+
+  /**
+   * Verify the relationships with the highest weight of an user.
+   *
+   * @see SocialGraph#topNeighbours(String, String, Double, int)
+   */
+  @Test
+  public void shouldObtainTopNeighbours() {
+
+    final var graph = this.createGraph();
+    graph.put("1", "4", "colleague", 0.5);
+    final var top = graph.topNeighbours("1", null, null, 2).getJsonArray("relationships");
+    assertThat(top).hasSize(2);
+    assertThat(top.getJsonObject(0).getString("targetId")).isEqualTo("2");
+    assertThat(top.getJsonObject(1).getString("targetId")).isEqualTo("4");
+    assertThat(graph.topNeighbours("1", "friend", 0.5, 10).getJsonArray("relationships")).hasSize(1);
+
+  }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.vertx.core.CompositeFuture;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.junit5.VertxExtension;
+import io.vertx.junit5.VertxTestContext;
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+/**
+ * Test the {@link TrustEventsWriteBehind}.
+ *
+ * @see TrustEventsWriteBehind
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+@ExtendWith(VertxExtension.class)
+public class TrustEventsWriteBehindTest {
+
+  /**
+   * Verify that the events are stored in batches when the maximum number of
+   * events is reached or the delay has passed.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TrustEventsWriteBehind#add(JsonObject)
+   */
+  @Test
+  public void shouldStoreEventsInBatches(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var batches = new ArrayList<Integer>();
+    final var writeBehind = new TrustEventsWriteBehind(vertx, 50, 2, events -> {
+
+      batches.add(events.size());
+      return Future.succeededFuture(events.copy());
+    });
+
+    final var first = writeBehind.add(new JsonObject().put("rating", 0.1));
+    assertThat(writeBehind.getStatus().getInteger("queueDepth")).isEqualTo(1);
+    final var second = writeBehind.add(new JsonObject().put("rating", 0.2));
+    assertThat(writeBehind.getStatus().getInteger("queueDepth")).isEqualTo(0);
+    final var third = writeBehind.add(new JsonObject().put("rating", 0.3));
+    assertThat(writeBehind.getStatus().getInteger("queueDepth")).isEqualTo(1);
+
+    testContext.assertComplete(CompositeFuture.all(first, second, third)).onSuccess(stored -> testContext.verify(() -> {
+
+      assertThat(batches).containsExactly(2, 1);
+      assertThat(third.result().getDouble("rating")).isEqualTo(0.3);
+      final var status = writeBehind.getStatus();
+      assertThat(status.getInteger("queueDepth")).isEqualTo(0);
+      assertThat(status.getLong("flushes")).isEqualTo(2l);
+      assertThat(status.getLong("flushedEvents")).isEqualTo(3l);
+      testContext.completeNow();
+    }));
+
+  }
+
+  /**
+   * Verify that the events that are not stored fail.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TrustEventsWriteBehind#flush()
+   */
+  @Test
+  public void shouldFailEventsThatAreNotStored(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var writeBehind = new TrustEventsWriteBehind(vertx, 60000, 100,
+        events -> Future.succeededFuture(new JsonArray().add(events.getJsonObject(0)).addNull()));
+    final var stored = writeBehind.add(new JsonObject().put("rating", 0.1));
+    final var notStored = writeBehind.add(new JsonObject().put("rating", 0.2));
+    testContext.assertComplete(writeBehind.flush()).onSuccess(flushed -> testContext.verify(() -> {
+
+      assertThat(stored.succeeded()).isTrue();
+      assertThat(notStored.failed()).isTrue();
+      testContext.completeNow();
+    }));
+
+  }
+
+  /**
+   * Verify that all the pending events fail when the batch can not be stored.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TrustEventsWriteBehind#flush()
+   */
+  @Test
+  public void shouldFailAllEventsWhenCanNotStoreBatch(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var writeBehind = new TrustEventsWriteBehind(vertx, 60000, 100,
+        events -> Future.failedFuture("Cannot store"));
+    final var event = writeBehind.add(new JsonObject().put("rating", 0.1));
+    testContext.assertFailure(writeBehind.flush()).onFailure(error -> testContext.verify(() -> {
+
+      assertThat(event.failed()).isTrue();
+      assertThat(writeBehind.getStatus().getInteger("queueDepth")).isEqualTo(0);
+      testContext.completeNow();
+    }));
+
+  }
+
+}
@@ -0,0 +1,185 @@
+/*
+ * -----------------------------------------------------------------------------
+ *
+ * Copyright 2019 - 2022 UDT-IA, IIIA-CSIC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * -----------------------------------------------------------------------------
+ */
+
+package eu.internetofus.wenet_profile_manager.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+import eu.internetofus.common.components.profile_manager.TrustAggregator;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test {@link TrustStates}
+ *
+ * @see TrustStates
+ *
+ * @author UDT-IA, IIIA-CSIC
+ */
+public class TrustStatesTest {
+
+  /**
+   * Create a state with some ratings.
+   *
+   * @param ratings of the state.
+   *
+   * @return the state with the ratings.
+   */
+  private JsonObject createState(final double... ratings) {
+
+    final var state = new JsonObject().put("count", ratings.length).put("sum", 0d).put("min", 1d).put("max", 0d)
+        .put("ring", new JsonArray()).put("sketch", new JsonObject());
+    for (final var rating : ratings) {
+
+      state.put("sum", state.getDouble("sum") + rating);
+      state.put("min", Math.min(state.getDouble("min"), rating));
+      state.put("max", Math.max(state.getDouble("max"), rating));
+      state.getJsonArray("ring").add(rating);
+      final var key = TrustStates.toSketchKey(rating);
+      state.getJsonObject("sketch").put(key, state.getJsonObject("sketch").getLong(key, 0l) + 1);
+    }
+    return state;
+
+  }
+
+  /**
+   * Verify the queries that can be calculated with a state.
+   *
+   * @see TrustStates#createStateId(JsonObject)
+   */
+  @Test
+  public void shouldCreateStateIdOnlyForExactQueries() {
+
+    assertThat(TrustStates.createStateId(null)).isNull();
+    assertThat(TrustStates.createStateId(new JsonObject().put("sourceId", "1").put("targetId", "2")))
+        .isEqualTo(TrustStates.createStateId("1", "2", null));
+    assertThat(TrustStates.createStateId(new JsonObject().put("sourceId", "1").put("targetId", "2").put("appId", "3")))
+        .isEqualTo(TrustStates.createStateId("1", "2", "3"));
+    assertThat(TrustStates.createStateId(new JsonObject().put("sourceId", "1"))).isNull();
+    assertThat(TrustStates.createStateId(new JsonObject().put("sourceId", "1").put("targetId", "2").put("appId",
+        new JsonObject().put("$regex", "3")))).isNull();
+    assertThat(TrustStates.createStateId(new JsonObject().put("sourceId", "1").put("targetId", "2").put("taskId", "3")))
+        .isNull();
+    assertThat(TrustStates.createStateId(new JsonObject().put("sourceId", "1").put("targetId", "2").put("reportTime",
+        new JsonObject().put("$gte", 0)))).isNull();
+
+  }
+
+  /**
+   * Verify that the sketch keys can be converted to ratings.
+   *
+   * @see TrustStates#toSketchKey(double)
+   * @see TrustStates#fromSketchKey(String)
+   */
+  @Test
+  public void shouldConvertSketchKeys() {
+
+    for (final var rating : new double[] { 0d, 0.25, 1d, 0.123456789, 1.0e-7 }) {
+
+      final var key = TrustStates.toSketchKey(rating);
+      assertThat(key).doesNotContain(".").doesNotStartWith("$");
+      assertThat(TrustStates.fromSketchKey(key)).isEqualTo(rating);
+    }
+
+  }
+
+  /**
+   * Verify the trust calculated from a state.
+   *
+   * @see TrustStates#calculateTrust(TrustAggregator, JsonObject)
+   */
+  @Test
+  public void shouldCalculateTrustFromState() {
+
+    final var state = this.createState(0.5, 0.25, 1.0, 0.0, 0.75, 0.25);
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MAXIMUM, state)).isEqualTo(1.0, offset(0.0000000001d));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MINIMUM, state)).isEqualTo(0.0, offset(0.0000000001d));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.AVERAGE, state)).isEqualTo(2.75 / 6.0,
+        offset(0.0000000001d));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MEDIAN, state)).isEqualTo(0.25, offset(0.0000000001d));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.RECENCY_BASED, state)).isEqualTo(2.75 / 6.0,
+        offset(0.0000000001d));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MEDIAN, this.createState(0.3))).isEqualTo(0.3,
+        offset(0.0000000001d));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MEDIAN, this.createState(0.1, 0.9, 0.5))).isEqualTo(0.5,
+        offset(0.0000000001d));
+
+  }
+
+  /**
+   * Verify that the trust is not calculated from a state that can not be used.
+   *
+   * @see TrustStates#calculateTrust(TrustAggregator, JsonObject)
+   */
+  @Test
+  public void shouldNotCalculateTrustFromUnusableState() {
+
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MAXIMUM, null)).isNull();
+    assertThat(TrustStates.calculateTrust(null, this.createState(0.5))).isNull();
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MAXIMUM, this.createState(0.5).put("stale", true)))
+        .isNull();
+    assertThat(TrustStates.calculateTrust(TrustAggregator.AVERAGE, this.createState())).isNull();
+    final var overflow = this.createState(0.5).put("sketchOverflow", true);
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MEDIAN, overflow)).isNull();
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MAXIMUM, overflow)).isEqualTo(0.5, offset(0.0000000001d));
+
+  }
+
+  /**
+   * Verify that a state is created from the result of the rebuild command.
+   *
+   * @see TrustStates#createStateFrom(JsonObject, Object, JsonObject)
+   */
+  @Test
+  public void shouldCreateStateFromRebuildResult() {
+
+    final var id = TrustStates.createStateId("1", "2", null);
+    final var facets = new JsonObject()
+        .put("stats",
+            new JsonArray().add(new JsonObject().put("count", 3).put("sum", 1.5).put("min", 0.2).put("max", 0.8)))
+        .put("ring",
+            new JsonArray().add(new JsonObject().put("rating", 0.8)).add(new JsonObject().put("rating", 0.2)))
+        .put("sketch",
+            new JsonArray().add(new JsonObject().put("_id", 0.2).put("count", 1))
+                .add(new JsonObject().put("_id", 0.5).put("count", 1))
+                .add(new JsonObject().put("_id", 0.8).put("count", 1)));
+    final var result = new JsonObject().put("cursor",
+        new JsonObject().put("firstBatch", new JsonArray().add(facets)));
+    final var state = TrustStates.createStateFrom(id, 1, result);
+    assertThat(state.getJsonObject("_id")).isEqualTo(id);
+    assertThat(state.getBoolean("stale")).isFalse();
+    assertThat(state.getJsonArray("ring")).isEqualTo(new JsonArray().add(0.2).add(0.8));
+    assertThat(TrustStates.calculateTrust(TrustAggregator.MEDIAN, state)).isEqualTo(0.5, offset(0.0000000001d));
+
+    final var empty = new JsonObject().put("cursor", new JsonObject().put("firstBatch",
+        new JsonArray().add(new JsonObject().put("stats", new JsonArray()))));
+    final var emptyState = TrustStates.createStateFrom(id, 1, empty);
+    assertThat(emptyState.getJsonObject("_id")).isEqualTo(id);
+    assertThat(TrustStates.isEmpty(emptyState)).isTrue();
+    assertThat(TrustStates.isEmpty(state)).isFalse();
+    assertThat(TrustStates.isEmpty(emptyState.copy().put("stale", true))).isFalse();
+    assertThat(TrustStates.isEmpty(null)).isFalse();
+    assertThat(TrustStates.calculateTrust(TrustAggregator.AVERAGE, emptyState)).isNull();
+
+  }
+
+}
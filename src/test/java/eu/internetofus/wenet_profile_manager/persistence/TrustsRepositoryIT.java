@@ -384,6 +384,27 @@ public class TrustsRepositoryIT {
 
   }
 
+  /**
+   * Verify that can not calculate the trust between users without events, even
+   * when the empty state is already stored.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TrustsRepository#calculateTrustBy(TrustAggregator, JsonObject)
+   */
+  @Test
+  public void shouldNotCalculateTrustWithoutEvents(final Vertx vertx, final VertxTestContext testContext) {
+
+    final var now = TimeManager.now();
+    final var query = new JsonObject().put("sourceId", "source_" + now).put("targetId", "target_" + now);
+    final var repository = TrustsRepository.createProxy(vertx);
+    testContext.assertFailure(repository.calculateTrustBy(TrustAggregator.AVERAGE, query)
+        .recover(error -> repository.calculateTrustBy(TrustAggregator.MAXIMUM, query)))
+        .onFailure(error -> testContext.completeNow());
+
+  }
+
   /**
    * Verify that can not delete events for an undefined user.
    *
@@ -500,4 +521,58 @@ public class TrustsRepositoryIT {
 
   }
 
+  /**
+   * Verify that the trust calculated from the state of a pair of users is
+   * updated when the events of a task are removed.
+   *
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TrustsRepository#deleteAllEventsForTask(String)
+   * @see TrustsRepository#calculateTrustBy(TrustAggregator, JsonObject)
+   */
+  @Test
+  public void shouldCalculateTrustFromStateAfterDeleteEventsForTask(final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    final var removedTaskId = "removed_task_" + TimeManager.now();
+    assertStoreMultipleUserPerformanceRatingEvent(10, vertx, testContext, (index, event) -> {
+
+      if (index % 2 == 0) {
+
+        event.taskId = removedTaskId;
+        event.rating = 1.0;
+
+      } else {
+
+        event.rating = index / 10.0;
+      }
+
+    }).onSuccess(events -> {
+
+      final var event0 = events.get(0);
+      final var query = new JsonObject().put("sourceId", event0.sourceId).put("targetId", event0.targetId);
+      final var repository = TrustsRepository.createProxy(vertx);
+      testContext.assertComplete(repository.calculateTrustBy(TrustAggregator.MAXIMUM, query)
+          .compose(max -> {
+
+            testContext.verify(() -> assertThat(max).isEqualTo(1.0, offset(0.0000000001d)));
+            return repository.deleteAllEventsForTask(removedTaskId);
+
+          }).compose(empty -> repository.calculateTrustBy(TrustAggregator.MAXIMUM, query))
+          .compose(max -> {
+
+            testContext.verify(() -> assertThat(max).isEqualTo(0.9, offset(0.0000000001d)));
+            return repository.calculateTrustBy(TrustAggregator.AVERAGE, query);
+
+          })).onSuccess(avg -> testContext.verify(() -> {
+
+            assertThat(avg).isEqualTo(0.5, offset(0.0000000001d));
+            testContext.completeNow();
+          }));
+
+    });
+
+  }
+
 }
@@ -22,7 +22,10 @@ package eu.internetofus.wenet_profile_manager.persistence;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import io.vertx.core.AsyncResult;
@@ -113,4 +116,38 @@ public class TrustsRepositoryImplTest {
 
   }
 
+  /**
+   * Should mark the trust states as stale when they can not be updated with a
+   * stored event.
+   *
+   * @param pool        mocked connection to MongoDB.
+   * @param vertx       event bus to use.
+   * @param testContext context that executes the test.
+   *
+   * @see TrustsRepositoryImpl#storeTrustEvent(JsonObject, Handler)
+   */
+  @Test
+  public void shouldMarkTrustStatesAsStaleWhenCannotUpdateThem(@Mock final MongoClient pool, final Vertx vertx,
+      final VertxTestContext testContext) {
+
+    doReturn(Future.failedFuture(new Throwable("Expected cause"))).when(pool).findOneAndUpdateWithOptions(any(),
+        any(), any(), any(), any());
+    doReturn(Future.succeededFuture()).when(pool).updateCollectionWithOptions(any(), any(), any(), any());
+    final var repository = new TrustsRepositoryImpl(new JsonObject(), vertx, pool, "version");
+    final var event = new JsonObject().put("sourceId", "1").put("targetId", "2").put("rating", 0.5d);
+    repository.storeTrustEvent(event, testContext.succeeding(stored -> testContext.verify(() -> {
+
+      verify(pool, times(1)).updateCollectionWithOptions(eq(TrustsRepositoryImpl.TRUST_STATES_COLLECTION), any(),
+          eq(TrustStates.createStaleUpdate()), any());
+      testContext.completeNow();
+
+    })));
+
+    @SuppressWarnings("unchecked")
+    final ArgumentCaptor<Handler<AsyncResult<String>>> saveHandler = ArgumentCaptor.forClass(Handler.class);
+    verify(pool, timeout(30000).times(1)).save(any(), any(), saveHandler.capture());
+    saveHandler.getValue().handle(Future.succeededFuture("id"));
+
+  }
+
 }